@@ -0,0 +1,235 @@
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Delivers the reminders of a {@link TaskScheduler} to a {@link TaskScheduler.AsyncTaskReminderHandler}.
+ * <p>
+ * At most a fixed number of deliveries are in flight at a time, counted from the call of the
+ * handler until its future completes; further reminders wait in order of arrival. A delivery
+ * whose future fails or does not complete within the attempt timeout is retried after an
+ * exponentially growing backoff, armed on the scheduler's reminder engine, so a waiting retry
+ * holds neither a thread nor a concurrency slot. A reminder that exhausts its attempts is handed
+ * to the {@link TaskScheduler.DeadLetterStore}.
+ * <p>
+ * A timed-out attempt is retried or dead-lettered right away, but its slot stays taken until
+ * the handler's future does complete, so a slow handler is never given more than the maximum
+ * number of deliveries at once; a handler whose future never completes keeps its slot for
+ * good. The late outcome of such an attempt only frees the slot and is otherwise ignored.
+ * <p>
+ * Attempts are settled on the dispatcher rather than on the thread that completed the
+ * handler's future, so the reminder log and task store, which write to the database, never run
+ * on a thread such as the event dispatch thread that the handler completes its futures on.
+ */
+final class AsyncReminderDelivery {
+    private final TaskScheduler.AsyncTaskReminderHandler handler;
+
+    private final TaskScheduler.RetryPolicy retryPolicy;
+
+    private final int maxConcurrency;
+
+    private final ReminderEngine engine;
+
+    private final ReminderDispatcher dispatcher;
+
+    private final Clock clock;
+
+    private final Predicate<Task> stillDue;
+
+    private final Consumer<Task> onSettled;
+
+    /** Attempts waiting for a free slot. Guarded by this. */
+    private final Deque<Attempt> waiting = new ArrayDeque<>();
+
+    /** The number of attempts holding a slot. Guarded by this. */
+    private int inFlight;
+
+    private final AtomicInteger armedTimers = new AtomicInteger();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private volatile TaskScheduler.DeadLetterStore deadLetterStore;
+
+    /**
+     * Constructs an AsyncReminderDelivery.
+     *
+     * @param handler        the handler that delivers reminders
+     * @param maxConcurrency the maximum number of deliveries in flight
+     * @param retryPolicy    how often and how late failed deliveries are retried
+     * @param engine         the engine on which retries and attempt timeouts are armed
+     * @param dispatcher     the dispatcher on which the handler is called
+     * @param clock          the clock of the engine
+     * @param stillDue       checked before every attempt; a reminder that fails it is dropped
+     * @param onSettled      called once a reminder has been delivered or dead-lettered
+     */
+    AsyncReminderDelivery(TaskScheduler.AsyncTaskReminderHandler handler, int maxConcurrency,
+                          TaskScheduler.RetryPolicy retryPolicy, ReminderEngine engine, ReminderDispatcher dispatcher,
+                          Clock clock, Predicate<Task> stillDue, Consumer<Task> onSettled) {
+        this.handler = handler;
+        this.maxConcurrency = maxConcurrency;
+        this.retryPolicy = retryPolicy;
+        this.engine = engine;
+        this.dispatcher = dispatcher;
+        this.clock = clock;
+        this.stillDue = stillDue;
+        this.onSettled = onSettled;
+    }
+
+    void setDeadLetterStore(TaskScheduler.DeadLetterStore deadLetterStore) {
+        this.deadLetterStore = deadLetterStore;
+    }
+
+    /**
+     * Starts the first delivery attempt of a due reminder, or queues it if every slot is taken.
+     *
+     * @param task the task whose reminder is due
+     */
+    void deliver(Task task) {
+        submit(new Attempt(task, 1));
+    }
+
+    /**
+     * Gets the delivery counters and the current load.
+     *
+     * @return the delivery statistics
+     */
+    synchronized TaskScheduler.DeliveryStats stats() {
+        return new TaskScheduler.DeliveryStats(delivered.sum(), retried.sum(), failed.sum(), inFlight, waiting.size());
+    }
+
+    /**
+     * Gets the number of retry and timeout timers armed on the engine, which are not reminders.
+     *
+     * @return the number of armed timers
+     */
+    int armedTimerCount() {
+        return armedTimers.get();
+    }
+
+    private void submit(Attempt attempt) {
+        synchronized (this) {
+            if (inFlight >= maxConcurrency) {
+                waiting.add(attempt);
+                return;
+            }
+            inFlight++;
+        }
+        dispatcher.dispatch(() -> start(attempt));
+    }
+
+    /**
+     * Calls the handler for an attempt that holds a slot. Runs on a thread of the dispatcher.
+     */
+    private void start(Attempt attempt) {
+        if (!stillDue.test(attempt.task)) {
+            // 任务已完成或分片已转移，不再送达
+            release();
+            return;
+        }
+        CompletableFuture<Void> result;
+        try {
+            result = handler.onTaskReminder(attempt.task);
+            if (result == null) {
+                result = CompletableFuture.completedFuture(null);
+            }
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        AtomicBoolean settled = new AtomicBoolean();
+        ReminderEngine.Handle timeout = null;
+        if (retryPolicy.attemptTimeout() != null && !result.isDone()) {
+            armedTimers.incrementAndGet();
+            timeout = engine.schedule(() -> {
+                armedTimers.decrementAndGet();
+                if (settled.compareAndSet(false, true)) {
+                    // 处理器仍在运行，槽位要等其 future 完成后才释放
+                    finish(attempt, new TimeoutException("Reminder delivery timed out after " + retryPolicy.attemptTimeout()));
+                }
+            }, retryPolicy.attemptTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        ReminderEngine.Handle armedTimeout = timeout;
+        // 在分发器上结算，提醒记录和任务写回不会落在完成 future 的线程上（例如事件分发线程）
+        result.whenCompleteAsync((ignored, error) -> {
+            release();
+            if (settled.compareAndSet(false, true)) {
+                if (armedTimeout != null && armedTimeout.cancel()) {
+                    armedTimers.decrementAndGet();
+                }
+                finish(attempt, error);
+            }
+            // 否则该次尝试已超时并被重试或转入死信，迟到的结果不再计入
+        }, dispatcher::dispatch);
+    }
+
+    /**
+     * Retries, dead-letters or settles the reminder of an attempt whose outcome is known. Does
+     * not free the attempt's slot, which is held until the handler's future completes.
+     */
+    private void finish(Attempt attempt, Throwable error) {
+        if (error == null) {
+            delivered.increment();
+            onSettled.accept(attempt.task);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (attempt.number < retryPolicy.maxAttempts()) {
+            retried.increment();
+            armedTimers.incrementAndGet();
+            engine.schedule(() -> {
+                armedTimers.decrementAndGet();
+                submit(new Attempt(attempt.task, attempt.number + 1));
+            }, retryPolicy.backoffMillis(attempt.number), TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        failed.increment();
+        TaskScheduler.DeadLetterStore store = deadLetterStore;
+        if (store != null) {
+            try {
+                store.addDeadLetter(attempt.task, attempt.number, cause, LocalDateTime.now(clock));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        } else {
+            cause.printStackTrace();
+        }
+        // 送达失败的提醒已进入死信表，不再由补发重试
+        onSettled.accept(attempt.task);
+    }
+
+    /**
+     * Passes a freed slot to the longest waiting attempt, if any.
+     */
+    private void release() {
+        Attempt next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        dispatcher.dispatch(() -> start(next));
+    }
+
+    /**
+     * One delivery attempt of a reminder, numbered from one.
+     */
+    private record Attempt(Task task, int number) {
+    }
+}
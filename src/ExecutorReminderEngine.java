@@ -0,0 +1,48 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReminderEngine} backed by a single-threaded {@link ScheduledThreadPoolExecutor}.
+ * Each reminder is a ScheduledFuture in the executor's delay queue, so scheduling costs
+ * O(log n). Cancelled reminders are removed from the queue, and reminders still pending
+ * at shutdown are discarded.
+ */
+public class ExecutorReminderEngine implements ReminderEngine {
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Constructs an ExecutorReminderEngine with one timer thread.
+     */
+    public ExecutorReminderEngine() {
+        this.executor = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1);
+        this.executor.setRemoveOnCancelPolicy(true);
+        // 关闭时丢弃未到期的提醒，而不是等待它们到期
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Override
+    public Handle schedule(Runnable action, long delay, TimeUnit unit) {
+        ScheduledFuture<?> future = executor.schedule(action, delay, unit);
+        return () -> future.cancel(false);
+    }
+
+    @Override
+    public int pendingCount() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
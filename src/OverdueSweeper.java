@@ -0,0 +1,203 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks the tasks of a {@link TaskScheduler} as overdue in bulk once their due time has passed.
+ * <p>
+ * Tracked tasks are kept in an index ordered by due time, and a single timer is armed on the
+ * scheduler's reminder engine for just after the earliest due time. Each sweep takes the tasks
+ * that became overdue off the front of the index, marks them, applies one set-based update to
+ * the {@link TaskScheduler.OverdueStore} if there is one, and reports them in one event together
+ * with the stored tasks the update changed, so its cost depends on the number of newly overdue
+ * tasks rather than on the number of tasks.
+ * When a store is set, a sweep also runs at least once per store interval, so that stored
+ * tasks that are not held in memory are marked as well.
+ */
+final class OverdueSweeper {
+    private final ReminderEngine engine;
+
+    private final ReminderDispatcher dispatcher;
+
+    private final Clock clock;
+
+    private final TreeMap<DueKey, Task> byDueTime = new TreeMap<>();
+
+    private final Map<String, DueKey> keysById = new HashMap<>();
+
+    private volatile TaskScheduler.OverdueListener listener;
+
+    private TaskScheduler.OverdueStore store;
+
+    private Duration storeInterval;
+
+    private LocalDateTime lastSweep;
+
+    private ReminderEngine.Handle armed;
+
+    private LocalDateTime armedAt;
+
+    /**
+     * Constructs an OverdueSweeper.
+     *
+     * @param engine     the engine on which the sweep timer is armed
+     * @param dispatcher the dispatcher on which sweeps run
+     * @param clock      the clock of the engine
+     */
+    OverdueSweeper(ReminderEngine engine, ReminderDispatcher dispatcher, Clock clock) {
+        this.engine = engine;
+        this.dispatcher = dispatcher;
+        this.clock = clock;
+        this.lastSweep = LocalDateTime.now(clock);
+    }
+
+    void setListener(TaskScheduler.OverdueListener listener) {
+        this.listener = listener;
+    }
+
+    synchronized void setStore(TaskScheduler.OverdueStore store, Duration interval) {
+        this.store = store;
+        this.storeInterval = interval;
+        armLocked();
+    }
+
+    /**
+     * Adds a task to the due time index, or moves it after its due time changed.
+     * Completed and overdue tasks are removed from the index instead.
+     *
+     * @param task the task to track
+     */
+    synchronized void track(Task task) {
+        removeLocked(task.getId());
+        TaskSnapshot current = task.snapshot();
+        if (current.status() == Task.TaskStatus.COMPLETED || current.status() == Task.TaskStatus.OVERDUE) {
+            return;
+        }
+        DueKey key = new DueKey(current.dueDateTime(), current.id());
+        byDueTime.put(key, task);
+        keysById.put(current.id(), key);
+        armLocked();
+    }
+
+    /**
+     * Removes a task from the due time index.
+     *
+     * @param task the task to stop tracking
+     */
+    synchronized void untrack(Task task) {
+        removeLocked(task.getId());
+    }
+
+    /**
+     * Returns the number of timers this sweeper has armed on the engine.
+     *
+     * @return one while a sweep is armed, otherwise zero
+     */
+    synchronized int armedTimerCount() {
+        return armed != null ? 1 : 0;
+    }
+
+    /**
+     * Marks every tracked task whose due time has passed as overdue, persists the change
+     * and reports the IDs of the newly overdue tasks, including those changed only in the
+     * store. Runs on a thread of the reminder dispatcher.
+     */
+    void sweep() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Task> due = new ArrayList<>();
+        TaskScheduler.OverdueStore currentStore;
+        synchronized (this) {
+            armed = null;
+            armedAt = null;
+            while (!byDueTime.isEmpty() && now.isAfter(byDueTime.firstKey().dueDateTime())) {
+                Map.Entry<DueKey, Task> first = byDueTime.pollFirstEntry();
+                keysById.remove(first.getKey().id());
+                due.add(first.getValue());
+            }
+            currentStore = store;
+        }
+
+        // 同一任务可能既在内存中又被存储更新，只报告一次
+        LinkedHashSet<String> overdue = new LinkedHashSet<>();
+        for (Task task : due) {
+            TaskSnapshot current = task.snapshot();
+            if (current.status() == Task.TaskStatus.COMPLETED || current.status() == Task.TaskStatus.OVERDUE) {
+                continue;
+            }
+            if (!now.isAfter(current.dueDateTime())) {
+                // 截止时间已被推迟，按新的截止时间重新登记
+                track(task);
+            } else if (task.compareAndSetStatus(current.status(), Task.TaskStatus.OVERDUE)) {
+                overdue.add(task.getId());
+            } else {
+                track(task);
+            }
+        }
+
+        try {
+            if (currentStore != null) {
+                // 一条基于集合的 UPDATE 同时覆盖不在内存中的任务
+                overdue.addAll(currentStore.markOverdueTasks(now));
+            }
+            TaskScheduler.OverdueListener currentListener = listener;
+            if (!overdue.isEmpty() && currentListener != null) {
+                currentListener.onTasksOverdue(new ArrayList<>(overdue));
+            }
+        } finally {
+            synchronized (this) {
+                lastSweep = now;
+                armLocked();
+            }
+        }
+    }
+
+    private void removeLocked(String taskId) {
+        DueKey key = keysById.remove(taskId);
+        if (key != null) {
+            byDueTime.remove(key);
+        }
+    }
+
+    /**
+     * Arms the sweep timer for the next sweep, unless an earlier sweep is already armed.
+     */
+    private void armLocked() {
+        LocalDateTime next = null;
+        if (!byDueTime.isEmpty()) {
+            // 任务在截止时间之后才算逾期
+            next = byDueTime.firstKey().dueDateTime().plus(Duration.ofMillis(1));
+        }
+        if (store != null) {
+            LocalDateTime periodic = lastSweep.plus(storeInterval);
+            next = next == null || periodic.isBefore(next) ? periodic : next;
+        }
+        if (next == null || (armedAt != null && !armedAt.isAfter(next))) {
+            return;
+        }
+        if (armed != null) {
+            armed.cancel();
+        }
+        long nanos = Duration.between(LocalDateTime.now(clock), next).toNanos();
+        long delay = nanos <= 0 ? 0 : (nanos + 999_999) / 1_000_000;
+        armed = engine.schedule(() -> dispatcher.dispatch(this::sweep), delay, TimeUnit.MILLISECONDS);
+        armedAt = next;
+    }
+
+    /**
+     * The position of a task in the due time index.
+     */
+    private record DueKey(LocalDateTime dueDateTime, String id) implements Comparable<DueKey> {
+        @Override
+        public int compareTo(DueKey other) {
+            int byDue = dueDateTime.compareTo(other.dueDateTime);
+            return byDue != 0 ? byDue : id.compareTo(other.id);
+        }
+    }
+}
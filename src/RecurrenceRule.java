@@ -0,0 +1,314 @@
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * An immutable recurrence rule for a repeating task, using a subset of the iCalendar RRULE
+ * syntax (RFC 5545): {@code FREQ}, {@code INTERVAL}, {@code BYDAY} for weekly rules and
+ * {@code UNTIL}, for example {@code FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;UNTIL=20251231T235959}.
+ * <p>
+ * A rule does not store its occurrences. {@link #next} computes the next occurrence of the
+ * series that passes through a given occurrence, in constant time however far ahead it lies,
+ * so a task only ever holds its current occurrence. As in RFC 5545, monthly and yearly
+ * occurrences on a day that does not exist in a month (such as the 31st) are skipped, and
+ * weeks start on Monday.
+ */
+public final class RecurrenceRule {
+    /**
+     * The unit in which a rule repeats.
+     */
+    public enum Frequency {
+        MINUTELY(ChronoUnit.MINUTES), HOURLY(ChronoUnit.HOURS), DAILY(ChronoUnit.DAYS),
+        WEEKLY(ChronoUnit.WEEKS), MONTHLY(ChronoUnit.MONTHS), YEARLY(ChronoUnit.YEARS);
+
+        private final ChronoUnit unit;
+
+        Frequency(ChronoUnit unit) {
+            this.unit = unit;
+        }
+    }
+
+    /** The local date-time form used by UNTIL. */
+    private static final DateTimeFormatter UNTIL_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    /** The RRULE parts this class understands. */
+    private static final Set<String> SUPPORTED_PARTS = Set.of("FREQ", "INTERVAL", "BYDAY", "UNTIL");
+
+    /** Gives up on a monthly or yearly series that has no valid occurrence within this many periods. */
+    private static final int MAX_SKIPPED_PERIODS = 1000;
+
+    private final Frequency frequency;
+
+    private final int interval;
+
+    private final Set<DayOfWeek> byDay;
+
+    private final LocalDateTime until;
+
+    /**
+     * Creates a RecurrenceRule.
+     *
+     * @param frequency the unit in which the rule repeats
+     * @param interval  the number of units between two periods; at least 1
+     * @param byDay     the days of the week of a weekly rule, or an empty set for the day of the first occurrence
+     * @param until     the last time an occurrence may fall on, or null if the series does not end
+     * @throws IllegalArgumentException if the frequency is null, the interval is not positive,
+     *                                  or days are given for a rule that is not weekly
+     */
+    public RecurrenceRule(Frequency frequency, int interval, Set<DayOfWeek> byDay, LocalDateTime until) {
+        if (frequency == null || byDay == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (!byDay.isEmpty() && frequency != Frequency.WEEKLY) {
+            throw new IllegalArgumentException("BYDAY is only supported with FREQ=WEEKLY");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.byDay = byDay.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(byDay));
+        this.until = until;
+    }
+
+    /**
+     * Creates a rule that repeats every day.
+     *
+     * @return the daily rule
+     */
+    public static RecurrenceRule daily() {
+        return new RecurrenceRule(Frequency.DAILY, 1, Collections.emptySet(), null);
+    }
+
+    /**
+     * Creates a rule that repeats every week on the given days, or on the day of the first
+     * occurrence if none are given.
+     *
+     * @param days the days of the week
+     * @return the weekly rule
+     */
+    public static RecurrenceRule weekly(DayOfWeek... days) {
+        Set<DayOfWeek> byDay = EnumSet.noneOf(DayOfWeek.class);
+        Collections.addAll(byDay, days);
+        return new RecurrenceRule(Frequency.WEEKLY, 1, byDay, null);
+    }
+
+    /**
+     * Creates a rule that repeats every month on the day of the first occurrence.
+     *
+     * @return the monthly rule
+     */
+    public static RecurrenceRule monthly() {
+        return new RecurrenceRule(Frequency.MONTHLY, 1, Collections.emptySet(), null);
+    }
+
+    /**
+     * Parses a rule in the RRULE subset described above. Parts may appear in any order and
+     * are case-insensitive; a leading {@code RRULE:} is ignored.
+     *
+     * @param text the rule text
+     * @return the parsed rule
+     * @throws IllegalArgumentException if the text is not a valid rule of the supported subset
+     */
+    public static RecurrenceRule parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Recurrence rule cannot be empty");
+        }
+        String rule = text.trim().toUpperCase(Locale.ROOT);
+        if (rule.startsWith("RRULE:")) {
+            rule = rule.substring("RRULE:".length());
+        }
+
+        Frequency frequency = null;
+        int interval = 1;
+        Set<DayOfWeek> byDay = EnumSet.noneOf(DayOfWeek.class);
+        LocalDateTime until = null;
+        for (String part : rule.split(";")) {
+            int equals = part.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Invalid recurrence rule part: " + part);
+            }
+            String name = part.substring(0, equals);
+            String value = part.substring(equals + 1);
+            if (!SUPPORTED_PARTS.contains(name)) {
+                throw new IllegalArgumentException("Unsupported recurrence rule part: " + name);
+            }
+            try {
+                switch (name) {
+                    case "FREQ" -> frequency = Frequency.valueOf(value);
+                    case "INTERVAL" -> interval = Integer.parseInt(value);
+                    case "BYDAY" -> {
+                        for (String day : value.split(",")) {
+                            byDay.add(parseDay(day));
+                        }
+                    }
+                    default -> until = LocalDateTime.parse(value, UNTIL_FORMAT);
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid recurrence rule part: " + part, e);
+            }
+        }
+        if (frequency == null) {
+            throw new IllegalArgumentException("Recurrence rule must have a FREQ");
+        }
+        return new RecurrenceRule(frequency, interval, byDay, until);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public Set<DayOfWeek> getByDay() {
+        return byDay;
+    }
+
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    /**
+     * Computes the earliest occurrence strictly after {@code after} of the series that passes
+     * through {@code occurrence}. Earlier occurrences of the series are not considered, so
+     * the result is {@code occurrence} itself if it lies after {@code after}.
+     *
+     * @param occurrence a known occurrence of the series, typically the current reminder time
+     * @param after      the time the next occurrence must be later than, typically now
+     * @return the next occurrence, or null if the series ends before it
+     * @throws IllegalArgumentException if a parameter is null
+     */
+    public LocalDateTime next(LocalDateTime occurrence, LocalDateTime after) {
+        if (occurrence == null || after == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        LocalDateTime next;
+        if (occurrence.isAfter(after)) {
+            next = occurrence;
+        } else {
+            switch (frequency) {
+                case WEEKLY -> next = byDay.isEmpty() ? nextFixedStep(occurrence, after) : nextWeekly(occurrence, after);
+                case MONTHLY, YEARLY -> next = nextSkippingInvalidDays(occurrence, after);
+                default -> next = nextFixedStep(occurrence, after);
+            }
+        }
+        return next == null || (until != null && next.isAfter(until)) ? null : next;
+    }
+
+    /**
+     * Steps over whole periods at once: the number of complete units between the occurrence
+     * and {@code after}, rounded down to a multiple of the interval, plus one interval.
+     */
+    private LocalDateTime nextFixedStep(LocalDateTime occurrence, LocalDateTime after) {
+        long units = frequency.unit.between(occurrence, after);
+        long periods = units / interval + 1;
+        return occurrence.plus(periods * interval, frequency.unit);
+    }
+
+    /**
+     * Finds the first matching day after {@code after} in the weeks of the series, which are
+     * every interval-th week counted from the week of the occurrence.
+     */
+    private LocalDateTime nextWeekly(LocalDateTime occurrence, LocalDateTime after) {
+        LocalDateTime firstWeek = occurrence.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        long weeks = ChronoUnit.DAYS.between(firstWeek.toLocalDate(), after.toLocalDate()) / 7;
+        long week = weeks / interval * interval;
+        // 当前周期内剩余的日期都不满足时，下一个周期的第一个匹配日必然满足
+        for (int attempt = 0; attempt < 2; attempt++, week += interval) {
+            LocalDateTime weekStart = firstWeek.plusWeeks(week);
+            for (DayOfWeek day : byDay) {
+                LocalDateTime candidate = weekStart.plusDays(day.getValue() - 1);
+                if (candidate.isAfter(after) && !candidate.isBefore(occurrence)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Steps over whole months or years like {@link #nextFixedStep}, then skips periods in
+     * which the day of the occurrence does not exist.
+     */
+    private LocalDateTime nextSkippingInvalidDays(LocalDateTime occurrence, LocalDateTime after) {
+        long periods = frequency.unit.between(occurrence, after) / interval + 1;
+        int day = occurrence.getDayOfMonth();
+        YearMonth first = YearMonth.from(occurrence);
+        for (int skipped = 0; skipped < MAX_SKIPPED_PERIODS; skipped++, periods++) {
+            YearMonth month = frequency == Frequency.MONTHLY
+                    ? first.plusMonths(periods * interval)
+                    : first.plusYears(periods * interval);
+            if (day <= month.lengthOfMonth()) {
+                LocalDateTime candidate = occurrence.with(month.atDay(day));
+                if (candidate.isAfter(after)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static DayOfWeek parseDay(String day) {
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (day.length() == 2 && dayOfWeek.name().startsWith(day)) {
+                return dayOfWeek;
+            }
+        }
+        throw new IllegalArgumentException("Invalid day of week: " + day);
+    }
+
+    /**
+     * Returns the rule in its canonical RRULE form, which {@link #parse} accepts.
+     *
+     * @return the rule text
+     */
+    @Override
+    public String toString() {
+        StringJoiner rule = new StringJoiner(";");
+        rule.add("FREQ=" + frequency);
+        if (interval != 1) {
+            rule.add("INTERVAL=" + interval);
+        }
+        if (!byDay.isEmpty()) {
+            StringJoiner days = new StringJoiner(",");
+            for (DayOfWeek day : byDay) {
+                days.add(day.name().substring(0, 2));
+            }
+            rule.add("BYDAY=" + days);
+        }
+        if (until != null) {
+            rule.add("UNTIL=" + UNTIL_FORMAT.format(until));
+        }
+        return rule.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RecurrenceRule)) {
+            return false;
+        }
+        RecurrenceRule other = (RecurrenceRule) o;
+        return frequency == other.frequency && interval == other.interval && byDay.equals(other.byDay)
+                && Objects.equals(until, other.until);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(frequency, interval, byDay, until);
+    }
+}
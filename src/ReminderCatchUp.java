@@ -0,0 +1,165 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Replays the reminders that came due while the application was not running.
+ * <p>
+ * Missed reminders are read page by page from a {@link TaskScheduler.ReminderSource} in
+ * reminder time order and replayed through a token bucket, so a restart after a long outage
+ * delivers them at a bounded rate instead of all at once. The getters report the progress of
+ * the run and may be read from any thread.
+ */
+public final class ReminderCatchUp implements Runnable {
+    /** The number of missed reminders loaded per query. */
+    private static final int PAGE_SIZE = 500;
+
+    private final TaskScheduler.ReminderSource missedReminders;
+
+    private final LocalDateTime since;
+
+    private final LocalDateTime until;
+
+    private final TokenBucket rateLimiter;
+
+    private final Consumer<Task> replay;
+
+    private final AtomicLong replayedCount = new AtomicLong();
+
+    private volatile LocalDateTime position;
+
+    private volatile long startNanos;
+
+    private volatile long finishNanos;
+
+    private volatile boolean finished;
+
+    /**
+     * Constructs a ReminderCatchUp.
+     *
+     * @param missedReminders    the source of reminders that have not fired
+     * @param since              the earliest reminder time to replay
+     * @param until              the latest reminder time to replay
+     * @param remindersPerSecond the sustained replay rate
+     * @param burst              the number of reminders that may be replayed without waiting
+     * @param replay             delivers one missed reminder
+     */
+    ReminderCatchUp(TaskScheduler.ReminderSource missedReminders, LocalDateTime since, LocalDateTime until,
+                    double remindersPerSecond, int burst, Consumer<Task> replay) {
+        this.missedReminders = missedReminders;
+        this.since = since;
+        this.until = until;
+        this.rateLimiter = new TokenBucket(remindersPerSecond, burst);
+        this.replay = replay;
+        this.position = since;
+    }
+
+    @Override
+    public void run() {
+        startNanos = System.nanoTime();
+        try {
+            LocalDateTime cursorTime = since;
+            String cursorId = "";
+            List<Task> page;
+            do {
+                page = missedReminders.getTasksByReminderTime(cursorTime, cursorId, until, PAGE_SIZE);
+                for (Task task : page) {
+                    rateLimiter.acquire();
+                    replay.accept(task);
+                    cursorTime = task.getReminderTime();
+                    cursorId = task.getId();
+                    position = cursorTime;
+                    replayedCount.incrementAndGet();
+                }
+            } while (page.size() == PAGE_SIZE);
+            position = until;
+        } catch (InterruptedException e) {
+            // 关闭调度器时中断补发，未补发的提醒在下次启动时继续
+            Thread.currentThread().interrupt();
+        } finally {
+            finishNanos = System.nanoTime();
+            finished = true;
+        }
+    }
+
+    /**
+     * Gets the number of missed reminders replayed so far.
+     *
+     * @return the number of replayed reminders
+     */
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    /**
+     * Gets the reminder time up to which missed reminders have been replayed.
+     *
+     * @return the replay position
+     */
+    public LocalDateTime getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the earliest reminder time this run replays.
+     *
+     * @return the start of the catch-up range
+     */
+    public LocalDateTime getSince() {
+        return since;
+    }
+
+    /**
+     * Gets the latest reminder time this run replays.
+     *
+     * @return the end of the catch-up range
+     */
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    /**
+     * Gets how far the replay position still lags behind the end of the catch-up range.
+     *
+     * @return the remaining lag, or zero once finished
+     */
+    public Duration getLag() {
+        Duration lag = Duration.between(position, until);
+        return lag.isNegative() ? Duration.ZERO : lag;
+    }
+
+    /**
+     * Gets the time spent replaying so far.
+     *
+     * @return the elapsed time, or zero if the run has not started
+     */
+    public Duration getElapsed() {
+        long start = startNanos;
+        if (start == 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((finished ? finishNanos : System.nanoTime()) - start);
+    }
+
+    /**
+     * Checks whether the run has finished, either completely or because it was interrupted.
+     *
+     * @return true if the run has finished
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public String toString() {
+        return "ReminderCatchUp{" +
+                "replayed=" + replayedCount.get() +
+                ", position=" + position +
+                ", until=" + until +
+                ", lag=" + getLag() +
+                ", finished=" + finished +
+                '}';
+    }
+}
@@ -0,0 +1,143 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Collects due reminders into batches for a {@link TaskScheduler.BatchTaskReminderHandler}.
+ * <p>
+ * A batch is opened by its first reminder and closed when no reminder has arrived for one
+ * coalescing window, when it reaches the maximum batch size, or when its first reminder has
+ * waited for the maximum added delay, whichever comes first. Only one flush timer is armed
+ * per batch, on the scheduler's own reminder engine, so adding a reminder costs a list append.
+ */
+final class ReminderCoalescer {
+    private final ReminderEngine engine;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private final Consumer<List<Task>> sink;
+
+    private List<Task> batch;
+
+    private long firstNanos;
+
+    private long lastNanos;
+
+    /** Identifies the open batch, so flush timers of earlier batches are ignored. */
+    private long generation;
+
+    private final AtomicInteger armedTimers = new AtomicInteger();
+
+    /**
+     * Constructs a ReminderCoalescer.
+     *
+     * @param engine       the engine on which flush timers are armed
+     * @param window       the quiet period after which a batch is delivered
+     * @param maxBatchSize the maximum number of reminders in one batch
+     * @param maxDelay     the maximum time a reminder waits in a batch
+     * @param sink         receives each closed batch
+     * @throws IllegalArgumentException if a duration is negative or maxBatchSize is not positive
+     */
+    ReminderCoalescer(ReminderEngine engine, Duration window, int maxBatchSize, Duration maxDelay,
+                      Consumer<List<Task>> sink) {
+        if (window == null || window.isNegative() || maxDelay == null || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("Coalescing window and maximum delay cannot be negative");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Maximum batch size must be positive");
+        }
+        this.engine = engine;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.sink = sink;
+    }
+
+    /**
+     * Adds a due reminder to the open batch, opening one if necessary.
+     *
+     * @param task the task whose reminder is due
+     */
+    void add(Task task) {
+        List<Task> full = null;
+        synchronized (this) {
+            long now = nowNanos();
+            if (batch == null) {
+                batch = new ArrayList<>();
+                firstNanos = now;
+                long current = ++generation;
+                armFlush(current, Math.min(windowNanos, maxDelayNanos));
+            }
+            batch.add(task);
+            lastNanos = now;
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                batch = null;
+            }
+        }
+        if (full != null) {
+            sink.accept(full);
+        }
+    }
+
+    /**
+     * Gets the number of flush timers armed on the engine, which are not reminders. A timer
+     * stays armed after its batch was delivered for being full, until it fires and is ignored.
+     *
+     * @return the number of armed timers
+     */
+    int armedTimerCount() {
+        return armedTimers.get();
+    }
+
+    private void armFlush(long batchGeneration, long delayNanos) {
+        armedTimers.incrementAndGet();
+        engine.schedule(() -> {
+            armedTimers.decrementAndGet();
+            checkFlush(batchGeneration);
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Delivers the open batch if it has been quiet for a window or has reached its maximum
+     * delay; otherwise re-arms the flush timer for the earlier of the two.
+     *
+     * @param batchGeneration the generation of the batch the timer was armed for
+     */
+    private void checkFlush(long batchGeneration) {
+        List<Task> closed;
+        synchronized (this) {
+            if (batch == null || batchGeneration != generation) {
+                return;
+            }
+            long now = nowNanos();
+            long quietDeadline = lastNanos + windowNanos;
+            long hardDeadline = firstNanos + maxDelayNanos;
+            long deadline = Math.min(quietDeadline, hardDeadline);
+            if (now < deadline) {
+                armFlush(batchGeneration, deadline - now);
+                return;
+            }
+            closed = batch;
+            batch = null;
+        }
+        sink.accept(closed);
+    }
+
+    /**
+     * Reads the current time from the engine's clock, so that batches close on virtual time
+     * when the engine runs on virtual time.
+     */
+    private long nowNanos() {
+        Instant now = engine.clock().instant();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+}
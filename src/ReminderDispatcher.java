@@ -0,0 +1,180 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers due reminders to the {@link TaskScheduler.TaskReminderHandler} on behalf of the
+ * timer thread. The timer thread only hands each due reminder to the dispatcher, so a slow
+ * handler delays its own reminder but not the timing of the others.
+ */
+public final class ReminderDispatcher {
+    private final String name;
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    private ReminderDispatcher(String name, ExecutorService executor, Semaphore permits) {
+        this.name = name;
+        this.executor = executor;
+        this.permits = permits;
+    }
+
+    /**
+     * Runs each delivery directly on the timer thread, as TaskScheduler did originally.
+     *
+     * @return the inline dispatcher
+     */
+    public static ReminderDispatcher inline() {
+        return new ReminderDispatcher("inline", null, null);
+    }
+
+    /**
+     * Delivers reminders on a fixed pool of platform threads with a bounded backlog.
+     * When the backlog is full the timer thread delivers the reminder itself,
+     * which slows the timer down instead of dropping reminders.
+     *
+     * @param threads       the number of delivery threads
+     * @param queueCapacity the maximum number of reminders waiting for a delivery thread
+     * @return the pooled dispatcher
+     * @throws IllegalArgumentException if threads or queueCapacity is not positive
+     */
+    public static ReminderDispatcher platformPool(int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("reminder-dispatch-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return new ReminderDispatcher("platform-pool-" + threads, executor, null);
+    }
+
+    /**
+     * Delivers each reminder on its own virtual thread, with at most {@code maxConcurrency}
+     * deliveries running at a time. Waiting deliveries park their virtual thread and hold no
+     * platform thread.
+     * <p>
+     * Virtual threads need Java 21. On older runtimes this falls back to a pool of
+     * {@code maxConcurrency} platform threads with an unbounded backlog.
+     *
+     * @param maxConcurrency the maximum number of concurrent deliveries
+     * @return the virtual-thread dispatcher
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public static ReminderDispatcher virtualThreads(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        if (virtual != null) {
+            return new ReminderDispatcher("virtual-" + maxConcurrency, virtual, new Semaphore(maxConcurrency));
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("reminder-dispatch-"));
+        executor.allowCoreThreadTimeOut(true);
+        return new ReminderDispatcher("platform-fallback-" + maxConcurrency, executor, null);
+    }
+
+    /**
+     * Hands a delivery to this dispatcher.
+     *
+     * @param delivery the delivery to run
+     */
+    public void dispatch(Runnable delivery) {
+        if (executor == null) {
+            runSafely(delivery);
+            return;
+        }
+        if (permits == null) {
+            executor.execute(() -> runSafely(delivery));
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                runSafely(delivery);
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Gets the name describing how this dispatcher delivers reminders.
+     *
+     * @return the dispatcher name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Waits for the deliveries already handed over and stops the delivery threads.
+     */
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a delivery so that a failing handler does not kill the delivery thread.
+     */
+    private static void runSafely(Runnable delivery) {
+        try {
+            delivery.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}, which exists from Java 21.
+     *
+     * @return a virtual-thread-per-task executor, or null if the runtime has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,54 @@
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timer backend used by {@link TaskScheduler} to fire reminders.
+ * Implementations decide how pending reminders are stored and when they run.
+ */
+public interface ReminderEngine {
+
+    /**
+     * A reminder armed through {@link #schedule}.
+     */
+    interface Handle {
+        /**
+         * Cancels the reminder if it has not fired yet.
+         *
+         * @return true if the reminder was cancelled; false if it already fired or was cancelled
+         */
+        boolean cancel();
+    }
+
+    /**
+     * Arms an action to run once after the given delay.
+     *
+     * @param action the action to run
+     * @param delay  the delay before the action runs; zero or negative runs it as soon as possible
+     * @param unit   the unit of the delay
+     * @return a handle that cancels the action
+     */
+    Handle schedule(Runnable action, long delay, TimeUnit unit);
+
+    /**
+     * Returns the number of armed reminders that have neither fired nor been cancelled.
+     *
+     * @return the number of pending reminders
+     */
+    int pendingCount();
+
+    /**
+     * Stops accepting reminders and waits for the timer thread to terminate.
+     */
+    void shutdown();
+
+    /**
+     * Returns the clock whose time this engine's delays are measured against.
+     * {@link TaskScheduler} reads the current time from it, so that delays computed from
+     * reminder times match when the engine fires them.
+     *
+     * @return the engine clock; the system clock unless overridden
+     */
+    default Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+}
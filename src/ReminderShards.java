@@ -0,0 +1,146 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * Tracks which reminder shards the process running a {@link TaskScheduler} owns.
+ * <p>
+ * Task IDs are hashed into a fixed number of shards, and each shard is leased to one process
+ * at a time through a {@link TaskScheduler.ShardLeaseStore}. Leases expire unless renewed, so
+ * the shards of a process that stopped are taken over by the others. Ownership also lapses
+ * locally when the lease could not be renewed in time, before another process may take the
+ * shard over, so two processes never deliver the same reminder while their clocks agree.
+ */
+final class ReminderShards {
+    private final TaskScheduler.ShardLeaseStore store;
+
+    private final String owner;
+
+    private final int shardCount;
+
+    private final Duration leaseDuration;
+
+    private final Clock clock;
+
+    private volatile Ownership ownership = new Ownership(new BitSet(), null);
+
+    /**
+     * Constructs a ReminderShards.
+     *
+     * @param store         the store of shard leases
+     * @param owner         the identity of this process in the lease store
+     * @param shardCount    the number of shards task IDs are hashed into
+     * @param leaseDuration how long a lease lasts without renewal
+     * @param clock         the clock of the scheduler
+     */
+    ReminderShards(TaskScheduler.ShardLeaseStore store, String owner, int shardCount, Duration leaseDuration, Clock clock) {
+        this.store = store;
+        this.owner = owner;
+        this.shardCount = shardCount;
+        this.leaseDuration = leaseDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the shard of a task. The hash of a String is specified by the language, so every
+     * process maps a task to the same shard.
+     *
+     * @param taskId     the task ID
+     * @param shardCount the number of shards
+     * @return the shard of the task
+     */
+    static int shardOf(String taskId, int shardCount) {
+        return Math.floorMod(taskId.hashCode(), shardCount);
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Checks whether this process currently holds the lease on the shard of the given task.
+     *
+     * @param taskId the task ID
+     * @return true if the reminder of the task is delivered by this process
+     */
+    boolean owns(String taskId) {
+        Ownership current = ownership;
+        return current.validUntil != null && LocalDateTime.now(clock).isBefore(current.validUntil)
+                && current.shards.get(shardOf(taskId, shardCount));
+    }
+
+    /**
+     * Gets the shards this process currently holds.
+     *
+     * @return the owned shards
+     */
+    BitSet ownedShards() {
+        Ownership current = ownership;
+        if (current.validUntil == null || !LocalDateTime.now(clock).isBefore(current.validUntil)) {
+            return new BitSet();
+        }
+        return (BitSet) current.shards.clone();
+    }
+
+    /**
+     * Renews the leases of this process and takes over or gives up shards as the store decides.
+     * If the store cannot be reached and the leases have run out, every shard is given up.
+     *
+     * @return the shards gained and lost by this renewal
+     */
+    Change renew() {
+        Ownership previous = ownership;
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime expires = now.plus(leaseDuration);
+        BitSet owned = new BitSet(shardCount);
+        try {
+            Set<Integer> leased = store.renewShardLeases(owner, shardCount, now, expires);
+            leased.forEach(owned::set);
+            ownership = new Ownership(owned, expires);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            if (previous.validUntil != null && now.isBefore(previous.validUntil)) {
+                // 租约仍然有效，下次续约时重试
+                return new Change(new BitSet(), new BitSet());
+            }
+            ownership = new Ownership(owned, null);
+        }
+
+        BitSet gained = (BitSet) owned.clone();
+        gained.andNot(previous.shards);
+        BitSet lost = (BitSet) previous.shards.clone();
+        lost.andNot(owned);
+        return new Change(gained, lost);
+    }
+
+    /**
+     * Gives up every lease of this process, so that other processes can take the shards over
+     * without waiting for the leases to expire.
+     */
+    void release() {
+        ownership = new Ownership(new BitSet(), null);
+        try {
+            store.releaseShardLeases(owner);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The shards held by this process and the time until which the leases are valid.
+     */
+    private record Ownership(BitSet shards, LocalDateTime validUntil) {
+    }
+
+    /**
+     * The shards gained and lost by one renewal.
+     */
+    record Change(BitSet gained, BitSet lost) {
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records when each phase of startup is reached, in milliseconds since the JVM started.
+ * <p>
+ * A phase is recorded the first time {@link #mark} is called with its name, so marks may sit
+ * on paths that run many times, such as arming a reminder. With the system property
+ * {@value #PRINT_PROPERTY} set to true, each phase is printed as it is reached, which gives
+ * the timeline from JVM start to the first paint and to the first armed reminder. With
+ * {@value #EXIT_PROPERTY} set to true the process exits once {@link #complete} is called;
+ * the AppCDS training run uses it to archive exactly the classes loaded during startup.
+ * <p>
+ * This class is thread-safe.
+ */
+final class StartupTimeline {
+    /** The system property that prints each phase as it is reached. */
+    static final String PRINT_PROPERTY = "tasks.startup.print";
+
+    /** The system property that exits the process once startup is complete. */
+    static final String EXIT_PROPERTY = "tasks.startup.exit";
+
+    /** The {@link System#nanoTime} value at which the JVM started. */
+    private static final long START_NANOS = jvmStartNanos();
+
+    private static final Map<String, Long> PHASES = new ConcurrentHashMap<>();
+
+    private StartupTimeline() {
+    }
+
+    /**
+     * Records that a phase has been reached, unless it was reached before.
+     *
+     * @param phase the name of the phase
+     */
+    static void mark(String phase) {
+        if (PHASES.containsKey(phase)) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (PHASES.putIfAbsent(phase, now) == null && Boolean.getBoolean(PRINT_PROPERTY)) {
+            System.out.printf("[startup] %8.1f ms  %s%n", (now - START_NANOS) / 1e6, phase);
+        }
+    }
+
+    /**
+     * Records the phase that completes startup, and exits if {@value #EXIT_PROPERTY} is set.
+     *
+     * @param phase the name of the phase
+     */
+    static void complete(String phase) {
+        mark(phase);
+        if (Boolean.getBoolean(EXIT_PROPERTY)) {
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Gets the time from JVM start to a phase.
+     *
+     * @param phase the name of the phase
+     * @return the elapsed milliseconds, or -1 if the phase has not been reached
+     */
+    static double elapsedMillis(String phase) {
+        Long reached = PHASES.get(phase);
+        return reached != null ? (reached - START_NANOS) / 1e6 : -1;
+    }
+
+    /**
+     * Estimates the nanoTime at which the JVM started from the age of the process, which Linux
+     * reports to the hundredth of a second. ProcessHandle's start instant is derived from the
+     * boot time in whole seconds, and the RuntimeMXBean takes tens of milliseconds to load, so
+     * neither suits a startup timeline. Elsewhere the timeline starts when this class loads.
+     */
+    private static long jvmStartNanos() {
+        long now = System.nanoTime();
+        try {
+            // /proc/self/stat 的第 22 个字段是进程启动时距开机的时钟滴答数，每秒 100 个
+            String stat = Files.readString(Path.of("/proc/self/stat"));
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            double startSeconds = Long.parseLong(fields[19]) / 100.0;
+            String uptime = Files.readString(Path.of("/proc/uptime"));
+            double uptimeSeconds = Double.parseDouble(uptime.substring(0, uptime.indexOf(' ')));
+            return now - (long) ((uptimeSeconds - startSeconds) * 1e9);
+        } catch (IOException | RuntimeException e) {
+            return now;
+        }
+    }
+}
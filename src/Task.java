@@ -1,27 +1,51 @@
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * Represents a task with various attributes such as title, description, due date, and priority.
+ * A task can be shared between threads: its attributes are published as immutable
+ * {@link TaskSnapshot} versions through an atomic reference.
  */
 public class Task {
-    private String id;
+    /** Field bit for the title. */
+    public static final int FIELD_TITLE = 1;
 
-    private String title;
+    /** Field bit for the description. */
+    public static final int FIELD_DESCRIPTION = 1 << 1;
 
-    private String description;
+    /** Field bit for the due date and time. */
+    public static final int FIELD_DUE_DATE_TIME = 1 << 2;
 
-    private LocalDateTime dueDateTime;
+    /** Field bit for the reminder time. */
+    public static final int FIELD_REMINDER_TIME = 1 << 3;
 
-    private LocalDateTime reminderTime;
+    /** Field bit for the priority. */
+    public static final int FIELD_PRIORITY = 1 << 4;
 
-    private TaskPriority priority;
+    /** Field bit for the status. */
+    public static final int FIELD_STATUS = 1 << 5;
 
-    private TaskStatus status;
+    /** Field bit for the recurrence rule. */
+    public static final int FIELD_RECURRENCE = 1 << 6;
 
-    private LocalDateTime createdTime;
+    /** All field bits. */
+    public static final int ALL_FIELDS = (1 << 7) - 1;
 
-    private LocalDateTime lastModifiedTime;
+    private final String id;
+
+    /**
+     * The current version of every attribute. Each change publishes a new snapshot,
+     * so reads on any thread never lock and never see a partially applied change.
+     */
+    private final AtomicReference<TaskSnapshot> state;
+
+    /** The clock that stamps the creation and last modified times. */
+    private final Clock clock;
 
     /**
      * Represents the priority levels for a task.
@@ -48,18 +72,133 @@ public class Task {
      * @throws IllegalArgumentException if any required parameter is null
      */
     public Task(String title, String description, LocalDateTime dueDateTime, LocalDateTime reminderTime, TaskPriority priority) {
-        if (title == null || description == null || dueDateTime == null || reminderTime == null || priority == null) {
+        this(title, description, dueDateTime, reminderTime, priority, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates a new Task object whose creation and last modified times are read from the given clock.
+     *
+     * @param title        the title of the task
+     * @param description  the description of the task
+     * @param dueDateTime  the due date and time of the task
+     * @param reminderTime the reminder date and time for the task
+     * @param priority     the priority level of the task
+     * @param clock        the clock that stamps the task's timestamps
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    public Task(String title, String description, LocalDateTime dueDateTime, LocalDateTime reminderTime,
+                TaskPriority priority, Clock clock) {
+        if (clock == null || title == null || description == null || dueDateTime == null || reminderTime == null || priority == null) {
             throw new IllegalArgumentException("Parameters cannot be null");
         }
         this.id = UUID.randomUUID().toString();
-        this.title = title;
-        this.description = description;
-        this.dueDateTime = dueDateTime;
-        this.reminderTime = reminderTime;
-        this.priority = priority;
-        this.status = TaskStatus.NOT_STARTED;
-        this.createdTime = LocalDateTime.now();
-        this.lastModifiedTime = LocalDateTime.now();
+        this.clock = clock;
+        LocalDateTime now = LocalDateTime.now(clock);
+        this.state = new AtomicReference<>(new TaskSnapshot(id, title, description, dueDateTime, reminderTime,
+                priority, TaskStatus.NOT_STARTED, null, now, now, 0));
+    }
+
+    /**
+     * Creates a Task object whose current state is the given snapshot.
+     */
+    private Task(TaskSnapshot snapshot, Clock clock) {
+        this.id = snapshot.id();
+        this.state = new AtomicReference<>(snapshot);
+        this.clock = clock;
+    }
+
+    /**
+     * Recreates a previously stored task, keeping its identity and timestamps.
+     *
+     * @param id               the unique identifier of the task
+     * @param title            the title of the task
+     * @param description      the description of the task
+     * @param dueDateTime      the due date and time of the task
+     * @param reminderTime     the reminder date and time for the task
+     * @param priority         the priority level of the task
+     * @param status           the status of the task
+     * @param createdTime      the creation time of the task
+     * @param lastModifiedTime the last modified time of the task
+     * @return the restored task
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    static Task restore(String id, String title, String description, LocalDateTime dueDateTime, LocalDateTime reminderTime,
+                        TaskPriority priority, TaskStatus status, LocalDateTime createdTime, LocalDateTime lastModifiedTime) {
+        return restore(id, title, description, dueDateTime, reminderTime, priority, status, null,
+                createdTime, lastModifiedTime);
+    }
+
+    /**
+     * Recreates a previously stored task with a recurrence rule, keeping its identity and timestamps.
+     *
+     * @param id               the unique identifier of the task
+     * @param title            the title of the task
+     * @param description      the description of the task
+     * @param dueDateTime      the due date and time of the task
+     * @param reminderTime     the reminder date and time for the task
+     * @param priority         the priority level of the task
+     * @param status           the status of the task
+     * @param recurrence       the recurrence rule of the task, or null if the task does not repeat
+     * @param createdTime      the creation time of the task
+     * @param lastModifiedTime the last modified time of the task
+     * @return the restored task
+     * @throws IllegalArgumentException if any parameter other than recurrence is null
+     */
+    static Task restore(String id, String title, String description, LocalDateTime dueDateTime, LocalDateTime reminderTime,
+                        TaskPriority priority, TaskStatus status, RecurrenceRule recurrence,
+                        LocalDateTime createdTime, LocalDateTime lastModifiedTime) {
+        if (id == null || title == null || description == null || dueDateTime == null || reminderTime == null
+                || priority == null || status == null || createdTime == null || lastModifiedTime == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        return new Task(new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status,
+                recurrence, createdTime, lastModifiedTime, 0), Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates a task whose current state is the given snapshot.
+     *
+     * @param snapshot the snapshot holding the attributes of the task
+     * @return a task with the identity and attributes of the snapshot
+     * @throws IllegalArgumentException if snapshot is null
+     */
+    public static Task fromSnapshot(TaskSnapshot snapshot) {
+        return fromSnapshot(snapshot, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates a task whose current state is the given snapshot and whose later changes
+     * are stamped with the given clock.
+     *
+     * @param snapshot the snapshot holding the attributes of the task
+     * @param clock    the clock that stamps the last modified time
+     * @return a task with the identity and attributes of the snapshot
+     * @throws IllegalArgumentException if snapshot or clock is null
+     */
+    public static Task fromSnapshot(TaskSnapshot snapshot, Clock clock) {
+        if (snapshot == null || clock == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        return new Task(snapshot, clock);
+    }
+
+    /**
+     * Gets the current immutable version of every attribute of the task.
+     * Use this instead of several getters when the values must belong together.
+     *
+     * @return the current snapshot
+     */
+    public TaskSnapshot snapshot() {
+        return state.get();
+    }
+
+    /**
+     * Gets the number of changes published since the task was created or restored.
+     *
+     * @return the task version
+     */
+    public long getVersion() {
+        return state.get().version();
     }
 
     /**
@@ -77,7 +216,7 @@ public class Task {
      * @return the task title
      */
     public String getTitle() {
-        return title;
+        return state.get().title();
     }
 
     /**
@@ -86,8 +225,7 @@ public class Task {
      * @param title the new title of the task
      */
     public void setTitle(String title) {
-        this.title = title;
-        updateLastModifiedTime();
+        publish(current -> current.withTitle(title));
     }
 
     /**
@@ -96,7 +234,7 @@ public class Task {
      * @return the task description
      */
     public String getDescription() {
-        return description;
+        return state.get().description();
     }
 
     /**
@@ -105,8 +243,7 @@ public class Task {
      * @param description the new description of the task
      */
     public void setDescription(String description) {
-        this.description = description;
-        updateLastModifiedTime();
+        publish(current -> current.withDescription(description));
     }
 
     /**
@@ -115,7 +252,7 @@ public class Task {
      * @return the due date and time
      */
     public LocalDateTime getDueDateTime() {
-        return dueDateTime;
+        return state.get().dueDateTime();
     }
 
     /**
@@ -124,8 +261,7 @@ public class Task {
      * @param dueDateTime the new due date and time
      */
     public void setDueDateTime(LocalDateTime dueDateTime) {
-        this.dueDateTime = dueDateTime;
-        updateLastModifiedTime();
+        publish(current -> current.withDueDateTime(dueDateTime));
     }
 
     /**
@@ -134,7 +270,7 @@ public class Task {
      * @return the reminder date and time
      */
     public LocalDateTime getReminderTime() {
-        return reminderTime;
+        return state.get().reminderTime();
     }
 
     /**
@@ -143,8 +279,7 @@ public class Task {
      * @param reminderTime the new reminder date and time
      */
     public void setReminderTime(LocalDateTime reminderTime) {
-        this.reminderTime = reminderTime;
-        updateLastModifiedTime();
+        publish(current -> current.withReminderTime(reminderTime));
     }
 
     /**
@@ -153,7 +288,7 @@ public class Task {
      * @return the task priority
      */
     public TaskPriority getPriority() {
-        return priority;
+        return state.get().priority();
     }
 
     /**
@@ -162,8 +297,7 @@ public class Task {
      * @param priority the new priority level
      */
     public void setPriority(TaskPriority priority) {
-        this.priority = priority;
-        updateLastModifiedTime();
+        publish(current -> current.withPriority(priority));
     }
 
     /**
@@ -172,7 +306,7 @@ public class Task {
      * @return the task status
      */
     public TaskStatus getStatus() {
-        return status;
+        return state.get().status();
     }
 
     /**
@@ -181,8 +315,52 @@ public class Task {
      * @param status the new status of the task
      */
     public void setStatus(TaskStatus status) {
-        this.status = status;
-        updateLastModifiedTime();
+        publish(current -> current.withStatus(status));
+    }
+
+    /**
+     * Sets the status of the task only if it still has the expected status.
+     * Lets another thread change the status without overwriting a concurrent change.
+     *
+     * @param expected  the status the task must have
+     * @param newStatus the new status of the task
+     * @return true if the status was changed; false if the task had another status
+     */
+    public boolean compareAndSetStatus(TaskStatus expected, TaskStatus newStatus) {
+        if (newStatus == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        while (true) {
+            TaskSnapshot current = state.get();
+            if (current.status() != expected) {
+                return false;
+            }
+            TaskSnapshot next = current.withStatus(newStatus)
+                    .withLastModifiedTime(LocalDateTime.now(clock))
+                    .withVersion(current.version() + 1);
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the recurrence rule of the task.
+     *
+     * @return the recurrence rule, or null if the task does not repeat
+     */
+    public RecurrenceRule getRecurrence() {
+        return state.get().recurrence();
+    }
+
+    /**
+     * Sets the recurrence rule of the task. A repeating task is moved to its next
+     * occurrence by the {@link TaskScheduler} each time its reminder fires.
+     *
+     * @param recurrence the new recurrence rule, or null to stop repeating
+     */
+    public void setRecurrence(RecurrenceRule recurrence) {
+        publish(current -> current.withRecurrence(recurrence));
     }
 
     /**
@@ -191,7 +369,7 @@ public class Task {
      * @return the creation time
      */
     public LocalDateTime getCreatedTime() {
-        return createdTime;
+        return state.get().createdTime();
     }
 
     /**
@@ -200,14 +378,200 @@ public class Task {
      * @return the last modified time
      */
     public LocalDateTime getLastModifiedTime() {
-        return lastModifiedTime;
+        return state.get().lastModifiedTime();
+    }
+
+    /**
+     * Applies several changes to the task at once. Only attributes whose value actually
+     * changes are written, and the last modified time is updated once for the whole edit.
+     *
+     * @param changes the changes to apply, made through the given editor
+     * @return the field bits of the attributes changed by this edit, which callers pass on
+     *         to write only the changed columns
+     * @throws IllegalArgumentException if changes is null or sets an attribute to null
+     */
+    public int edit(Consumer<Editor> changes) {
+        if (changes == null) {
+            throw new IllegalArgumentException("Changes cannot be null");
+        }
+        Editor editor = new Editor();
+        changes.accept(editor);
+        editor.validate();
+
+        while (true) {
+            TaskSnapshot current = state.get();
+            int[] changed = new int[1];
+            TaskSnapshot next = editor.apply(current, changed);
+            if (changed[0] == 0) {
+                return 0;
+            }
+            next = next.withLastModifiedTime(LocalDateTime.now(clock)).withVersion(current.version() + 1);
+            if (state.compareAndSet(current, next)) {
+                return changed[0];
+            }
+        }
+    }
+
+    /**
+     * Collects the changes of one {@link Task#edit} call. Values are staged and
+     * only applied to the task after the edit returns.
+     */
+    public final class Editor {
+        private int staged;
+
+        private String title;
+
+        private String description;
+
+        private LocalDateTime dueDateTime;
+
+        private LocalDateTime reminderTime;
+
+        private TaskPriority priority;
+
+        private TaskStatus status;
+
+        private RecurrenceRule recurrence;
+
+        private Editor() {
+        }
+
+        public Editor setTitle(String title) {
+            this.title = title;
+            staged |= FIELD_TITLE;
+            return this;
+        }
+
+        public Editor setDescription(String description) {
+            this.description = description;
+            staged |= FIELD_DESCRIPTION;
+            return this;
+        }
+
+        public Editor setDueDateTime(LocalDateTime dueDateTime) {
+            this.dueDateTime = dueDateTime;
+            staged |= FIELD_DUE_DATE_TIME;
+            return this;
+        }
+
+        public Editor setReminderTime(LocalDateTime reminderTime) {
+            this.reminderTime = reminderTime;
+            staged |= FIELD_REMINDER_TIME;
+            return this;
+        }
+
+        public Editor setPriority(TaskPriority priority) {
+            this.priority = priority;
+            staged |= FIELD_PRIORITY;
+            return this;
+        }
+
+        public Editor setStatus(TaskStatus status) {
+            this.status = status;
+            staged |= FIELD_STATUS;
+            return this;
+        }
+
+        public Editor setRecurrence(RecurrenceRule recurrence) {
+            this.recurrence = recurrence;
+            staged |= FIELD_RECURRENCE;
+            return this;
+        }
+
+        /**
+         * Checks that no attribute other than the recurrence rule is set to null.
+         */
+        private void validate() {
+            if (((staged & FIELD_TITLE) != 0 && title == null)
+                    || ((staged & FIELD_DESCRIPTION) != 0 && description == null)
+                    || ((staged & FIELD_DUE_DATE_TIME) != 0 && dueDateTime == null)
+                    || ((staged & FIELD_REMINDER_TIME) != 0 && reminderTime == null)
+                    || ((staged & FIELD_PRIORITY) != 0 && priority == null)
+                    || ((staged & FIELD_STATUS) != 0 && status == null)) {
+                throw new IllegalArgumentException("Parameters cannot be null");
+            }
+        }
+
+        /**
+         * Applies the staged values that differ from the given snapshot.
+         *
+         * @param current the snapshot to apply the values to
+         * @param changed receives the field bits of the changed attributes
+         * @return the snapshot with the staged values applied
+         */
+        private TaskSnapshot apply(TaskSnapshot current, int[] changed) {
+            TaskSnapshot next = current;
+            if ((staged & FIELD_TITLE) != 0 && !Objects.equals(current.title(), title)) {
+                next = next.withTitle(title);
+                changed[0] |= FIELD_TITLE;
+            }
+            if ((staged & FIELD_DESCRIPTION) != 0 && !Objects.equals(current.description(), description)) {
+                next = next.withDescription(description);
+                changed[0] |= FIELD_DESCRIPTION;
+            }
+            if ((staged & FIELD_DUE_DATE_TIME) != 0 && !Objects.equals(current.dueDateTime(), dueDateTime)) {
+                next = next.withDueDateTime(dueDateTime);
+                changed[0] |= FIELD_DUE_DATE_TIME;
+            }
+            if ((staged & FIELD_REMINDER_TIME) != 0 && !Objects.equals(current.reminderTime(), reminderTime)) {
+                next = next.withReminderTime(reminderTime);
+                changed[0] |= FIELD_REMINDER_TIME;
+            }
+            if ((staged & FIELD_PRIORITY) != 0 && current.priority() != priority) {
+                next = next.withPriority(priority);
+                changed[0] |= FIELD_PRIORITY;
+            }
+            if ((staged & FIELD_STATUS) != 0 && current.status() != status) {
+                next = next.withStatus(status);
+                changed[0] |= FIELD_STATUS;
+            }
+            if ((staged & FIELD_RECURRENCE) != 0 && !Objects.equals(current.recurrence(), recurrence)) {
+                next = next.withRecurrence(recurrence);
+                changed[0] |= FIELD_RECURRENCE;
+            }
+            return next;
+        }
     }
 
     /**
-     * Updates the last modified time of the task.
+     * Publishes a new version of the task with one attribute changed.
+     *
+     * @param change the change to apply to the current snapshot
+     * @throws IllegalArgumentException if the change sets the attribute to null
+     */
+    private void publish(UnaryOperator<TaskSnapshot> change) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        state.getAndUpdate(current -> change.apply(current)
+                .withLastModifiedTime(now)
+                .withVersion(current.version() + 1));
+    }
+
+    /**
+     * Two tasks are equal if they have the same ID, so a restored copy of a task
+     * is interchangeable with the original instance.
+     *
+     * @param o the object to compare with
+     * @return true if the object is a task with the same ID
      */
-    private void updateLastModifiedTime() {
-        this.lastModifiedTime = LocalDateTime.now();
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Task)) {
+            return false;
+        }
+        return id.equals(((Task) o).id);
+    }
+
+    /**
+     * Returns a hash code based on the task ID.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return id.hashCode();
     }
 
     /**
@@ -217,16 +581,18 @@ public class Task {
      */
     @Override
     public String toString() {
+        TaskSnapshot current = state.get();
         return "Task{" +
                 "id='" + id + '\'' +
-                ", title='" + title + '\'' +
-                ", description='" + description + '\'' +
-                ", dueDateTime=" + dueDateTime +
-                ", reminderTime=" + reminderTime +
-                ", priority=" + priority +
-                ", status=" + status +
-                ", createdTime=" + createdTime +
-                ", lastModifiedTime=" + lastModifiedTime +
+                ", title='" + current.title() + '\'' +
+                ", description='" + current.description() + '\'' +
+                ", dueDateTime=" + current.dueDateTime() +
+                ", reminderTime=" + current.reminderTime() +
+                ", priority=" + current.priority() +
+                ", status=" + current.status() +
+                ", recurrence=" + current.recurrence() +
+                ", createdTime=" + current.createdTime() +
+                ", lastModifiedTime=" + current.lastModifiedTime() +
                 '}';
     }
 }
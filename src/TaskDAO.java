@@ -1,33 +1,157 @@
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * TaskDAO is responsible for managing database operations related to tasks.
- * It supports CRUD operations for task storage and retrieval.
+ * It supports CRUD operations for task storage and retrieval, and stores the reminder shard
+ * leases through which several scheduler processes share the same database.
+ * The database is opened and its tables are created on first use, not when the class loads.
  */
-public class TaskDAO {
+public class TaskDAO implements TaskScheduler.ShardLeaseStore, TaskLoader.TaskPageSource, TaskDaemon.TaskRepository {
 
     /**
-     * The database connection URL.
+     * The database connection URL. The database file defaults to tasks.db in the working
+     * directory and can be moved with the {@code tasks.db} system property.
      */
-    private static final String DB_URL = "jdbc:sqlite:tasks.db";
+    private static final String DB_URL = "jdbc:sqlite:" + System.getProperty("tasks.db", "tasks.db");
 
     /**
-     * Static block to initialize the database by creating the tasks table if it does not exist.
+     * The statement that inserts one task, with the parameters set by {@link #bindTask}.
      */
-    static {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            createTaskTable(conn);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to initialize database", e);
+    private static final String INSERT_TASK_SQL = """
+        INSERT INTO tasks (id, title, description, due_date_time, reminder_time,
+                         priority, status, created_time, last_modified_time, recurrence_rule)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    /**
+     * The connection URL of the database used by this DAO.
+     */
+    private final String dbUrl;
+
+    /**
+     * Whether the tables have been created by this DAO.
+     */
+    private volatile boolean schemaReady;
+
+    /** The latency and errors of each public method, or null if no metrics are recorded. */
+    private volatile TaskMetrics.Family<TaskMetrics.Histogram> methodLatency;
+    private volatile TaskMetrics.Family<TaskMetrics.Counter> methodErrors;
+
+    /**
+     * Constructs a TaskDAO for the database file given by the {@code tasks.db} system property.
+     */
+    public TaskDAO() {
+        this.dbUrl = DB_URL;
+    }
+
+    /**
+     * Constructs a TaskDAO for the given database file, for example a temporary database in a test.
+     *
+     * @param databaseFile the SQLite database file, created on first use if it does not exist.
+     */
+    public TaskDAO(Path databaseFile) {
+        this.dbUrl = "jdbc:sqlite:" + databaseFile;
+    }
+
+    /**
+     * Opens a connection to the database, creating the tables first if this is the first
+     * connection of this DAO. Loading the class does not touch the database, so the
+     * schema check runs on the first thread that needs it, typically {@link #warmUp}.
+     *
+     * @return a new connection.
+     * @throws SQLException if a database access error occurs.
+     */
+    private Connection connect() throws SQLException {
+        Connection conn = DriverManager.getConnection(dbUrl);
+        if (!schemaReady) {
+            try {
+                createSchema(conn);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
         }
+        return conn;
     }
 
     /**
-     * Creates the tasks table in the database if it does not already exist.
+     * Creates the tables if they do not exist, once per DAO.
+     *
+     * @param conn the database connection.
+     * @throws SQLException if a database access error occurs.
+     */
+    private synchronized void createSchema(Connection conn) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        createTaskTable(conn);
+        createShardLeaseTables(conn);
+        createDeadLetterTable(conn);
+        schemaReady = true;
+    }
+
+    /**
+     * Loads the JDBC driver, creates the tables and reads the first page of the tasks table on a
+     * background thread, so that the first query does not pay for them.
+     *
+     * @return completes once the database is ready, or exceptionally if it cannot be opened.
+     */
+    public CompletableFuture<Void> warmUp() {
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try (Connection conn = connect();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT 1 FROM tasks LIMIT 1")) {
+                // 读取一行，使表的首页进入缓存，首次查询无需再从磁盘读取
+                rs.next();
+                ready.complete(null);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                ready.completeExceptionally(new RuntimeException("Failed to initialize database", e));
+            }
+        }, "database-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+        return ready;
+    }
+
+    /**
+     * Records the latency of every database call and the calls that failed, per public method,
+     * in the given registry.
+     *
+     * @param metrics the metrics registry.
+     */
+    public void setMetrics(TaskMetrics metrics) {
+        methodErrors = metrics.counterFamily("task_dao_errors_total",
+                "Database calls that failed, per TaskDAO method.", "method");
+        methodLatency = metrics.histogramFamily("task_dao_latency_seconds",
+                "Latency of database calls, per TaskDAO method.", "method");
+    }
+
+    private void recordLatency(String method, long startNanos) {
+        TaskMetrics.Family<TaskMetrics.Histogram> latency = methodLatency;
+        if (latency != null) {
+            latency.labels(method).recordSince(startNanos);
+        }
+    }
+
+    private void recordError(String method) {
+        TaskMetrics.Family<TaskMetrics.Counter> errors = methodErrors;
+        if (errors != null) {
+            errors.labels(method).increment();
+        }
+    }
+
+    /**
+     * Creates the tasks table and its indexes in the database if they do not already exist.
      *
      * @param conn the database connection.
      * @throws SQLException if a database access error occurs.
@@ -43,12 +167,83 @@ public class TaskDAO {
                 priority TEXT NOT NULL,
                 status TEXT NOT NULL,
                 created_time TEXT NOT NULL,
-                last_modified_time TEXT NOT NULL
+                last_modified_time TEXT NOT NULL,
+                last_fired_time TEXT,
+                recurrence_rule TEXT
             )
             """;
 
         try (Statement stmt = conn.createStatement()) {
             stmt.execute(sql);
+            addColumnIfMissing(stmt, "last_fired_time");
+            addColumnIfMissing(stmt, "recurrence_rule");
+            // 按提醒时间分页加载即将到期的提醒
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_reminder_time ON tasks (reminder_time, id)");
+            // 逾期扫描只需访问未完成且已到期的任务
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_tasks_status_due ON tasks (status, due_date_time)");
+        }
+    }
+
+    /**
+     * Adds a nullable TEXT column to a tasks table created before the column existed.
+     *
+     * @param stmt   a statement on the database connection.
+     * @param column the name of the column.
+     * @throws SQLException if a database access error occurs.
+     */
+    private static void addColumnIfMissing(Statement stmt, String column) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(tasks)")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        stmt.execute("ALTER TABLE tasks ADD COLUMN " + column + " TEXT");
+    }
+
+    /**
+     * Creates the tables of reminder shard leases and of the processes holding them if they do not already exist.
+     *
+     * @param conn the database connection.
+     * @throws SQLException if a database access error occurs.
+     */
+    private static void createShardLeaseTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS reminder_shards (
+                    shard INTEGER PRIMARY KEY,
+                    owner TEXT,
+                    lease_expires TEXT NOT NULL
+                )
+                """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS reminder_shard_owners (
+                    owner TEXT PRIMARY KEY,
+                    lease_expires TEXT NOT NULL
+                )
+                """);
+        }
+    }
+
+    /**
+     * Creates the table of reminders whose delivery failed on every attempt if it does not already exist.
+     *
+     * @param conn the database connection.
+     * @throws SQLException if a database access error occurs.
+     */
+    private static void createDeadLetterTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS reminder_dead_letters (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    task_id TEXT NOT NULL,
+                    reminder_time TEXT NOT NULL,
+                    attempts INTEGER NOT NULL,
+                    last_error TEXT,
+                    failed_time TEXT NOT NULL
+                )
+                """);
         }
     }
 
@@ -58,62 +253,199 @@ public class TaskDAO {
      * @param task the task to be saved.
      */
     public void saveTask(Task task) {
-        String sql = """
-            INSERT INTO tasks (id, title, description, due_date_time, reminder_time,
-                             priority, status, created_time, last_modified_time)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-            """;
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        saveTask(task.snapshot());
+    }
 
-            pstmt.setString(1, task.getId());
-            pstmt.setString(2, task.getTitle());
-            pstmt.setString(3, task.getDescription());
-            pstmt.setString(4, task.getDueDateTime().toString());
-            pstmt.setString(5, task.getReminderTime().toString());
-            pstmt.setString(6, task.getPriority().toString());
-            pstmt.setString(7, task.getStatus().toString());
-            pstmt.setString(8, task.getCreatedTime().toString());
-            pstmt.setString(9, task.getLastModifiedTime().toString());
+    /**
+     * Saves a new task to the database from a consistent snapshot of its attributes.
+     *
+     * @param task the snapshot of the task to be saved.
+     */
+    public void saveTask(TaskSnapshot task) {
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_TASK_SQL)) {
 
+            bindTask(pstmt, task);
             pstmt.executeUpdate();
-            System.out.println("Task saved successfully: " + task.getId());
+            TaskLog.debug("Task saved successfully: %s", task.id());
         } catch (SQLException e) {
+            recordError("saveTask");
             e.printStackTrace();
             throw new RuntimeException("Failed to save task", e);
+        } finally {
+            recordLatency("saveTask", start);
         }
     }
 
+    /**
+     * Saves many new tasks as one batch within a single transaction, so either every task is
+     * saved or none is.
+     *
+     * @param tasks the tasks to be saved.
+     */
+    public void saveTasks(Collection<Task> tasks) {
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("BEGIN IMMEDIATE");
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_TASK_SQL)) {
+                for (Task task : tasks) {
+                    bindTask(pstmt, task.snapshot());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+        } catch (SQLException e) {
+            recordError("saveTasks");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to save tasks", e);
+        } finally {
+            recordLatency("saveTasks", start);
+        }
+    }
+
+    /**
+     * Sets the parameters of {@link #INSERT_TASK_SQL} to the attributes of a task.
+     *
+     * @param pstmt the insert statement.
+     * @param task  the snapshot of the task to be saved.
+     * @throws SQLException if a database access error occurs.
+     */
+    private static void bindTask(PreparedStatement pstmt, TaskSnapshot task) throws SQLException {
+        pstmt.setString(1, task.id());
+        pstmt.setString(2, task.title());
+        pstmt.setString(3, task.description());
+        pstmt.setString(4, task.dueDateTime().toString());
+        pstmt.setString(5, task.reminderTime().toString());
+        pstmt.setString(6, task.priority().toString());
+        pstmt.setString(7, task.status().toString());
+        pstmt.setString(8, task.createdTime().toString());
+        pstmt.setString(9, task.lastModifiedTime().toString());
+        pstmt.setString(10, recurrenceRule(task));
+    }
+
     /**
      * Updates an existing task in the database.
      *
      * @param task the task to be updated.
      */
     public void updateTask(Task task) {
+        updateTask(task.snapshot());
+    }
+
+    /**
+     * Updates an existing task in the database from a consistent snapshot of its attributes.
+     *
+     * @param task the snapshot of the task to be updated.
+     */
+    public void updateTask(TaskSnapshot task) {
         String sql = """
             UPDATE tasks 
             SET title = ?, description = ?, due_date_time = ?, reminder_time = ?,
-                priority = ?, status = ?, last_modified_time = ?
+                priority = ?, status = ?, last_modified_time = ?, recurrence_rule = ?
             WHERE id = ?
             """;
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        long start = System.nanoTime();
+        try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, task.getTitle());
-            pstmt.setString(2, task.getDescription());
-            pstmt.setString(3, task.getDueDateTime().toString());
-            pstmt.setString(4, task.getReminderTime().toString());
-            pstmt.setString(5, task.getPriority().toString());
-            pstmt.setString(6, task.getStatus().toString());
-            pstmt.setString(7, task.getLastModifiedTime().toString());
-            pstmt.setString(8, task.getId());
+            pstmt.setString(1, task.title());
+            pstmt.setString(2, task.description());
+            pstmt.setString(3, task.dueDateTime().toString());
+            pstmt.setString(4, task.reminderTime().toString());
+            pstmt.setString(5, task.priority().toString());
+            pstmt.setString(6, task.status().toString());
+            pstmt.setString(7, task.lastModifiedTime().toString());
+            pstmt.setString(8, recurrenceRule(task));
+            pstmt.setString(9, task.id());
 
             pstmt.executeUpdate();
         } catch (SQLException e) {
+            recordError("updateTask");
             e.printStackTrace();
             throw new RuntimeException("Failed to update task", e);
+        } finally {
+            recordLatency("updateTask", start);
+        }
+    }
+
+    /**
+     * Updates only the given columns of an existing task, together with its last modified time.
+     * Does nothing if no field is given.
+     *
+     * @param task   the task to be updated.
+     * @param fields a bitmask of {@code Task.FIELD_*} constants naming the columns to write.
+     */
+    public void updateTask(Task task, int fields) {
+        updateTask(task.snapshot(), fields);
+    }
+
+    /**
+     * Updates only the given columns of an existing task from a consistent snapshot of its attributes.
+     *
+     * @param task   the snapshot of the task to be updated.
+     * @param fields a bitmask of {@code Task.FIELD_*} constants naming the columns to write.
+     */
+    public void updateTask(TaskSnapshot task, int fields) {
+        if ((fields & Task.ALL_FIELDS) == 0) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE tasks SET ");
+        List<String> values = new ArrayList<>();
+        if ((fields & Task.FIELD_TITLE) != 0) {
+            sql.append("title = ?, ");
+            values.add(task.title());
+        }
+        if ((fields & Task.FIELD_DESCRIPTION) != 0) {
+            sql.append("description = ?, ");
+            values.add(task.description());
+        }
+        if ((fields & Task.FIELD_DUE_DATE_TIME) != 0) {
+            sql.append("due_date_time = ?, ");
+            values.add(task.dueDateTime().toString());
+        }
+        if ((fields & Task.FIELD_REMINDER_TIME) != 0) {
+            sql.append("reminder_time = ?, ");
+            values.add(task.reminderTime().toString());
+        }
+        if ((fields & Task.FIELD_PRIORITY) != 0) {
+            sql.append("priority = ?, ");
+            values.add(task.priority().toString());
+        }
+        if ((fields & Task.FIELD_STATUS) != 0) {
+            sql.append("status = ?, ");
+            values.add(task.status().toString());
+        }
+        if ((fields & Task.FIELD_RECURRENCE) != 0) {
+            sql.append("recurrence_rule = ?, ");
+            values.add(recurrenceRule(task));
+        }
+        sql.append("last_modified_time = ? WHERE id = ?");
+        values.add(task.lastModifiedTime().toString());
+        values.add(task.id());
+
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < values.size(); i++) {
+                pstmt.setString(i + 1, values.get(i));
+            }
+
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            recordError("updateTask");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to update task", e);
+        } finally {
+            recordLatency("updateTask", start);
         }
     }
 
@@ -125,14 +457,87 @@ public class TaskDAO {
     public void deleteTask(String taskId) {
         String sql = "DELETE FROM tasks WHERE id = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        long start = System.nanoTime();
+        try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, taskId);
             pstmt.executeUpdate();
         } catch (SQLException e) {
+            recordError("deleteTask");
             e.printStackTrace();
             throw new RuntimeException("Failed to delete task", e);
+        } finally {
+            recordLatency("deleteTask", start);
+        }
+    }
+
+    /**
+     * Marks the given tasks as completed, in one transaction.
+     *
+     * @param taskIds the IDs of the tasks to be completed.
+     * @param now     the completion time, stored as the last modified time.
+     */
+    public void completeTasks(Collection<String> taskIds, LocalDateTime now) {
+        String sql = "UPDATE tasks SET status = ?, last_modified_time = ? WHERE id = ?";
+
+        long start = System.nanoTime();
+        try {
+            executeForEachId(sql, taskIds, Task.TaskStatus.COMPLETED.toString(), now.toString());
+        } catch (SQLException e) {
+            recordError("completeTasks");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to complete tasks", e);
+        } finally {
+            recordLatency("completeTasks", start);
+        }
+    }
+
+    /**
+     * Deletes the given tasks, in one transaction.
+     *
+     * @param taskIds the IDs of the tasks to be deleted.
+     */
+    public void deleteTasks(Collection<String> taskIds) {
+        long start = System.nanoTime();
+        try {
+            executeForEachId("DELETE FROM tasks WHERE id = ?", taskIds);
+        } catch (SQLException e) {
+            recordError("deleteTasks");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to delete tasks", e);
+        } finally {
+            recordLatency("deleteTasks", start);
+        }
+    }
+
+    /**
+     * Executes a statement once per task ID as one batch within a single transaction, so
+     * either every task is changed or none is.
+     *
+     * @param sql        the statement, whose last parameter is the task ID.
+     * @param taskIds    the task IDs.
+     * @param parameters the values of the parameters before the task ID.
+     * @throws SQLException if a database access error occurs.
+     */
+    private void executeForEachId(String sql, Collection<String> taskIds, String... parameters) throws SQLException {
+        try (Connection conn = connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("BEGIN IMMEDIATE");
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (String taskId : taskIds) {
+                    for (int i = 0; i < parameters.length; i++) {
+                        pstmt.setString(i + 1, parameters[i]);
+                    }
+                    pstmt.setString(parameters.length + 1, taskId);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
         }
     }
 
@@ -145,7 +550,8 @@ public class TaskDAO {
         String sql = "SELECT * FROM tasks";
         List<Task> tasks = new ArrayList<>();
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        long start = System.nanoTime();
+        try (Connection conn = connect();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -153,13 +559,272 @@ public class TaskDAO {
                 tasks.add(createTaskFromResultSet(rs));
             }
         } catch (SQLException e) {
+            recordError("getAllTasks");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to fetch tasks", e);
+        } finally {
+            recordLatency("getAllTasks", start);
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Counts the stored tasks.
+     *
+     * @return the number of tasks.
+     */
+    @Override
+    public int countTasks() {
+        String sql = "SELECT COUNT(*) FROM tasks";
+
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            recordError("countTasks");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to count tasks", e);
+        } finally {
+            recordLatency("countTasks", start);
+        }
+    }
+
+    /**
+     * Retrieves one page of tasks ordered by ID, starting after the given ID. Uses the primary
+     * key, so each page costs the same however far into the table it starts.
+     *
+     * @param afterId the ID of the last task of the previous page, or an empty string.
+     * @param limit   the maximum number of tasks to return.
+     * @return the tasks of the page, in ID order.
+     */
+    @Override
+    public List<Task> getTasksAfter(String afterId, int limit) {
+        String sql = "SELECT * FROM tasks WHERE id > ? ORDER BY id LIMIT ?";
+        List<Task> tasks = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, afterId);
+            pstmt.setInt(2, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tasks.add(createTaskFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            recordError("getTasksAfter");
             e.printStackTrace();
             throw new RuntimeException("Failed to fetch tasks", e);
+        } finally {
+            recordLatency("getTasksAfter", start);
         }
 
         return tasks;
     }
 
+    /**
+     * Retrieves one page of uncompleted tasks ordered by reminder time and ID, starting after
+     * the given position and ending with the given reminder time. Uses the reminder time index,
+     * so the cost depends on the page size rather than on the number of stored tasks.
+     *
+     * @param after   the reminder time of the last task of the previous page.
+     * @param afterId the ID of the last task of the previous page, or an empty string.
+     * @param until   the latest reminder time to include.
+     * @param limit   the maximum number of tasks to return.
+     * @return the tasks of the page, in reminder time order.
+     */
+    public List<Task> getTasksByReminderTime(LocalDateTime after, String afterId, LocalDateTime until, int limit) {
+        // ISO-8601 字符串的字典序与时间先后一致，可直接比较
+        String sql = """
+            SELECT * FROM tasks
+            WHERE (reminder_time > ? OR (reminder_time = ? AND id > ?))
+              AND reminder_time <= ? AND status <> ?
+            ORDER BY reminder_time, id
+            LIMIT ?
+            """;
+        List<Task> tasks = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, after.toString());
+            pstmt.setString(2, after.toString());
+            pstmt.setString(3, afterId);
+            pstmt.setString(4, until.toString());
+            pstmt.setString(5, Task.TaskStatus.COMPLETED.toString());
+            pstmt.setInt(6, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tasks.add(createTaskFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            recordError("getTasksByReminderTime");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to fetch tasks", e);
+        } finally {
+            recordLatency("getTasksByReminderTime", start);
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Retrieves one page of uncompleted tasks whose current reminder time has not fired,
+     * ordered by reminder time and ID, starting after the given position and ending with
+     * the given reminder time. Uses the reminder time index.
+     *
+     * @param after   the reminder time of the last task of the previous page.
+     * @param afterId the ID of the last task of the previous page, or an empty string.
+     * @param until   the latest reminder time to include.
+     * @param limit   the maximum number of tasks to return.
+     * @return the tasks of the page, in reminder time order.
+     */
+    public List<Task> getMissedReminders(LocalDateTime after, String afterId, LocalDateTime until, int limit) {
+        String sql = """
+            SELECT * FROM tasks
+            WHERE (reminder_time > ? OR (reminder_time = ? AND id > ?))
+              AND reminder_time <= ? AND status <> ?
+              AND (last_fired_time IS NULL OR last_fired_time < reminder_time)
+            ORDER BY reminder_time, id
+            LIMIT ?
+            """;
+        List<Task> tasks = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, after.toString());
+            pstmt.setString(2, after.toString());
+            pstmt.setString(3, afterId);
+            pstmt.setString(4, until.toString());
+            pstmt.setString(5, Task.TaskStatus.COMPLETED.toString());
+            pstmt.setInt(6, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tasks.add(createTaskFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            recordError("getMissedReminders");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to fetch missed reminders", e);
+        } finally {
+            recordLatency("getMissedReminders", start);
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Marks every task that has not been started or is in progress and whose due time is
+     * before the given time as overdue, with one set-based UPDATE. Uses the status and due
+     * time index, so only the tasks that become overdue are visited. The IDs of the changed
+     * tasks are returned by the same statement (RETURNING, SQLite 3.35 or later).
+     *
+     * @param now the current time, also stored as the last modified time of the changed tasks.
+     * @return the IDs of the tasks marked as overdue.
+     */
+    public List<String> markOverdueTasks(LocalDateTime now) {
+        String sql = """
+            UPDATE tasks
+            SET status = ?, last_modified_time = ?
+            WHERE status IN (?, ?) AND due_date_time < ?
+            RETURNING id
+            """;
+        List<String> taskIds = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, Task.TaskStatus.OVERDUE.toString());
+            pstmt.setString(2, now.toString());
+            pstmt.setString(3, Task.TaskStatus.NOT_STARTED.toString());
+            pstmt.setString(4, Task.TaskStatus.IN_PROGRESS.toString());
+            pstmt.setString(5, now.toString());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    taskIds.add(rs.getString("id"));
+                }
+            }
+            return taskIds;
+        } catch (SQLException e) {
+            recordError("markOverdueTasks");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to mark overdue tasks", e);
+        } finally {
+            recordLatency("markOverdueTasks", start);
+        }
+    }
+
+    /**
+     * Records that the reminder of a task has fired. The reminder time of the task is stored,
+     * so moving the reminder to a later time makes it pending again.
+     *
+     * @param task the task whose reminder has fired.
+     */
+    public void markReminderFired(Task task) {
+        String sql = "UPDATE tasks SET last_fired_time = ? WHERE id = ?";
+
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, task.getReminderTime().toString());
+            pstmt.setString(2, task.getId());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            recordError("markReminderFired");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to record fired reminder", e);
+        } finally {
+            recordLatency("markReminderFired", start);
+        }
+    }
+
+    /**
+     * Records a reminder whose delivery failed on every attempt.
+     *
+     * @param task       the task whose reminder failed.
+     * @param attempts   the number of delivery attempts made.
+     * @param lastError  the failure of the last attempt.
+     * @param failedTime the time the last attempt failed.
+     */
+    public void addDeadLetter(Task task, int attempts, Throwable lastError, LocalDateTime failedTime) {
+        String sql = "INSERT INTO reminder_dead_letters (task_id, reminder_time, attempts, last_error, failed_time) VALUES (?, ?, ?, ?, ?)";
+
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, task.getId());
+            pstmt.setString(2, task.getReminderTime().toString());
+            pstmt.setInt(3, attempts);
+            pstmt.setString(4, String.valueOf(lastError));
+            pstmt.setString(5, failedTime.toString());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            recordError("addDeadLetter");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to record dead letter", e);
+        } finally {
+            recordLatency("addDeadLetter", start);
+        }
+    }
+
     /**
      * Retrieves a task from the database by its ID.
      *
@@ -168,26 +833,186 @@ public class TaskDAO {
      */
     public Task getTaskById(String taskId) {
         String sql = "SELECT * FROM tasks WHERE id = ?";
-        System.out.println("Executing SQL: " + sql);
-        System.out.println("Task ID: " + taskId);
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        long start = System.nanoTime();
+        try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, taskId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     Task task = createTaskFromResultSet(rs);
-                    System.out.println("Task found: " + task);
+                    TaskLog.debug("Task found: %s", task.snapshot());
                     return task;
                 } else {
-                    System.out.println("No task found with ID: " + taskId);
+                    TaskLog.debug("No task found with ID: %s", taskId);
                 }
             }
         } catch (SQLException e) {
+            recordError("getTaskById");
             e.printStackTrace();
+        } finally {
+            recordLatency("getTaskById", start);
         }
         return null;
     }
 
+    /**
+     * Renews the shard leases of a scheduler process and balances the shards among the live
+     * processes, in one write transaction so that concurrent processes see each other's leases.
+     * Every live process is entitled to an equal share of the shards, rounded up: a process
+     * holding more releases its highest shards, and a process holding fewer takes free or
+     * expired shards, lowest first.
+     *
+     * @param owner      the identity of the renewing process.
+     * @param shardCount the number of shards.
+     * @param now        the current time.
+     * @param expires    the time until which the renewed leases are valid.
+     * @return the shards leased to the owner.
+     */
+    @Override
+    public Set<Integer> renewShardLeases(String owner, int shardCount, LocalDateTime now, LocalDateTime expires) {
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             Statement stmt = conn.createStatement()) {
+            // 立即获取写锁，避免多个进程读到相同的空闲分片
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                Set<Integer> owned = renewShardLeases(conn, owner, shardCount, now.toString(), expires.toString());
+                stmt.execute("COMMIT");
+                return owned;
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+        } catch (SQLException e) {
+            recordError("renewShardLeases");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to renew shard leases", e);
+        } finally {
+            recordLatency("renewShardLeases", start);
+        }
+    }
+
+    /**
+     * Applies a lease renewal within the current transaction.
+     */
+    private Set<Integer> renewShardLeases(Connection conn, String owner, int shardCount, String now, String expires)
+            throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT OR IGNORE INTO reminder_shards (shard, owner, lease_expires) VALUES (?, NULL, '')")) {
+            for (int shard = 0; shard < shardCount; shard++) {
+                pstmt.setInt(1, shard);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("""
+                INSERT INTO reminder_shard_owners (owner, lease_expires) VALUES (?, ?)
+                ON CONFLICT (owner) DO UPDATE SET lease_expires = excluded.lease_expires
+                """)) {
+            pstmt.setString(1, owner);
+            pstmt.setString(2, expires);
+            pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM reminder_shard_owners WHERE lease_expires < ?")) {
+            pstmt.setString(1, now);
+            pstmt.executeUpdate();
+        }
+
+        int liveOwners;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM reminder_shard_owners")) {
+            rs.next();
+            liveOwners = rs.getInt(1);
+        }
+        int fairShare = (shardCount + liveOwners - 1) / liveOwners;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE reminder_shards SET lease_expires = ? WHERE owner = ? AND shard < ?")) {
+            pstmt.setString(1, expires);
+            pstmt.setString(2, owner);
+            pstmt.setInt(3, shardCount);
+            pstmt.executeUpdate();
+        }
+        List<Integer> owned = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT shard FROM reminder_shards WHERE owner = ? AND shard < ? ORDER BY shard")) {
+            pstmt.setString(1, owner);
+            pstmt.setInt(2, shardCount);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    owned.add(rs.getInt(1));
+                }
+            }
+        }
+
+        if (owned.size() > fairShare) {
+            // 新进程加入后让出多余的分片
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE reminder_shards SET owner = NULL, lease_expires = '' WHERE shard = ?")) {
+                for (int shard : owned.subList(fairShare, owned.size())) {
+                    pstmt.setInt(1, shard);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            owned = owned.subList(0, fairShare);
+        } else if (owned.size() < fairShare) {
+            List<Integer> free = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement("""
+                    SELECT shard FROM reminder_shards
+                    WHERE shard < ? AND (owner IS NULL OR lease_expires < ?)
+                    ORDER BY shard LIMIT ?
+                    """)) {
+                pstmt.setInt(1, shardCount);
+                pstmt.setString(2, now);
+                pstmt.setInt(3, fairShare - owned.size());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        free.add(rs.getInt(1));
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE reminder_shards SET owner = ?, lease_expires = ? WHERE shard = ?")) {
+                for (int shard : free) {
+                    pstmt.setString(1, owner);
+                    pstmt.setString(2, expires);
+                    pstmt.setInt(3, shard);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            owned.addAll(free);
+        }
+        return new TreeSet<>(owned);
+    }
+
+    /**
+     * Releases every shard lease of a scheduler process and removes it from the live processes.
+     *
+     * @param owner the identity of the releasing process.
+     */
+    @Override
+    public void releaseShardLeases(String owner) {
+        long start = System.nanoTime();
+        try (Connection conn = connect();
+             PreparedStatement release = conn.prepareStatement(
+                     "UPDATE reminder_shards SET owner = NULL, lease_expires = '' WHERE owner = ?");
+             PreparedStatement leave = conn.prepareStatement("DELETE FROM reminder_shard_owners WHERE owner = ?")) {
+
+            release.setString(1, owner);
+            release.executeUpdate();
+            leave.setString(1, owner);
+            leave.executeUpdate();
+        } catch (SQLException e) {
+            recordError("releaseShardLeases");
+            e.printStackTrace();
+            throw new RuntimeException("Failed to release shard leases", e);
+        } finally {
+            recordLatency("releaseShardLeases", start);
+        }
+    }
+
     /**
      * Creates a Task object from a ResultSet.
      *
@@ -196,15 +1021,28 @@ public class TaskDAO {
      * @throws SQLException if a database access error occurs.
      */
     private Task createTaskFromResultSet(ResultSet rs) throws SQLException {
-        Task task = new Task(
+        String recurrenceRule = rs.getString("recurrence_rule");
+        return Task.restore(
+                rs.getString("id"),
                 rs.getString("title"),
                 rs.getString("description"),
                 LocalDateTime.parse(rs.getString("due_date_time")),
                 LocalDateTime.parse(rs.getString("reminder_time")),
-                Task.TaskPriority.valueOf(rs.getString("priority"))
+                Task.TaskPriority.valueOf(rs.getString("priority")),
+                Task.TaskStatus.valueOf(rs.getString("status")),
+                recurrenceRule != null ? RecurrenceRule.parse(recurrenceRule) : null,
+                LocalDateTime.parse(rs.getString("created_time")),
+                LocalDateTime.parse(rs.getString("last_modified_time"))
         );
+    }
 
-        task.setStatus(Task.TaskStatus.valueOf(rs.getString("status")));
-        return task;
+    /**
+     * Gets the stored form of a task's recurrence rule.
+     *
+     * @param task the snapshot of the task.
+     * @return the rule in RRULE form, or null if the task does not repeat.
+     */
+    private static String recurrenceRule(TaskSnapshot task) {
+        return task.recurrence() != null ? task.recurrence().toString() : null;
     }
 }
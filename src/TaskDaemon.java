@@ -0,0 +1,417 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs the {@link TaskScheduler} as a long-lived process without a user interface, controlled
+ * through a Unix domain socket.
+ * <p>
+ * Neither this class nor the scheduler and DAO behind it touch AWT or Swing, so the daemon
+ * starts without loading a toolkit and reminders keep firing on machines without a display.
+ * Due reminders are printed to standard output. The same class is the control client:
+ * {@link #send} connects to the socket and runs one command.
+ * <p>
+ * Each connection carries one request: a header line with the command and its arguments
+ * separated by tabs, followed for {@code import} by one task per line, until the client shuts
+ * its output down. The response is a number of result lines followed by a status line that
+ * starts with {@code OK} or {@code ERROR}. Commands are executed one at a time, in the order
+ * their connections are accepted. The commands are:
+ * <ul>
+ *   <li>{@code add title due reminder [priority] [description]} saves and schedules a task</li>
+ *   <li>{@code list} prints every stored task</li>
+ *   <li>{@code complete id...} marks tasks as completed and cancels their reminders</li>
+ *   <li>{@code import} saves and schedules the tasks in the request body, in one transaction;
+ *       each line holds the title, description, due time, reminder time and priority,
+ *       separated by tabs</li>
+ * </ul>
+ * Times are written as {@code yyyy-MM-dd HH:mm}.
+ */
+final class TaskDaemon implements AutoCloseable {
+    /** The default control socket, next to the database in the working directory. */
+    static final Path DEFAULT_SOCKET = Path.of("tasks.sock");
+
+    /** The format of times in commands and results. */
+    static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    /** The number of tasks {@code list} reads from the repository at a time. */
+    static final int LIST_PAGE_SIZE = 1000;
+
+    /**
+     * The task storage the control commands use, typically {@link TaskDAO}.
+     */
+    public interface TaskRepository extends TaskLoader.TaskPageSource {
+        /**
+         * Saves new tasks, either all of them or none.
+         *
+         * @param tasks the tasks to save
+         */
+        void saveTasks(Collection<Task> tasks);
+
+        /**
+         * Marks tasks as completed.
+         *
+         * @param taskIds the IDs of the tasks to complete
+         * @param now     the completion time
+         */
+        void completeTasks(Collection<String> taskIds, LocalDateTime now);
+    }
+
+    private final TaskRepository repository;
+
+    private final TaskScheduler scheduler;
+
+    private final Path socketPath;
+
+    private ServerSocketChannel server;
+
+    private Thread acceptor;
+
+    /**
+     * Constructs a TaskDaemon. It does not listen until {@link #start} is called.
+     *
+     * @param repository the task storage
+     * @param scheduler  the scheduler that fires the reminders of the stored tasks
+     * @param socketPath the path of the control socket
+     */
+    TaskDaemon(TaskRepository repository, TaskScheduler scheduler, Path socketPath) {
+        this.repository = repository;
+        this.scheduler = scheduler;
+        this.socketPath = socketPath;
+    }
+
+    /**
+     * Starts a daemon on the tasks database, with the scheduler set up as in the GUI, and
+     * closes it when the JVM shuts down. The control socket opens while the database warms up
+     * in the background; the scheduler's background work starts once the database is ready.
+     *
+     * @param socketPath the path of the control socket
+     * @return the running daemon
+     * @throws IOException if the control socket cannot be opened
+     * @throws CompletionException if the database cannot be opened
+     */
+    static TaskDaemon run(Path socketPath) throws IOException {
+        TaskDAO taskDAO = new TaskDAO();
+        CompletableFuture<Void> databaseReady = taskDAO.warmUp();
+        TaskScheduler scheduler = new TaskScheduler(TaskDaemon::logReminder, 100,
+                new TaskScheduler.RetryPolicy(5, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofSeconds(30)),
+                new ExecutorReminderEngine(),
+                ReminderDispatcher.platformPool(4, 10_000));
+        scheduler.setDeadLetterStore(taskDAO::addDeadLetter);
+        scheduler.setReminderLog(taskDAO::markReminderFired);
+        scheduler.setTaskStore(taskDAO::updateTask);
+        TaskMetrics metrics = new TaskMetrics();
+        scheduler.setMetrics(metrics);
+        taskDAO.setMetrics(metrics);
+
+        // 数据库预热期间已可接受命令，命令在首次访问数据库时等待建表完成
+        TaskDaemon daemon = new TaskDaemon(taskDAO, scheduler, socketPath);
+        daemon.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::close, "task-daemon-shutdown"));
+        StartupTimeline.mark("control socket listening");
+        System.out.printf("Task daemon listening on %s after %.0f ms%n", socketPath.toAbsolutePath(),
+                StartupTimeline.elapsedMillis("control socket listening"));
+
+        try {
+            databaseReady.join();
+        } catch (CompletionException e) {
+            daemon.close();
+            throw e;
+        }
+        StartupTimeline.mark("database ready");
+        scheduler.enableSharding(taskDAO, 64, Duration.ofSeconds(30));
+        scheduler.startCatchUp(taskDAO::getMissedReminders, Duration.ofDays(7), 5, 20);
+        scheduler.setOverdueStore(taskDAO::markOverdueTasks, Duration.ofMinutes(1));
+        scheduler.enableReminderHorizon(taskDAO::getTasksByReminderTime, Duration.ofHours(2), Duration.ofMinutes(10));
+        StartupTimeline.complete("scheduler started");
+        metrics.export();
+        return daemon;
+    }
+
+    /**
+     * Opens the control socket and starts accepting commands on a non-daemon thread, which
+     * keeps the JVM running until {@link #close} is called.
+     *
+     * @throws IOException           if the socket cannot be opened
+     * @throws IllegalStateException if another daemon is listening on the socket
+     */
+    synchronized void start() throws IOException {
+        if (Files.exists(socketPath)) {
+            boolean listening;
+            try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+                listening = probe.isConnected();
+            } catch (IOException e) {
+                listening = false;
+            }
+            if (listening) {
+                throw new IllegalStateException("Another daemon is listening on " + socketPath);
+            }
+            // 上次异常退出留下的套接字文件，无人监听，可以删除
+            Files.delete(socketPath);
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        ServerSocketChannel channel = server;
+        acceptor = new Thread(() -> acceptCommands(channel), "task-control");
+        acceptor.start();
+    }
+
+    /**
+     * Stops accepting commands, waits for the command in progress, and shuts the scheduler
+     * down, which waits for the reminders being delivered and releases the shard leases.
+     * Reminders not yet due are fired by the next run, from the database.
+     */
+    @Override
+    public void close() {
+        Thread running;
+        synchronized (this) {
+            if (server == null) {
+                return;
+            }
+            try {
+                server.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            server = null;
+            running = acceptor;
+        }
+        try {
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdown();
+        try {
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        // 日志的关闭钩子与守护进程的钩子同时运行，等待关闭期间送达的提醒写出
+        TaskLog.flush();
+    }
+
+    /**
+     * Sends one command to a running daemon and prints its results.
+     *
+     * @param socketPath the path of the control socket
+     * @param command    the command and its arguments
+     * @param body       the request body, one task per line, or null
+     * @param out        receives the result lines
+     * @param err        receives the error message if the command failed
+     * @return 0 if the command succeeded, 1 otherwise
+     * @throws IOException if the daemon cannot be reached
+     */
+    static int send(Path socketPath, String[] command, BufferedReader body, PrintStream out, PrintStream err)
+            throws IOException {
+        for (String argument : command) {
+            if (argument.indexOf('\t') >= 0 || argument.indexOf('\n') >= 0) {
+                throw new IllegalArgumentException("Arguments cannot contain tabs or line breaks");
+            }
+        }
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            PrintWriter request = new PrintWriter(
+                    new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            request.println(String.join("\t", command));
+            if (body != null) {
+                for (String line = body.readLine(); line != null; line = body.readLine()) {
+                    request.println(line);
+                }
+            }
+            request.flush();
+            channel.shutdownOutput();
+
+            BufferedReader response = reader(channel);
+            for (String line = response.readLine(); line != null; line = response.readLine()) {
+                if (line.equals("OK") || line.startsWith("OK\t")) {
+                    if (line.length() > 2) {
+                        out.println(line.substring(3));
+                    }
+                    return 0;
+                }
+                if (line.startsWith("ERROR\t")) {
+                    err.println(line.substring(6));
+                    return 1;
+                }
+                out.println(line);
+            }
+            err.println("The daemon closed the connection without a result");
+            return 1;
+        }
+    }
+
+    /**
+     * Accepts connections until the socket is closed, executing one request per connection.
+     */
+    private void acceptCommands(ServerSocketChannel channel) {
+        while (true) {
+            try (SocketChannel client = channel.accept()) {
+                execute(client);
+            } catch (ClosedChannelException e) {
+                // close() 关闭了套接字
+                return;
+            } catch (IOException e) {
+                // 客户端断开不影响其他命令
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads one request from a connection and writes its response.
+     */
+    private void execute(SocketChannel client) throws IOException {
+        BufferedReader request = reader(client);
+        PrintWriter response = new PrintWriter(
+                new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8));
+        String header = request.readLine();
+        String[] command = header == null ? new String[] {""} : header.split("\t", -1);
+        String[] arguments = Arrays.copyOfRange(command, 1, command.length);
+        try {
+            String result = switch (command[0]) {
+                case "add" -> add(arguments);
+                case "list" -> list(response);
+                case "complete" -> complete(arguments);
+                case "import" -> importTasks(request);
+                default -> throw new IllegalArgumentException("Unknown command: " + command[0]);
+            };
+            response.println(result.isEmpty() ? "OK" : "OK\t" + result);
+        } catch (RuntimeException e) {
+            // 结果行可能已部分写出，状态行仍标明失败
+            response.println("ERROR\t" + String.valueOf(e.getMessage()).replace('\n', ' '));
+        }
+        response.flush();
+    }
+
+    private String add(String[] arguments) {
+        if (arguments.length < 3 || arguments.length > 5) {
+            throw new IllegalArgumentException("Usage: add title due reminder [priority] [description]");
+        }
+        Task task = new Task(arguments[0], arguments.length > 4 ? arguments[4] : "",
+                parseTime(arguments[1]), parseTime(arguments[2]),
+                arguments.length > 3 ? parsePriority(arguments[3]) : Task.TaskPriority.MEDIUM);
+        repository.saveTasks(List.of(task));
+        scheduler.scheduleTask(task);
+        return task.getId();
+    }
+
+    private String list(PrintWriter response) {
+        int count = 0;
+        String afterId = "";
+        List<Task> page;
+        do {
+            page = repository.getTasksAfter(afterId, LIST_PAGE_SIZE);
+            for (Task task : page) {
+                response.println(String.join("\t", task.getId(), task.getTitle(), task.getStatus().toString(),
+                        task.getPriority().toString(), TIME_FORMAT.format(task.getDueDateTime()),
+                        TIME_FORMAT.format(task.getReminderTime())));
+                afterId = task.getId();
+            }
+            count += page.size();
+        } while (page.size() == LIST_PAGE_SIZE);
+        return count + " tasks";
+    }
+
+    private String complete(String[] taskIds) {
+        if (taskIds.length == 0) {
+            throw new IllegalArgumentException("Usage: complete id...");
+        }
+        List<String> ids = List.of(taskIds);
+        repository.completeTasks(ids, LocalDateTime.now());
+        for (String taskId : ids) {
+            Task task = scheduler.findTask(taskId);
+            if (task != null) {
+                scheduler.completeTask(task);
+            }
+        }
+        return ids.size() + " tasks completed";
+    }
+
+    /**
+     * Saves the tasks of the request body. Every line is parsed before any task is saved, so a
+     * malformed line leaves the database unchanged.
+     */
+    private String importTasks(BufferedReader body) {
+        List<Task> tasks = new ArrayList<>();
+        int lineNumber = 0;
+        try {
+            for (String line = body.readLine(); line != null; line = body.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 5) {
+                    throw new IllegalArgumentException("Expected title, description, due, reminder and priority");
+                }
+                tasks.add(new Task(fields[0], fields[1], parseTime(fields[2]), parseTime(fields[3]),
+                        parsePriority(fields[4])));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the tasks to import", e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+        repository.saveTasks(tasks);
+        for (Task task : tasks) {
+            scheduler.scheduleTask(task);
+        }
+        return tasks.size() + " tasks imported";
+    }
+
+    private static LocalDateTime parseTime(String text) {
+        try {
+            return LocalDateTime.parse(text, TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time, expected yyyy-MM-dd HH:mm: " + text, e);
+        }
+    }
+
+    private static Task.TaskPriority parsePriority(String text) {
+        try {
+            return Task.TaskPriority.valueOf(text.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid priority, expected HIGH, MEDIUM or LOW: " + text, e);
+        }
+    }
+
+    private static BufferedReader reader(SocketChannel channel) {
+        Reader reader = new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8);
+        return new BufferedReader(reader);
+    }
+
+    /**
+     * Logs a due reminder; without a display, the daemon's log is where reminders are seen.
+     * The message is written by the log's writer thread, so a burst of reminders does not
+     * hold up the dispatcher threads on standard output. A reminder the full log buffer
+     * rejects fails its delivery, so it is retried and finally dead-lettered rather than lost.
+     */
+    private static CompletableFuture<Void> logReminder(Task task) {
+        if (!TaskLog.tryInfo("提醒：任务 \"%s\" 将于 %s 截止", task.getTitle(), TIME_FORMAT.format(task.getDueDateTime()))) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Log buffer full, reminder not logged"));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,163 @@
+import javax.swing.SwingWorker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the stored tasks into a {@link TaskTableModel} without blocking the event dispatch thread.
+ * <p>
+ * Tasks are read page by page from a {@link TaskPageSource} on a background thread and
+ * published as they arrive. Pages that are published faster than the event dispatch thread
+ * processes them are coalesced, so each chunk of rows reaches the model in a single
+ * {@link TaskTableModel#putTasks} call and the window stays responsive while a large database
+ * is loading. Tasks that are already in the model when their page arrives, because they were
+ * added or edited meanwhile, are kept as they are, and tasks reported through
+ * {@link #taskRemoved} are not added back by a page read before they were deleted.
+ */
+final class TaskLoader extends SwingWorker<Integer, List<Task>> {
+    /** The number of tasks read per query. */
+    static final int PAGE_SIZE = 1000;
+
+    /**
+     * A source of stored tasks that can be read in pages.
+     */
+    public interface TaskPageSource {
+        /**
+         * Counts the stored tasks.
+         *
+         * @return the number of tasks
+         */
+        int countTasks();
+
+        /**
+         * Returns one page of tasks ordered by ID.
+         *
+         * @param afterId the ID of the last task of the previous page, or an empty string
+         * @param limit   the maximum number of tasks to return
+         * @return the tasks of the page, in ID order
+         */
+        List<Task> getTasksAfter(String afterId, int limit);
+    }
+
+    /**
+     * Receives the progress of a load on the event dispatch thread.
+     */
+    public interface LoadListener {
+        /**
+         * Called after a chunk of tasks was added to the model.
+         *
+         * @param loaded the number of tasks read so far
+         * @param total  the number of stored tasks when loading started
+         */
+        void loaded(int loaded, int total);
+
+        /**
+         * Called once loading has ended.
+         *
+         * @param loaded the number of tasks read
+         * @param error  the failure that ended loading early, or null if every page was read
+         */
+        void finished(int loaded, Throwable error);
+    }
+
+    private final TaskPageSource source;
+
+    private final TaskTableModel model;
+
+    private final int pageSize;
+
+    private final LoadListener listener;
+
+    /** The IDs of the tasks deleted while loading. */
+    private final Set<String> removedIds = ConcurrentHashMap.newKeySet();
+
+    private volatile int total;
+
+    private volatile int loaded;
+
+    /**
+     * Constructs a TaskLoader. Call {@link #execute()} to start loading.
+     *
+     * @param source   the stored tasks
+     * @param model    the model that receives the tasks
+     * @param pageSize the number of tasks read per query
+     * @param listener notified of the progress
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    TaskLoader(TaskPageSource source, TaskTableModel model, int pageSize, LoadListener listener) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.source = source;
+        this.model = model;
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    /**
+     * Records a task deleted while loading, so that a page read before the deletion does not
+     * bring it back. Must be called before the removal reaches the model. May be called from
+     * any thread.
+     *
+     * @param taskId the ID of the deleted task
+     */
+    void taskRemoved(String taskId) {
+        removedIds.add(taskId);
+    }
+
+    @Override
+    protected Integer doInBackground() {
+        total = source.countTasks();
+        String afterId = "";
+        int count = 0;
+        while (!isCancelled()) {
+            List<Task> page = source.getTasksAfter(afterId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            count += page.size();
+            loaded = count;
+            publish(page);
+            if (page.size() < pageSize) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        return count;
+    }
+
+    @Override
+    protected void process(List<List<Task>> pages) {
+        List<Task> tasks = new ArrayList<>();
+        for (List<Task> page : pages) {
+            for (Task task : page) {
+                // 页面读取后才删除的任务不再加回表格
+                if (model.rowOf(task.getId()) < 0 && !removedIds.contains(task.getId())) {
+                    tasks.add(task);
+                }
+            }
+        }
+        model.putTasks(tasks);
+        // 加载期间新增的任务可能使总数超过开始时的统计
+        listener.loaded(loaded, Math.max(total, loaded));
+    }
+
+    @Override
+    protected void done() {
+        Throwable error = null;
+        if (isCancelled()) {
+            error = new IllegalStateException("Loading was cancelled");
+        } else {
+            try {
+                get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (Exception e) {
+                error = e.getCause() != null ? e.getCause() : e;
+            }
+        }
+        listener.finished(loaded, error);
+    }
+}
@@ -0,0 +1,370 @@
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Level-gated logging that hands messages to a background thread instead of printing them on
+ * the calling thread.
+ * <p>
+ * The level is read once from the {@value #LEVEL_PROPERTY} system property and defaults to
+ * INFO. It is a constant, so a call below it compiles down to nothing once the JIT has inlined
+ * it; callers that would box primitives or build an argument should check
+ * {@link #isDebugEnabled} first or pass a {@link Supplier}. Messages at or above the level are
+ * stored in a fixed ring buffer together with their unformatted arguments, and a writer thread
+ * formats them with {@link String#format} and prints them to standard output in batches. The
+ * calling thread therefore never formats a string or takes the lock of {@code System.out};
+ * arguments must not change after the call, so callers pass IDs and snapshots rather than
+ * mutable objects. When the buffer is full, messages are dropped and counted rather than
+ * blocking the caller.
+ * <p>
+ * This class is thread-safe.
+ */
+final class TaskLog {
+    /** The system property holding the lowest level that is logged, such as DEBUG or OFF. */
+    static final String LEVEL_PROPERTY = "tasks.log.level";
+
+    /** The severity of a message, from the most to the least verbose. */
+    enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    /** The number of messages the ring buffer holds before new ones are dropped. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The ordinal of the lowest level that is logged; a constant the JIT folds into each check. */
+    private static final int THRESHOLD = threshold().ordinal();
+
+    private static final RingAppender APPENDER = new RingAppender(BUFFER_SIZE, System.out);
+
+    private TaskLog() {
+    }
+
+    static boolean isDebugEnabled() {
+        return Level.DEBUG.ordinal() >= THRESHOLD;
+    }
+
+    static boolean isInfoEnabled() {
+        return Level.INFO.ordinal() >= THRESHOLD;
+    }
+
+    static void debug(String message) {
+        if (isDebugEnabled()) {
+            APPENDER.append(Level.DEBUG, message, null, null, 0, null);
+        }
+    }
+
+    static void debug(String format, Object arg) {
+        if (isDebugEnabled()) {
+            APPENDER.append(Level.DEBUG, format, arg, null, 1, null);
+        }
+    }
+
+    static void debug(String format, Object arg1, Object arg2) {
+        if (isDebugEnabled()) {
+            APPENDER.append(Level.DEBUG, format, arg1, arg2, 2, null);
+        }
+    }
+
+    /**
+     * Logs a debug message built on the writer thread, only if debug messages are enabled.
+     *
+     * @param message builds the message; must only read values that no longer change
+     */
+    static void debug(Supplier<String> message) {
+        if (isDebugEnabled()) {
+            APPENDER.append(Level.DEBUG, null, message, null, 0, null);
+        }
+    }
+
+    static void info(String message) {
+        if (isInfoEnabled()) {
+            APPENDER.append(Level.INFO, message, null, null, 0, null);
+        }
+    }
+
+    static void info(String format, Object arg) {
+        if (isInfoEnabled()) {
+            APPENDER.append(Level.INFO, format, arg, null, 1, null);
+        }
+    }
+
+    static void info(String format, Object arg1, Object arg2) {
+        if (isInfoEnabled()) {
+            APPENDER.append(Level.INFO, format, arg1, arg2, 2, null);
+        }
+    }
+
+    /**
+     * Logs an info message whose loss the caller has to handle, such as a reminder that is
+     * delivered again when it could not be logged.
+     *
+     * @return false if the message was dropped because the buffer was full
+     */
+    static boolean tryInfo(String format, Object arg1, Object arg2) {
+        return !isInfoEnabled() || APPENDER.append(Level.INFO, format, arg1, arg2, 2, null);
+    }
+
+    static void warn(String message, Throwable error) {
+        if (Level.WARN.ordinal() >= THRESHOLD) {
+            APPENDER.append(Level.WARN, message, null, null, 0, error);
+        }
+    }
+
+    static void error(String message, Throwable error) {
+        if (Level.ERROR.ordinal() >= THRESHOLD) {
+            APPENDER.append(Level.ERROR, message, null, null, 0, error);
+        }
+    }
+
+    /**
+     * Waits until every message logged so far has been printed, for at most one second.
+     */
+    static void flush() {
+        APPENDER.flush(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static Level threshold() {
+        String level = System.getProperty(LEVEL_PROPERTY, Level.INFO.name());
+        try {
+            return Level.valueOf(level.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown log level " + level + ", using INFO");
+            return Level.INFO;
+        }
+    }
+
+    /**
+     * A bounded multi-producer, single-consumer ring buffer of log messages, drained by a
+     * daemon thread that is started with the first message.
+     * <p>
+     * A producer claims a sequence number with a compare-and-set, fills the slot at that
+     * position and publishes it by writing the sequence number into the slot last; the writer
+     * reads slots in sequence order and frees each one by advancing its own position, which
+     * producers check before claiming, so no slot is overwritten before it has been read.
+     */
+    static final class RingAppender {
+        private static final DateTimeFormatter TIME_FORMAT =
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+        /** The number of characters collected before the writer prints a batch. */
+        private static final int BATCH_CHARS = 16 * 1024;
+
+        private final Slot[] slots;
+        private final int mask;
+        private final PrintStream out;
+
+        /** The next sequence number to be claimed by a producer. */
+        private final AtomicLong claimed = new AtomicLong();
+
+        /** The next sequence number the writer reads; slots before it may be reused. */
+        private volatile long consumed;
+
+        /** The sequence number up to which messages have been printed. */
+        private volatile long written;
+
+        /** Whether the writer is parked, or about to park, waiting for a message. */
+        private volatile boolean idle;
+
+        private final LongAdder dropped = new LongAdder();
+
+        /** The number of dropped messages already reported. Used by the writer thread only. */
+        private long reportedDrops;
+
+        private volatile Thread writer;
+
+        /**
+         * One message; plain fields, published by the volatile write of {@code sequence}.
+         */
+        private static final class Slot {
+            volatile long sequence = -1;
+            Level level;
+            long millis;
+            String thread;
+            String format;
+            Object arg1;
+            Object arg2;
+            int argCount;
+            Throwable error;
+        }
+
+        /**
+         * Constructs a RingAppender.
+         *
+         * @param capacity the number of buffered messages, a power of two
+         * @param out      the stream the messages are printed to
+         * @throws IllegalArgumentException if the capacity is not a positive power of two
+         */
+        RingAppender(int capacity, PrintStream out) {
+            if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Capacity must be a power of two");
+            }
+            this.slots = new Slot[capacity];
+            for (int i = 0; i < capacity; i++) {
+                slots[i] = new Slot();
+            }
+            this.mask = capacity - 1;
+            this.out = out;
+        }
+
+        /**
+         * Buffers a message for the writer thread.
+         *
+         * @param level    the level of the message
+         * @param format   the {@link String#format} pattern, or the message if there are no arguments
+         * @param arg1     the first argument, or the {@link Supplier} of the message if format is null
+         * @param arg2     the second argument
+         * @param argCount the number of arguments
+         * @param error    the exception whose stack trace follows the message, or null
+         * @return false if the buffer was full and the message was dropped
+         */
+        boolean append(Level level, String format, Object arg1, Object arg2, int argCount, Throwable error) {
+            long sequence;
+            do {
+                sequence = claimed.get();
+                if (sequence - consumed >= slots.length) {
+                    dropped.increment();
+                    return false;
+                }
+            } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+            Slot slot = slots[(int) sequence & mask];
+            slot.level = level;
+            slot.millis = System.currentTimeMillis();
+            slot.thread = Thread.currentThread().getName();
+            slot.format = format;
+            slot.arg1 = arg1;
+            slot.arg2 = arg2;
+            slot.argCount = argCount;
+            slot.error = error;
+            slot.sequence = sequence;
+
+            Thread thread = writer;
+            if (thread == null) {
+                startWriter();
+            } else if (idle) {
+                LockSupport.unpark(thread);
+            }
+            return true;
+        }
+
+        /**
+         * Waits until every message appended so far has been printed.
+         *
+         * @param timeoutNanos the longest time to wait
+         * @return true if every message was printed in time
+         */
+        boolean flush(long timeoutNanos) {
+            long target = claimed.get();
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (written < target) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                Thread thread = writer;
+                if (thread != null) {
+                    LockSupport.unpark(thread);
+                }
+                LockSupport.parkNanos(100_000);
+            }
+            return true;
+        }
+
+        /**
+         * Gets the number of messages dropped because the buffer was full.
+         *
+         * @return the number of dropped messages
+         */
+        long droppedCount() {
+            return dropped.sum();
+        }
+
+        private synchronized void startWriter() {
+            if (writer != null) {
+                return;
+            }
+            Thread thread = new Thread(this::drain, "task-log-writer");
+            thread.setDaemon(true);
+            writer = thread;
+            thread.start();
+            // 退出前打印缓冲区中剩余的消息
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(TimeUnit.SECONDS.toNanos(1)), "task-log-flush"));
+        }
+
+        private void drain() {
+            StringBuilder text = new StringBuilder();
+            long next = consumed;
+            while (true) {
+                Slot slot = slots[(int) next & mask];
+                if (slot.sequence != next) {
+                    if (text.length() > 0) {
+                        print(text, next);
+                        continue;
+                    }
+                    // 先声明即将休眠再检查一次，与生产者的发布形成 Dekker 式握手，避免错过唤醒
+                    idle = true;
+                    if (slot.sequence != next) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                    }
+                    idle = false;
+                    continue;
+                }
+                format(slot, text);
+                slot.format = null;
+                slot.arg1 = null;
+                slot.arg2 = null;
+                slot.error = null;
+                next++;
+                consumed = next;
+                if (text.length() >= BATCH_CHARS) {
+                    print(text, next);
+                }
+            }
+        }
+
+        private void print(StringBuilder text, long next) {
+            long droppedSinceLast = dropped.sum() - reportedDrops;
+            if (droppedSinceLast > 0) {
+                reportedDrops += droppedSinceLast;
+                text.append(droppedSinceLast).append(" log messages dropped because the buffer was full")
+                        .append(System.lineSeparator());
+            }
+            out.print(text);
+            out.flush();
+            text.setLength(0);
+            written = next;
+        }
+
+        private static void format(Slot slot, StringBuilder text) {
+            TIME_FORMAT.formatTo(Instant.ofEpochMilli(slot.millis), text);
+            text.append(' ').append(String.format("%-5s", slot.level)).append(" [").append(slot.thread).append("] ");
+            try {
+                if (slot.format == null) {
+                    text.append(((Supplier<?>) slot.arg1).get());
+                } else if (slot.argCount == 0) {
+                    text.append(slot.format);
+                } else {
+                    text.append(String.format(slot.format, slot.argCount == 1
+                            ? new Object[]{slot.arg1} : new Object[]{slot.arg1, slot.arg2}));
+                }
+            } catch (RuntimeException e) {
+                // 消息构造失败不能终止写线程
+                text.append("Failed to format log message ").append(slot.format).append(": ").append(e);
+            }
+            text.append(System.lineSeparator());
+            if (slot.error != null) {
+                StringWriter trace = new StringWriter();
+                slot.error.printStackTrace(new PrintWriter(trace));
+                text.append(trace);
+            }
+        }
+    }
+}
@@ -1,9 +1,63 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * TaskManagementApp 是任务管理系统的主类。
- * 它包含程序入口，负责启动任务管理图形界面。
+ * 它包含程序入口：不带参数时启动任务管理图形界面；
+ * 参数为 daemon 时以无界面的守护进程运行调度器；其他参数作为控制命令发送给正在运行的守护进程。
+ * 守护进程和控制命令不会加载 AWT 或 Swing 的类。
  */
 public class TaskManagementApp {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        StartupTimeline.mark("main");
+        if (args.length == 0) {
+            startGui();
+            return;
+        }
+        // 控制套接字默认位于工作目录，与数据库文件放在一起
+        Path socketPath = Path.of(System.getProperty("tasks.socket", TaskDaemon.DEFAULT_SOCKET.toString()));
+        if (args[0].equals("daemon")) {
+            TaskDaemon.run(socketPath);
+            return;
+        }
+        int status;
+        try {
+            status = sendCommand(socketPath, args);
+        } catch (IOException e) {
+            System.err.println("Failed to send the command to the task daemon at " + socketPath + ": " + e.getMessage());
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    /**
+     * 把控制命令发送给守护进程，返回进程退出码。
+     * import 的参数是任务文件，"-" 表示从标准输入读取，文件内容作为请求正文发送。
+     */
+    private static int sendCommand(Path socketPath, String[] args) throws IOException {
+        if (!args[0].equals("import")) {
+            return TaskDaemon.send(socketPath, args, null, System.out, System.err);
+        }
+        if (args.length != 2) {
+            System.err.println("Usage: import file");
+            return 1;
+        }
+        try (BufferedReader body = args[1].equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            return TaskDaemon.send(socketPath, new String[] {"import"}, body, System.out, System.err);
+        }
+    }
+
+    /**
+     * 在事件调度线程中创建并显示主窗口。
+     * 界面相关的类只在这里引用，守护进程和控制命令因此不会加载它们。
+     */
+    private static void startGui() {
         // 使用 SwingUtilities.invokeLater 确保 GUI 在事件调度线程中创建和显示
         javax.swing.SwingUtilities.invokeLater(() -> {
             try {
@@ -14,6 +68,7 @@ public class TaskManagementApp {
             } catch (Exception e) {
                 e.printStackTrace(); // 如果设置界面风格失败，打印错误
             }
+            StartupTimeline.mark("look and feel");
 
             // 创建并显示主窗口
             TaskManagerGUI mainWindow = new TaskManagerGUI();
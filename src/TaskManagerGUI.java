@@ -1,13 +1,18 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.TableColumn;
 import java.awt.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 任务管理系统的图形用户界面类。
@@ -22,23 +27,41 @@ public class TaskManagerGUI extends JFrame {
     /** 显示任务信息的表格。 */
     private final JTable taskTable;
 
-    /** 表格的数据模型，管理任务表格中的数据。 */
-    private final DefaultTableModel tableModel;
+    /** 表格的数据模型，直接从按列存储的任务中读取单元格。 */
+    private final TaskTableModel tableModel;
 
     /** 日期和时间的格式化器，用于显示任务的时间信息。 */
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    /** 把其他线程上的任务变化和提醒按帧合并后应用到表格。 */
+    private final TaskUpdateBus updateBus;
+
+    /** 正在加载已保存任务的加载器，加载结束后为 null。 */
+    private volatile TaskLoader taskLoader;
+
     /** 数据访问对象，用于与存储的任务数据进行交互。 */
     private final TaskDAO taskDAO;
 
-    // 在类成员变量定义中添加一个常量标识列索引
-    private static final int COLUMN_ID = 0;
-    private static final int COLUMN_TITLE = 1;
-    private static final int COLUMN_DESCRIPTION = 2;
-    private static final int COLUMN_PRIORITY = 3;
-    private static final int COLUMN_STATUS = 4;
-    private static final int COLUMN_DUE_TIME = 5;
-    private static final int COLUMN_REMINDER_TIME = 6;
+    /** 在后台按提交顺序执行完成和删除等数据库写入，避免阻塞事件分发线程。 */
+    private final ExecutorService persistenceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "task-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** 调度器、任务队列、数据库和表格刷新的运行指标，通过 JMX 和可选的 Prometheus 端点导出。 */
+    private final TaskMetrics metrics = new TaskMetrics();
+
+    /** 后台加载已保存任务时显示的进度条，加载结束后隐藏。 */
+    private final JProgressBar loadProgress = new JProgressBar();
+
+    /** 重复规则选择框中的预设名称，与 RECURRENCE_PRESETS 一一对应。 */
+    private static final String[] RECURRENCE_LABELS = {"不重复", "每天", "每周", "每月"};
+
+    /** 预设的重复规则，null 表示不重复。 */
+    private static final RecurrenceRule[] RECURRENCE_PRESETS = {
+            null, RecurrenceRule.daily(), RecurrenceRule.weekly(), RecurrenceRule.monthly()
+    };
 
     /**
      * 构造方法，初始化任务管理系统的图形用户界面。
@@ -48,11 +71,38 @@ public class TaskManagerGUI extends JFrame {
         super("任务管理系统");
         this.taskDAO = new TaskDAO();
 
+        // 初始化任务表格的数据模型
+        String[] columnNames = {"ID","标题", "描述", "优先级", "状态", "截止时间", "提醒时间"};
+        tableModel = new TaskTableModel(columnNames);
+        // 调度器线程上的提醒和状态变化每帧合并一次应用到表格，同一帧的提醒汇总成一条通知
+        updateBus = new TaskUpdateBus(tableModel, this::showDueReminders);
+
         // 初始化任务调度器
-        scheduler = new TaskScheduler(task -> {
-            // 显示系统通知
-            displayNotification("任务提醒", "任务 '" + task.getTitle() + "' 需要处理了！");
+        // 提醒在下一帧显示后视为送达，失败时按指数退避重试 5 次，仍失败的提醒写入死信表；
+        // 并发上限决定一帧最多能汇总多少条提醒
+        scheduler = new TaskScheduler(
+                updateBus::reminderDue,
+                1000,
+                new TaskScheduler.RetryPolicy(5, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofSeconds(30)),
+                new ExecutorReminderEngine(),
+                ReminderDispatcher.platformPool(4, 10_000));
+        scheduler.setDeadLetterStore(taskDAO::addDeadLetter);
+        // 记录已送达的提醒，补发时据此判断离线期间错过了哪些提醒
+        scheduler.setReminderLog(taskDAO::markReminderFired);
+        // 重复任务每次提醒后移到下一次发生时间并写回数据库
+        scheduler.setTaskStore((task, fields) -> {
+            taskDAO.updateTask(task, fields);
+            updateBus.taskChanged(task);
+        });
+        // 包括只在数据库中被标记的任务，使表格中的状态保持一致
+        scheduler.setOverdueListener(taskIds -> {
+            for (String taskId : taskIds) {
+                updateBus.statusChanged(taskId, Task.TaskStatus.OVERDUE);
+            }
         });
+        scheduler.setMetrics(metrics);
+        taskDAO.setMetrics(metrics);
+        updateBus.setMetrics(metrics);
 
         // 配置窗口属性
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -63,14 +113,11 @@ public class TaskManagerGUI extends JFrame {
         JPanel mainPanel = new JPanel(new BorderLayout());
 
         // 初始化任务表格
-        String[] columnNames = {"ID","标题", "描述", "优先级", "状态", "截止时间", "提醒时间"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // 禁止用户直接编辑表格中的内容
-            }
-        };
         taskTable = new JTable(tableModel);
+        // 时间在绘制时才格式化；排序按列索引进行，不复制表格数据
+        taskTable.setDefaultRenderer(LocalDateTime.class, new TaskTableModel.DateTimeRenderer(dateFormatter));
+        TaskRowSorter rowSorter = new TaskRowSorter(tableModel);
+        taskTable.setRowSorter(rowSorter);
 
         //隐藏ID列
         TableColumn idColumn = taskTable.getColumnModel().getColumn(0);
@@ -79,6 +126,16 @@ public class TaskManagerGUI extends JFrame {
         JScrollPane scrollPane = new JScrollPane(taskTable);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
 
+        // 搜索框和加载进度显示在表格上方
+        JPanel topPanel = new JPanel(new BorderLayout(5, 5));
+        topPanel.add(new JLabel("搜索："), BorderLayout.WEST);
+        topPanel.add(createSearchField(rowSorter), BorderLayout.CENTER);
+        loadProgress.setStringPainted(true);
+        loadProgress.setString("正在加载任务...");
+        loadProgress.setIndeterminate(true);
+        topPanel.add(loadProgress, BorderLayout.SOUTH);
+        mainPanel.add(topPanel, BorderLayout.NORTH);
+
         // 创建按钮面板
         JPanel buttonPanel = new JPanel();
         JButton addButton = new JButton("添加任务");
@@ -103,48 +160,115 @@ public class TaskManagerGUI extends JFrame {
             int selectedRow = taskTable.getSelectedRow();
             if (selectedRow >= 0) {
                 // 实现编辑功能
-                showEditTaskDialog(selectedRow);
+                showEditTaskDialog(taskTable.convertRowIndexToModel(selectedRow));
             } else {
                 JOptionPane.showMessageDialog(this, "请选择要编辑的任务");
             }
         });
 
         //为完成任务按钮设置事件监听
-        completeButton.addActionListener(e -> {
-            int selectedRow = taskTable.getSelectedRow();
-            if (selectedRow >= 0) {
-                // 实现完成任务功能
-                completeTask(selectedRow);
-            } else {
-                JOptionPane.showMessageDialog(this, "请选择要完成的任务");
-            }
-        });
+        completeButton.addActionListener(e -> handleCompleteTask());
 
         // 为删除任务按钮设置事件监听
-        deleteButton.addActionListener(e -> {
-            int selectedRow = taskTable.getSelectedRow();
-            if (selectedRow >= 0) {
-                // 实现删除功能
-                deleteTask(selectedRow);
-            } else {
-                JOptionPane.showMessageDialog(this, "请选择要删除的任务");
+        deleteButton.addActionListener(e -> handleDeleteTask());
+        add(mainPanel);
+
+        // 数据库在后台预热，窗口无需等待建表即可显示；
+        // 数据库就绪后再启动调度器的后台线程，并在后台加载保存的任务
+        taskDAO.warmUp().whenComplete((ignored, error) -> {
+            if (error != null) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                        "数据库初始化失败：" + error.getMessage(), "错误", JOptionPane.ERROR_MESSAGE));
+                return;
             }
+            StartupTimeline.mark("database ready");
+            startScheduler();
+            SwingUtilities.invokeLater(this::loadSavedTasks);
         });
-        add(mainPanel);
+        StartupTimeline.mark("window built");
+    }
 
-        // 加载保存的任务
-        loadSavedTasks();
+    /**
+     * 启动调度器中需要访问数据库的后台工作：分片租约、错过提醒的补发、逾期扫描和提醒时间窗口。
+     * 在数据库预热线程上调用，不占用事件分发线程。
+     */
+    private void startScheduler() {
+        // 多个实例共用同一数据库时，按 64 个分片租约划分提醒，每条提醒只由一个实例送达
+        scheduler.enableSharding(taskDAO, 64, Duration.ofSeconds(30));
+        // 以每秒 5 条的速率补发离线期间（最多 7 天内）错过的提醒
+        scheduler.startCatchUp(taskDAO::getMissedReminders, Duration.ofDays(7), 5, 20);
+        // 逾期状态按截止时间批量更新，每次扫描只刷新一次表格
+        scheduler.setOverdueStore(taskDAO::markOverdueTasks, Duration.ofMinutes(1));
+        // 只在内存中保留未来两小时内的提醒，其余提醒由调度器按需从数据库加载
+        scheduler.enableReminderHorizon(taskDAO::getTasksByReminderTime, Duration.ofHours(2), Duration.ofMinutes(10));
+        StartupTimeline.mark("scheduler started");
+        // 加载 JMX 需要几十毫秒，放在启动完成之后注册指标
+        metrics.export();
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        StartupTimeline.mark("first paint");
     }
 
     /**
-     * 从数据访问对象加载已保存的任务，并将其添加到调度器和表格中。
+     * 创建按标题和描述筛选任务的搜索框。输入停顿 150 毫秒后才查询，
+     * 查询由三元组索引完成，不逐行扫描表格。
+     *
+     * @param rowSorter 应用筛选结果的排序器。
+     * @return 搜索框。
+     */
+    private JTextField createSearchField(TaskRowSorter rowSorter) {
+        JTextField searchField = new JTextField();
+        Timer searchTimer = new Timer(150, e -> rowSorter.setSearchText(searchField.getText()));
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        return searchField;
+    }
+
+    /**
+     * 在后台线程中按页从数据访问对象加载已保存的任务，并分批添加到表格中。
+     * 提醒由调度器在时间窗口内从数据库加载，无需逐个安排。
      */
     private void loadSavedTasks() {
-        List<Task> savedTasks = taskDAO.getAllTasks();
-        for (Task task : savedTasks) {
-            scheduler.scheduleTask(task); // 添加到任务调度器
-            addTaskToTable(task);        // 添加到表格
-        }
+        taskLoader = new TaskLoader(taskDAO, tableModel, TaskLoader.PAGE_SIZE, new TaskLoader.LoadListener() {
+            @Override
+            public void loaded(int loaded, int total) {
+                loadProgress.setIndeterminate(false);
+                loadProgress.setMaximum(total);
+                loadProgress.setValue(loaded);
+                loadProgress.setString("正在加载任务 " + loaded + "/" + total);
+            }
+
+            @Override
+            public void finished(int loaded, Throwable error) {
+                loadProgress.setVisible(false);
+                if (error != null) {
+                    error.printStackTrace();
+                    JOptionPane.showMessageDialog(TaskManagerGUI.this, "加载任务失败：" + error.getMessage(),
+                            "错误", JOptionPane.ERROR_MESSAGE);
+                }
+                taskLoader = null;
+                StartupTimeline.complete("tasks loaded");
+            }
+        });
+        taskLoader.execute();
     }
 
     /**
@@ -163,6 +287,7 @@ public class TaskManagerGUI extends JFrame {
         JComboBox<Task.TaskPriority> priorityCombo = new JComboBox<>(Task.TaskPriority.values());
         JSpinner dueDateSpinner = createDateTimeSpinner();
         JSpinner reminderSpinner = createDateTimeSpinner();
+        JComboBox<String> recurrenceCombo = createRecurrenceCombo(null);
 
         // 添加组件
         gbc.gridx = 0; gbc.gridy = 0;
@@ -190,9 +315,14 @@ public class TaskManagerGUI extends JFrame {
         gbc.gridx = 1;
         dialog.add(reminderSpinner, gbc);
 
+        gbc.gridx = 0; gbc.gridy = 5;
+        dialog.add(new JLabel("重复："), gbc);
+        gbc.gridx = 1;
+        dialog.add(recurrenceCombo, gbc);
+
         // 确定按钮
         JButton confirmButton = new JButton("确定");
-        gbc.gridx = 0; gbc.gridy = 5;
+        gbc.gridx = 0; gbc.gridy = 6;
         gbc.gridwidth = 2;
         dialog.add(confirmButton, gbc);
 
@@ -205,6 +335,7 @@ public class TaskManagerGUI extends JFrame {
                     getDateTimeFromSpinner(reminderSpinner),
                     (Task.TaskPriority) priorityCombo.getSelectedItem()
             );
+            task.setRecurrence(getRecurrenceFromCombo(recurrenceCombo, null));
 
             // 添加到调度器
             scheduler.scheduleTask(task);
@@ -233,6 +364,36 @@ public class TaskManagerGUI extends JFrame {
         return spinner;
     }
 
+    /**
+     * 创建重复规则选择框，包含常用的预设规则。
+     *
+     * @param current 任务当前的重复规则，可以为 null。
+     * @return 重复规则选择框。
+     */
+    private JComboBox<String> createRecurrenceCombo(RecurrenceRule current) {
+        JComboBox<String> combo = new JComboBox<>(RECURRENCE_LABELS);
+        int selected = Arrays.asList(RECURRENCE_PRESETS).indexOf(current);
+        if (selected < 0) {
+            // 非预设规则以其 RRULE 文本显示，保持不变
+            combo.addItem(current.toString());
+            selected = RECURRENCE_PRESETS.length;
+        }
+        combo.setSelectedIndex(selected);
+        return combo;
+    }
+
+    /**
+     * 从重复规则选择框中获取用户选择的重复规则。
+     *
+     * @param combo   重复规则选择框。
+     * @param current 任务当前的重复规则，可以为 null。
+     * @return 选择的重复规则；不重复时返回 null。
+     */
+    private RecurrenceRule getRecurrenceFromCombo(JComboBox<String> combo, RecurrenceRule current) {
+        int selected = combo.getSelectedIndex();
+        return selected < RECURRENCE_PRESETS.length ? RECURRENCE_PRESETS[selected] : current;
+    }
+
     /**
      * 从日期时间选择器中获取用户选择的日期时间。
      *
@@ -252,28 +413,21 @@ public class TaskManagerGUI extends JFrame {
      * @param task 要添加的任务对象。
      */
     private void addTaskToTable(Task task) {
-        Vector<String> row = new Vector<>();
-        row.add(task.getId());
-        row.add(task.getTitle());
-        row.add(task.getDescription());
-        row.add(task.getPriority().toString());
-        row.add(task.getStatus().toString());
-        row.add(task.getDueDateTime().format(dateFormatter));
-        row.add(task.getReminderTime().format(dateFormatter));
-        tableModel.addRow(row);
-        System.out.println("Task added to table with ID: " + task.getId());
+        tableModel.putTask(task);
+        TaskLog.debug("Task added to table with ID: %s", task.getId());
     }
 
     /**
      * 显示编辑任务的对话框。
      *
-     * @param row 被选中的任务行号。
+     * @param row 被选中任务在模型中的行号。
      */
     private void showEditTaskDialog(int row) {
-        String taskId = (String) tableModel.getValueAt(row, COLUMN_ID);
-        System.out.println("Task ID: " + taskId);
-        Task task = taskDAO.getTaskById(taskId);
-        System.out.println("Task ID: " + task);
+        String taskId = tableModel.getTaskId(row);
+        // 优先编辑调度器中的实例，使已设置的提醒能看到修改
+        Task scheduledTask = scheduler.findTask(taskId);
+        Task task = scheduledTask != null ? scheduledTask : taskDAO.getTaskById(taskId);
+        TaskLog.debug("Editing task %s", taskId);
 
 
         if (task == null) {
@@ -300,6 +454,9 @@ public class TaskManagerGUI extends JFrame {
         JSpinner reminderSpinner = createDateTimeSpinner();
         reminderSpinner.setValue(Date.from(task.getReminderTime().atZone(ZoneId.systemDefault()).toInstant()));
 
+        RecurrenceRule recurrence = task.getRecurrence();
+        JComboBox<String> recurrenceCombo = createRecurrenceCombo(recurrence);
+
         // 添加组件
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -331,35 +488,39 @@ public class TaskManagerGUI extends JFrame {
         gbc.gridx = 1;
         dialog.add(reminderSpinner, gbc);
 
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        dialog.add(new JLabel("重复："), gbc);
+        gbc.gridx = 1;
+        dialog.add(recurrenceCombo, gbc);
+
         // 确定按钮
         JButton confirmButton = new JButton("确定");
         gbc.gridx = 0;
-        gbc.gridy = 5;
+        gbc.gridy = 6;
         gbc.gridwidth = 2;
         dialog.add(confirmButton, gbc);
 
         confirmButton.addActionListener(e -> {
-            // 更新任务信息
-            task.setTitle(titleField.getText());
-            task.setDescription(descField.getText());
-            task.setDueDateTime(getDateTimeFromSpinner(dueDateSpinner));
-            task.setReminderTime(getDateTimeFromSpinner(reminderSpinner));
-            task.setPriority((Task.TaskPriority) priorityCombo.getSelectedItem());
+            // 一次性更新任务信息，只记录实际变化的字段
+            int changedFields = task.edit(editor -> editor
+                    .setTitle(titleField.getText())
+                    .setDescription(descField.getText())
+                    .setDueDateTime(getDateTimeFromSpinner(dueDateSpinner))
+                    .setReminderTime(getDateTimeFromSpinner(reminderSpinner))
+                    .setPriority((Task.TaskPriority) priorityCombo.getSelectedItem())
+                    .setRecurrence(getRecurrenceFromCombo(recurrenceCombo, recurrence)));
 
             try {
-                // 更新数据库
-                taskDAO.updateTask(task);
+                // 只写入变化的列
+                taskDAO.updateTask(task, changedFields);
 
-                // 更新调度器
-                scheduler.updateTask(task);
+                // 只有提醒时间或优先级变化时才重新调度；对话框打开期间已送达的任务
+                // 只在提醒时间改到未来时重新安排，窗口外的由调度器稍后加载
+                scheduler.updateTask(task, changedFields);
 
                 // 更新表格显示
-                tableModel.setValueAt(task.getTitle(), row, COLUMN_TITLE);
-                tableModel.setValueAt(task.getDescription(), row, COLUMN_DESCRIPTION);
-                tableModel.setValueAt(task.getPriority().toString(), row, COLUMN_PRIORITY);
-                tableModel.setValueAt(task.getStatus().toString(), row, COLUMN_STATUS);
-                tableModel.setValueAt(task.getDueDateTime().format(dateFormatter), row, COLUMN_DUE_TIME);
-                tableModel.setValueAt(task.getReminderTime().format(dateFormatter), row, COLUMN_REMINDER_TIME);
+                tableModel.putTask(task);
 
                 dialog.dispose();
             } catch (RuntimeException ex) {
@@ -375,16 +536,87 @@ public class TaskManagerGUI extends JFrame {
         dialog.setVisible(true);
     }
 
-    private void completeTask(int row) {
-        // TODO: 实现完成任务功能
-        tableModel.setValueAt("COMPLETED", row, 3);
-        JOptionPane.showMessageDialog(this, "任务已完成");
+    /**
+     * 显示同一帧内到期的提醒，多条提醒汇总成一条通知。
+     *
+     * @param tasks 提醒到期的任务。
+     */
+    private void showDueReminders(List<Task> tasks) {
+        if (tasks.size() == 1) {
+            displayNotification("任务提醒", "任务 '" + tasks.get(0).getTitle() + "' 需要处理了！");
+        } else {
+            displayNotification("任务提醒", tasks.size() + " 个任务需要处理了！");
+        }
+    }
+
+    /**
+     * 在后台线程中完成给定的任务：先在一个事务中写入数据库，再取消调度器中的提醒，
+     * 最后经更新总线刷新表格。
+     *
+     * @param taskIds 要完成的任务 ID。
+     */
+    private void completeTasks(List<String> taskIds) {
+        persistenceExecutor.execute(() -> {
+            try {
+                taskDAO.completeTasks(taskIds, LocalDateTime.now());
+                for (String taskId : taskIds) {
+                    // 只有已加载到调度器的任务才有待取消的提醒
+                    Task task = scheduler.findTask(taskId);
+                    if (task != null) {
+                        scheduler.completeTask(task);
+                    }
+                    updateBus.statusChanged(taskId, Task.TaskStatus.COMPLETED);
+                }
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "已完成 " + taskIds.size() + " 个任务"));
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                        "完成任务失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE));
+            }
+        });
     }
 
-    private void deleteTask(int row) {
-        // TODO: 实现删除任务功能
-        tableModel.removeRow(row);
-        JOptionPane.showMessageDialog(this, "任务已删除");
+    /**
+     * 在后台线程中删除给定的任务：先在一个事务中从数据库删除，再从调度器中取消，
+     * 最后经更新总线从表格中移除。
+     *
+     * @param taskIds 要删除的任务 ID。
+     */
+    private void deleteTasks(List<String> taskIds) {
+        persistenceExecutor.execute(() -> {
+            try {
+                taskDAO.deleteTasks(taskIds);
+                for (String taskId : taskIds) {
+                    Task task = scheduler.findTask(taskId);
+                    if (task != null) {
+                        scheduler.cancelTask(task);
+                    }
+                    // 先告知加载器，避免删除前读取的页面把任务加回表格
+                    TaskLoader loader = taskLoader;
+                    if (loader != null) {
+                        loader.taskRemoved(taskId);
+                    }
+                    updateBus.taskRemoved(taskId);
+                }
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "已删除 " + taskIds.size() + " 个任务"));
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                        "删除任务失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE));
+            }
+        });
+    }
+
+    /**
+     * 获取表格中选中的所有任务的 ID。行号先换算为模型行，再按 ID 定位任务，
+     * 因此排序或其他行的变化不会影响所操作的任务。
+     *
+     * @return 选中任务的 ID，未选中时为空列表。
+     */
+    private List<String> getSelectedTaskIds() {
+        List<String> taskIds = new ArrayList<>();
+        for (int selectedRow : taskTable.getSelectedRows()) {
+            taskIds.add(tableModel.getTaskId(taskTable.convertRowIndexToModel(selectedRow)));
+        }
+        return taskIds;
     }
 
     /**
@@ -403,7 +635,7 @@ public class TaskManagerGUI extends JFrame {
     private void handleEditTask() {
         int selectedRow = taskTable.getSelectedRow();
         if (selectedRow >= 0) {
-            showEditTaskDialog(selectedRow);
+            showEditTaskDialog(taskTable.convertRowIndexToModel(selectedRow));
         } else {
             JOptionPane.showMessageDialog(this, "请选择要编辑的任务");
         }
@@ -413,9 +645,9 @@ public class TaskManagerGUI extends JFrame {
      * 处理完成任务的操作逻辑。
      */
     private void handleCompleteTask() {
-        int selectedRow = taskTable.getSelectedRow();
-        if (selectedRow >= 0) {
-            // TODO: 实现完成任务的逻辑
+        List<String> taskIds = getSelectedTaskIds();
+        if (!taskIds.isEmpty()) {
+            completeTasks(taskIds);
         } else {
             JOptionPane.showMessageDialog(this, "请选择要完成的任务");
         }
@@ -425,9 +657,9 @@ public class TaskManagerGUI extends JFrame {
      * 处理删除任务的操作逻辑。
      */
     private void handleDeleteTask() {
-        int selectedRow = taskTable.getSelectedRow();
-        if (selectedRow >= 0) {
-            // TODO: 实现删除任务的逻辑
+        List<String> taskIds = getSelectedTaskIds();
+        if (!taskIds.isEmpty()) {
+            deleteTasks(taskIds);
         } else {
             JOptionPane.showMessageDialog(this, "请选择要删除的任务");
         }
@@ -0,0 +1,531 @@
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A registry of counters, gauges and latency histograms, exported as platform MBeans and in
+ * the Prometheus text format.
+ * <p>
+ * Metrics are grouped into families named in the Prometheus style, such as
+ * {@code task_dao_latency_seconds}; the series of a family are told apart by the value of one
+ * label, or the family has a single unlabeled series. Counters are {@link LongAdder}s and
+ * histograms count durations in fixed log-linear buckets, so recording a value takes a few
+ * nanoseconds, allocates nothing and never blocks. Gauges are read only when exported.
+ * <p>
+ * {@link #registerMBeans} registers one MBean per family under {@link #JMX_DOMAIN}, including
+ * families created afterwards, and {@link #startHttpServer} serves {@link #scrape} on the
+ * loopback interface. Neither is started by default, so an application that does not export
+ * its metrics does not load JMX.
+ * <p>
+ * This class is thread-safe.
+ */
+final class TaskMetrics {
+    /** The JMX domain of the metric MBeans. */
+    static final String JMX_DOMAIN = "TaskManager";
+
+    /** The system property holding the localhost port of the Prometheus endpoint. */
+    static final String PORT_PROPERTY = "tasks.metrics.port";
+
+    /** The quantiles reported for each histogram. */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), SUMMARY("summary");
+
+        private final String prometheusName;
+
+        Type(String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        void increment() {
+            count.increment();
+        }
+
+        long get() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * Counts durations in log-linear buckets, like HdrHistogram: values below 32 ns have a
+     * bucket each, and every power of two above is split into 32 buckets, so any recorded
+     * value is reported within about 3% over its whole range, from nanoseconds to years.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Records one duration.
+         *
+         * @param nanos the duration in nanoseconds; negative durations count as zero
+         */
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(bucketOf(value));
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Records the time elapsed since the given start.
+         *
+         * @param startNanos a {@link System#nanoTime} value
+         */
+        void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        long totalNanos() {
+            return total.sum();
+        }
+
+        long maxNanos() {
+            return max.get();
+        }
+
+        /**
+         * Gets a quantile of the recorded durations, rounded up to the end of its bucket.
+         *
+         * @param quantile the quantile, between 0 and 1
+         * @return the duration in nanoseconds, or 0 if nothing has been recorded
+         */
+        long quantileNanos(double quantile) {
+            long[] snapshot = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                count += snapshot[i];
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(lowestValueOf(i + 1) - 1, maxNanos());
+                }
+            }
+            return maxNanos();
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            // 值落在 [2^e, 2^(e+1)) 内，取最高位之后的 5 位作为子桶
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        static long lowestValueOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+            return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        }
+    }
+
+    /**
+     * The series of one metric, told apart by the value of one label.
+     *
+     * @param <M> the type of the metric
+     */
+    static final class Family<M> {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final String label;
+        private final Function<String, M> factory;
+        private final Map<String, M> series = new ConcurrentHashMap<>();
+        private final Map<String, M> ordered = new LinkedHashMap<>();
+
+        private Family(String name, String help, Type type, String label, Function<String, M> factory) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.label = label;
+            this.factory = factory;
+        }
+
+        /**
+         * Gets the series with the given label value, creating it on first use. Callers pass
+         * constant strings, so that the lookup neither allocates nor hashes the value again.
+         *
+         * @param value the label value
+         * @return the metric
+         */
+        M labels(String value) {
+            M metric = series.get(value);
+            if (metric != null) {
+                return metric;
+            }
+            synchronized (ordered) {
+                return series.computeIfAbsent(value, key -> {
+                    M created = factory.apply(key);
+                    ordered.put(key, created);
+                    return created;
+                });
+            }
+        }
+
+        private Map<String, M> snapshot() {
+            synchronized (ordered) {
+                return new LinkedHashMap<>(ordered);
+            }
+        }
+    }
+
+    private final Map<String, Family<?>> families = new LinkedHashMap<>();
+
+    /** The server the MBeans are registered with, or null until {@link #registerMBeans}. */
+    private MBeanServer mbeanServer;
+
+    /**
+     * Gets the counter of an unlabeled family, creating it on first use.
+     *
+     * @param name the family name, ending in {@code _total}
+     * @param help the description of the metric
+     * @return the counter
+     */
+    Counter counter(String name, String help) {
+        return counterFamily(name, help, null).labels("");
+    }
+
+    /**
+     * Gets a family of counters, creating it on first use.
+     *
+     * @param name  the family name, ending in {@code _total}
+     * @param help  the description of the metric
+     * @param label the name of the label that tells the series apart
+     * @return the family
+     */
+    @SuppressWarnings("unchecked")
+    Family<Counter> counterFamily(String name, String help, String label) {
+        return (Family<Counter>) family(name, help, Type.COUNTER, label, value -> new Counter());
+    }
+
+    /**
+     * Gets the histogram of an unlabeled family, creating it on first use.
+     *
+     * @param name the family name, ending in {@code _seconds}
+     * @param help the description of the metric
+     * @return the histogram
+     */
+    Histogram histogram(String name, String help) {
+        return histogramFamily(name, help, null).labels("");
+    }
+
+    /**
+     * Gets a family of histograms, creating it on first use.
+     *
+     * @param name  the family name, ending in {@code _seconds}
+     * @param help  the description of the metric
+     * @param label the name of the label that tells the series apart
+     * @return the family
+     */
+    @SuppressWarnings("unchecked")
+    Family<Histogram> histogramFamily(String name, String help, String label) {
+        return (Family<Histogram>) family(name, help, Type.SUMMARY, label, value -> new Histogram());
+    }
+
+    /**
+     * Registers a gauge whose value is read when the metrics are exported. A gauge registered
+     * again under the same name replaces the previous one.
+     *
+     * @param name  the metric name
+     * @param help  the description of the metric
+     * @param value reads the current value
+     */
+    void gauge(String name, String help, LongSupplier value) {
+        Family<LongSupplier> family;
+        synchronized (this) {
+            family = new Family<>(name, help, Type.GAUGE, null, key -> value);
+            families.put(name, family);
+        }
+        family.labels("");
+        registerMBean(family);
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format. Durations are reported
+     * in seconds, and histograms as summaries with their 50th, 90th, 99th and 99.9th percentiles.
+     *
+     * @return the metrics text
+     */
+    String scrape() {
+        StringBuilder text = new StringBuilder();
+        for (Family<?> family : families()) {
+            text.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            text.append("# TYPE ").append(family.name).append(' ').append(family.type.prometheusName).append('\n');
+            for (Map.Entry<String, ?> series : family.snapshot().entrySet()) {
+                String label = family.label == null ? "" : family.label + "=\"" + escape(series.getKey()) + "\"";
+                Object metric = series.getValue();
+                if (metric instanceof Counter counter) {
+                    sample(text, family.name, label, counter.get());
+                } else if (metric instanceof LongSupplier gauge) {
+                    sample(text, family.name, label, gauge.getAsLong());
+                } else if (metric instanceof Histogram histogram) {
+                    for (double quantile : QUANTILES) {
+                        String quantileLabel = (label.isEmpty() ? "" : label + ",") + "quantile=\"" + quantile + "\"";
+                        sample(text, family.name, quantileLabel, histogram.quantileNanos(quantile) / 1e9);
+                    }
+                    sample(text, family.name + "_sum", label, histogram.totalNanos() / 1e9);
+                    sample(text, family.name + "_count", label, histogram.count());
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Registers one MBean per metric family with the platform MBean server, now and for
+     * families created later. Counters and gauges appear as attributes named after their label
+     * values, or {@code Value} when unlabeled; each histogram series has {@code Count},
+     * {@code Mean}, {@code Max} and percentile attributes in milliseconds.
+     */
+    void registerMBeans() {
+        List<Family<?>> registered;
+        synchronized (this) {
+            if (mbeanServer != null) {
+                return;
+            }
+            mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            registered = new ArrayList<>(families.values());
+        }
+        for (Family<?> family : registered) {
+            registerMBean(family);
+        }
+    }
+
+    /**
+     * Serves the metrics in the Prometheus text format at {@code /metrics} on the loopback
+     * interface, on a daemon thread.
+     *
+     * @param port the port, or 0 to choose a free one
+     * @return the running server; {@link HttpServer#stop} ends it
+     * @throws IOException if the port cannot be bound
+     */
+    HttpServer startHttpServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // 请求在分发线程上处理；分发线程继承启动线程的守护属性，从守护线程启动才不会阻止进程退出
+        Thread starter = new Thread(server::start, "metrics-http-dispatcher");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return server;
+    }
+
+    /**
+     * Registers the MBeans and starts the Prometheus endpoint on the port given by the
+     * {@value #PORT_PROPERTY} system property, if it is set. Failures are reported and
+     * otherwise ignored, since metrics must not keep the application from running.
+     */
+    void export() {
+        try {
+            registerMBeans();
+            String port = System.getProperty(PORT_PROPERTY);
+            if (port != null) {
+                HttpServer server = startHttpServer(Integer.parseInt(port));
+                System.out.println("Metrics available at http://localhost:" + server.getAddress().getPort() + "/metrics");
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized Family<?> family(String name, String help, Type type, String label,
+                                          Function<String, ?> factory) {
+        Family<?> family = families.get(name);
+        if (family == null) {
+            family = new Family<>(name, help, type, label, factory);
+            families.put(name, family);
+            registerMBean(family);
+        } else if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.prometheusName);
+        }
+        return family;
+    }
+
+    private synchronized List<Family<?>> families() {
+        return new ArrayList<>(families.values());
+    }
+
+    private void registerMBean(Family<?> family) {
+        MBeanServer server;
+        synchronized (this) {
+            server = mbeanServer;
+        }
+        if (server == null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=Metrics,name=" + family.name);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new FamilyMBean(family), name);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, double value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(String.format(Locale.ROOT, "%.9g", value));
+        }
+        text.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Exposes one metric family as the attributes of a read-only MBean.
+     */
+    private static final class FamilyMBean implements DynamicMBean {
+        private final Family<?> family;
+
+        FamilyMBean(Family<?> family) {
+            this.family = family;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = attributes().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, Object> values = attributes();
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                if (values.containsKey(name)) {
+                    list.add(new Attribute(name, values.get(name)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metric attributes are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("Metrics have no operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> infos = new ArrayList<>();
+            for (Map.Entry<String, Object> attribute : attributes().entrySet()) {
+                infos.add(new MBeanAttributeInfo(attribute.getKey(), attribute.getValue().getClass().getName(),
+                        family.help, true, false, false));
+            }
+            return new MBeanInfo(FamilyMBean.class.getName(), family.help,
+                    infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private Map<String, Object> attributes() {
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            for (Map.Entry<String, ?> series : family.snapshot().entrySet()) {
+                String prefix = series.getKey().isEmpty() ? "" : series.getKey() + ".";
+                Object metric = series.getValue();
+                if (metric instanceof Counter counter) {
+                    attributes.put(prefix.isEmpty() ? "Value" : series.getKey(), counter.get());
+                } else if (metric instanceof LongSupplier gauge) {
+                    attributes.put(prefix.isEmpty() ? "Value" : series.getKey(), gauge.getAsLong());
+                } else if (metric instanceof Histogram histogram) {
+                    long count = histogram.count();
+                    attributes.put(prefix + "Count", count);
+                    attributes.put(prefix + "Mean", count == 0 ? 0.0 : histogram.totalNanos() / 1e6 / count);
+                    attributes.put(prefix + "Max", histogram.maxNanos() / 1e6);
+                    attributes.put(prefix + "50thPercentile", histogram.quantileNanos(0.5) / 1e6);
+                    attributes.put(prefix + "99thPercentile", histogram.quantileNanos(0.99) / 1e6);
+                    attributes.put(prefix + "999thPercentile", histogram.quantileNanos(0.999) / 1e6);
+                }
+            }
+            return attributes;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+
+/**
+ * Defines the order in which a {@link TaskQueue} hands out pending tasks.
+ * Policies are immutable and can be shared between queues.
+ */
+public final class TaskOrderingPolicy {
+    private final String name;
+
+    private final Comparator<Task> comparator;
+
+    private TaskOrderingPolicy(String name, Comparator<Task> comparator) {
+        this.name = name;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Orders tasks by priority level, then by creation time.
+     * This is the default policy of {@link TaskQueue}.
+     *
+     * @return the priority-FIFO policy
+     */
+    public static TaskOrderingPolicy priorityFifo() {
+        return new TaskOrderingPolicy("priority-fifo", (t1, t2) -> {
+            int priorityCompare = t1.getPriority().compareTo(t2.getPriority());
+            if (priorityCompare != 0) {
+                return priorityCompare;
+            }
+            return t1.getCreatedTime().compareTo(t2.getCreatedTime());
+        });
+    }
+
+    /**
+     * Orders tasks by due date and time, breaking ties by priority level and creation time.
+     *
+     * @return the earliest-deadline-first policy
+     */
+    public static TaskOrderingPolicy earliestDeadlineFirst() {
+        return new TaskOrderingPolicy("earliest-deadline-first", (t1, t2) -> {
+            int dueCompare = t1.getDueDateTime().compareTo(t2.getDueDateTime());
+            if (dueCompare != 0) {
+                return dueCompare;
+            }
+            int priorityCompare = t1.getPriority().compareTo(t2.getPriority());
+            if (priorityCompare != 0) {
+                return priorityCompare;
+            }
+            return t1.getCreatedTime().compareTo(t2.getCreatedTime());
+        });
+    }
+
+    /**
+     * Orders tasks by priority level, where a task gains one priority level for every
+     * {@code agingStep} it has been waiting since creation.
+     * <p>
+     * Because every task ages at the same rate, the relative order of two tasks never changes
+     * over time: {@code level1 - age1 / step < level2 - age2 / step} is equivalent to
+     * {@code created1 + level1 * step < created2 + level2 * step}. The comparator therefore
+     * uses that time-invariant key, and the heap never has to be rebuilt as tasks age.
+     *
+     * @param agingStep the waiting time after which a task is promoted by one priority level
+     * @return the aging policy
+     * @throws IllegalArgumentException if agingStep is null, zero or negative
+     */
+    public static TaskOrderingPolicy priorityWithAging(Duration agingStep) {
+        if (agingStep == null || agingStep.isZero() || agingStep.isNegative()) {
+            throw new IllegalArgumentException("Aging step must be positive");
+        }
+        long stepMillis = Math.max(1, agingStep.toMillis());
+        return new TaskOrderingPolicy("priority-aging-" + agingStep, (t1, t2) -> {
+            int keyCompare = Long.compare(agingKey(t1, stepMillis), agingKey(t2, stepMillis));
+            if (keyCompare != 0) {
+                return keyCompare;
+            }
+            return t1.getPriority().compareTo(t2.getPriority());
+        });
+    }
+
+    /**
+     * Computes the time-invariant aging key of a task: its creation time shifted back by one
+     * aging step per priority level.
+     *
+     * @param task       the task
+     * @param stepMillis the aging step in milliseconds
+     * @return the aging key in milliseconds
+     */
+    private static long agingKey(Task task, long stepMillis) {
+        return toEpochMillis(task.getCreatedTime()) + task.getPriority().ordinal() * stepMillis;
+    }
+
+    /**
+     * Converts a LocalDateTime to milliseconds without allocating an Instant.
+     * Only differences between keys matter, so the fixed UTC offset is sufficient.
+     *
+     * @param time the time to convert
+     * @return the time in milliseconds
+     */
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000L + time.getNano() / 1_000_000;
+    }
+
+    /**
+     * Gets the comparator that implements this policy.
+     *
+     * @return the task comparator
+     */
+    public Comparator<Task> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Gets the name of this policy.
+     *
+     * @return the policy name
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
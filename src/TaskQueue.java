@@ -1,23 +1,124 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.PriorityQueue;
-import java.util.Comparator;
 import java.util.NoSuchElementException;
 
 public class TaskQueue {
+    /**
+     * The number of spilled runs of one level that are merged into a single run of the next
+     * level. Each spilled task is rewritten once per level, and at most this many runs minus one
+     * are left on each level, so peek and poll compare a number of run heads that grows with the
+     * logarithm of the number of spilled tasks.
+     */
+    private static final int MERGE_FANOUT = 8;
+
     private final PriorityQueue<Task> taskHeap;
 
+    private final TaskOrderingPolicy orderingPolicy;
+
+    private final int memoryBudget;
+
+    private final Path spillDirectory;
+
+    private final List<TaskSpillRun> spillRuns;
+
+    /**
+     * The number of live spilled tasks. Removed tasks are tracked by their runs, which skip
+     * their records on read.
+     */
+    private int spilledCount;
+
+    private int nextRunSequence;
+
+    /** Counters of added, polled and removed tasks, or null if no metrics are recorded. */
+    private TaskMetrics.Counter addedCount;
+    private TaskMetrics.Counter polledCount;
+    private TaskMetrics.Counter removedCount;
+
     /**
      * Constructs an empty TaskQueue with a custom comparator to prioritize tasks.
      * The comparator prioritizes tasks by their priority level and creation time.
      */
     public TaskQueue() {
-        Comparator<Task> comparator = (t1, t2) -> {
-            int priorityCompare = t1.getPriority().compareTo(t2.getPriority());
-            if (priorityCompare != 0) {
-                return priorityCompare;
-            }
-            return t1.getCreatedTime().compareTo(t2.getCreatedTime());
-        };
-        this.taskHeap = new PriorityQueue<>(comparator);
+        this(TaskOrderingPolicy.priorityFifo());
+    }
+
+    /**
+     * Constructs an empty TaskQueue that orders tasks according to the given policy.
+     *
+     * @param orderingPolicy the policy deciding which task is handed out first
+     * @throws IllegalArgumentException if orderingPolicy is null
+     */
+    public TaskQueue(TaskOrderingPolicy orderingPolicy) {
+        this(orderingPolicy, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Constructs an empty TaskQueue that keeps at most {@code memoryBudget} tasks on the heap.
+     * When the budget is exceeded, the lower-ranked half of the in-memory tasks is written as a
+     * sorted run to a memory-mapped segment file in {@code spillDirectory}. Spilled tasks are
+     * merged back as the head of the queue drains, so peek and poll return tasks in exactly the
+     * same order as an unbounded queue.
+     * <p>
+     * Spilled tasks are read back as restored copies rather than the original instances;
+     * they are equal to the originals because tasks are compared by ID. A copy holds the
+     * attributes the task had when it was spilled: changes made to the original instance
+     * afterwards are not seen by the queue unless the task is passed to {@link #updateTask},
+     * which replaces the spilled record with the given instance.
+     *
+     * @param orderingPolicy the policy deciding which task is handed out first
+     * @param memoryBudget   the maximum number of tasks kept on the heap
+     * @param spillDirectory the directory for segment files
+     * @throws IllegalArgumentException if orderingPolicy is null, memoryBudget is less than 2,
+     *                                  or spillDirectory is null while the budget is bounded
+     */
+    public TaskQueue(TaskOrderingPolicy orderingPolicy, int memoryBudget, Path spillDirectory) {
+        if (orderingPolicy == null) {
+            throw new IllegalArgumentException("Ordering policy cannot be null");
+        }
+        if (memoryBudget < 2) {
+            throw new IllegalArgumentException("Memory budget must be at least 2");
+        }
+        if (spillDirectory == null && memoryBudget != Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Spill directory cannot be null");
+        }
+        this.orderingPolicy = orderingPolicy;
+        this.taskHeap = new PriorityQueue<>(orderingPolicy.comparator());
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.spillRuns = new ArrayList<>();
+    }
+
+    /**
+     * Gets the policy used to order the tasks in this queue.
+     *
+     * @return the ordering policy
+     */
+    public TaskOrderingPolicy getOrderingPolicy() {
+        return orderingPolicy;
+    }
+
+    /**
+     * Counts the tasks added to, polled from and removed from this queue in the
+     * {@code task_queue_operations_total} family of the given registry. A priority update
+     * counts as one removal and one addition.
+     *
+     * @param metrics the metrics registry, or null to stop counting
+     */
+    public void setMetrics(TaskMetrics metrics) {
+        if (metrics == null) {
+            addedCount = polledCount = removedCount = null;
+            return;
+        }
+        TaskMetrics.Family<TaskMetrics.Counter> operations = metrics.counterFamily(
+                "task_queue_operations_total", "Tasks added to, polled from and removed from the task queue.", "op");
+        addedCount = operations.labels("add");
+        polledCount = operations.labels("poll");
+        removedCount = operations.labels("remove");
     }
 
     /**
@@ -27,6 +128,24 @@ public class TaskQueue {
      */
     public void addTask(Task task) {
         taskHeap.offer(task);
+        if (addedCount != null) {
+            addedCount.increment();
+        }
+        if (taskHeap.size() > memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * Adds a task to the queue from a snapshot of its attributes.
+     *
+     * @param snapshot the snapshot of the task to be added
+     * @return the task handle added to the queue
+     */
+    public Task addTask(TaskSnapshot snapshot) {
+        Task task = Task.fromSnapshot(snapshot);
+        addTask(task);
+        return task;
     }
 
     /**
@@ -36,6 +155,10 @@ public class TaskQueue {
      * @throws NoSuchElementException if the queue is empty
      */
     public Task peek() {
+        TaskSpillRun run = bestSpillRun();
+        if (run != null) {
+            return run.head();
+        }
         if (taskHeap.isEmpty()) {
             throw new NoSuchElementException("Task queue is empty");
         }
@@ -49,6 +172,17 @@ public class TaskQueue {
      * @throws NoSuchElementException if the queue is empty
      */
     public Task poll() {
+        if (polledCount != null && !isEmpty()) {
+            polledCount.increment();
+        }
+        TaskSpillRun run = bestSpillRun();
+        if (run != null) {
+            Task task = run.head();
+            spilledCount--;
+            run.advance();
+            run.skipRemoved();
+            return task;
+        }
         if (taskHeap.isEmpty()) {
             throw new NoSuchElementException("Task queue is empty");
         }
@@ -62,9 +196,9 @@ public class TaskQueue {
      * @param newPriority the new priority for the task
      */
     public void updateTaskPriority(Task task, Task.TaskPriority newPriority) {
-        if (taskHeap.remove(task)) {
+        if (removeTask(task)) {
             task.setPriority(newPriority);
-            taskHeap.offer(task);
+            addTask(task);
         }
     }
 
@@ -75,7 +209,31 @@ public class TaskQueue {
      * @return true if the task was successfully removed; false otherwise
      */
     public boolean removeTask(Task task) {
-        return taskHeap.remove(task);
+        boolean removed = taskHeap.remove(task) || spilledCount > 0 && removeSpilled(task.getId());
+        if (removed && removedCount != null) {
+            removedCount.increment();
+        }
+        return removed;
+    }
+
+    private boolean removeSpilled(String taskId) {
+        for (TaskSpillRun run : spillRuns) {
+            if (run.remove(taskId)) {
+                spilledCount--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the task with the ID of the given snapshot from the queue.
+     *
+     * @param snapshot the snapshot of the task to be removed
+     * @return true if the task was successfully removed; false otherwise
+     */
+    public boolean removeTask(TaskSnapshot snapshot) {
+        return removeTask(Task.fromSnapshot(snapshot));
     }
 
     /**
@@ -84,7 +242,25 @@ public class TaskQueue {
      * @return the current number of tasks
      */
     public int size() {
-        return taskHeap.size();
+        return taskHeap.size() + spilledCount;
+    }
+
+    /**
+     * Returns the number of tasks currently spilled to disk.
+     *
+     * @return the number of spilled tasks
+     */
+    public int spilledSize() {
+        return spilledCount;
+    }
+
+    /**
+     * Returns the number of sorted runs on disk.
+     *
+     * @return the number of spilled runs
+     */
+    int spillRunCount() {
+        return spillRuns.size();
     }
 
     /**
@@ -93,24 +269,42 @@ public class TaskQueue {
      * @return true if the queue is empty; false otherwise
      */
     public boolean isEmpty() {
-        return taskHeap.isEmpty();
+        return taskHeap.isEmpty() && spilledCount == 0;
     }
 
     /**
-     * Clears all tasks from the queue.
+     * Clears all tasks from the queue and deletes any segment files.
      */
     public void clear() {
         taskHeap.clear();
+        for (TaskSpillRun run : spillRuns) {
+            run.delete();
+        }
+        spillRuns.clear();
+        spilledCount = 0;
     }
 
     /**
      * Retrieves all tasks in the queue as an array.
      * This method is primarily for debugging and may disrupt the heap structure.
+     * Spilled tasks are read back from disk.
      *
      * @return an array of all tasks in the queue
      */
     public Task[] getAllTasks() {
-        return taskHeap.toArray(new Task[0]);
+        List<Task> tasks = new ArrayList<>(taskHeap);
+        try {
+            for (TaskSpillRun run : spillRuns) {
+                run.forEachRemaining(task -> {
+                    if (!run.isRemoved(task.getId())) {
+                        tasks.add(task);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read spilled tasks", e);
+        }
+        return tasks.toArray(new Task[0]);
     }
 
     public void updateTask(Task task) {
@@ -122,13 +316,122 @@ public class TaskQueue {
         // Remove the old task and add the updated one
         // Since PriorityQueue doesn't have a direct update method,
         // we need to remove and re-add to maintain heap properties
-        boolean removed = taskHeap.remove(task);
+        boolean removed = removeTask(task);
 
         // Only add if the task was actually in the queue
         if (removed) {
-            taskHeap.offer(task);
+            addTask(task);
         } else {
             throw new IllegalArgumentException("Task not found in queue");
         }
     }
+
+    /**
+     * Writes the lower-ranked half of the in-memory tasks to a new sorted run.
+     */
+    private void spill() {
+        Task[] sorted = taskHeap.toArray(new Task[0]);
+        Arrays.sort(sorted, orderingPolicy.comparator());
+        int keep = memoryBudget / 2;
+
+        taskHeap.clear();
+        taskHeap.addAll(Arrays.asList(sorted).subList(0, keep));
+        List<Task> spilled = Arrays.asList(sorted).subList(keep, sorted.length);
+
+        spillRuns.add(writeRun(nextRunSequence++, 0, spilled.iterator()));
+        spilledCount += spilled.size();
+
+        for (int level = 0; countRuns(level) >= MERGE_FANOUT; level++) {
+            mergeLevel(level);
+        }
+    }
+
+    private int countRuns(int level) {
+        int count = 0;
+        for (TaskSpillRun run : spillRuns) {
+            if (run.getLevel() == level) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Merges the spilled runs of one level into a single run of the next level, dropping
+     * removed tasks. The merge is streamed from the old segment files into the new one.
+     *
+     * @param level the level whose runs are merged
+     */
+    private void mergeLevel(int level) {
+        List<TaskSpillRun> inputs = new ArrayList<>();
+        PriorityQueue<TaskSpillRun> merge = new PriorityQueue<>(
+                (r1, r2) -> orderingPolicy.comparator().compare(r1.head(), r2.head()));
+        for (TaskSpillRun run : spillRuns) {
+            if (run.getLevel() == level) {
+                inputs.add(run);
+                if (!run.isExhausted()) {
+                    merge.add(run);
+                }
+            }
+        }
+
+        Iterator<Task> merged = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !merge.isEmpty();
+            }
+
+            @Override
+            public Task next() {
+                TaskSpillRun run = merge.poll();
+                Task task = run.head();
+                run.advance();
+                run.skipRemoved();
+                if (!run.isExhausted()) {
+                    merge.add(run);
+                }
+                return task;
+            }
+        };
+
+        TaskSpillRun mergedRun = merge.isEmpty() ? null : writeRun(nextRunSequence++, level + 1, merged);
+        for (TaskSpillRun run : inputs) {
+            run.delete();
+        }
+        spillRuns.removeAll(inputs);
+        if (mergedRun != null) {
+            spillRuns.add(mergedRun);
+        }
+    }
+
+    private TaskSpillRun writeRun(int sequence, int level, Iterator<Task> tasks) {
+        try {
+            return TaskSpillRun.write(spillDirectory, sequence, level, tasks);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to spill tasks to disk", e);
+        }
+    }
+
+    /**
+     * Finds the spilled run whose head ranks before every other run head and the heap head.
+     *
+     * @return the run holding the next task, or null if the next task is on the heap
+     */
+    private TaskSpillRun bestSpillRun() {
+        TaskSpillRun best = null;
+        for (int i = spillRuns.size() - 1; i >= 0; i--) {
+            TaskSpillRun run = spillRuns.get(i);
+            if (run.isExhausted()) {
+                run.delete();
+                spillRuns.remove(i);
+            } else if (best == null || orderingPolicy.comparator().compare(run.head(), best.head()) < 0) {
+                best = run;
+            }
+        }
+        if (best != null && !taskHeap.isEmpty()
+                && orderingPolicy.comparator().compare(taskHeap.peek(), best.head()) <= 0) {
+            return null;
+        }
+        return best;
+    }
 }
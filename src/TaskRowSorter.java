@@ -0,0 +1,539 @@
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Sorts the rows of a {@link TaskTableModel} by one column at a time.
+ * <p>
+ * Rows are ordered on the primitive columns of the underlying {@link TaskTable}, without
+ * reading cell values. The ascending order of each column is kept as an index once computed:
+ * descending order reads the same index backwards, so toggling the sort direction or going
+ * back to a column whose values have not changed costs nothing. Changes to a few rows are
+ * applied to the index of the sorted column by binary insertion instead of sorting again:
+ * an updated row is moved within the index, shifting only the rows between its old and new
+ * positions. An update of one cell only discards the index of that cell's column.
+ * <p>
+ * Rows can also be filtered by a search text. The matching rows are found through the
+ * model's trigram index and kept as a bitmap of model rows, which later changes update row by
+ * row; the view then lists the matching rows in the current sort order.
+ * <p>
+ * This class must only be used on the event dispatch thread.
+ */
+public class TaskRowSorter extends RowSorter<TaskTableModel> {
+    /** Row changes larger than this fraction of the table are applied by sorting again. */
+    private static final int RESORT_FRACTION = 8;
+
+    private final TaskTableModel model;
+
+    /** The ascending row order of each model column, or null until computed or after a change. */
+    private final int[][] ascendingRows;
+
+    private List<SortKey> sortKeys = List.of();
+
+    /** The sorted column, or -1 if the rows are shown in model order. */
+    private int sortColumn = -1;
+
+    private boolean descending;
+
+    /** The position of each model row in the index of the sorted column, or null until needed. */
+    private int[] positions;
+
+    /** The text shown rows must contain, or null to show every row. */
+    private String searchText;
+
+    /** The model rows whose texts contain the search text, while searching. */
+    private BitSet matches;
+
+    /** The number of rows in {@link #matches}. */
+    private int matchCount;
+
+    /** The model row of each view row while searching, or null until needed. */
+    private int[] filteredRows;
+
+    /** The view row of each model row while searching, -1 for hidden rows, or null until needed. */
+    private int[] filteredPositions;
+
+    /**
+     * Constructs a TaskRowSorter.
+     *
+     * @param model the model whose rows are sorted
+     */
+    public TaskRowSorter(TaskTableModel model) {
+        this.model = model;
+        this.ascendingRows = new int[model.getColumnCount()][];
+    }
+
+    @Override
+    public TaskTableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Sorts by the given column, ascending first and then alternating with descending.
+     *
+     * @param column the model column
+     */
+    @Override
+    public void toggleSortOrder(int column) {
+        if (model.getSortColumn(column) == null) {
+            return;
+        }
+        SortOrder order = column == sortColumn && !descending ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        setSortKeys(List.of(new SortKey(column, order)));
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (searchText != null) {
+            return filteredRows()[index];
+        }
+        if (sortColumn < 0) {
+            if (index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Row " + index + " out of bounds");
+            }
+            return index;
+        }
+        int[] rows = ascendingRows[sortColumn];
+        return descending ? rows[rows.length - 1 - index] : rows[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (searchText != null) {
+            return index >= 0 && index < model.getRowCount() ? filteredPositions()[index] : -1;
+        }
+        if (sortColumn < 0) {
+            return index >= 0 && index < model.getRowCount() ? index : -1;
+        }
+        if (index < 0 || index >= model.getRowCount()) {
+            return -1;
+        }
+        int position = positions()[index];
+        return descending ? positions.length - 1 - position : position;
+    }
+
+    /**
+     * Sorts by the first of the given keys whose column is sortable; further keys are ignored.
+     *
+     * @param keys the sort keys, or null to show the rows in model order
+     */
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        int[] previous = viewToModel();
+        sortKeys = List.of();
+        sortColumn = -1;
+        descending = false;
+        if (keys != null) {
+            for (SortKey key : keys) {
+                if (key.getSortOrder() != SortOrder.UNSORTED && model.getSortColumn(key.getColumn()) != null) {
+                    sortKeys = List.of(key);
+                    sortColumn = key.getColumn();
+                    descending = key.getSortOrder() == SortOrder.DESCENDING;
+                    break;
+                }
+            }
+        }
+        if (sortColumn >= 0 && ascendingRows[sortColumn] == null) {
+            ascendingRows[sortColumn] = model.getTable().sortedRows(model.getSortColumn(sortColumn));
+        }
+        positions = null;
+        discardFilteredRows();
+        fireSortOrderChanged();
+        fireRowSorterChanged(previous);
+    }
+
+    /**
+     * Shows only the rows whose title or description contains the given text, ignoring the
+     * case of ASCII letters, in the current sort order.
+     *
+     * @param text the text to search for, or null or empty to show every row
+     */
+    public void setSearchText(String text) {
+        int[] previous = viewToModel();
+        if (text == null || text.isEmpty()) {
+            searchText = null;
+            matches = null;
+        } else {
+            // 在上一次查询后继续输入时，只需在上一次的结果中查找
+            boolean narrowing = searchText != null
+                    && TaskSearchIndex.normalize(text).contains(TaskSearchIndex.normalize(searchText));
+            searchText = text;
+            matches = model.search(text, narrowing ? matches : null);
+            matchCount = matches.cardinality();
+        }
+        discardFilteredRows();
+        fireRowSorterChanged(previous);
+    }
+
+    /**
+     * Gets the text shown rows must contain.
+     *
+     * @return the search text, or null if every row is shown
+     */
+    public String getSearchText() {
+        return searchText;
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return searchText != null ? matchCount : model.getRowCount();
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        Arrays.fill(ascendingRows, null);
+        if (searchText != null) {
+            searchAgain();
+        }
+        resort();
+        changed();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        discardUnsorted();
+        if (searchText != null) {
+            // 新行通常追加在末尾，其他行号不变
+            if (endRow == model.getRowCount() - 1) {
+                updateMatches(firstRow, endRow);
+            } else {
+                searchAgain();
+            }
+            discardFilteredRows();
+        }
+        if (sortColumn < 0) {
+            return;
+        }
+        int[] rows = ascendingRows[sortColumn];
+        if (count > model.getRowCount() / RESORT_FRACTION) {
+            resort();
+            changed();
+            return;
+        }
+        int[] inserted = new int[rows.length + count];
+        for (int i = 0; i < rows.length; i++) {
+            inserted[i] = rows[i] >= firstRow ? rows[i] + count : rows[i];
+        }
+        // 追加到末尾的行不改变已有行号，位置只需从插入点起更新
+        int[] updatedPositions = positions != null && firstRow == rows.length ? Arrays.copyOf(positions, inserted.length) : null;
+        int size = rows.length;
+        for (int row = firstRow; row <= endRow; row++) {
+            int position = insertSorted(inserted, size, row);
+            size++;
+            if (updatedPositions != null) {
+                for (int i = position; i < size; i++) {
+                    updatedPositions[inserted[i]] = i;
+                }
+            }
+        }
+        ascendingRows[sortColumn] = inserted;
+        positions = updatedPositions;
+        changed();
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        discardUnsorted();
+        if (searchText != null) {
+            // 删除末尾的行不改变其他行号
+            if (firstRow == model.getRowCount()) {
+                matchCount -= matches.get(firstRow, endRow + 1).cardinality();
+                matches.clear(firstRow, endRow + 1);
+            } else {
+                searchAgain();
+            }
+            discardFilteredRows();
+        }
+        if (sortColumn < 0) {
+            return;
+        }
+        int[] rows = ascendingRows[sortColumn];
+        int[] remaining = new int[rows.length - count];
+        int size = 0;
+        for (int row : rows) {
+            if (row < firstRow) {
+                remaining[size++] = row;
+            } else if (row > endRow) {
+                remaining[size++] = row - count;
+            }
+        }
+        ascendingRows[sortColumn] = remaining;
+        positions = null;
+        changed();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        discardUnsorted();
+        boolean matchesChanged = searchText != null && updateMatches(firstRow, endRow);
+        boolean moved = sortColumn >= 0 && moveUpdatedRows(firstRow, endRow);
+        if (matchesChanged || moved) {
+            changed();
+        }
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        boolean matchesChanged = searchText != null
+                && (column == TaskTableModel.COLUMN_TITLE || column == TaskTableModel.COLUMN_DESCRIPTION)
+                && updateMatches(firstRow, endRow);
+        boolean moved = false;
+        if (column != sortColumn) {
+            // 其他列的取值未变，它们的索引仍然有效
+            if (column >= 0 && column < ascendingRows.length) {
+                ascendingRows[column] = null;
+            }
+        } else {
+            moved = moveUpdatedRows(firstRow, endRow);
+        }
+        if (matchesChanged || moved) {
+            changed();
+        }
+    }
+
+    /**
+     * Moves updated rows of the sorted column to their new positions.
+     *
+     * @return true if the order of the rows changed
+     */
+    private boolean moveUpdatedRows(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (count > model.getRowCount() / RESORT_FRACTION) {
+            resort();
+            return true;
+        }
+        if (count > 1) {
+            return reinsertUpdatedRows(firstRow, endRow);
+        }
+        int[] rows = ascendingRows[sortColumn];
+        int[] positions = positions();
+        boolean moved = false;
+        for (int row = firstRow; row <= endRow; row++) {
+            int from = positions[row];
+            // 在除该行以外的索引中二分查找新位置
+            int low = 0;
+            int high = rows.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ordersBefore(rows[middle < from ? middle : middle + 1], row)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            int to = low;
+            moved |= to != from;
+            if (to < from) {
+                System.arraycopy(rows, to, rows, to + 1, from - to);
+            } else if (to > from) {
+                System.arraycopy(rows, from + 1, rows, from, to - from);
+            }
+            rows[to] = row;
+            for (int i = Math.min(from, to); i <= Math.max(from, to); i++) {
+                positions[rows[i]] = i;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Moves several updated rows of the sorted column to their new positions. Every updated
+     * row is taken out of the index before any is put back, since the binary search for one
+     * row is only valid among rows that are still in order.
+     *
+     * @return true if the order of the rows changed
+     */
+    private boolean reinsertUpdatedRows(int firstRow, int endRow) {
+        int[] rows = ascendingRows[sortColumn];
+        int[] reordered = new int[rows.length];
+        int size = 0;
+        for (int row : rows) {
+            if (row < firstRow || row > endRow) {
+                reordered[size++] = row;
+            }
+        }
+        for (int row = firstRow; row <= endRow; row++) {
+            insertSorted(reordered, size++, row);
+        }
+        boolean moved = !Arrays.equals(rows, reordered);
+        ascendingRows[sortColumn] = reordered;
+        positions = null;
+        return moved;
+    }
+
+    /**
+     * Inserts a row into the first {@code size} entries of an ascending index, where a
+     * stable sort would place it.
+     *
+     * @return the position of the inserted row
+     */
+    private int insertSorted(int[] rows, int size, int row) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ordersBefore(rows[middle], row)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        System.arraycopy(rows, low, rows, low + 1, size - low);
+        rows[low] = row;
+        return low;
+    }
+
+    /**
+     * Checks whether one row comes before another in the ascending index: by the sorted
+     * column, and by row number among equal values, as a stable sort orders them.
+     */
+    private boolean ordersBefore(int row, int other) {
+        int comparison = model.getTable().compareRows(row, other, model.getSortColumn(sortColumn));
+        return comparison < 0 || (comparison == 0 && row < other);
+    }
+
+    /**
+     * Gets the position of each model row in the index of the sorted column, computing it if needed.
+     */
+    private int[] positions() {
+        if (positions == null) {
+            int[] rows = ascendingRows[sortColumn];
+            positions = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                positions[rows[i]] = i;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Discards the indexes of every column but the sorted one, whose row numbers are now stale.
+     */
+    private void discardUnsorted() {
+        for (int column = 0; column < ascendingRows.length; column++) {
+            if (column != sortColumn) {
+                ascendingRows[column] = null;
+            }
+        }
+    }
+
+    /**
+     * Sorts the sorted column again from scratch.
+     */
+    private void resort() {
+        if (sortColumn >= 0) {
+            ascendingRows[sortColumn] = model.getTable().sortedRows(model.getSortColumn(sortColumn));
+        }
+        positions = null;
+    }
+
+    /**
+     * Checks again whether the given rows match the search text, or searches every row again
+     * if the rows are a large part of the table.
+     *
+     * @return true if any row started or stopped matching
+     */
+    private boolean updateMatches(int firstRow, int endRow) {
+        if (endRow - firstRow + 1 > model.getRowCount() / RESORT_FRACTION) {
+            searchAgain();
+            return true;
+        }
+        boolean changed = false;
+        for (int row = firstRow; row <= endRow; row++) {
+            boolean match = model.matches(row, searchText);
+            if (match != matches.get(row)) {
+                matches.set(row, match);
+                matchCount += match ? 1 : -1;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void searchAgain() {
+        matches = model.search(searchText);
+        matchCount = matches.cardinality();
+    }
+
+    /**
+     * Gets the model row of each view row while searching, computing them if needed.
+     */
+    private int[] filteredRows() {
+        if (filteredRows == null) {
+            int[] rows = new int[matchCount];
+            int size = 0;
+            if (sortColumn < 0) {
+                for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                    rows[size++] = row;
+                }
+            } else {
+                int[] sorted = ascendingRows[sortColumn];
+                for (int i = 0; i < sorted.length; i++) {
+                    int row = sorted[descending ? sorted.length - 1 - i : i];
+                    if (matches.get(row)) {
+                        rows[size++] = row;
+                    }
+                }
+            }
+            filteredRows = rows;
+        }
+        return filteredRows;
+    }
+
+    /**
+     * Gets the view row of each model row while searching, computing them if needed.
+     */
+    private int[] filteredPositions() {
+        if (filteredPositions == null) {
+            int[] rows = filteredRows();
+            int[] positions = new int[Math.max(model.getRowCount(), matches.length())];
+            Arrays.fill(positions, -1);
+            for (int i = 0; i < rows.length; i++) {
+                positions[rows[i]] = i;
+            }
+            filteredPositions = positions;
+        }
+        return filteredPositions;
+    }
+
+    private void discardFilteredRows() {
+        filteredRows = null;
+        filteredPositions = null;
+    }
+
+    private void changed() {
+        discardFilteredRows();
+        // JTable 在模型变化期间根据模型事件自行维护选择，无需旧的映射
+        fireRowSorterChanged(null);
+    }
+
+    /**
+     * Gets the current view order as model rows.
+     */
+    private int[] viewToModel() {
+        int[] rows = new int[getViewRowCount()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = convertRowIndexToModel(i);
+        }
+        return rows;
+    }
+}
@@ -1,17 +1,72 @@
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
 public class TaskScheduler {
-    private final ScheduledExecutorService scheduler;
+    private final ReminderEngine reminderEngine;
+    private final ReminderDispatcher reminderDispatcher;
+    /** The clock of the reminder engine; all current times of the scheduler are read from it. */
+    private final Clock clock;
+    /** Guarded by its own monitor, since the horizon refill thread also adds tasks. */
     private final TaskQueue taskQueue;
-    private final Map<String, ScheduledFuture<?>> scheduledTasks;
+    private final Map<String, ReminderEngine.Handle> scheduledTasks;
+    private final Map<String, Task> tasksById;
     private final TaskReminderHandler reminderHandler;
+    private final BatchTaskReminderHandler batchReminderHandler;
+    private final ReminderCoalescer reminderCoalescer;
+    private final AsyncReminderDelivery asyncDelivery;
+    private final OverdueSweeper overdueSweeper;
+
+    /** Delivery counters of the synchronous handlers; the asynchronous delivery keeps its own. */
+    private final LongAdder deliveredCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    /** The number of tasks loaded per query when refilling the reminder horizon. */
+    private static final int HORIZON_PAGE_SIZE = 500;
+
+    private ReminderSource reminderSource;
+    private Duration horizon;
+    private ScheduledExecutorService horizonRefiller;
+
+    /** The latest reminder time kept in memory, or null if every reminder is kept. */
+    private volatile LocalDateTime horizonEnd;
+
+    /** The position of the last task loaded from the reminder source. Used by the refill thread only. */
+    private LocalDateTime horizonCursorTime;
+    private String horizonCursorId;
+
+    /** The time from which reminders are armed live; earlier reminders are left to the catch-up. */
+    private LocalDateTime liveSince;
+    private Thread catchUpThread;
+    private volatile ReminderLog reminderLog;
+    private volatile TaskStore taskStore;
+    /** The source given to {@link #startCatchUp}, also used to replay shards taken over from a failed process. */
+    private volatile ReminderSource missedReminders;
+
+    /** The shards whose reminders this process delivers, or null if it delivers every reminder. */
+    private volatile ReminderShards reminderShards;
+
+    /** The delay from reminder times to their firing, or null if no metrics are recorded. */
+    private volatile TaskMetrics.Histogram fireLag;
+    private ScheduledExecutorService shardHeartbeat;
+    private Duration shardLeaseDuration;
+    private Duration shardHeartbeatInterval;
+    /** Whether the first lease renewal has run. Used by the renewing thread only. */
+    private boolean shardsAcquired;
 
     /**
      * Interface for handling task reminders.
@@ -20,57 +75,974 @@ public class TaskScheduler {
         void onTaskReminder(Task task);
     }
 
+    /**
+     * Interface for handling task reminders in bulk. Receives every reminder that came due
+     * within one coalescing window as a single list, in the order the reminders fired.
+     */
+    public interface BatchTaskReminderHandler {
+        void onTaskReminders(List<Task> tasks);
+    }
+
+    /**
+     * Interface for handling task reminders asynchronously. The reminder counts as delivered
+     * when the returned future completes normally; if it completes exceptionally, or the
+     * handler throws, the delivery is retried according to the scheduler's {@link RetryPolicy}.
+     */
+    public interface AsyncTaskReminderHandler {
+        CompletableFuture<Void> onTaskReminder(Task task);
+    }
+
+    /**
+     * Durable store of reminders whose delivery failed on every attempt, typically {@link TaskDAO#addDeadLetter}.
+     */
+    public interface DeadLetterStore {
+        /**
+         * Records a reminder that could not be delivered.
+         *
+         * @param task       the task whose reminder failed
+         * @param attempts   the number of delivery attempts made
+         * @param lastError  the failure of the last attempt
+         * @param failedTime the time the last attempt failed
+         */
+        void addDeadLetter(Task task, int attempts, Throwable lastError, LocalDateTime failedTime);
+    }
+
+    /**
+     * How failed asynchronous deliveries are retried. The n-th retry waits
+     * {@code initialBackoff * 2^(n-1)}, but never longer than {@code maxBackoff}.
+     *
+     * @param maxAttempts    the number of attempts, including the first, before a reminder is dead-lettered
+     * @param initialBackoff the wait before the first retry
+     * @param maxBackoff     the longest wait between two attempts
+     * @param attemptTimeout how long an attempt may take before it counts as failed, or null to wait indefinitely
+     */
+    public record RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, Duration attemptTimeout) {
+        public RetryPolicy {
+            if (maxAttempts < 1 || initialBackoff == null || maxBackoff == null || initialBackoff.isNegative()
+                    || maxBackoff.compareTo(initialBackoff) < 0) {
+                throw new IllegalArgumentException("At least one attempt and backoffs with initial <= max are required");
+            }
+            if (attemptTimeout != null && (attemptTimeout.isNegative() || attemptTimeout.isZero())) {
+                throw new IllegalArgumentException("Attempt timeout must be positive");
+            }
+        }
+
+        /**
+         * Gets the wait after the given failed attempt.
+         *
+         * @param failedAttempt the number of the failed attempt, from one
+         * @return the wait in milliseconds
+         */
+        long backoffMillis(int failedAttempt) {
+            long initial = initialBackoff.toMillis();
+            long max = maxBackoff.toMillis();
+            int shift = Math.min(failedAttempt - 1, 62);
+            return initial > (max >> shift) ? max : initial << shift;
+        }
+    }
+
+    /**
+     * Counters of reminder deliveries since the scheduler was constructed.
+     *
+     * @param delivered the number of reminders delivered
+     * @param retried   the number of failed attempts that were retried
+     * @param failed    the number of reminders that failed for good
+     * @param inFlight  the number of deliveries currently running
+     * @param waiting   the number of reminders waiting for a delivery slot
+     */
+    public record DeliveryStats(long delivered, long retried, long failed, int inFlight, int waiting) {
+    }
+
+    /**
+     * Source of the tasks whose reminders come due next, typically {@link TaskDAO#getTasksByReminderTime}.
+     */
+    public interface ReminderSource {
+        /**
+         * Returns one page of uncompleted tasks ordered by reminder time and ID.
+         *
+         * @param after   the reminder time of the last task of the previous page
+         * @param afterId the ID of the last task of the previous page, or an empty string
+         * @param until   the latest reminder time to include
+         * @param limit   the maximum number of tasks to return
+         * @return the tasks of the page, in reminder time order
+         */
+        List<Task> getTasksByReminderTime(LocalDateTime after, String afterId, LocalDateTime until, int limit);
+    }
+
+    /**
+     * Interface for being notified when tasks become overdue. Receives the IDs of all tasks that
+     * one sweep marked as overdue in a single call, both those held in memory and those only
+     * marked in the {@link OverdueStore}.
+     */
+    public interface OverdueListener {
+        void onTasksOverdue(List<String> taskIds);
+    }
+
+    /**
+     * Durable store of task statuses, typically {@link TaskDAO#markOverdueTasks}.
+     */
+    public interface OverdueStore {
+        /**
+         * Marks every stored task that is not completed and whose due time is before the given time as overdue.
+         *
+         * @param now the current time
+         * @return the IDs of the tasks marked as overdue
+         */
+        List<String> markOverdueTasks(LocalDateTime now);
+    }
+
+    /**
+     * Durable record of the reminders that have fired, typically {@link TaskDAO#markReminderFired}.
+     */
+    public interface ReminderLog {
+        /**
+         * Records that the current reminder of a task has been delivered.
+         *
+         * @param task the task whose reminder has been delivered
+         */
+        void markReminderFired(Task task);
+    }
+
+    /**
+     * Durable store of task attributes, typically {@link TaskDAO#updateTask(Task, int)}.
+     */
+    public interface TaskStore {
+        /**
+         * Writes the given attributes of a stored task.
+         *
+         * @param task   the task to write
+         * @param fields a bitmask of {@code Task.FIELD_*} constants naming the attributes to write
+         */
+        void updateTask(Task task, int fields);
+    }
+
+    /**
+     * Durable store of reminder shard leases shared by every process that schedules the same
+     * tasks, typically {@link TaskDAO}.
+     */
+    public interface ShardLeaseStore {
+        /**
+         * Records the owner as alive until {@code expires}, renews the leases it holds, and
+         * balances the shards among the live owners: shards beyond the owner's fair share are
+         * released, and free or expired shards are taken up to it. Must run atomically.
+         *
+         * @param owner      the identity of the renewing process
+         * @param shardCount the number of shards
+         * @param now        the current time
+         * @param expires    the time until which the renewed leases are valid
+         * @return the shards leased to the owner
+         */
+        Set<Integer> renewShardLeases(String owner, int shardCount, LocalDateTime now, LocalDateTime expires);
+
+        /**
+         * Releases every lease held by the owner, so that other processes can take the shards over.
+         *
+         * @param owner the identity of the releasing process
+         */
+        void releaseShardLeases(String owner);
+    }
+
     /**
      * Constructs a TaskScheduler with the specified reminder handler.
      *
      * @param reminderHandler the handler to be invoked when a task reminder is triggered
      */
     public TaskScheduler(TaskReminderHandler reminderHandler) {
-        this.scheduler = Executors.newScheduledThreadPool(1);
+        this(reminderHandler, new ExecutorReminderEngine());
+    }
+
+    /**
+     * Constructs a TaskScheduler that arms reminders on the given engine,
+     * for example a {@link TimingWheelReminderEngine} for millions of reminders.
+     *
+     * @param reminderHandler the handler to be invoked when a task reminder is triggered
+     * @param reminderEngine  the timer backend that fires reminders
+     */
+    public TaskScheduler(TaskReminderHandler reminderHandler, ReminderEngine reminderEngine) {
+        this(reminderHandler, reminderEngine, ReminderDispatcher.platformPool(4, 10_000));
+    }
+
+    /**
+     * Constructs a TaskScheduler whose timer only hands due reminders to the given dispatcher,
+     * which runs the reminder handler. A slow handler then cannot delay unrelated reminders.
+     *
+     * @param reminderHandler    the handler to be invoked when a task reminder is triggered
+     * @param reminderEngine     the timer backend that fires reminders
+     * @param reminderDispatcher the dispatcher that runs the handler for due reminders
+     */
+    public TaskScheduler(TaskReminderHandler reminderHandler, ReminderEngine reminderEngine,
+                         ReminderDispatcher reminderDispatcher) {
+        this.reminderEngine = reminderEngine;
+        this.reminderDispatcher = reminderDispatcher;
+        this.clock = reminderEngine.clock();
         this.taskQueue = new TaskQueue();
         this.scheduledTasks = new ConcurrentHashMap<>();
+        this.tasksById = new ConcurrentHashMap<>();
         this.reminderHandler = reminderHandler;
+        this.batchReminderHandler = null;
+        this.reminderCoalescer = null;
+        this.asyncDelivery = null;
+        this.overdueSweeper = new OverdueSweeper(reminderEngine, reminderDispatcher, clock);
+    }
+
+    /**
+     * Constructs a TaskScheduler that delivers reminders in batches. Reminders that come due
+     * close together are collected until none has arrived for {@code coalescingWindow},
+     * the batch holds {@code maxBatchSize} reminders, or the first reminder has waited
+     * {@code maxAddedDelay}; the batch is then passed to the handler in one call.
+     *
+     * @param batchReminderHandler the handler to be invoked with each batch of reminders
+     * @param coalescingWindow     the quiet period after which a batch is delivered
+     * @param maxBatchSize         the maximum number of reminders in one batch
+     * @param maxAddedDelay        the maximum time a reminder is held back for batching
+     * @param reminderEngine       the timer backend that fires reminders
+     * @param reminderDispatcher   the dispatcher that runs the handler for each batch
+     */
+    public TaskScheduler(BatchTaskReminderHandler batchReminderHandler, Duration coalescingWindow, int maxBatchSize,
+                         Duration maxAddedDelay, ReminderEngine reminderEngine, ReminderDispatcher reminderDispatcher) {
+        this.reminderEngine = reminderEngine;
+        this.reminderDispatcher = reminderDispatcher;
+        this.clock = reminderEngine.clock();
+        this.taskQueue = new TaskQueue();
+        this.scheduledTasks = new ConcurrentHashMap<>();
+        this.tasksById = new ConcurrentHashMap<>();
+        this.reminderHandler = null;
+        this.batchReminderHandler = batchReminderHandler;
+        this.reminderCoalescer = new ReminderCoalescer(reminderEngine, coalescingWindow, maxBatchSize, maxAddedDelay,
+                batch -> reminderDispatcher.dispatch(() -> deliverReminders(batch)));
+        this.asyncDelivery = null;
+        this.overdueSweeper = new OverdueSweeper(reminderEngine, reminderDispatcher, clock);
+    }
+
+    /**
+     * Constructs a TaskScheduler that delivers reminders through an asynchronous handler.
+     * At most {@code maxConcurrency} deliveries are in flight at a time, and failed deliveries
+     * are retried with exponential backoff on the reminder engine. Reminders that fail on every
+     * attempt are passed to the store given to {@link #setDeadLetterStore}.
+     *
+     * @param asyncReminderHandler the handler to be invoked when a task reminder is triggered
+     * @param maxConcurrency       the maximum number of deliveries in flight
+     * @param retryPolicy          how failed deliveries are retried
+     * @param reminderEngine       the timer backend that fires reminders and retries
+     * @param reminderDispatcher   the dispatcher that calls the handler
+     * @throws IllegalArgumentException if a parameter is null or maxConcurrency is not positive
+     */
+    public TaskScheduler(AsyncTaskReminderHandler asyncReminderHandler, int maxConcurrency, RetryPolicy retryPolicy,
+                         ReminderEngine reminderEngine, ReminderDispatcher reminderDispatcher) {
+        if (asyncReminderHandler == null || retryPolicy == null || reminderEngine == null || reminderDispatcher == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+        this.reminderEngine = reminderEngine;
+        this.reminderDispatcher = reminderDispatcher;
+        this.clock = reminderEngine.clock();
+        this.taskQueue = new TaskQueue();
+        this.scheduledTasks = new ConcurrentHashMap<>();
+        this.tasksById = new ConcurrentHashMap<>();
+        this.reminderHandler = null;
+        this.batchReminderHandler = null;
+        this.reminderCoalescer = null;
+        this.asyncDelivery = new AsyncReminderDelivery(asyncReminderHandler, maxConcurrency, retryPolicy,
+                reminderEngine, reminderDispatcher, clock,
+                task -> task.snapshot().status() != Task.TaskStatus.COMPLETED && ownsReminder(task),
+                task -> {
+                    recordFired(task);
+                    advanceRecurrence(task);
+                    releaseDelivered(task);
+                });
+        this.overdueSweeper = new OverdueSweeper(reminderEngine, reminderDispatcher, clock);
+    }
+
+    /**
+     * Keeps only the reminders of the next {@code horizon} in memory. Reminders beyond it are
+     * left in the reminder source and loaded page by page every {@code refillInterval}, so memory
+     * use depends on how many reminders come due within the horizon rather than on the total
+     * number of tasks. The first refill runs immediately and loads reminders after the current time.
+     * <p>
+     * Once enabled, {@link #scheduleTask(Task)} ignores tasks whose reminder is beyond the horizon,
+     * and a task whose reminder is moved beyond it is dropped from the scheduler. Such tasks must
+     * be stored in the reminder source so that a later refill can load them.
+     *
+     * @param source         the source of upcoming reminders
+     * @param horizon        how far ahead reminders are kept in memory
+     * @param refillInterval how often the horizon is moved forward; must be shorter than the horizon
+     * @throws IllegalArgumentException if the durations are not positive or the interval is not shorter than the horizon
+     * @throws IllegalStateException    if the reminder horizon has already been enabled
+     */
+    public synchronized void enableReminderHorizon(ReminderSource source, Duration horizon, Duration refillInterval) {
+        if (source == null || horizon == null || refillInterval == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        if (refillInterval.isNegative() || refillInterval.isZero() || refillInterval.compareTo(horizon) >= 0) {
+            throw new IllegalArgumentException("Refill interval must be positive and shorter than the horizon");
+        }
+        if (horizonRefiller != null) {
+            throw new IllegalStateException("Reminder horizon is already enabled");
+        }
+        this.reminderSource = source;
+        this.horizon = horizon;
+        this.horizonCursorTime = liveSince();
+        this.horizonCursorId = "";
+        this.horizonEnd = horizonCursorTime;
+
+        horizonRefiller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-horizon");
+            thread.setDaemon(true);
+            return thread;
+        });
+        horizonRefiller.scheduleWithFixedDelay(this::refillHorizon, 0, refillInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records every delivered reminder in the given log, so that a later {@link #startCatchUp}
+     * can tell which reminders were missed.
+     *
+     * @param reminderLog the log of fired reminders, or null to stop recording
+     */
+    public void setReminderLog(ReminderLog reminderLog) {
+        this.reminderLog = reminderLog;
+    }
+
+    /**
+     * Records reminders whose asynchronous delivery failed on every attempt in the given store.
+     * Without a store they are only logged. Has no effect on synchronous handlers.
+     *
+     * @param deadLetterStore the store of failed reminders, or null to only log them
+     */
+    public void setDeadLetterStore(DeadLetterStore deadLetterStore) {
+        if (asyncDelivery != null) {
+            asyncDelivery.setDeadLetterStore(deadLetterStore);
+        }
+    }
+
+    /**
+     * Gets the delivery counters of this scheduler. Synchronous handlers are not retried, so
+     * a reminder whose handler throws counts as failed right away.
+     *
+     * @return the delivery statistics
+     */
+    public DeliveryStats getDeliveryStats() {
+        if (asyncDelivery != null) {
+            return asyncDelivery.stats();
+        }
+        return new DeliveryStats(deliveredCount.sum(), 0, failedCount.sum(), 0, 0);
+    }
+
+    /**
+     * Persists the next occurrence of a repeating task in the given store each time the
+     * scheduler moves the task forward, so that the reminder horizon and a restart see it.
+     *
+     * @param taskStore the store of task attributes, or null to keep occurrences in memory only
+     */
+    public void setTaskStore(TaskStore taskStore) {
+        this.taskStore = taskStore;
+    }
+
+    /**
+     * Records the metrics of this scheduler and its task queue in the given registry: the
+     * number of armed reminders, the size of and operations on the task queue, and how late
+     * each reminder fires after its reminder time.
+     *
+     * @param metrics the metrics registry
+     */
+    public void setMetrics(TaskMetrics metrics) {
+        synchronized (taskQueue) {
+            taskQueue.setMetrics(metrics);
+        }
+        metrics.gauge("task_queue_size", "Tasks in the task queue.", () -> {
+            synchronized (taskQueue) {
+                return taskQueue.size();
+            }
+        });
+        metrics.gauge("task_scheduler_armed_reminders", "Reminders armed and not fired yet.",
+                this::getPendingReminderCount);
+        fireLag = metrics.histogram("task_scheduler_fire_lag_seconds",
+                "Delay from the reminder time of a task to the firing of its reminder.");
+    }
+
+    /**
+     * Starts replaying, on a background thread, the reminders that came due within
+     * {@code lookback} before now but never fired, for example while the application was
+     * not running. Reminders are replayed in reminder time order through the normal delivery
+     * path, at most {@code remindersPerSecond} on average with bursts of up to {@code burst}.
+     * <p>
+     * The replay ends where live scheduling begins: at the start of the reminder horizon if it
+     * was enabled first, otherwise now, in which case a horizon enabled later starts there.
+     *
+     * @param missedReminders    the source of reminders that have not fired, typically {@link TaskDAO#getMissedReminders}
+     * @param lookback           how far back missed reminders are replayed
+     * @param remindersPerSecond the sustained replay rate
+     * @param burst              the number of reminders that may be replayed without waiting
+     * @return the progress of the replay
+     * @throws IllegalArgumentException if a parameter is null, negative or zero
+     * @throws IllegalStateException    if a catch-up has already been started
+     */
+    public synchronized ReminderCatchUp startCatchUp(ReminderSource missedReminders, Duration lookback,
+                                                     double remindersPerSecond, int burst) {
+        if (missedReminders == null || lookback == null || lookback.isNegative()) {
+            throw new IllegalArgumentException("Missed reminder source and lookback are required");
+        }
+        if (catchUpThread != null) {
+            throw new IllegalStateException("Catch-up has already been started");
+        }
+        this.missedReminders = missedReminders;
+        LocalDateTime until = liveSince();
+        ReminderCatchUp catchUp = new ReminderCatchUp(missedReminders, until.minus(lookback), until,
+                remindersPerSecond, burst, task -> {
+                    // 优先使用调度器中的实例，使补发与后续编辑看到同一个任务
+                    Task scheduled = tasksById.get(task.getId());
+                    onReminderDue(scheduled != null ? scheduled : task);
+                });
+
+        catchUpThread = new Thread(catchUp, "reminder-catch-up");
+        catchUpThread.setDaemon(true);
+        catchUpThread.start();
+        return catchUp;
+    }
+
+    /**
+     * Shares the delivery of reminders with other processes that schedule the same tasks.
+     * Task IDs are hashed into {@code shardCount} shards, each leased to one process at a time
+     * through the given store, and this scheduler only arms the reminders of the shards it holds.
+     * Leases are renewed every third of {@code leaseDuration}; the shards of a process that
+     * stops renewing are taken over once its leases expire, and shards are rebalanced when
+     * processes join or leave.
+     * <p>
+     * When a shard is taken over with a reminder horizon, the tasks of the shard held in memory
+     * are dropped and the horizon is reloaded for it from the reminder source, since the previous
+     * owner may have changed, completed or deleted them; without a horizon there is nothing to
+     * reload from, and the reminders of the held tasks are armed as they are. If
+     * {@link #startCatchUp} was called, the reminders of the shard missed since the previous owner
+     * stopped are then replayed. With a reminder horizon, reminders of owned
+     * shards that come due within two renewals are also reloaded on every renewal, so tasks
+     * created by other processes are delivered at most one renewal late.
+     * <p>
+     * Enable sharding before starting the catch-up, so that missed reminders are only replayed
+     * by the process owning them. The first renewal runs before this method returns.
+     *
+     * @param store         the store of shard leases shared by every process
+     * @param shardCount    the number of shards; must be the same in every process
+     * @param leaseDuration how long a lease lasts without renewal
+     * @throws IllegalArgumentException if store is null, shardCount is not positive or leaseDuration is not positive
+     * @throws IllegalStateException    if sharding has already been enabled
+     */
+    public synchronized void enableSharding(ShardLeaseStore store, int shardCount, Duration leaseDuration) {
+        if (store == null || shardCount < 1 || leaseDuration == null || leaseDuration.isNegative() || leaseDuration.isZero()) {
+            throw new IllegalArgumentException("Lease store, a positive shard count and a positive lease duration are required");
+        }
+        if (reminderShards != null) {
+            throw new IllegalStateException("Sharding is already enabled");
+        }
+        String owner = ProcessHandle.current().pid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.shardLeaseDuration = leaseDuration;
+        this.shardHeartbeatInterval = leaseDuration.dividedBy(3);
+        this.reminderShards = new ReminderShards(store, owner, shardCount, leaseDuration, clock);
+        renewShardLeases();
+
+        long intervalMillis = Math.max(1, shardHeartbeatInterval.toMillis());
+        shardHeartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-shards");
+            thread.setDaemon(true);
+            return thread;
+        });
+        shardHeartbeat.scheduleWithFixedDelay(this::renewShardLeases, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the identity under which this process holds shard leases.
+     *
+     * @return the lease owner, or null if sharding is not enabled
+     */
+    public String getShardOwner() {
+        ReminderShards shards = reminderShards;
+        return shards != null ? shards.getOwner() : null;
+    }
+
+    /**
+     * Gets the shards whose reminders this process currently delivers.
+     *
+     * @return the owned shards in ascending order, or an empty set if sharding is not enabled
+     */
+    public Set<Integer> getOwnedShards() {
+        Set<Integer> owned = new TreeSet<>();
+        ReminderShards shards = reminderShards;
+        if (shards != null) {
+            shards.ownedShards().stream().forEach(owned::add);
+        }
+        return owned;
+    }
+
+    /**
+     * Renews the shard leases of this process and arms or cancels reminders for the shards
+     * gained or lost. Runs on the lease renewal thread.
+     */
+    void renewShardLeases() {
+        ReminderShards shards = reminderShards;
+        if (shards == null) {
+            return;
+        }
+        synchronized (shards) {
+            try {
+                ReminderShards.Change change = shards.renew();
+                BitSet gained = change.gained();
+                BitSet lost = change.lost();
+                boolean first = !shardsAcquired;
+                shardsAcquired = true;
+                if (first) {
+                    // 启用分片前已安排的提醒中，不属于本进程的全部取消
+                    lost = shards.ownedShards();
+                    lost.flip(0, shards.getShardCount());
+                }
+                LocalDateTime end = horizonEnd;
+                if (!first && end != null && !gained.isEmpty()) {
+                    // 原所有者可能已修改、完成或删除这些任务，丢弃内存中的副本，下面从存储重新加载
+                    releaseShards(gained);
+                }
+                applyShardChange(gained, lost);
+
+                LocalDateTime now = LocalDateTime.now(clock);
+                if (end != null) {
+                    if (!gained.isEmpty()) {
+                        loadReminders(now, "", end, task -> gained.get(shardOf(task)));
+                    }
+                    // 其他进程新建的任务在即将到期前加载
+                    LocalDateTime soon = now.plus(shardHeartbeatInterval.multipliedBy(2));
+                    loadReminders(now, "", soon.isBefore(end) ? soon : end, this::ownsReminder);
+                }
+                ReminderSource missed = missedReminders;
+                if (!first && !gained.isEmpty() && missed != null) {
+                    replayMissed(missed, now.minus(shardLeaseDuration.multipliedBy(2)), now,
+                            task -> gained.get(shardOf(task)));
+                }
+            } catch (RuntimeException e) {
+                // 下次续约时重试
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Drops the held tasks of the given shards, so that the copies in the reminder source
+     * replace them.
+     */
+    private void releaseShards(BitSet shards) {
+        for (Task task : tasksById.values()) {
+            if (shards.get(shardOf(task))) {
+                cancelReminder(task);
+                synchronized (taskQueue) {
+                    if (tasksById.remove(task.getId(), task)) {
+                        taskQueue.removeTask(task);
+                        overdueSweeper.untrack(task);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancels the reminders of tasks in lost shards and arms those of tasks in gained shards.
+     */
+    private void applyShardChange(BitSet gained, BitSet lost) {
+        if (gained.isEmpty() && lost.isEmpty()) {
+            return;
+        }
+        for (Task task : tasksById.values()) {
+            int shard = shardOf(task);
+            if (lost.get(shard)) {
+                cancelReminder(task);
+            } else if (gained.get(shard) && !scheduledTasks.containsKey(task.getId())) {
+                scheduleReminder(task);
+            }
+        }
+    }
+
+    /**
+     * Delivers the reminders that came due in the given range without firing, for shards taken
+     * over from a process that stopped.
+     */
+    private void replayMissed(ReminderSource missed, LocalDateTime since, LocalDateTime until, Predicate<Task> filter) {
+        LocalDateTime cursorTime = since;
+        String cursorId = "";
+        List<Task> page;
+        do {
+            page = missed.getTasksByReminderTime(cursorTime, cursorId, until, HORIZON_PAGE_SIZE);
+            for (Task task : page) {
+                if (filter.test(task)) {
+                    Task scheduled = tasksById.get(task.getId());
+                    onReminderDue(scheduled != null ? scheduled : task);
+                }
+                cursorTime = task.getReminderTime();
+                cursorId = task.getId();
+            }
+        } while (page.size() == HORIZON_PAGE_SIZE);
+    }
+
+    private int shardOf(Task task) {
+        return ReminderShards.shardOf(task.getId(), reminderShards.getShardCount());
+    }
+
+    /**
+     * Checks whether this process delivers the reminder of the given task.
+     */
+    private boolean ownsReminder(Task task) {
+        ReminderShards shards = reminderShards;
+        return shards == null || shards.owns(task.getId());
+    }
+
+    /**
+     * Gets the time from which reminders are armed live, fixing it on first use.
+     */
+    private LocalDateTime liveSince() {
+        if (liveSince == null) {
+            liveSince = LocalDateTime.now(clock);
+        }
+        return liveSince;
     }
 
     /**
-     * Schedules a new task and sets up its reminder.
+     * Moves the reminder horizon forward and arms the reminders that entered it.
+     */
+    private void refillHorizon() {
+        try {
+            LocalDateTime until = LocalDateTime.now(clock).plus(horizon);
+            // 先公开新的边界，使此后新建的任务直接由 scheduleTask 安排
+            horizonEnd = until;
+
+            Task last = loadReminders(horizonCursorTime, horizonCursorId, until, this::ownsReminder);
+            if (last != null) {
+                horizonCursorTime = last.getReminderTime();
+                horizonCursorId = last.getId();
+            }
+        } catch (RuntimeException e) {
+            // 保留游标，下次刷新时重试
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the tasks whose reminders fall after the given position and up to the given time
+     * from the reminder source, and schedules those that pass the filter and are not yet held.
+     *
+     * @return the last task read, or null if there was none
+     */
+    private Task loadReminders(LocalDateTime after, String afterId, LocalDateTime until, Predicate<Task> filter) {
+        LocalDateTime cursorTime = after;
+        String cursorId = afterId;
+        Task last = null;
+        List<Task> page;
+        do {
+            page = reminderSource.getTasksByReminderTime(cursorTime, cursorId, until, HORIZON_PAGE_SIZE);
+            for (Task task : page) {
+                if (filter.test(task) && register(task, false)) {
+                    overdueSweeper.track(task);
+                    scheduleReminder(task);
+                }
+                cursorTime = task.getReminderTime();
+                cursorId = task.getId();
+                last = task;
+            }
+        } while (page.size() == HORIZON_PAGE_SIZE);
+        return last;
+    }
+
+    /**
+     * Checks whether a reminder time lies beyond the reminder horizon.
+     */
+    private boolean isBeyondHorizon(LocalDateTime reminderTime) {
+        LocalDateTime end = horizonEnd;
+        return end != null && reminderTime.isAfter(end);
+    }
+
+    /**
+     * Schedules a new task and sets up its reminder. A task that is already past its due
+     * time is marked as overdue right away.
      *
      * @param task the task to be scheduled
      */
     public void scheduleTask(Task task) {
-        taskQueue.addTask(task);
+        if (isBeyondHorizon(task.snapshot().reminderTime())) {
+            // 超出时间窗口的提醒留在数据库中，由后台刷新加载
+            return;
+        }
+        register(task, true);
+        checkTaskDueStatus(task);
+        overdueSweeper.track(task);
         scheduleReminder(task);
     }
 
+    /**
+     * Adds a task to the ID index and the queue. The queue lock also guards the ID index here,
+     * so a task scheduled while a refill loads the same task is held only once.
+     *
+     * @param task    the task to add
+     * @param replace whether an instance already held for the same ID is replaced
+     * @return true if the task was added
+     */
+    private boolean register(Task task, boolean replace) {
+        synchronized (taskQueue) {
+            Task previous = replace ? tasksById.put(task.getId(), task) : tasksById.putIfAbsent(task.getId(), task);
+            if (previous != null) {
+                if (!replace) {
+                    return false;
+                }
+                // 移除旧实例并取消其提醒，避免同一任务被提醒两次
+                taskQueue.removeTask(previous);
+                cancelReminder(previous);
+            }
+            taskQueue.addTask(task);
+            return true;
+        }
+    }
+
+    /**
+     * Schedules a task given as a snapshot and sets up its reminder.
+     *
+     * @param snapshot the snapshot of the task to be scheduled
+     * @return the scheduled task handle
+     */
+    public Task scheduleTask(TaskSnapshot snapshot) {
+        Task task = Task.fromSnapshot(snapshot, clock);
+        scheduleTask(task);
+        return task;
+    }
+
+    /**
+     * Gets the latest published snapshot of a scheduled task without locking.
+     *
+     * @param taskId the ID of the task
+     * @return the latest snapshot, or null if no such task is scheduled
+     */
+    public TaskSnapshot getSnapshot(String taskId) {
+        Task task = tasksById.get(taskId);
+        return task == null ? null : task.snapshot();
+    }
+
+    /**
+     * Finds the scheduled instance of the task with the given ID.
+     * Edits should be made on this instance so that armed reminders see them.
+     *
+     * @param taskId the ID of the task
+     * @return the scheduled task, or null if no such task is scheduled
+     */
+    public Task findTask(String taskId) {
+        return tasksById.get(taskId);
+    }
+
     /**
      * Schedules a reminder for the given task.
      *
      * @param task the task for which the reminder is to be scheduled
      */
     private void scheduleReminder(Task task) {
-        LocalDateTime reminderTime = task.getReminderTime();
-        if (reminderTime != null && reminderTime.isAfter(LocalDateTime.now())) {
-            long delay = java.time.Duration.between(LocalDateTime.now(), reminderTime).toSeconds();
+        LocalDateTime reminderTime = task.snapshot().reminderTime();
+        if (isBeyondHorizon(reminderTime)) {
+            // 提醒被推迟到时间窗口之外，释放内存，由后台刷新重新加载
+            synchronized (taskQueue) {
+                taskQueue.removeTask(task);
+                tasksById.remove(task.getId(), task);
+            }
+            overdueSweeper.untrack(task);
+            return;
+        }
+        if (!ownsReminder(task)) {
+            // 该分片由其他进程负责提醒
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (reminderTime != null && reminderTime.isAfter(now)) {
+            long delay = delayMillis(now, reminderTime);
 
-            ScheduledFuture<?> future = scheduler.schedule(() -> {
-                if (task.getStatus() != Task.TaskStatus.COMPLETED) {
-                    reminderHandler.onTaskReminder(task);
-                    checkTaskDueStatus(task);
-                }
-            }, delay, TimeUnit.SECONDS);
+            // 计时线程只负责把到期的提醒交给分发器
+            ReminderEngine.Handle handle = reminderEngine.schedule(() -> onReminderDue(task), delay, TimeUnit.MILLISECONDS);
 
-            scheduledTasks.put(task.getId(), future);
+            ReminderEngine.Handle previous = scheduledTasks.put(task.getId(), handle);
+            if (previous != null) {
+                // 同一任务被再次安排时只保留最新的提醒
+                previous.cancel();
+            }
+            StartupTimeline.mark("first reminder armed");
         }
     }
 
     /**
-     * Checks if the task is overdue and updates its status accordingly.
+     * Computes the delay until a reminder time in milliseconds, rounded up so that the
+     * reminder never fires before its time.
+     *
+     * @param now          the current time
+     * @param reminderTime the reminder time
+     * @return the delay in milliseconds
+     */
+    private static long delayMillis(LocalDateTime now, LocalDateTime reminderTime) {
+        long nanos = Duration.between(now, reminderTime).toNanos();
+        return nanos <= 0 ? 0 : (nanos + 999_999) / 1_000_000;
+    }
+
+    /**
+     * Hands a due reminder over for delivery, either on its own or as part of a batch.
+     * Runs on the timer thread of the reminder engine.
+     *
+     * @param task the task whose reminder is due
+     */
+    private void onReminderDue(Task task) {
+        if (!ownsReminder(task)) {
+            // 租约已转移或过期，由新的所有者提醒
+            return;
+        }
+        TaskMetrics.Histogram lag = fireLag;
+        LocalDateTime reminderTime = task.snapshot().reminderTime();
+        if (lag != null && reminderTime != null) {
+            lag.record(Duration.between(reminderTime, LocalDateTime.now(clock)).toNanos());
+        }
+        if (reminderCoalescer != null) {
+            reminderCoalescer.add(task);
+        } else if (asyncDelivery != null) {
+            asyncDelivery.deliver(task);
+        } else {
+            reminderDispatcher.dispatch(() -> deliverReminder(task));
+        }
+    }
+
+    /**
+     * Invokes the batch reminder handler for the tasks of one batch that have not been
+     * completed meanwhile. Runs on a thread of the reminder dispatcher.
+     *
+     * @param batch the tasks whose reminders are due
+     */
+    private void deliverReminders(List<Task> batch) {
+        List<Task> pending = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            if (task.snapshot().status() != Task.TaskStatus.COMPLETED) {
+                pending.add(task);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            batchReminderHandler.onTaskReminders(pending);
+        } catch (RuntimeException e) {
+            failedCount.add(pending.size());
+            throw e;
+        }
+        deliveredCount.add(pending.size());
+        for (Task task : pending) {
+            recordFired(task);
+            advanceRecurrence(task);
+            releaseDelivered(task);
+        }
+    }
+
+    /**
+     * Invokes the reminder handler for a due task, unless it has been completed meanwhile.
+     * Runs on a thread of the reminder dispatcher.
+     *
+     * @param task the task whose reminder is due
+     */
+    private void deliverReminder(Task task) {
+        // 只读取一次已发布的快照，无需加锁
+        if (task.snapshot().status() != Task.TaskStatus.COMPLETED) {
+            try {
+                reminderHandler.onTaskReminder(task);
+            } catch (RuntimeException e) {
+                failedCount.increment();
+                throw e;
+            }
+            deliveredCount.increment();
+            recordFired(task);
+            advanceRecurrence(task);
+            releaseDelivered(task);
+        }
+    }
+
+    /**
+     * Records a delivered reminder in the reminder log, if one is set. A failed write is
+     * logged and otherwise ignored, so the rest of the settlement, such as moving a repeating
+     * task to its next occurrence, still runs; the reminder may then be replayed once after a
+     * restart.
+     *
+     * @param task the task whose reminder has been delivered
+     */
+    private void recordFired(Task task) {
+        ReminderLog log = reminderLog;
+        if (log != null) {
+            try {
+                log.markReminderFired(task);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Moves a repeating task to the first occurrence of its series after now, once its current
+     * reminder has been delivered. Only the next occurrence is computed: the due time keeps its
+     * offset from the reminder time, the task starts over as not started, and its reminder is
+     * re-armed. Occurrences missed while the application was down are skipped in one step.
+     * Completed tasks and series that have ended are left as they are.
+     *
+     * @param task the task whose reminder has been delivered
+     */
+    private void advanceRecurrence(Task task) {
+        TaskSnapshot current = task.snapshot();
+        RecurrenceRule rule = current.recurrence();
+        if (rule == null || current.status() == Task.TaskStatus.COMPLETED) {
+            return;
+        }
+        LocalDateTime next = rule.next(current.reminderTime(), LocalDateTime.now(clock));
+        if (next == null) {
+            return;
+        }
+        LocalDateTime nextDue = current.dueDateTime().plus(Duration.between(current.reminderTime(), next));
+        int fields = task.edit(editor -> editor
+                .setReminderTime(next)
+                .setDueDateTime(nextDue)
+                .setStatus(Task.TaskStatus.NOT_STARTED));
+
+        // 先持久化，时间窗口之外的下一次提醒由后台刷新从存储中加载
+        TaskStore store = taskStore;
+        if (store != null) {
+            store.updateTask(task, fields);
+        }
+        // 任务在送达期间被取消或完成时不再放回调度
+        applyEdit(task, fields);
+    }
+
+    /**
+     * Releases a task whose reminder has been delivered and that has no further reminder, so
+     * that fired one-off tasks are not held in memory. The overdue index keeps the task until
+     * its due time has passed. A task whose reminder was moved into the future meanwhile, such
+     * as the next occurrence of a repeating task, stays scheduled.
+     *
+     * @param task the task whose reminder has been delivered
+     */
+    private void releaseDelivered(Task task) {
+        LocalDateTime reminderTime = task.snapshot().reminderTime();
+        if (reminderTime != null && reminderTime.isAfter(LocalDateTime.now(clock))) {
+            return;
+        }
+        synchronized (taskQueue) {
+            // 只移除已送达的实例，不影响之后重新安排的同一任务
+            if (tasksById.remove(task.getId(), task)) {
+                taskQueue.removeTask(task);
+                scheduledTasks.remove(task.getId());
+            }
+        }
+    }
+
+    /**
+     * Checks if the task is overdue and updates its status accordingly. Used when a task is
+     * scheduled; tasks that become overdue later are marked by the overdue sweep.
      *
      * @param task the task to be checked
      */
     private void checkTaskDueStatus(Task task) {
-        if (LocalDateTime.now().isAfter(task.getDueDateTime())) {
-            task.setStatus(Task.TaskStatus.OVERDUE);
+        TaskSnapshot current = task.snapshot();
+        if (current.status() != Task.TaskStatus.COMPLETED && current.status() != Task.TaskStatus.OVERDUE
+                && LocalDateTime.now(clock).isAfter(current.dueDateTime())) {
+            // 仅当状态未被其他线程修改时才标记为逾期
+            task.compareAndSetStatus(current.status(), Task.TaskStatus.OVERDUE);
         }
     }
 
@@ -80,9 +1052,9 @@ public class TaskScheduler {
      * @param task the task whose reminder is to be canceled
      */
     public void cancelReminder(Task task) {
-        ScheduledFuture<?> future = scheduledTasks.remove(task.getId());
-        if (future != null) {
-            future.cancel(false);
+        ReminderEngine.Handle handle = scheduledTasks.remove(task.getId());
+        if (handle != null) {
+            handle.cancel();
         }
     }
 
@@ -92,11 +1064,13 @@ public class TaskScheduler {
      * @param task the task to be canceled
      */
     public void cancelTask(Task task) {
-        // Cancel the task's scheduled reminder
-        cancelReminder(task);
-
-        // Remove the task from the task queue
-        taskQueue.removeTask(task);
+        // Remove the task from the task queue and cancel its scheduled reminder
+        synchronized (taskQueue) {
+            taskQueue.removeTask(task);
+            tasksById.remove(task.getId());
+            cancelReminder(task);
+        }
+        overdueSweeper.untrack(task);
     }
 
 
@@ -119,8 +1093,12 @@ public class TaskScheduler {
      */
     public void completeTask(Task task) {
         task.setStatus(Task.TaskStatus.COMPLETED);
-        cancelReminder(task);
-        taskQueue.removeTask(task);
+        synchronized (taskQueue) {
+            taskQueue.removeTask(task);
+            tasksById.remove(task.getId());
+            cancelReminder(task);
+        }
+        overdueSweeper.untrack(task);
     }
 
     /**
@@ -129,51 +1107,164 @@ public class TaskScheduler {
      * @return the next pending task, or null if the queue is empty
      */
     public Task getNextPendingTask() {
-        return taskQueue.peek();
+        synchronized (taskQueue) {
+            return taskQueue.peek();
+        }
     }
 
     /**
      * Shuts down the task scheduler and terminates any scheduled tasks.
      */
     public void shutdown() {
-        scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(60, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
+        synchronized (this) {
+            if (horizonRefiller != null) {
+                horizonRefiller.shutdownNow();
             }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-            Thread.currentThread().interrupt();
+            if (catchUpThread != null) {
+                catchUpThread.interrupt();
+            }
+            if (shardHeartbeat != null) {
+                shardHeartbeat.shutdownNow();
+            }
+        }
+        reminderEngine.shutdown();
+        reminderDispatcher.shutdown();
+        ReminderShards shards = reminderShards;
+        if (shards != null) {
+            // 提醒停止后再释放租约，其他进程无需等待租约过期即可接管
+            shards.release();
+        }
+    }
+
+    /**
+     * Returns the number of armed reminders that have not fired yet.
+     *
+     * @return the number of pending reminders
+     */
+    public int getPendingReminderCount() {
+        // 逾期扫描、批次刷新、重试和超时的定时器不是提醒
+        int timers = overdueSweeper.armedTimerCount()
+                + (reminderCoalescer != null ? reminderCoalescer.armedTimerCount() : 0)
+                + (asyncDelivery != null ? asyncDelivery.armedTimerCount() : 0);
+        return reminderEngine.pendingCount() - timers;
+    }
+
+    /**
+     * Sets the listener notified once per overdue sweep with the IDs of the tasks that became overdue.
+     *
+     * @param listener the overdue listener, or null to stop notifying
+     */
+    public void setOverdueListener(OverdueListener listener) {
+        overdueSweeper.setListener(listener);
+    }
+
+    /**
+     * Persists overdue statuses in the given store. Each overdue sweep applies one set-based
+     * update to the store, and a sweep runs at least every {@code interval}, so stored tasks
+     * that are not held by this scheduler become overdue as well.
+     *
+     * @param store    the store of task statuses
+     * @param interval the maximum time between two sweeps
+     * @throws IllegalArgumentException if store is null or interval is not positive
+     */
+    public void setOverdueStore(OverdueStore store, Duration interval) {
+        if (store == null || interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Overdue store and a positive interval are required");
         }
+        overdueSweeper.setStore(store, interval);
     }
 
     public void updateTask(Task task) {
         String taskId = task.getId();
 
         // 取消现有的提醒任务
-        ScheduledFuture<?> existingSchedule = scheduledTasks.get(taskId);
+        ReminderEngine.Handle existingSchedule = scheduledTasks.remove(taskId);
         if (existingSchedule != null) {
-            existingSchedule.cancel(false);
+            existingSchedule.cancel();
         }
 
         // 更新任务队列
-        taskQueue.updateTask(task);
+        synchronized (taskQueue) {
+            taskQueue.updateTask(task);
+            tasksById.put(taskId, task);
+        }
+        overdueSweeper.track(task);
 
         // 重新安排提醒任务
         LocalDateTime reminderTime = task.getReminderTime();
-        Duration delay = Duration.between(LocalDateTime.now(), reminderTime);
+        LocalDateTime now = LocalDateTime.now(clock);
 
-        // 只有当提醒时间在未来时才安排提醒
-        if (!delay.isNegative()) {
-            ScheduledFuture<?> scheduledFuture = scheduler.schedule(
-                    () -> reminderHandler.onTaskReminder(task),
-                    delay.toMillis(),
+        // 只有当提醒时间在未来且分片属于本进程时才安排提醒
+        if (!reminderTime.isBefore(now) && ownsReminder(task)) {
+            ReminderEngine.Handle scheduledHandle = reminderEngine.schedule(
+                    () -> onReminderDue(task),
+                    delayMillis(now, reminderTime),
                     TimeUnit.MILLISECONDS
             );
 
-            // 更新调度任务映射
-            scheduledTasks.put(taskId, scheduledFuture);
+            // 更新调度任务映射，并发安排的旧提醒一并取消
+            ReminderEngine.Handle previous = scheduledTasks.put(taskId, scheduledHandle);
+            if (previous != null) {
+                previous.cancel();
+            }
         }
     }
-}
 
+    /**
+     * Applies an edit of the given fields to the schedule. The task is only re-queued when
+     * its priority changed, its reminder is only re-armed when the reminder time changed, and
+     * it is only moved in the overdue index when its due time or status changed. A task that is
+     * no longer scheduled, because its reminder has been delivered or it was canceled or
+     * completed meanwhile, is scheduled again only if its reminder time was moved into the
+     * future.
+     *
+     * @param task   the edited task
+     * @param fields a bitmask of {@code Task.FIELD_*} constants naming the changed fields
+     */
+    public void updateTask(Task task, int fields) {
+        if (!applyEdit(task, fields) && (fields & Task.FIELD_REMINDER_TIME) != 0) {
+            LocalDateTime reminderTime = task.snapshot().reminderTime();
+            if (reminderTime != null && reminderTime.isAfter(LocalDateTime.now(clock))) {
+                scheduleTask(task);
+            }
+        }
+    }
+
+    /**
+     * Applies an edit to a task that is still scheduled. Runs under the queue lock, which also
+     * guards the ID index, so an edit never brings back a task that was released, canceled or
+     * completed by another thread.
+     *
+     * @param task   the edited task
+     * @param fields a bitmask of {@code Task.FIELD_*} constants naming the changed fields
+     * @return false if no instance of the task is scheduled
+     */
+    private boolean applyEdit(Task task, int fields) {
+        synchronized (taskQueue) {
+            Task held = tasksById.get(task.getId());
+            if (held == null) {
+                return false;
+            }
+            boolean rearm = (fields & Task.FIELD_REMINDER_TIME) != 0;
+            if (held != task) {
+                if ((fields & (Task.FIELD_PRIORITY | Task.FIELD_REMINDER_TIME)) != 0) {
+                    // 队列或提醒已引用传入的实例时，以它替换旧实例，旧实例的提醒随之取消
+                    register(task, true);
+                    rearm = true;
+                }
+            } else if ((fields & Task.FIELD_PRIORITY) != 0) {
+                taskQueue.updateTask(task);
+            }
+            if ((fields & (Task.FIELD_DUE_DATE_TIME | Task.FIELD_STATUS)) != 0) {
+                // 按新的截止时间或状态更新逾期索引
+                overdueSweeper.track(task);
+            }
+            if (rearm) {
+                // 提醒移出时间窗口时 scheduleReminder 会将任务移出内存
+                cancelReminder(task);
+                scheduleReminder(task);
+            }
+            return true;
+        }
+    }
+}
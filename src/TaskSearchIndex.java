@@ -0,0 +1,385 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An in-memory trigram index over the titles and descriptions of the rows of a {@link TaskTable}.
+ * <p>
+ * Every text is indexed under each three-character sequence that starts in it, padded past its
+ * end, so that the rows containing a query of up to three characters are found exactly: by the
+ * posting list of its trigram, or by the union of the posting lists of the trigrams it
+ * starts. For longer queries the intersection of the posting lists of all their trigrams is a
+ * superset of the matching rows, which the caller verifies against the texts. Letters are
+ * matched ignoring ASCII case, as {@link TaskTable#textContains} does.
+ * <p>
+ * Posting lists are split into chunks of 65536 rows, each held as a sorted array of the low
+ * row bits while sparse and as a bitmap once dense, so both rare and common trigrams stay
+ * compact and intersect word by word. The index is updated row by row as tasks are added,
+ * edited and removed. This class is not thread-safe.
+ */
+final class TaskSearchIndex {
+    /** Pads the trigrams that start in the last two characters of a text. */
+    private static final char END = '\0';
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+
+    /** A chunk holding more rows than this is stored as a bitmap instead of a sorted array. */
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private Postings[] postings;
+    private int trigramCount;
+
+    /**
+     * Constructs an empty TaskSearchIndex.
+     */
+    TaskSearchIndex() {
+        clear();
+    }
+
+    /**
+     * Converts text to the form it is indexed and searched in.
+     *
+     * @param text the text
+     * @return the text with ASCII letters in lower case
+     */
+    static String normalize(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = lower(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Checks whether the rows returned by {@link #search} for a query are exactly the rows containing it.
+     *
+     * @param query the normalized query
+     * @return true if the rows need no verification against the texts
+     */
+    static boolean isExact(String query) {
+        return query.length() <= 3;
+    }
+
+    /**
+     * Indexes the title and description of a row.
+     *
+     * @param row         the row
+     * @param title       the title
+     * @param description the description
+     */
+    void add(int row, String title, String description) {
+        addText(row, title);
+        addText(row, description);
+    }
+
+    /**
+     * Removes a row from the index. The given texts must be the ones the row was indexed with.
+     *
+     * @param row         the row
+     * @param title       the indexed title
+     * @param description the indexed description
+     */
+    void remove(int row, String title, String description) {
+        removeText(row, title);
+        removeText(row, description);
+    }
+
+    /**
+     * Removes every row from the index.
+     */
+    void clear() {
+        keys = new long[1024];
+        Arrays.fill(keys, EMPTY);
+        postings = new Postings[keys.length];
+        trigramCount = 0;
+    }
+
+    /**
+     * Gets the number of distinct trigrams indexed.
+     *
+     * @return the number of trigrams
+     */
+    int getTrigramCount() {
+        return trigramCount;
+    }
+
+    /**
+     * Finds the rows whose title or description contains every trigram of a query. For
+     * queries of up to three characters, these are exactly the rows containing the query.
+     *
+     * @param query    the normalized query
+     * @param rowCount the number of rows
+     * @return the candidate rows
+     */
+    BitSet search(String query, int rowCount) {
+        long[] words = new long[((rowCount >>> CHUNK_BITS) + 1) * CHUNK_WORDS];
+        if (query.isEmpty()) {
+            BitSet all = new BitSet(rowCount);
+            all.set(0, rowCount);
+            return all;
+        }
+        if (query.length() < 3) {
+            // 短查询是以它开头的所有三元组的并集
+            long prefix = query.length() == 1 ? (long) query.charAt(0) << 32
+                    : (long) query.charAt(0) << 32 | (long) query.charAt(1) << 16;
+            long mask = query.length() == 1 ? 0xFFFFL << 32 : 0xFFFFFFFFL << 16;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY && (keys[slot] & mask) == prefix) {
+                    postings[slot].orInto(words);
+                }
+            }
+            return BitSet.valueOf(words);
+        }
+
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            Postings list = get(key(query.charAt(i), query.charAt(i + 1), query.charAt(i + 2)));
+            if (list == null) {
+                return new BitSet();
+            }
+            lists.add(list);
+        }
+        // 从最短的列表开始求交集
+        lists.sort(Comparator.comparingInt(list -> list.cardinality));
+        lists.get(0).orInto(words);
+        long[] buffer = new long[CHUNK_WORDS];
+        for (int i = 1; i < lists.size(); i++) {
+            lists.get(i).andInto(words, buffer);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private void addText(int row, String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            long key = key(lower(text.charAt(i)),
+                    i + 1 < length ? lower(text.charAt(i + 1)) : END,
+                    i + 2 < length ? lower(text.charAt(i + 2)) : END);
+            int slot = slot(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                postings[slot] = new Postings();
+                if (++trigramCount > keys.length / 2) {
+                    rehash();
+                    slot = slot(key);
+                }
+            }
+            postings[slot].add(row);
+        }
+    }
+
+    private void removeText(int row, String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            long key = key(lower(text.charAt(i)),
+                    i + 1 < length ? lower(text.charAt(i + 1)) : END,
+                    i + 2 < length ? lower(text.charAt(i + 2)) : END);
+            Postings list = get(key);
+            if (list != null) {
+                // 空列表保留在表中，开放寻址无需处理删除标记
+                list.remove(row);
+            }
+        }
+    }
+
+    private Postings get(long key) {
+        int slot = slot(key);
+        return keys[slot] == EMPTY ? null : postings[slot];
+    }
+
+    /**
+     * Finds the slot holding the given key, or the empty slot where it belongs.
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Postings[] oldPostings = postings;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        postings = new Postings[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+            }
+        }
+    }
+
+    private static long key(char first, char second, char third) {
+        return (long) first << 32 | (long) second << 16 | third;
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * The rows containing one trigram, in chunks of 65536 rows. A chunk is null while empty,
+     * a sorted array of the low row bits while it holds at most {@link #MAX_ARRAY_SIZE} rows,
+     * and a bitmap above that.
+     */
+    private static final class Postings {
+        private char[][] arrays = new char[1][];
+        private long[][] bitmaps = new long[1][];
+        private int[] sizes = new int[1];
+        private int cardinality;
+
+        void add(int row) {
+            int chunk = row >>> CHUNK_BITS;
+            char low = (char) row;
+            if (chunk >= sizes.length) {
+                int chunks = Math.max(chunk + 1, sizes.length * 2);
+                arrays = Arrays.copyOf(arrays, chunks);
+                bitmaps = Arrays.copyOf(bitmaps, chunks);
+                sizes = Arrays.copyOf(sizes, chunks);
+            }
+            long[] bitmap = bitmaps[chunk];
+            if (bitmap != null) {
+                long bit = 1L << low;
+                if ((bitmap[low >>> 6] & bit) == 0) {
+                    bitmap[low >>> 6] |= bit;
+                    sizes[chunk]++;
+                    cardinality++;
+                }
+                return;
+            }
+            char[] array = arrays[chunk];
+            int size = sizes[chunk];
+            if (array == null) {
+                array = arrays[chunk] = new char[4];
+            }
+            // 加载时行号递增，通常追加在末尾
+            int at = size > 0 && array[size - 1] < low ? -size - 1 : Arrays.binarySearch(array, 0, size, low);
+            if (at >= 0) {
+                return;
+            }
+            if (size == MAX_ARRAY_SIZE) {
+                toBitmap(chunk);
+                add(row);
+                return;
+            }
+            at = -at - 1;
+            if (size == array.length) {
+                array = arrays[chunk] = Arrays.copyOf(array, size * 2);
+            }
+            System.arraycopy(array, at, array, at + 1, size - at);
+            array[at] = low;
+            sizes[chunk] = size + 1;
+            cardinality++;
+        }
+
+        void remove(int row) {
+            int chunk = row >>> CHUNK_BITS;
+            if (chunk >= sizes.length) {
+                return;
+            }
+            char low = (char) row;
+            long[] bitmap = bitmaps[chunk];
+            if (bitmap != null) {
+                long bit = 1L << low;
+                if ((bitmap[low >>> 6] & bit) != 0) {
+                    bitmap[low >>> 6] &= ~bit;
+                    cardinality--;
+                    if (--sizes[chunk] <= MAX_ARRAY_SIZE / 2) {
+                        toArray(chunk);
+                    }
+                }
+                return;
+            }
+            char[] array = arrays[chunk];
+            int size = sizes[chunk];
+            int at = array == null ? -1 : Arrays.binarySearch(array, 0, size, low);
+            if (at < 0) {
+                return;
+            }
+            System.arraycopy(array, at + 1, array, at, size - at - 1);
+            sizes[chunk] = --size;
+            cardinality--;
+            if (size == 0) {
+                arrays[chunk] = null;
+            }
+        }
+
+        /**
+         * Sets the bits of the rows of this list in a bitmap of rows.
+         */
+        void orInto(long[] words) {
+            for (int chunk = 0; chunk < sizes.length; chunk++) {
+                int base = chunk * CHUNK_WORDS;
+                if (bitmaps[chunk] != null) {
+                    long[] bitmap = bitmaps[chunk];
+                    for (int i = 0; i < CHUNK_WORDS; i++) {
+                        words[base + i] |= bitmap[i];
+                    }
+                } else if (arrays[chunk] != null) {
+                    char[] array = arrays[chunk];
+                    for (int i = 0; i < sizes[chunk]; i++) {
+                        words[base + (array[i] >>> 6)] |= 1L << array[i];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Clears the bits of the rows not in this list in a bitmap of rows.
+         */
+        void andInto(long[] words, long[] buffer) {
+            for (int base = 0, chunk = 0; base < words.length; base += CHUNK_WORDS, chunk++) {
+                if (chunk >= sizes.length || sizes[chunk] == 0) {
+                    Arrays.fill(words, base, base + CHUNK_WORDS, 0);
+                } else if (bitmaps[chunk] != null) {
+                    long[] bitmap = bitmaps[chunk];
+                    for (int i = 0; i < CHUNK_WORDS; i++) {
+                        words[base + i] &= bitmap[i];
+                    }
+                } else {
+                    char[] array = arrays[chunk];
+                    Arrays.fill(buffer, 0);
+                    for (int i = 0; i < sizes[chunk]; i++) {
+                        int word = array[i] >>> 6;
+                        buffer[word] |= words[base + word] & (1L << array[i]);
+                    }
+                    System.arraycopy(buffer, 0, words, base, CHUNK_WORDS);
+                }
+            }
+        }
+
+        private void toBitmap(int chunk) {
+            long[] bitmap = new long[CHUNK_WORDS];
+            char[] array = arrays[chunk];
+            for (int i = 0; i < sizes[chunk]; i++) {
+                bitmap[array[i] >>> 6] |= 1L << array[i];
+            }
+            bitmaps[chunk] = bitmap;
+            arrays[chunk] = null;
+        }
+
+        private void toArray(int chunk) {
+            long[] bitmap = bitmaps[chunk];
+            char[] array = new char[Math.max(4, sizes[chunk])];
+            int size = 0;
+            for (int i = 0; i < CHUNK_WORDS; i++) {
+                for (long word = bitmap[i]; word != 0; word &= word - 1) {
+                    array[size++] = (char) (i * Long.SIZE + Long.numberOfTrailingZeros(word));
+                }
+            }
+            arrays[chunk] = array;
+            bitmaps[chunk] = null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.time.LocalDateTime;
+
+/**
+ * An immutable, versioned copy of every attribute of a {@link Task}.
+ * <p>
+ * A Task publishes a new snapshot for each change, so a snapshot obtained on one thread
+ * can be read on any other thread without locking and never mixes values of two versions.
+ * The {@code with*} methods return a copy with one attribute replaced and the same version;
+ * the version is advanced by the Task when the copy is published.
+ *
+ * @param id               the unique identifier of the task
+ * @param title            the title of the task
+ * @param description      the description of the task
+ * @param dueDateTime      the due date and time of the task
+ * @param reminderTime     the reminder date and time for the task
+ * @param priority         the priority level of the task
+ * @param status           the status of the task
+ * @param recurrence       the recurrence rule of the task, or null if the task does not repeat
+ * @param createdTime      the creation time of the task
+ * @param lastModifiedTime the last modified time of the task
+ * @param version          the number of changes published before this snapshot
+ */
+public record TaskSnapshot(String id, String title, String description, LocalDateTime dueDateTime,
+                           LocalDateTime reminderTime, Task.TaskPriority priority, Task.TaskStatus status,
+                           RecurrenceRule recurrence, LocalDateTime createdTime, LocalDateTime lastModifiedTime, long version) {
+
+    /**
+     * Creates a TaskSnapshot.
+     *
+     * @throws IllegalArgumentException if any attribute other than the recurrence rule is null
+     */
+    public TaskSnapshot {
+        if (id == null || title == null || description == null || dueDateTime == null || reminderTime == null
+                || priority == null || status == null || createdTime == null || lastModifiedTime == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+    }
+
+    public TaskSnapshot withTitle(String title) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+
+    public TaskSnapshot withDescription(String description) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+
+    public TaskSnapshot withDueDateTime(LocalDateTime dueDateTime) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+
+    public TaskSnapshot withReminderTime(LocalDateTime reminderTime) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+
+    public TaskSnapshot withPriority(Task.TaskPriority priority) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+
+    public TaskSnapshot withStatus(Task.TaskStatus status) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+
+    public TaskSnapshot withRecurrence(RecurrenceRule recurrence) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+
+    public TaskSnapshot withLastModifiedTime(LocalDateTime lastModifiedTime) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+
+    public TaskSnapshot withVersion(long version) {
+        return new TaskSnapshot(id, title, description, dueDateTime, reminderTime, priority, status, recurrence,
+                createdTime, lastModifiedTime, version);
+    }
+}
@@ -0,0 +1,416 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A sorted run of tasks spilled from a {@link TaskQueue} to a memory-mapped segment file.
+ * The run is written once and then read front to back; only the task at the head of the
+ * run is kept decoded in memory.
+ * <p>
+ * Each record is stored as its length followed by the task ID, title, description, the four
+ * timestamps, the priority and status ordinals and the recurrence rule, which is empty for a
+ * task that does not repeat.
+ * <p>
+ * The records are followed by an index for finding a task by ID: the file offset of every
+ * record, then one entry per record holding the hash code of the task ID in the upper and the
+ * record number in the lower 32 bits, sorted, and finally the length of the records and the
+ * number of records. The index is memory-mapped, so a lookup binary-searches it without
+ * keeping anything per task on the heap; tasks removed from the run are remembered by ID
+ * only until the head of the run has passed them.
+ * <p>
+ * The segment file is written and read through one channel opened with
+ * {@link StandardOpenOption#DELETE_ON_CLOSE}, so the file goes away when the run is deleted
+ * and is not left behind by a process that exits without deleting it.
+ */
+final class TaskSpillRun {
+    /**
+     * The size of the file region mapped at a time while reading or writing.
+     */
+    private static final int WINDOW_SIZE = 8 * 1024 * 1024;
+
+    private static final Task.TaskPriority[] PRIORITIES = Task.TaskPriority.values();
+
+    private static final Task.TaskStatus[] STATUSES = Task.TaskStatus.values();
+
+    /** The size of the footer holding the length of the records and the number of records. */
+    private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final Path file;
+
+    private final int level;
+
+    private final long length;
+
+    private final int count;
+
+    private final FileChannel channel;
+
+    /** The file offset of each record, by record number. */
+    private LongBuffer offsets;
+
+    /** The sorted ID hash and record number entries. */
+    private LongBuffer keys;
+
+    /** The IDs of the tasks removed from this run that the head has not passed yet. */
+    private final Set<String> removed = new HashSet<>();
+
+    /** The record number of the head; equals the number of records once the run is exhausted. */
+    private int headNumber = -1;
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private long position;
+
+    private Task head;
+
+    private TaskSpillRun(Path file, int level, FileChannel channel) throws IOException {
+        this.file = file;
+        this.level = level;
+        this.channel = channel;
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        readFully(footer, channel.size() - FOOTER_SIZE);
+        this.length = footer.getLong(0);
+        this.count = footer.getInt(Long.BYTES);
+        MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, length, 2L * count * Long.BYTES);
+        this.offsets = index.slice(0, count * Long.BYTES).asLongBuffer();
+        this.keys = index.slice(count * Long.BYTES, count * Long.BYTES).asLongBuffer();
+        advance();
+    }
+
+    /**
+     * Writes the given tasks, which must already be in queue order, to a new segment file.
+     * The ID index is built in memory while the records are written and appended after them.
+     *
+     * @param directory the directory in which the segment file is created
+     * @param sequence  the sequence number used in the name of the segment file
+     * @param level     the merge level of the run
+     * @param tasks     the tasks to write, in queue order
+     * @return the run positioned at its first task
+     * @throws IOException if the segment file cannot be written
+     */
+    static TaskSpillRun write(Path directory, int sequence, int level, Iterator<Task> tasks) throws IOException {
+        Path file = Files.createTempFile(directory, "taskqueue-" + sequence + "-", ".run");
+        long length = 0;
+        int count = 0;
+        long[] recordOffsets = new long[64];
+        int[] hashes = new int[64];
+        ByteBuffer record = ByteBuffer.allocate(256);
+
+        FileChannel out;
+        try {
+            // 关闭通道时删除文件，类 Unix 系统上打开后即解除链接
+            out = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        try {
+            MappedByteBuffer window = out.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+            long windowStart = 0;
+            while (tasks.hasNext()) {
+                Task task = tasks.next();
+                if (count == hashes.length) {
+                    recordOffsets = Arrays.copyOf(recordOffsets, count * 2);
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                }
+                recordOffsets[count] = length;
+                hashes[count] = task.getId().hashCode();
+                count++;
+
+                record = encode(task, record);
+                if (record.remaining() > window.remaining()) {
+                    windowStart += window.position();
+                    window = out.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.max(WINDOW_SIZE, record.remaining()));
+                }
+                length += record.remaining();
+                window.put(record);
+            }
+            window.force();
+            out.truncate(length);
+
+            long[] entries = new long[count];
+            for (int i = 0; i < count; i++) {
+                entries[i] = (long) hashes[i] << 32 | i;
+            }
+            Arrays.sort(entries);
+            ByteBuffer index = ByteBuffer.allocate(2 * count * Long.BYTES + FOOTER_SIZE);
+            index.asLongBuffer().put(recordOffsets, 0, count).put(entries);
+            index.position(2 * count * Long.BYTES);
+            index.putLong(length).putInt(count).flip();
+            long position = length;
+            while (index.hasRemaining()) {
+                position += out.write(index, position);
+            }
+            return new TaskSpillRun(file, level, out);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the merge level of this run: zero for a run spilled from the heap, and one more
+     * than the level of its inputs for a merged run.
+     *
+     * @return the merge level
+     */
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the task at the head of this run without consuming it.
+     *
+     * @return the head task, or null if the run is exhausted
+     */
+    Task head() {
+        return head;
+    }
+
+    /**
+     * Moves the head of this run to the next stored task.
+     *
+     * @throws RuntimeException if the segment file cannot be read
+     */
+    void advance() {
+        try {
+            headNumber++;
+            head = position < length ? readAt(position) : null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read spilled tasks", e);
+        }
+    }
+
+    /**
+     * Checks if every task of this run has been consumed.
+     *
+     * @return true if the run is exhausted; false otherwise
+     */
+    boolean isExhausted() {
+        return head == null;
+    }
+
+    /**
+     * Removes the task with the given ID from this run if the head has not passed it yet.
+     * The record stays in the file and is skipped when the head reaches it.
+     *
+     * @param taskId the ID of the task to remove
+     * @return true if the task was in the remaining part of this run; false otherwise
+     * @throws RuntimeException if the segment file cannot be read
+     */
+    boolean remove(String taskId) {
+        if (head == null || removed.contains(taskId)) {
+            return false;
+        }
+        try {
+            if (find(taskId) < headNumber) {
+                return false;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read spilled tasks", e);
+        }
+        removed.add(taskId);
+        skipRemoved();
+        return true;
+    }
+
+    /**
+     * Checks if the task with the given ID has been removed from this run.
+     *
+     * @param taskId the ID of the task
+     * @return true if the task was removed and the head has not passed it yet
+     */
+    boolean isRemoved(String taskId) {
+        return removed.contains(taskId);
+    }
+
+    /**
+     * Moves the head past removed tasks, forgetting each one as it is passed.
+     */
+    void skipRemoved() {
+        while (head != null && removed.remove(head.getId())) {
+            advance();
+        }
+    }
+
+    /**
+     * Passes the head and every task after it to the given action, without moving the head.
+     *
+     * @param action the action to run for each remaining task
+     * @throws IOException if the segment file cannot be read
+     */
+    void forEachRemaining(Consumer<Task> action) throws IOException {
+        if (head == null) {
+            return;
+        }
+        action.accept(head);
+        long savedPosition = position;
+        while (position < length) {
+            action.accept(readAt(position));
+        }
+        position = savedPosition;
+    }
+
+    /**
+     * Closes the segment file, which deletes it from disk.
+     */
+    void delete() {
+        head = null;
+        window = null;
+        offsets = null;
+        keys = null;
+        removed.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Decodes the record starting at the given file offset and moves the read position past it.
+     */
+    private Task readAt(long offset) throws IOException {
+        if (window == null || offset < windowStart || offset + Integer.BYTES > windowStart + window.limit()) {
+            map(offset, Integer.BYTES);
+        }
+        int recordLength = window.getInt((int) (offset - windowStart));
+        if (offset + Integer.BYTES + recordLength > windowStart + window.limit()) {
+            map(offset, Integer.BYTES + recordLength);
+        }
+        window.position((int) (offset - windowStart) + Integer.BYTES);
+
+        Task task = Task.restore(
+                readString(window),
+                readString(window),
+                readString(window),
+                readTime(window),
+                readTime(window),
+                PRIORITIES[window.get()],
+                STATUSES[window.get()],
+                readRecurrence(window),
+                readTime(window),
+                readTime(window)
+        );
+        position = offset + Integer.BYTES + recordLength;
+        return task;
+    }
+
+    /**
+     * Looks up the record number of the task with the given ID in the index.
+     *
+     * @return the record number, or -1 if the task is not in this run
+     */
+    private int find(String taskId) throws IOException {
+        int hash = taskId.hashCode();
+        long lowest = (long) hash << 32;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys.get(mid) < lowest) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // 哈希值相同的记录需比较 ID
+        for (int i = low; i < count && (int) (keys.get(i) >> 32) == hash; i++) {
+            int number = (int) keys.get(i);
+            if (taskId.equals(readIdAt(offsets.get(number)))) {
+                return number;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads only the task ID of the record at the given file offset, without moving the head.
+     */
+    private String readIdAt(long offset) throws IOException {
+        ByteBuffer idLength = ByteBuffer.allocate(Integer.BYTES);
+        readFully(idLength, offset + Integer.BYTES);
+        ByteBuffer id = ByteBuffer.allocate(idLength.getInt(0));
+        readFully(id, offset + 2 * Integer.BYTES);
+        return new String(id.array(), StandardCharsets.UTF_8);
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment file " + file);
+            }
+        }
+    }
+
+    private void map(long offset, int minimumSize) throws IOException {
+        long size = Math.min(length - offset, Math.max(WINDOW_SIZE, minimumSize));
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        windowStart = offset;
+    }
+
+    private static ByteBuffer encode(Task task, ByteBuffer buffer) {
+        byte[] id = task.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] title = task.getTitle().getBytes(StandardCharsets.UTF_8);
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        RecurrenceRule rule = task.getRecurrence();
+        byte[] recurrence = rule != null ? rule.toString().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int bodyLength = 4 * Integer.BYTES + id.length + title.length + description.length + recurrence.length
+                + 4 * (Long.BYTES + Integer.BYTES) + 2;
+
+        if (buffer.capacity() < Integer.BYTES + bodyLength) {
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(Integer.BYTES + bodyLength) << 1);
+        }
+        buffer.clear();
+        buffer.putInt(bodyLength);
+        buffer.putInt(id.length).put(id);
+        buffer.putInt(title.length).put(title);
+        buffer.putInt(description.length).put(description);
+        putTime(buffer, task.getDueDateTime());
+        putTime(buffer, task.getReminderTime());
+        buffer.put((byte) task.getPriority().ordinal());
+        buffer.put((byte) task.getStatus().ordinal());
+        buffer.putInt(recurrence.length).put(recurrence);
+        putTime(buffer, task.getCreatedTime());
+        putTime(buffer, task.getLastModifiedTime());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static RecurrenceRule readRecurrence(ByteBuffer buffer) {
+        String rule = readString(buffer);
+        return rule.isEmpty() ? null : RecurrenceRule.parse(rule);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,706 @@
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A column-oriented, primitive-backed store for large numbers of tasks.
+ * <p>
+ * Instead of one {@link Task} object per task, each attribute lives in a shared array:
+ * the ID is interned as the two halves of its UUID, the four timestamps are epoch
+ * milliseconds in a {@code long[]}, priority and status are ordinals in {@code byte[]}s,
+ * and titles, descriptions and recurrence rules are UTF-8 bytes in a single arena. Rows are found by ID
+ * through an open-addressing index, and {@link TaskView} objects are handed out on demand.
+ * Rows can be ordered by any sortable {@link Column} straight from the arrays, without
+ * materializing a value per row.
+ * <p>
+ * Timestamps are stored with millisecond precision. Task IDs must be UUID strings.
+ * This class is not thread-safe.
+ */
+public class TaskTable {
+    private static final int TIME_COLUMNS = 4;
+    private static final int DUE = 0;
+    private static final int REMINDER = 1;
+    private static final int CREATED = 2;
+    private static final int LAST_MODIFIED = 3;
+
+    private static final int TEXT_COLUMNS = 3;
+    private static final int TITLE = 0;
+    private static final int DESCRIPTION = 1;
+    private static final int RECURRENCE = 2;
+
+    /**
+     * The attributes rows can be ordered by.
+     */
+    public enum Column {
+        TITLE, DESCRIPTION, PRIORITY, STATUS, DUE_DATE_TIME, REMINDER_TIME
+    }
+
+    private static final Task.TaskPriority[] PRIORITIES = Task.TaskPriority.values();
+    private static final Task.TaskStatus[] STATUSES = Task.TaskStatus.values();
+
+    private long[] idHigh;
+    private long[] idLow;
+    private long[] times;
+    private byte[] priorities;
+    private byte[] statuses;
+    private int[] textOffsets;
+    private int[] textLengths;
+
+    private byte[] arena;
+    private int arenaSize;
+    private int arenaGarbage;
+
+    /** Open-addressing index from ID hash to row + 1; 0 marks an empty slot. */
+    private int[] index;
+
+    private int size;
+
+    /**
+     * Constructs an empty TaskTable.
+     */
+    public TaskTable() {
+        this(1024);
+    }
+
+    /**
+     * Constructs an empty TaskTable sized for the given number of tasks.
+     *
+     * @param initialCapacity the expected number of tasks
+     */
+    public TaskTable(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        idHigh = new long[capacity];
+        idLow = new long[capacity];
+        times = new long[capacity * TIME_COLUMNS];
+        priorities = new byte[capacity];
+        statuses = new byte[capacity];
+        textOffsets = new int[capacity * TEXT_COLUMNS];
+        textLengths = new int[capacity * TEXT_COLUMNS];
+        arena = new byte[capacity * 32];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    }
+
+    /**
+     * Stores the given task, replacing the row of any task with the same ID.
+     *
+     * @param task the task to store
+     * @return the row the task is stored in
+     * @throws IllegalArgumentException if the task is null or its ID is not a UUID
+     */
+    public int put(Task task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+        UUID uuid = parseId(task.getId());
+        long high = uuid.getMostSignificantBits();
+        long low = uuid.getLeastSignificantBits();
+
+        int row = find(high, low);
+        if (row < 0) {
+            ensureCapacity(size + 1);
+            row = size++;
+            idHigh[row] = high;
+            idLow[row] = low;
+            insertIndex(row);
+        } else {
+            arenaGarbage += textLength(row);
+        }
+
+        times[row * TIME_COLUMNS + DUE] = toMillis(task.getDueDateTime());
+        times[row * TIME_COLUMNS + REMINDER] = toMillis(task.getReminderTime());
+        times[row * TIME_COLUMNS + CREATED] = toMillis(task.getCreatedTime());
+        times[row * TIME_COLUMNS + LAST_MODIFIED] = toMillis(task.getLastModifiedTime());
+        priorities[row] = (byte) task.getPriority().ordinal();
+        statuses[row] = (byte) task.getStatus().ordinal();
+        putText(row, TITLE, task.getTitle());
+        putText(row, DESCRIPTION, task.getDescription());
+        RecurrenceRule recurrence = task.getRecurrence();
+        putText(row, RECURRENCE, recurrence != null ? recurrence.toString() : "");
+
+        if (arenaGarbage > arenaSize / 2) {
+            compactArena();
+        }
+        return row;
+    }
+
+    /**
+     * Finds the row holding the task with the given ID.
+     *
+     * @param taskId the task ID
+     * @return the row, or -1 if no such task is stored
+     */
+    public int rowOf(String taskId) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(taskId);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        return find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Returns a view of the task with the given ID.
+     *
+     * @param taskId the task ID
+     * @return a view of the task, or null if no such task is stored
+     */
+    public TaskView get(String taskId) {
+        int row = rowOf(taskId);
+        return row < 0 ? null : new TaskView(row);
+    }
+
+    /**
+     * Returns a view of the task stored in the given row.
+     *
+     * @param row the row
+     * @return a view of the task
+     * @throws IndexOutOfBoundsException if the row is not in use
+     */
+    public TaskView view(int row) {
+        checkRow(row);
+        return new TaskView(row);
+    }
+
+    /**
+     * Removes the task with the given ID. The last row is moved into the freed row,
+     * so views of that row must not be used after this call.
+     *
+     * @param taskId the task ID
+     * @return true if the task was removed; false if no such task is stored
+     */
+    public boolean remove(String taskId) {
+        int row = rowOf(taskId);
+        if (row < 0) {
+            return false;
+        }
+        arenaGarbage += textLength(row);
+        removeIndex(row);
+
+        int last = --size;
+        if (row != last) {
+            removeIndex(last);
+            idHigh[row] = idHigh[last];
+            idLow[row] = idLow[last];
+            System.arraycopy(times, last * TIME_COLUMNS, times, row * TIME_COLUMNS, TIME_COLUMNS);
+            priorities[row] = priorities[last];
+            statuses[row] = statuses[last];
+            System.arraycopy(textOffsets, last * TEXT_COLUMNS, textOffsets, row * TEXT_COLUMNS, TEXT_COLUMNS);
+            System.arraycopy(textLengths, last * TEXT_COLUMNS, textLengths, row * TEXT_COLUMNS, TEXT_COLUMNS);
+            insertIndex(row);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the status of the task in the given row.
+     *
+     * @param row    the row
+     * @param status the new status
+     */
+    public void setStatus(int row, Task.TaskStatus status) {
+        checkRow(row);
+        statuses[row] = (byte) status.ordinal();
+    }
+
+    /**
+     * Sets the priority of the task in the given row.
+     *
+     * @param row      the row
+     * @param priority the new priority
+     */
+    public void setPriority(int row, Task.TaskPriority priority) {
+        checkRow(row);
+        priorities[row] = (byte) priority.ordinal();
+    }
+
+    /**
+     * Checks whether the title or the description in the given row contains the given text,
+     * ignoring the case of ASCII letters. The text is matched against the stored UTF-8 bytes,
+     * without decoding them.
+     *
+     * @param row    the row
+     * @param needle the UTF-8 bytes of the text, with ASCII letters in lower case
+     * @return true if the title or the description contains the text
+     */
+    public boolean textContains(int row, byte[] needle) {
+        checkRow(row);
+        return containsIgnoringAsciiCase(row * TEXT_COLUMNS + TITLE, needle)
+                || containsIgnoringAsciiCase(row * TEXT_COLUMNS + DESCRIPTION, needle);
+    }
+
+    /**
+     * Compares two rows by the given column. Times compare chronologically, priorities and
+     * statuses in declaration order, and texts by Unicode code point.
+     *
+     * @param a      the first row
+     * @param b      the second row
+     * @param column the column to compare by
+     * @return a negative number, zero or a positive number as the first row orders before, with or after the second
+     */
+    public int compareRows(int a, int b, Column column) {
+        return switch (column) {
+            case TITLE -> compareText(a, b, TITLE);
+            case DESCRIPTION -> compareText(a, b, DESCRIPTION);
+            case PRIORITY -> Byte.compare(priorities[a], priorities[b]);
+            case STATUS -> Byte.compare(statuses[a], statuses[b]);
+            case DUE_DATE_TIME -> Long.compare(times[a * TIME_COLUMNS + DUE], times[b * TIME_COLUMNS + DUE]);
+            case REMINDER_TIME -> Long.compare(times[a * TIME_COLUMNS + REMINDER], times[b * TIME_COLUMNS + REMINDER]);
+        };
+    }
+
+    /**
+     * Returns every row ordered by the given column, in ascending order. The sort is stable:
+     * rows with equal values keep their row order.
+     * <p>
+     * Each row's value is first copied into a key array, with texts reduced to their first
+     * eight bytes, and the keys are sorted together with the rows, so that the sort reads
+     * memory sequentially. Rows whose text keys tie are then sorted by their next eight
+     * bytes, and so on until the texts differ or end.
+     *
+     * @param column the column to sort by
+     * @return the rows in sorted order
+     */
+    public int[] sortedRows(Column column) {
+        int[] rows = new int[size];
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+            keys[row] = sortKey(row, column);
+        }
+        long[] keyBuffer = new long[size];
+        int[] rowBuffer = new int[size];
+        sortByKey(keys, rows, keyBuffer, rowBuffer, 0, size);
+
+        if (column == Column.TITLE || column == Column.DESCRIPTION) {
+            sortTiedTexts(keys, rows, keyBuffer, rowBuffer, 0, size, column == Column.TITLE ? TITLE : DESCRIPTION, 8);
+        }
+        return rows;
+    }
+
+    /**
+     * Sorts the runs of rows in {@code [from, to)} whose text keys tie by the eight bytes at
+     * the given offset, recursing until the texts differ or end.
+     */
+    private void sortTiedTexts(long[] keys, int[] rows, long[] keyBuffer, int[] rowBuffer, int from, int to,
+                               int textColumn, int offset) {
+        int start = from;
+        while (start < to) {
+            int end = start + 1;
+            while (end < to && keys[end] == keys[start]) {
+                end++;
+            }
+            if (end - start > 1) {
+                int longest = 0;
+                for (int i = start; i < end; i++) {
+                    longest = Math.max(longest, textLengths[rows[i] * TEXT_COLUMNS + textColumn]);
+                }
+                if (offset < longest) {
+                    for (int i = start; i < end; i++) {
+                        keys[i] = textKey(rows[i], textColumn, offset);
+                    }
+                    sortByKey(keys, rows, keyBuffer, rowBuffer, start, end);
+                    sortTiedTexts(keys, rows, keyBuffer, rowBuffer, start, end, textColumn, offset + 8);
+                } else {
+                    // 补零后相同的文本按完整内容和长度排序
+                    mergeSort(rows, rowBuffer, start, end, (a, b) -> compareText(a, b, textColumn));
+                }
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Returns the number of stored tasks.
+     *
+     * @return the number of tasks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all tasks from the table, keeping the allocated arrays.
+     */
+    public void clear() {
+        size = 0;
+        arenaSize = 0;
+        arenaGarbage = 0;
+        Arrays.fill(index, 0);
+    }
+
+    /**
+     * Returns the number of bytes held by the arrays backing this table.
+     *
+     * @return the retained size of the backing arrays
+     */
+    public long getRetainedBytes() {
+        return 8L * (idHigh.length + idLow.length + times.length)
+                + priorities.length + statuses.length
+                + 4L * (textOffsets.length + textLengths.length + index.length)
+                + arena.length;
+    }
+
+    /**
+     * Rewrites the text arena without the bytes of replaced or removed tasks.
+     */
+    public void compactArena() {
+        byte[] compacted = new byte[Math.max(arena.length / 2, arenaSize - arenaGarbage + 64)];
+        int position = 0;
+        for (int i = 0; i < size * TEXT_COLUMNS; i++) {
+            System.arraycopy(arena, textOffsets[i], compacted, position, textLengths[i]);
+            textOffsets[i] = position;
+            position += textLengths[i];
+        }
+        arena = compacted;
+        arenaSize = position;
+        arenaGarbage = 0;
+    }
+
+    /**
+     * A lightweight view of one row of a {@link TaskTable}. Every getter reads from
+     * the table, so a view reflects later changes to its row.
+     */
+    public final class TaskView {
+        private final int row;
+
+        private TaskView(int row) {
+            this.row = row;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getId() {
+            return new UUID(idHigh[row], idLow[row]).toString();
+        }
+
+        public String getTitle() {
+            return text(row, TITLE);
+        }
+
+        public String getDescription() {
+            return text(row, DESCRIPTION);
+        }
+
+        public LocalDateTime getDueDateTime() {
+            return fromMillis(times[row * TIME_COLUMNS + DUE]);
+        }
+
+        public LocalDateTime getReminderTime() {
+            return fromMillis(times[row * TIME_COLUMNS + REMINDER]);
+        }
+
+        public LocalDateTime getCreatedTime() {
+            return fromMillis(times[row * TIME_COLUMNS + CREATED]);
+        }
+
+        public LocalDateTime getLastModifiedTime() {
+            return fromMillis(times[row * TIME_COLUMNS + LAST_MODIFIED]);
+        }
+
+        public Task.TaskPriority getPriority() {
+            return PRIORITIES[priorities[row]];
+        }
+
+        public Task.TaskStatus getStatus() {
+            return STATUSES[statuses[row]];
+        }
+
+        public RecurrenceRule getRecurrence() {
+            String rule = text(row, RECURRENCE);
+            return rule.isEmpty() ? null : RecurrenceRule.parse(rule);
+        }
+
+        /**
+         * Materializes this row as a standalone Task object.
+         *
+         * @return a new task with the values of this row
+         */
+        public Task toTask() {
+            return Task.restore(getId(), getTitle(), getDescription(), getDueDateTime(), getReminderTime(),
+                    getPriority(), getStatus(), getRecurrence(), getCreatedTime(), getLastModifiedTime());
+        }
+    }
+
+    private void putText(int row, int column, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (arenaSize + bytes.length > arena.length) {
+            long grown = Math.max((long) arena.length * 2, (long) arenaSize + bytes.length);
+            if (grown > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Task text arena is full");
+            }
+            arena = Arrays.copyOf(arena, (int) grown);
+        }
+        System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+        textOffsets[row * TEXT_COLUMNS + column] = arenaSize;
+        textLengths[row * TEXT_COLUMNS + column] = bytes.length;
+        arenaSize += bytes.length;
+    }
+
+    private int textLength(int row) {
+        int length = 0;
+        for (int column = 0; column < TEXT_COLUMNS; column++) {
+            length += textLengths[row * TEXT_COLUMNS + column];
+        }
+        return length;
+    }
+
+    private String text(int row, int column) {
+        int i = row * TEXT_COLUMNS + column;
+        return new String(arena, textOffsets[i], textLengths[i], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the sort key of a row: the value itself for times, priorities and statuses, and the
+     * first eight bytes of a text, zero-padded and biased so that signed order is byte order.
+     */
+    private long sortKey(int row, Column column) {
+        switch (column) {
+            case PRIORITY:
+                return priorities[row];
+            case STATUS:
+                return statuses[row];
+            case DUE_DATE_TIME:
+                return times[row * TIME_COLUMNS + DUE];
+            case REMINDER_TIME:
+                return times[row * TIME_COLUMNS + REMINDER];
+            default:
+                return textKey(row, column == Column.TITLE ? TITLE : DESCRIPTION, 0);
+        }
+    }
+
+    /**
+     * Gets the eight bytes of a text at the given offset as a key, zero-padded past the end
+     * of the text and biased so that signed order is unsigned byte order.
+     */
+    private long textKey(int row, int column, int offset) {
+        int i = row * TEXT_COLUMNS + column;
+        long key = 0;
+        for (int b = offset; b < offset + 8; b++) {
+            key <<= 8;
+            if (b < textLengths[i]) {
+                key |= arena[textOffsets[i] + b] & 0xFF;
+            }
+        }
+        return key ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Sorts {@code keys[from, to)} with the rows moved along, stably.
+     */
+    private static void sortByKey(long[] keys, int[] rows, long[] keyBuffer, int[] rowBuffer, int from, int to) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                long key = keys[i];
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && keys[j] > key) {
+                    keys[j + 1] = keys[j];
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                keys[j + 1] = key;
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortByKey(keys, rows, keyBuffer, rowBuffer, from, middle);
+        sortByKey(keys, rows, keyBuffer, rowBuffer, middle, to);
+        if (keys[middle - 1] <= keys[middle]) {
+            return;
+        }
+        System.arraycopy(keys, from, keyBuffer, from, to - from);
+        System.arraycopy(rows, from, rowBuffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && keyBuffer[left] <= keyBuffer[right])) {
+                keys[i] = keyBuffer[left];
+                rows[i] = rowBuffer[left++];
+            } else {
+                keys[i] = keyBuffer[right];
+                rows[i] = rowBuffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Searches one text for a needle byte by byte. UTF-8 never encodes other characters with
+     * ASCII bytes, so a byte match is a character match.
+     */
+    private boolean containsIgnoringAsciiCase(int text, byte[] needle) {
+        if (needle.length == 0) {
+            return true;
+        }
+        byte[] bytes = arena;
+        int last = textOffsets[text] + textLengths[text] - needle.length;
+        byte first = needle[0];
+        byte firstUpper = first >= 'a' && first <= 'z' ? (byte) (first - ('a' - 'A')) : first;
+        for (int i = textOffsets[text]; i <= last; i++) {
+            byte b = bytes[i];
+            if (b != first && b != firstUpper) {
+                continue;
+            }
+            int j = 1;
+            while (j < needle.length && lowerAscii(bytes[i + j]) == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte lowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * Compares the UTF-8 bytes of two texts; unsigned byte order is code point order.
+     */
+    private int compareText(int a, int b, int column) {
+        int i = a * TEXT_COLUMNS + column;
+        int j = b * TEXT_COLUMNS + column;
+        return Arrays.compareUnsigned(arena, textOffsets[i], textOffsets[i] + textLengths[i],
+                arena, textOffsets[j], textOffsets[j] + textLengths[j]);
+    }
+
+    /**
+     * Sorts {@code rows[from, to)} on primitive ints, so that no row is boxed.
+     */
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, IntBinaryOperator comparator) {
+        if (to - from <= 16) {
+            // 小区间使用插入排序
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && comparator.applyAsInt(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, comparator);
+        mergeSort(rows, buffer, middle, to, comparator);
+        if (comparator.applyAsInt(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.applyAsInt(buffer[left], buffer[right]) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= idHigh.length) {
+            return;
+        }
+        int capacity = Math.max(required, idHigh.length * 2);
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        times = Arrays.copyOf(times, capacity * TIME_COLUMNS);
+        priorities = Arrays.copyOf(priorities, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        textOffsets = Arrays.copyOf(textOffsets, capacity * TEXT_COLUMNS);
+        textLengths = Arrays.copyOf(textLengths, capacity * TEXT_COLUMNS);
+
+        // 保持索引负载因子不超过 0.5
+        if (capacity * 2 > index.length) {
+            index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+            for (int row = 0; row < size; row++) {
+                insertIndex(row);
+            }
+        }
+    }
+
+    private int find(long high, long low) {
+        int mask = index.length - 1;
+        for (int slot = hash(high, low) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int row = index[slot] - 1;
+            if (idHigh[row] == high && idLow[row] == low) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void insertIndex(int row) {
+        int mask = index.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = row + 1;
+    }
+
+    /**
+     * Removes the index entry of the given row, shifting later entries of the probe
+     * sequence back so that lookups never need tombstones.
+     */
+    private void removeIndex(int row) {
+        int mask = index.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while (index[slot] != row + 1) {
+            slot = (slot + 1) & mask;
+        }
+        int next = (slot + 1) & mask;
+        while (index[next] != 0) {
+            int other = index[next] - 1;
+            int home = hash(idHigh[other], idLow[other]) & mask;
+            // 仅当 next 的理想位置不在 (slot, next] 区间内时才能前移
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                index[slot] = index[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[slot] = 0;
+    }
+
+    private static int hash(long high, long low) {
+        long h = high ^ low;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+    }
+
+    private static UUID parseId(String taskId) {
+        try {
+            return UUID.fromString(taskId);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Task ID must be a UUID: " + taskId, e);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000L + time.getNano() / 1_000_000;
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,367 @@
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A table model that reads its cells straight from a {@link TaskTable}.
+ * <p>
+ * No per-row objects are kept: each cell is read from the column arrays when the table paints
+ * it, times are returned as {@link LocalDateTime} values and formatted by a
+ * {@link DateTimeRenderer}, and every change fires an event for just the rows or cell it
+ * touched. Together with a {@link TaskRowSorter}, which orders rows on the primitive columns,
+ * the model scales to hundreds of thousands of tasks. Titles and descriptions are kept in a
+ * trigram index, so {@link #search} finds the tasks containing a text without scanning every row.
+ * <p>
+ * Like {@link TaskTable}, this class is not thread-safe and must only be used on the event
+ * dispatch thread.
+ */
+public class TaskTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int COLUMN_ID = 0;
+    public static final int COLUMN_TITLE = 1;
+    public static final int COLUMN_DESCRIPTION = 2;
+    public static final int COLUMN_PRIORITY = 3;
+    public static final int COLUMN_STATUS = 4;
+    public static final int COLUMN_DUE_TIME = 5;
+    public static final int COLUMN_REMINDER_TIME = 6;
+
+    private static final Class<?>[] COLUMN_CLASSES = {
+            String.class, String.class, String.class, Task.TaskPriority.class, Task.TaskStatus.class,
+            LocalDateTime.class, LocalDateTime.class
+    };
+
+    /** The TaskTable column each model column sorts by; the ID column is not sortable. */
+    private static final TaskTable.Column[] SORT_COLUMNS = {
+            null, TaskTable.Column.TITLE, TaskTable.Column.DESCRIPTION, TaskTable.Column.PRIORITY,
+            TaskTable.Column.STATUS, TaskTable.Column.DUE_DATE_TIME, TaskTable.Column.REMINDER_TIME
+    };
+
+    private final TaskTable table = new TaskTable();
+
+    private final TaskSearchIndex searchIndex = new TaskSearchIndex();
+
+    private final String[] columnNames;
+
+    /**
+     * Constructs an empty TaskTableModel.
+     *
+     * @param columnNames the names of the ID, title, description, priority, status, due time and reminder time columns
+     * @throws IllegalArgumentException if not exactly one name per column is given
+     */
+    public TaskTableModel(String... columnNames) {
+        if (columnNames == null || columnNames.length != COLUMN_CLASSES.length) {
+            throw new IllegalArgumentException("Exactly " + COLUMN_CLASSES.length + " column names are required");
+        }
+        this.columnNames = columnNames.clone();
+    }
+
+    @Override
+    public int getRowCount() {
+        return table.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_CLASSES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        TaskTable.TaskView view = table.view(row);
+        return switch (column) {
+            case COLUMN_ID -> view.getId();
+            case COLUMN_TITLE -> view.getTitle();
+            case COLUMN_DESCRIPTION -> view.getDescription();
+            case COLUMN_PRIORITY -> view.getPriority();
+            case COLUMN_STATUS -> view.getStatus();
+            case COLUMN_DUE_TIME -> view.getDueDateTime();
+            case COLUMN_REMINDER_TIME -> view.getReminderTime();
+            default -> throw new IndexOutOfBoundsException("Column " + column + " out of bounds");
+        };
+    }
+
+    /**
+     * Gets the ID of the task in the given row.
+     *
+     * @param row the model row
+     * @return the task ID
+     */
+    public String getTaskId(int row) {
+        return table.view(row).getId();
+    }
+
+    /**
+     * Finds the row of the task with the given ID.
+     *
+     * @param taskId the task ID
+     * @return the model row, or -1 if the task is not in the model
+     */
+    public int rowOf(String taskId) {
+        return table.rowOf(taskId);
+    }
+
+    /**
+     * Adds a task, or replaces the row of the task with the same ID.
+     *
+     * @param task the task to show
+     */
+    public void putTask(Task task) {
+        int before = table.size();
+        int row = put(task);
+        if (row >= before) {
+            fireTableRowsInserted(row, row);
+        } else {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Adds or replaces many tasks at once. Each replaced row is announced as soon as it is
+     * written, so that listeners such as a {@link TaskRowSorter} never see a row whose new
+     * value has not been announced yet; the new tasks are then added and announced in a single
+     * insertion event.
+     *
+     * @param tasks the tasks to show
+     */
+    public void putTasks(Collection<Task> tasks) {
+        List<Task> added = new ArrayList<>();
+        for (Task task : tasks) {
+            if (table.rowOf(task.getId()) >= 0) {
+                int row = put(task);
+                fireTableRowsUpdated(row, row);
+            } else {
+                added.add(task);
+            }
+        }
+        int before = table.size();
+        for (Task task : added) {
+            put(task);
+        }
+        if (table.size() > before) {
+            fireTableRowsInserted(before, table.size() - 1);
+        }
+    }
+
+    /**
+     * Changes the status shown for a task.
+     *
+     * @param taskId the task ID
+     * @param status the new status
+     * @return true if the task is in the model
+     */
+    public boolean setStatus(String taskId, Task.TaskStatus status) {
+        int row = table.rowOf(taskId);
+        if (row < 0) {
+            return false;
+        }
+        table.setStatus(row, status);
+        fireTableCellUpdated(row, COLUMN_STATUS);
+        return true;
+    }
+
+    /**
+     * Changes the statuses shown for many tasks at once, announced as a single update of the
+     * status cells between the first and the last changed row.
+     *
+     * @param statuses the new status of each task, by task ID; tasks not in the model are ignored
+     */
+    public void setStatuses(Map<String, Task.TaskStatus> statuses) {
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for (Map.Entry<String, Task.TaskStatus> entry : statuses.entrySet()) {
+            int row = table.rowOf(entry.getKey());
+            if (row >= 0) {
+                table.setStatus(row, entry.getValue());
+                first = Math.min(first, row);
+                last = Math.max(last, row);
+            }
+        }
+        if (last >= 0) {
+            fireTableChanged(new TableModelEvent(this, first, last, COLUMN_STATUS));
+        }
+    }
+
+    /**
+     * Removes a task. The last row takes the place of the removed one, so the change is
+     * announced as the deletion of the last row and an update of the removed row.
+     *
+     * @param taskId the task ID
+     * @return true if the task was removed
+     */
+    public boolean removeTask(String taskId) {
+        int row = table.rowOf(taskId);
+        if (row < 0) {
+            return false;
+        }
+        int last = table.size() - 1;
+        TaskTable.TaskView removed = table.view(row);
+        searchIndex.remove(row, removed.getTitle(), removed.getDescription());
+        if (row != last) {
+            // 最后一行移到被删除的位置，按新行号重新索引
+            TaskTable.TaskView moved = table.view(last);
+            String title = moved.getTitle();
+            String description = moved.getDescription();
+            searchIndex.remove(last, title, description);
+            searchIndex.add(row, title, description);
+        }
+        table.remove(taskId);
+        fireTableRowsDeleted(last, last);
+        if (row != last) {
+            fireTableRowsUpdated(row, row);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every task.
+     */
+    public void clear() {
+        table.clear();
+        searchIndex.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Finds the rows whose title or description contains the given text, ignoring the case of
+     * ASCII letters. The trigram index narrows the rows down, and only for texts longer than
+     * three characters are the remaining rows checked against their texts.
+     *
+     * @param text the text to search for
+     * @return the model rows of the matching tasks; every row if the text is empty
+     */
+    public BitSet search(String text) {
+        return search(text, null);
+    }
+
+    /**
+     * Finds the rows among the given ones whose title or description contains the given text.
+     * While the user types, each query extends the previous one, so only the previous matches
+     * need to be searched.
+     *
+     * @param text   the text to search for
+     * @param within the rows to search, or null to search every row
+     * @return the model rows of the matching tasks
+     */
+    public BitSet search(String text, BitSet within) {
+        String query = TaskSearchIndex.normalize(text);
+        BitSet rows = searchIndex.search(query, table.size());
+        if (within != null) {
+            rows.and(within);
+        }
+        if (!TaskSearchIndex.isExact(query)) {
+            byte[] needle = query.getBytes(StandardCharsets.UTF_8);
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                if (!table.textContains(row, needle)) {
+                    rows.clear(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Checks whether the title or description of one row contains the given text, ignoring
+     * the case of ASCII letters.
+     *
+     * @param row  the model row
+     * @param text the text to search for
+     * @return true if the row matches
+     */
+    public boolean matches(int row, String text) {
+        return table.textContains(row, TaskSearchIndex.normalize(text).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stores a task and keeps the search index up to date. The texts of an existing row are
+     * re-indexed only if they changed, which status and time changes do not.
+     */
+    private int put(Task task) {
+        int existing = table.rowOf(task.getId());
+        String title = task.getTitle();
+        String description = task.getDescription();
+        if (existing >= 0) {
+            TaskTable.TaskView view = table.view(existing);
+            String oldTitle = view.getTitle();
+            String oldDescription = view.getDescription();
+            if (oldTitle.equals(title) && oldDescription.equals(description)) {
+                return table.put(task);
+            }
+            searchIndex.remove(existing, oldTitle, oldDescription);
+        }
+        int row = table.put(task);
+        searchIndex.add(row, title, description);
+        return row;
+    }
+
+    /**
+     * Gets the TaskTable column that a model column sorts by.
+     *
+     * @param column the model column
+     * @return the sort column, or null if the column is not sortable
+     */
+    TaskTable.Column getSortColumn(int column) {
+        return column >= 0 && column < SORT_COLUMNS.length ? SORT_COLUMNS[column] : null;
+    }
+
+    TaskTable getTable() {
+        return table;
+    }
+
+    /**
+     * Renders {@link LocalDateTime} cells with a formatter, formatting each distinct time only
+     * once while it stays in a small cache. Only visible cells are rendered, and most of them
+     * share a handful of times, so scrolling formats very few values.
+     */
+    public static class DateTimeRenderer extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        private static final int CACHE_SIZE = 512;
+
+        private final DateTimeFormatter formatter;
+
+        private final Map<LocalDateTime, String> formatted = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDateTime, String> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+        /**
+         * Constructs a DateTimeRenderer.
+         *
+         * @param formatter the formatter of the displayed times
+         */
+        public DateTimeRenderer(DateTimeFormatter formatter) {
+            this.formatter = formatter;
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            if (value instanceof LocalDateTime time) {
+                setText(formatted.computeIfAbsent(time, formatter::format));
+            } else {
+                super.setValue(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects task changes and due reminders from any thread and applies them to a
+ * {@link TaskTableModel} once per frame.
+ * <p>
+ * Posting an event only records it; the first event after a flush starts a one-shot Swing
+ * timer, and when it fires all events collected during the frame are applied together on the
+ * event dispatch thread. Repeated changes of the same task within a frame collapse into the
+ * latest one, changed tasks reach the model in a single {@link TaskTableModel#putTasks} call,
+ * status changes in a single {@link TaskTableModel#setStatuses} call, and the reminders that
+ * came due are handed to the {@link ReminderListener} as one list, so a burst of thousands of
+ * reminders costs a handful of events on the event queue instead of one per reminder.
+ */
+final class TaskUpdateBus {
+    /** The default interval between flushes, about one frame at 60 Hz. */
+    static final int FRAME_MILLIS = 16;
+
+    /**
+     * Receives the reminders that came due during one frame, on the event dispatch thread.
+     */
+    public interface ReminderListener {
+        /**
+         * Called once per frame in which reminders came due.
+         *
+         * @param tasks the tasks whose reminders came due, in the order they were posted
+         */
+        void onRemindersDue(List<Task> tasks);
+    }
+
+    private final TaskTableModel model;
+
+    private final ReminderListener reminderListener;
+
+    private final Timer timer;
+
+    private Map<String, Task> changedTasks = new LinkedHashMap<>();
+
+    private Map<String, Task.TaskStatus> changedStatuses = new LinkedHashMap<>();
+
+    private Set<String> removedTasks = new HashSet<>();
+
+    private List<Task> dueTasks = new ArrayList<>();
+
+    private List<CompletableFuture<Void>> dueDeliveries = new ArrayList<>();
+
+    /** Whether a flush has been requested since the last one; guarded by this. */
+    private boolean flushScheduled;
+
+    /** The time each flush spends updating the model, or null if no metrics are recorded. */
+    private volatile TaskMetrics.Histogram updateTime;
+
+    /**
+     * Constructs a TaskUpdateBus that flushes every {@link #FRAME_MILLIS} milliseconds.
+     *
+     * @param model            the model that receives the changes
+     * @param reminderListener notified of the reminders that came due
+     */
+    TaskUpdateBus(TaskTableModel model, ReminderListener reminderListener) {
+        this(model, FRAME_MILLIS, reminderListener);
+    }
+
+    /**
+     * Constructs a TaskUpdateBus.
+     *
+     * @param model            the model that receives the changes
+     * @param frameMillis      the time from the first event of a frame to its flush
+     * @param reminderListener notified of the reminders that came due
+     * @throws IllegalArgumentException if the frame time is negative
+     */
+    TaskUpdateBus(TaskTableModel model, int frameMillis, ReminderListener reminderListener) {
+        if (frameMillis < 0) {
+            throw new IllegalArgumentException("Frame time cannot be negative");
+        }
+        this.model = model;
+        this.reminderListener = reminderListener;
+        this.timer = new Timer(frameMillis, e -> flush());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Shows the current attributes of a task, adding it if the model does not have it yet.
+     *
+     * @param task the changed task
+     */
+    void taskChanged(Task task) {
+        synchronized (this) {
+            String id = task.getId();
+            changedTasks.put(id, task);
+            // 整行更新已包含最新状态
+            changedStatuses.remove(id);
+            removedTasks.remove(id);
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Shows a new status for a task.
+     *
+     * @param taskId the task ID
+     * @param status the new status
+     */
+    void statusChanged(String taskId, Task.TaskStatus status) {
+        synchronized (this) {
+            if (!removedTasks.contains(taskId)) {
+                changedStatuses.put(taskId, status);
+            }
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Removes a task from the model.
+     *
+     * @param taskId the task ID
+     */
+    void taskRemoved(String taskId) {
+        synchronized (this) {
+            changedTasks.remove(taskId);
+            changedStatuses.remove(taskId);
+            removedTasks.add(taskId);
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Reports a reminder that came due. It is passed to the reminder listener at the end of the frame.
+     *
+     * @param task the task whose reminder came due
+     * @return completes once the listener has received the reminder, or exceptionally if the listener failed
+     */
+    CompletableFuture<Void> reminderDue(Task task) {
+        CompletableFuture<Void> delivery = new CompletableFuture<>();
+        synchronized (this) {
+            dueTasks.add(task);
+            dueDeliveries.add(delivery);
+        }
+        scheduleFlush();
+        return delivery;
+    }
+
+    /**
+     * Records the time each flush spends updating the model on the event dispatch thread in
+     * the given registry. The time spent in the reminder listener is not included, since it
+     * may wait for the user.
+     *
+     * @param metrics the metrics registry
+     */
+    void setMetrics(TaskMetrics metrics) {
+        updateTime = metrics.histogram("task_gui_update_seconds",
+                "Time the event dispatch thread spends applying one frame of task changes to the table.");
+    }
+
+    /**
+     * Applies every event collected since the last flush. Called by the frame timer, and may
+     * be called directly on the event dispatch thread to apply pending events at once.
+     */
+    void flush() {
+        Map<String, Task> tasks;
+        Map<String, Task.TaskStatus> statuses;
+        Set<String> removed;
+        List<Task> due;
+        List<CompletableFuture<Void>> deliveries;
+        synchronized (this) {
+            tasks = changedTasks;
+            statuses = changedStatuses;
+            removed = removedTasks;
+            due = dueTasks;
+            deliveries = dueDeliveries;
+            changedTasks = new LinkedHashMap<>();
+            changedStatuses = new LinkedHashMap<>();
+            removedTasks = new HashSet<>();
+            dueTasks = new ArrayList<>();
+            dueDeliveries = new ArrayList<>();
+            flushScheduled = false;
+        }
+
+        long start = System.nanoTime();
+        model.putTasks(tasks.values());
+        model.setStatuses(statuses);
+        for (String taskId : removed) {
+            model.removeTask(taskId);
+        }
+        TaskMetrics.Histogram histogram = updateTime;
+        if (histogram != null) {
+            histogram.recordSince(start);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        try {
+            reminderListener.onRemindersDue(due);
+        } catch (RuntimeException e) {
+            deliveries.forEach(delivery -> delivery.completeExceptionally(e));
+            return;
+        }
+        deliveries.forEach(delivery -> delivery.complete(null));
+    }
+
+    /**
+     * Gets the number of events waiting for the next flush.
+     *
+     * @return the number of pending task changes, status changes, removals and reminders
+     */
+    synchronized int getPendingCount() {
+        return changedTasks.size() + changedStatuses.size() + removedTasks.size() + dueTasks.size();
+    }
+
+    /**
+     * Starts the frame timer on the event dispatch thread unless a flush is already pending.
+     */
+    private void scheduleFlush() {
+        synchronized (this) {
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        SwingUtilities.invokeLater(timer::restart);
+    }
+}
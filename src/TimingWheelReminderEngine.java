@@ -0,0 +1,276 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReminderEngine} backed by a hierarchical timing wheel.
+ * <p>
+ * Time is divided into ticks of {@code tickMillis}. Level 0 has one bucket per tick, and each
+ * higher level has buckets that span a whole revolution of the level below. A reminder goes
+ * into the lowest level whose range covers its deadline and is moved down one level when the
+ * wheel reaches its bucket, so scheduling and cancelling are O(1) and each reminder is moved
+ * at most {@code levels} times. Reminders beyond the range of the top level are re-filed
+ * every top-level revolution.
+ * <p>
+ * Buckets are intrusive doubly linked lists, so a pending reminder costs one small node and
+ * a cancelled reminder is unlinked immediately instead of staying in a queue.
+ * Reminders fire on the single wheel thread, with a precision of one tick. The thread
+ * sleeps while no reminder is pending. Reminders still pending at shutdown are discarded.
+ */
+public class TimingWheelReminderEngine implements ReminderEngine {
+    private final long tickNanos;
+
+    private final int wheelBits;
+
+    private final int levels;
+
+    private final int mask;
+
+    /** Bucket heads, indexed by {@code level * wheelSize + slot}. */
+    private final Node[] buckets;
+
+    private final long startNanos;
+
+    private final Thread wheelThread;
+
+    private final Object lock = new Object();
+
+    /** The last tick whose level-0 bucket has been expired. Guarded by {@code lock}. */
+    private long currentTick;
+
+    private int pending;
+
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a TimingWheelReminderEngine with a 10 ms tick and four levels of 512 buckets.
+     */
+    public TimingWheelReminderEngine() {
+        this(10, 512, 4);
+    }
+
+    /**
+     * Constructs a TimingWheelReminderEngine.
+     *
+     * @param tickMillis the duration of one tick, which is also the firing precision
+     * @param wheelSize  the number of buckets per level; must be a power of two
+     * @param levels     the number of levels
+     * @throws IllegalArgumentException if any parameter is out of range
+     */
+    public TimingWheelReminderEngine(long tickMillis, int wheelSize, int levels) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        if (levels < 1 || (long) levels * Integer.numberOfTrailingZeros(wheelSize) > 62) {
+            throw new IllegalArgumentException("Invalid number of levels");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.levels = levels;
+        this.mask = wheelSize - 1;
+        this.buckets = new Node[levels * wheelSize];
+        this.startNanos = System.nanoTime();
+
+        this.wheelThread = new Thread(this::run, "timing-wheel");
+        this.wheelThread.setDaemon(true);
+        this.wheelThread.start();
+    }
+
+    @Override
+    public Handle schedule(Runnable action, long delay, TimeUnit unit) {
+        if (action == null) {
+            throw new IllegalArgumentException("Action cannot be null");
+        }
+        if (!running) {
+            throw new IllegalStateException("Reminder engine has been shut down");
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        // 向上取整，保证提醒不会早于指定时间触发
+        long deadlineTick = (elapsed + Math.max(0, unit.toNanos(delay)) + tickNanos - 1) / tickNanos;
+
+        Node node = new Node(action, deadlineTick);
+        synchronized (lock) {
+            if (pending == 0) {
+                // 时间轮空闲时直接跳到当前时刻，不必逐个补齐空闲期间的刻度
+                currentTick = Math.max(currentTick, elapsed / tickNanos);
+                lock.notifyAll();
+            }
+            node.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+            insert(node);
+            pending++;
+        }
+        return node;
+    }
+
+    @Override
+    public int pendingCount() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        wheelThread.interrupt();
+        try {
+            wheelThread.join(TimeUnit.SECONDS.toMillis(60));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            Arrays.fill(buckets, null);
+            pending = 0;
+        }
+    }
+
+    /**
+     * Advances the wheel one tick at a time and runs the reminders that expire.
+     */
+    private void run() {
+        List<Runnable> expired = new ArrayList<>();
+        while (running) {
+            long nextTick;
+            synchronized (lock) {
+                try {
+                    while (pending == 0 && running) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                nextTick = currentTick + 1;
+            }
+            long sleepNanos = startNanos + nextTick * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+
+            synchronized (lock) {
+                advance(expired);
+            }
+            for (Runnable action : expired) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * Moves the wheel to the next tick: higher-level buckets that start at this tick are
+     * re-filed into lower levels, then the level-0 bucket of the tick is expired.
+     */
+    private void advance(List<Runnable> expired) {
+        long tick = ++currentTick;
+        for (int level = levels - 1; level >= 1; level--) {
+            int shift = level * wheelBits;
+            if ((tick & ((1L << shift) - 1)) == 0) {
+                Node node = detach(level, (int) ((tick >>> shift) & mask));
+                while (node != null) {
+                    Node next = node.next;
+                    insert(node);
+                    node = next;
+                }
+            }
+        }
+
+        Node node = detach(0, (int) (tick & mask));
+        while (node != null) {
+            Node next = node.next;
+            if (node.deadlineTick <= tick) {
+                node.bucket = -1;
+                pending--;
+                expired.add(node.action);
+            } else {
+                insert(node);
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * Files a node into the lowest level whose range covers its deadline.
+     */
+    private void insert(Node node) {
+        long delta = node.deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << ((level + 1) * wheelBits))) {
+            level++;
+        }
+        int slot = (int) ((node.deadlineTick >>> (level * wheelBits)) & mask);
+        int bucket = level * (mask + 1) + slot;
+
+        node.bucket = bucket;
+        node.prev = null;
+        node.next = buckets[bucket];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        buckets[bucket] = node;
+    }
+
+    /**
+     * Removes every node from a bucket and returns the former head of its list.
+     */
+    private Node detach(int level, int slot) {
+        int bucket = level * (mask + 1) + slot;
+        Node head = buckets[bucket];
+        buckets[bucket] = null;
+        return head;
+    }
+
+    /**
+     * A pending reminder; also the handle returned to the caller.
+     */
+    private final class Node implements Handle {
+        private final Runnable action;
+
+        private long deadlineTick;
+
+        /** The bucket holding this node, or -1 once it fired or was cancelled. */
+        private int bucket;
+
+        private Node prev;
+
+        private Node next;
+
+        private Node(Runnable action, long deadlineTick) {
+            this.action = action;
+            this.deadlineTick = deadlineTick;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (lock) {
+                if (bucket < 0) {
+                    return false;
+                }
+                if (prev != null) {
+                    prev.next = next;
+                } else if (buckets[bucket] == this) {
+                    buckets[bucket] = next;
+                }
+                if (next != null) {
+                    next.prev = prev;
+                }
+                bucket = -1;
+                prev = null;
+                next = null;
+                pending--;
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket rate limiter. Tokens are added at a fixed rate up to a burst capacity,
+ * and each {@link #acquire()} takes one token, waiting for it if the bucket is empty.
+ */
+final class TokenBucket {
+    private final double tokensPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    /**
+     * Constructs a TokenBucket that starts full.
+     *
+     * @param permitsPerSecond the rate at which tokens are added
+     * @param burst            the maximum number of tokens held
+     * @throws IllegalArgumentException if the rate or the burst is not positive
+     */
+    TokenBucket(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes one token, waiting until one is available.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            // 预支一个令牌，在锁外等待其补足，后续调用者排在其后
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
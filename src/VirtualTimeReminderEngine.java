@@ -0,0 +1,231 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ReminderEngine} that runs on virtual time, for tests and simulations.
+ * <p>
+ * Time only moves when {@link #advance} or {@link #advanceTo} is called. Reminders that come
+ * due are then run on the calling thread in deadline order, with the {@link #clock()} set to
+ * each reminder's deadline while it runs, so a {@link TaskScheduler} built on this engine sees
+ * exactly the times it asked for. Reminders with the same deadline run in the order they were
+ * scheduled. A month of reminders can be simulated as fast as the reminders themselves run.
+ */
+public class VirtualTimeReminderEngine implements ReminderEngine {
+    private final Clock clock;
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    /** The current virtual time in nanoseconds since the epoch. Written under the engine lock. */
+    private volatile long nowNanos;
+
+    private long sequence;
+
+    private int pending;
+
+    private long firedCount;
+
+    private boolean running = true;
+
+    /**
+     * Constructs a VirtualTimeReminderEngine.
+     *
+     * @param start the virtual time at which the engine starts
+     * @param zone  the time zone of the engine's clock
+     * @throws IllegalArgumentException if start or zone is null
+     */
+    public VirtualTimeReminderEngine(Instant start, ZoneId zone) {
+        if (start == null || zone == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        this.nowNanos = toNanos(start);
+        this.clock = new VirtualClock(zone);
+    }
+
+    @Override
+    public synchronized Handle schedule(Runnable action, long delay, TimeUnit unit) {
+        if (action == null) {
+            throw new IllegalArgumentException("Action cannot be null");
+        }
+        if (!running) {
+            throw new IllegalStateException("Reminder engine has been shut down");
+        }
+        Entry entry = new Entry(action, nowNanos + Math.max(0, unit.toNanos(delay)), sequence++);
+        queue.add(entry);
+        pending++;
+        return entry;
+    }
+
+    @Override
+    public synchronized int pendingCount() {
+        return pending;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        running = false;
+        queue.clear();
+        pending = 0;
+    }
+
+    /**
+     * Returns a clock that reads the engine's virtual time.
+     *
+     * @return the virtual clock
+     */
+    @Override
+    public Clock clock() {
+        return clock;
+    }
+
+    /**
+     * Moves virtual time forward by the given amount, running the reminders that come due.
+     *
+     * @param duration how far to move time forward
+     * @return the number of reminders run
+     * @throws IllegalArgumentException if duration is negative
+     */
+    public int advance(Duration duration) {
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Duration cannot be negative");
+        }
+        long target;
+        synchronized (this) {
+            target = nowNanos + duration.toNanos();
+        }
+        return runUntil(target);
+    }
+
+    /**
+     * Moves virtual time forward to the given instant, running the reminders that come due.
+     *
+     * @param instant the instant to move to
+     * @return the number of reminders run
+     * @throws IllegalArgumentException if the instant is before the current virtual time
+     */
+    public int advanceTo(Instant instant) {
+        long target = toNanos(instant);
+        synchronized (this) {
+            if (target < nowNanos) {
+                throw new IllegalArgumentException("Cannot move virtual time backwards");
+            }
+        }
+        return runUntil(target);
+    }
+
+    /**
+     * Gets the number of reminders run since the engine was created.
+     *
+     * @return the number of fired reminders
+     */
+    public synchronized long getFiredCount() {
+        return firedCount;
+    }
+
+    /**
+     * Runs every reminder due at or before the target time, including reminders that the
+     * running reminders schedule themselves, then sets the clock to the target time.
+     */
+    private int runUntil(long targetNanos) {
+        int fired = 0;
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = queue.peek();
+                if (entry == null || entry.deadlineNanos > targetNanos) {
+                    nowNanos = targetNanos;
+                    return fired;
+                }
+                queue.poll();
+                if (entry.cancelled) {
+                    continue;
+                }
+                entry.fired = true;
+                pending--;
+                firedCount++;
+                nowNanos = entry.deadlineNanos;
+            }
+            // 在锁外运行，提醒可以安排新的提醒
+            try {
+                entry.action.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            fired++;
+        }
+    }
+
+    private static long toNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    /**
+     * A pending reminder; also the handle returned to the caller.
+     */
+    private final class Entry implements Handle, Comparable<Entry> {
+        private final Runnable action;
+
+        private final long deadlineNanos;
+
+        private final long sequence;
+
+        private boolean cancelled;
+
+        private boolean fired;
+
+        private Entry(Runnable action, long deadlineNanos, long sequence) {
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (VirtualTimeReminderEngine.this) {
+                if (cancelled || fired || !running) {
+                    return false;
+                }
+                // 延迟移除：出队时跳过已取消的提醒
+                cancelled = true;
+                pending--;
+                return true;
+            }
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byDeadline = Long.compare(deadlineNanos, other.deadlineNanos);
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * A clock that reads the engine's virtual time.
+     */
+    private final class VirtualClock extends Clock {
+        private final ZoneId clockZone;
+
+        private VirtualClock(ZoneId clockZone) {
+            this.clockZone = clockZone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return clockZone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId newZone) {
+            return newZone.equals(clockZone) ? this : new VirtualClock(newZone);
+        }
+
+        @Override
+        public Instant instant() {
+            long now = nowNanos;
+            return Instant.ofEpochSecond(Math.floorDiv(now, 1_000_000_000L), Math.floorMod(now, 1_000_000_000L));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+
+public class RecurrenceRuleTest {
+
+    @Test
+    public void testParseAndFormatRoundTrip() {
+        RecurrenceRule rule = RecurrenceRule.parse("rrule:freq=weekly;byday=we,mo;interval=2;until=20251231T235959");
+
+        assertThat(rule.getFrequency()).isEqualTo(RecurrenceRule.Frequency.WEEKLY);
+        assertThat(rule.getInterval()).isEqualTo(2);
+        assertThat(rule.getByDay()).containsExactly(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY);
+        assertThat(rule.getUntil()).isEqualTo(LocalDateTime.of(2025, 12, 31, 23, 59, 59));
+        // 规范形式可以再次解析为相同的规则
+        assertThat(rule.toString()).isEqualTo("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;UNTIL=20251231T235959");
+        assertThat(RecurrenceRule.parse(rule.toString())).isEqualTo(rule);
+    }
+
+    @Test
+    public void testParseRejectsUnsupportedRules() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> RecurrenceRule.parse("FREQ=DAILY;COUNT=3"));
+        assertThat(e).hasMessageThat().isEqualTo("Unsupported recurrence rule part: COUNT");
+
+        e = assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("INTERVAL=2"));
+        assertThat(e).hasMessageThat().isEqualTo("Recurrence rule must have a FREQ");
+
+        e = assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=DAILY;BYDAY=MO"));
+        assertThat(e).hasMessageThat().isEqualTo("BYDAY is only supported with FREQ=WEEKLY");
+
+        e = assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=DAILY;INTERVAL=0"));
+        assertThat(e).hasMessageThat().isEqualTo("Interval must be positive");
+
+        e = assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=HOURLY;INTERVAL=x"));
+        assertThat(e).hasMessageThat().isEqualTo("Invalid recurrence rule part: INTERVAL=X");
+    }
+
+    @Test
+    public void testNextDailySkipsMissedOccurrences() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=DAILY;INTERVAL=2");
+        LocalDateTime occurrence = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+        assertThat(rule.next(occurrence, occurrence)).isEqualTo(LocalDateTime.of(2024, 1, 3, 9, 0));
+        // 离线十天后只计算下一次，不逐次补齐
+        assertThat(rule.next(occurrence, LocalDateTime.of(2024, 1, 11, 8, 0))).isEqualTo(LocalDateTime.of(2024, 1, 11, 9, 0));
+        assertThat(rule.next(occurrence, LocalDateTime.of(2024, 1, 11, 9, 0))).isEqualTo(LocalDateTime.of(2024, 1, 13, 9, 0));
+        // 尚未到达的发生时间就是下一次
+        assertThat(rule.next(occurrence, LocalDateTime.of(2023, 12, 31, 0, 0))).isEqualTo(occurrence);
+    }
+
+    @Test
+    public void testNextWeeklyOnSeveralDays() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,FR");
+        // 2024-01-03 是星期三
+        LocalDateTime occurrence = LocalDateTime.of(2024, 1, 3, 18, 30);
+
+        assertThat(rule.next(occurrence, occurrence)).isEqualTo(LocalDateTime.of(2024, 1, 5, 18, 30));
+        // 下一个周期从两周后的星期一开始
+        assertThat(rule.next(occurrence, LocalDateTime.of(2024, 1, 5, 18, 30))).isEqualTo(LocalDateTime.of(2024, 1, 15, 18, 30));
+        assertThat(rule.next(occurrence, LocalDateTime.of(2024, 1, 20, 0, 0))).isEqualTo(LocalDateTime.of(2024, 1, 29, 18, 30));
+    }
+
+    @Test
+    public void testNextMonthlySkipsMonthsWithoutTheDay() {
+        RecurrenceRule rule = RecurrenceRule.monthly();
+        LocalDateTime occurrence = LocalDateTime.of(2024, 1, 31, 8, 0);
+
+        assertThat(rule.next(occurrence, occurrence)).isEqualTo(LocalDateTime.of(2024, 3, 31, 8, 0));
+        assertThat(rule.next(occurrence, LocalDateTime.of(2024, 3, 31, 8, 0))).isEqualTo(LocalDateTime.of(2024, 5, 31, 8, 0));
+
+        RecurrenceRule leapDay = RecurrenceRule.parse("FREQ=YEARLY");
+        assertThat(leapDay.next(LocalDateTime.of(2024, 2, 29, 8, 0), LocalDateTime.of(2024, 3, 1, 0, 0)))
+                .isEqualTo(LocalDateTime.of(2028, 2, 29, 8, 0));
+    }
+
+    @Test
+    public void testNextReturnsNullAfterUntil() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=HOURLY;UNTIL=20240101T120000");
+        LocalDateTime occurrence = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+        assertThat(rule.next(occurrence, occurrence)).isEqualTo(LocalDateTime.of(2024, 1, 1, 11, 0));
+        assertThat(rule.next(occurrence, LocalDateTime.of(2024, 1, 1, 11, 0))).isEqualTo(LocalDateTime.of(2024, 1, 1, 12, 0));
+        assertThat(rule.next(occurrence, LocalDateTime.of(2024, 1, 1, 12, 0))).isNull();
+    }
+}
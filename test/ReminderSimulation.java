@@ -0,0 +1,78 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+/**
+ * Deterministic simulation of a month of reminders on a {@link VirtualTimeReminderEngine}.
+ * Run with {@code java -Xms4g -Xmx4g ReminderSimulation [tasks] [days]}; defaults to 1M tasks over 30 days.
+ * <p>
+ * Every task gets a reminder at a random millisecond within the simulated period and a due
+ * time on a whole minute up to two days later. Virtual time is then advanced one hour at a time
+ * through a {@link TaskScheduler} with inline delivery, and the simulation reports the scheduling
+ * and firing throughput, the number of reminders delivered early or not at all, the maximum
+ * lateness measured on the virtual clock, and how many tasks became overdue.
+ * The same seed always produces the same output apart from the timings.
+ */
+public class ReminderSimulation {
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    public static void main(String[] args) {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(START, ZoneOffset.UTC);
+        Clock clock = engine.clock();
+        long[] delivered = new long[1];
+        long[] early = new long[1];
+        long[] maxLatenessNanos = new long[1];
+        long[] overdue = new long[1];
+        long[] sweeps = new long[1];
+        TaskScheduler scheduler = new TaskScheduler(task -> {
+            // 以虚拟时钟衡量每个提醒的延迟
+            long latenessNanos = Duration.between(task.getReminderTime(), LocalDateTime.now(clock)).toNanos();
+            if (latenessNanos < 0) {
+                early[0]++;
+            }
+            maxLatenessNanos[0] = Math.max(maxLatenessNanos[0], latenessNanos);
+            delivered[0]++;
+        }, engine, ReminderDispatcher.inline());
+        scheduler.setOverdueListener(overdueTaskIds -> {
+            overdue[0] += overdueTaskIds.size();
+            sweeps[0]++;
+        });
+
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.now(clock);
+        long periodMillis = Duration.ofDays(days).toMillis();
+        long scheduleStart = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            LocalDateTime reminderTime = start.plusNanos((1 + (long) (random.nextDouble() * (periodMillis - 1))) * 1_000_000
+                    + random.nextInt(1_000_000));
+            // 截止时间与界面一致精确到分钟，同一分钟到期的任务由一次逾期扫描处理
+            LocalDateTime dueDateTime = reminderTime.plusHours(1 + random.nextInt(48)).truncatedTo(ChronoUnit.MINUTES);
+            scheduler.scheduleTask(new Task("Task " + i, "", dueDateTime, reminderTime,
+                    Task.TaskPriority.values()[random.nextInt(3)], clock));
+        }
+        long scheduleNanos = System.nanoTime() - scheduleStart;
+
+        long runStart = System.nanoTime();
+        int busiestHour = 0;
+        for (long hour = 0; hour < days * 24L; hour++) {
+            busiestHour = Math.max(busiestHour, engine.advance(Duration.ofHours(1)));
+        }
+        long runNanos = System.nanoTime() - runStart;
+        scheduler.shutdown();
+
+        System.out.printf("tasks:                %d over %d days%n", tasks, days);
+        System.out.printf("schedule:             %.1f s (%.0f tasks/s)%n", scheduleNanos / 1e9, tasks / (scheduleNanos / 1e9));
+        System.out.printf("simulate:             %.1f s (%.0f reminders/s)%n", runNanos / 1e9, delivered[0] / (runNanos / 1e9));
+        System.out.printf("delivered:            %d, missed %d, early %d%n", delivered[0], tasks - delivered[0], early[0]);
+        System.out.printf("max lateness:         %.3f ms%n", maxLatenessNanos[0] / 1e6);
+        System.out.printf("overdue:              %d tasks in %d sweeps%n", overdue[0], sweeps[0]);
+        System.out.printf("busiest virtual hour: %d timers%n", busiestHour);
+    }
+}
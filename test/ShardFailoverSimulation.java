@@ -0,0 +1,171 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Failover test of reminder shard leases with several scheduler JVMs on one machine.
+ * Run with {@code java -cp <classes and sqlite-jdbc> ShardFailoverSimulation [processes] [tasks] [seconds]};
+ * defaults to 3 processes and 600 tasks over 30 seconds.
+ * <p>
+ * The simulation seeds a fresh tasks.db in a temporary directory with tasks whose reminders are
+ * spread over the run, then starts the processes on it, each running a {@link TaskScheduler}
+ * with sharding, a reminder horizon and catch-up enabled, as the GUI and the daemon do. A third of the way through, one
+ * process is killed without releasing its leases. Every process prints a line per delivered
+ * reminder, from which the simulation reports duplicate and missing deliveries and the lateness
+ * of the reminders that came due while the killed process's shards were orphaned.
+ */
+public class ShardFailoverSimulation {
+    private static final int SHARDS = 16;
+
+    private static final Duration LEASE = Duration.ofSeconds(3);
+
+    private static final Duration START_DELAY = Duration.ofSeconds(5);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("seed")) {
+            seed(Integer.parseInt(args[1]), Long.parseLong(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("run")) {
+            run();
+            return;
+        }
+
+        int processes = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int tasks = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        // tasks.db 位于工作目录下，所有子进程共用临时目录中的同一个数据库
+        File dir = Files.createTempDirectory("shard-failover").toFile();
+        long start = System.currentTimeMillis() + START_DELAY.toMillis();
+        if (child(dir, "seed", String.valueOf(tasks), String.valueOf(start), String.valueOf(seconds)).waitFor() != 0) {
+            throw new IllegalStateException("Failed to seed tasks");
+        }
+
+        Map<String, List<Long>> deliveries = new ConcurrentHashMap<>();
+        Map<String, Long> reminderTimes = new ConcurrentHashMap<>();
+        List<Process> children = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < processes; i++) {
+            Process process = child(dir, "run");
+            children.add(process);
+            Thread reader = new Thread(() -> collect(process, deliveries, reminderTimes));
+            reader.start();
+            readers.add(reader);
+        }
+
+        Thread.sleep(START_DELAY.toMillis() + seconds * 1000L / 3);
+        Process killed = children.get(0);
+        long killedAt = System.currentTimeMillis();
+        killed.destroyForcibly().waitFor();
+
+        // 等待所有提醒到期，再留出租约过期和补发的时间
+        long end = start + seconds * 1000L + LEASE.toMillis() * 3;
+        Thread.sleep(Math.max(0, end - System.currentTimeMillis()));
+        for (Process process : children) {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        int duplicates = 0;
+        long maxLateness = 0;
+        long maxOrphanedLateness = 0;
+        for (Map.Entry<String, List<Long>> entry : deliveries.entrySet()) {
+            duplicates += entry.getValue().size() - 1;
+            long reminder = reminderTimes.get(entry.getKey());
+            long lateness = entry.getValue().get(0) - reminder;
+            maxLateness = Math.max(maxLateness, lateness);
+            if (reminder >= killedAt && reminder < killedAt + LEASE.toMillis() * 2) {
+                maxOrphanedLateness = Math.max(maxOrphanedLateness, lateness);
+            }
+        }
+
+        System.out.printf("processes:             %d, %d shards, %d ms leases%n", processes, SHARDS, LEASE.toMillis());
+        System.out.printf("tasks:                 %d over %d s%n", tasks, seconds);
+        System.out.printf("delivered:             %d%n", deliveries.size());
+        System.out.printf("missing:               %d%n", tasks - deliveries.size());
+        System.out.printf("duplicates:            %d%n", duplicates);
+        System.out.printf("max lateness:          %d ms%n", maxLateness);
+        System.out.printf("max failover lateness: %d ms%n", maxOrphanedLateness);
+    }
+
+    /**
+     * Starts a child JVM running this class in the given working directory.
+     */
+    private static Process child(File dir, String... args) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                ShardFailoverSimulation.class.getName()));
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command)
+                .directory(dir)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * Reads the delivery lines of a child process until it exits.
+     */
+    private static void collect(Process process, Map<String, List<Long>> deliveries, Map<String, Long> reminderTimes) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length == 4 && parts[0].equals("FIRED")) {
+                    reminderTimes.put(parts[1], Long.parseLong(parts[2]));
+                    deliveries.computeIfAbsent(parts[1], id -> new CopyOnWriteArrayList<>()).add(Long.parseLong(parts[3]));
+                }
+            }
+        } catch (IOException e) {
+            // 进程被终止时输出流随之关闭
+        }
+    }
+
+    /**
+     * Saves tasks with reminders spread evenly over the run.
+     */
+    private static void seed(int tasks, long start, int seconds) {
+        TaskDAO taskDAO = new TaskDAO();
+        for (int i = 0; i < tasks; i++) {
+            LocalDateTime reminder = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(start + (long) i * seconds * 1000 / tasks), ZoneId.systemDefault());
+            taskDAO.saveTask(new Task("Task " + i, "", reminder.plusHours(1), reminder, Task.TaskPriority.MEDIUM));
+        }
+    }
+
+    /**
+     * Runs one scheduler process on the shared database until it is stopped.
+     */
+    private static void run() throws InterruptedException {
+        TaskDAO taskDAO = new TaskDAO();
+        TaskScheduler scheduler = new TaskScheduler(task -> {
+            long reminder = task.getReminderTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            System.out.println("FIRED " + task.getId() + " " + reminder + " " + System.currentTimeMillis());
+            System.out.flush();
+        });
+        scheduler.setReminderLog(taskDAO::markReminderFired);
+        scheduler.enableSharding(taskDAO, SHARDS, LEASE);
+        // 只加载本进程负责的分片，接管分片时从数据库重新加载
+        scheduler.enableReminderHorizon(taskDAO::getTasksByReminderTime, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        scheduler.startCatchUp(taskDAO::getMissedReminders, Duration.ofMinutes(1), 1000, 1000);
+        Runtime.getRuntime().addShutdownHook(new Thread(scheduler::shutdown));
+        Thread.sleep(Long.MAX_VALUE);
+    }
+}
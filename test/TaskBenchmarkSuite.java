@@ -0,0 +1,1249 @@
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableCellRenderer;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Baseline benchmark suite for {@link TaskQueue} under each {@link TaskOrderingPolicy},
+ * {@link TaskScheduler}, the {@link ReminderEngine} implementations, {@link RecurrenceRule},
+ * {@link TaskTableModel} with a {@link TaskRowSorter}, {@link TaskDAO}, {@link Task} allocation
+ * and footprint, {@link TaskMetrics} recording and {@link TaskLog} logging, parameterized by
+ * dataset size.
+ * Run with {@code java -Xmx4g -Djava.awt.headless=true TaskBenchmarkSuite [--json file] [--only regex] [size...]};
+ * sizes default to 1k and 100k tasks.
+ * <p>
+ * {@link ReminderSimulation} and {@link ShardFailoverSimulation} replay whole scenarios rather
+ * than measure single operations, and remain separate programs.
+ * <p>
+ * Every benchmark runs {@value #WARMUP_ITERATIONS} warm-up and {@value #MEASUREMENT_ITERATIONS}
+ * measured iterations per size, each lasting at least 200 ms with its setup outside the timed
+ * section, and reports the mean time per operation with a 99.9% confidence interval, like
+ * JMH's average time mode, together with the bytes the benchmark thread allocated per
+ * operation. With {@code --json}
+ * the results are also written in the JSON format of JMH, so that runs can be compared with
+ * the same tools. The TaskDAO benchmarks use a temporary database and are skipped when the
+ * SQLite driver is not on the class path.
+ */
+public class TaskBenchmarkSuite {
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    /**
+     * The number of removals, priority updates and cancellations per run. Each searches the
+     * queue's heap linearly, so they are measured on a queue of the given size rather than
+     * repeated for every task in it.
+     */
+    private static final int QUEUE_OPERATIONS = 1_000;
+
+    /** The minimum timed duration of an iteration; short runs are repeated until it is reached. */
+    private static final long MIN_ITERATION_NANOS = 200_000_000L;
+
+    /** Student's t for a two-sided 99.9% interval, by degrees of freedom, as JMH reports. */
+    private static final double[] T_999 = {
+            Double.NaN, 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587
+    };
+
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+
+    private static final String[] COLUMN_NAMES = {"ID", "标题", "描述", "优先级", "状态", "截止时间", "提醒时间"};
+
+    /** Keeps results alive so that the JIT cannot drop the work that produced them. */
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        Path json = null;
+        Pattern only = null;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--json" -> json = Path.of(args[++i]);
+                case "--only" -> only = Pattern.compile(args[++i]);
+                default -> sizes.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (sizes.isEmpty()) {
+            Arrays.stream(DEFAULT_SIZES).forEach(sizes::add);
+        }
+
+        List<Benchmark> benchmarks = new ArrayList<>();
+        addQueueBenchmarks(benchmarks);
+        addSchedulerBenchmarks(benchmarks);
+        addReminderEngineBenchmarks(benchmarks, "ExecutorReminderEngine", ExecutorReminderEngine::new);
+        addReminderEngineBenchmarks(benchmarks, "TimingWheelReminderEngine", TimingWheelReminderEngine::new);
+        addRecurrenceBenchmarks(benchmarks);
+        addTableBenchmarks(benchmarks);
+        benchmarks.add(taskAllocation());
+        addFootprintBenchmarks(benchmarks);
+        addMetricsBenchmarks(benchmarks);
+        addLoggingBenchmarks(benchmarks);
+        if (isSqliteAvailable()) {
+            // 基准测试使用临时数据库，不触碰工作目录中的任务数据
+            Path database = Files.createTempFile("task-benchmark", ".db");
+            System.setProperty("tasks.db", database.toString());
+            addDaoBenchmarks(benchmarks);
+        } else {
+            System.out.println("SQLite JDBC driver not found, skipping the TaskDAO benchmarks");
+        }
+
+        System.out.printf("%-44s %10s %14s %12s %12s%n", "benchmark", "size", "score", "error", "B/op");
+        List<Result> results = new ArrayList<>();
+        for (Benchmark benchmark : benchmarks) {
+            if (only != null && !only.matcher(benchmark.name).find()) {
+                continue;
+            }
+            for (int size : sizes) {
+                Result result = run(benchmark, size);
+                results.add(result);
+                System.out.printf("%-44s %10d %14.3f %12.3f %12.1f  %s%n", result.benchmark, size,
+                        result.score(), result.error(), result.bytesPerOp, benchmark.unit);
+            }
+        }
+        if (json != null) {
+            Files.writeString(json, toJson(results));
+            System.out.println("Results written to " + json);
+        }
+    }
+
+    private static void addQueueBenchmarks(List<Benchmark> benchmarks) {
+        TaskOrderingPolicy[] policies = {
+                TaskOrderingPolicy.priorityFifo(),
+                TaskOrderingPolicy.earliestDeadlineFirst(),
+                TaskOrderingPolicy.priorityWithAging(Duration.ofMinutes(30))
+        };
+        for (TaskOrderingPolicy policy : policies) {
+            // 默认策略沿用原来的名称，其他策略在名称后注明
+            String suffix = policy == policies[0] ? "" : "[" + policy.getName() + "]";
+            benchmarks.add(new Benchmark("TaskQueue.addTask" + suffix, "ns/op") {
+                private Task[] tasks;
+                private TaskQueue queue;
+
+                @Override
+                void setUp(int size) {
+                    tasks = createTasks(size, new Random(42));
+                    queue = new TaskQueue(policy);
+                }
+
+                @Override
+                long run(int size) {
+                    for (Task task : tasks) {
+                        queue.addTask(task);
+                    }
+                    return size;
+                }
+            });
+            benchmarks.add(new Benchmark("TaskQueue.poll" + suffix, "ns/op") {
+                private TaskQueue queue;
+
+                @Override
+                void setUp(int size) {
+                    queue = createQueue(policy, createTasks(size, new Random(42)));
+                }
+
+                @Override
+                long run(int size) {
+                    for (int i = 0; i < size; i++) {
+                        sink = queue.poll();
+                    }
+                    return size;
+                }
+            });
+            // 稳态负载：每取出一个任务就加入一个新任务，队列大小保持不变
+            benchmarks.add(new Benchmark("TaskQueue.pollAndAdd" + suffix, "ns/op") {
+                private Task[] tasks;
+                private Task[] churn;
+                private TaskQueue queue;
+
+                @Override
+                void setUpTrial(int size) {
+                    tasks = createTasks(size, new Random(42));
+                    churn = createTasks(size, new Random(7));
+                }
+
+                @Override
+                void setUp(int size) {
+                    queue = createQueue(policy, tasks);
+                }
+
+                @Override
+                long run(int size) {
+                    for (Task task : churn) {
+                        sink = queue.poll();
+                        queue.addTask(task);
+                    }
+                    return size;
+                }
+            });
+        }
+        benchmarks.add(new Benchmark("TaskQueue.removeTask", "ns/op") {
+            private Task[] tasks;
+            private TaskQueue queue;
+
+            @Override
+            void setUp(int size) {
+                Random random = new Random(42);
+                tasks = createTasks(size, random);
+                queue = createQueue(TaskOrderingPolicy.priorityFifo(), tasks);
+                shuffle(tasks, random);
+            }
+
+            @Override
+            long run(int size) {
+                int operations = Math.min(size, QUEUE_OPERATIONS);
+                for (int i = 0; i < operations; i++) {
+                    queue.removeTask(tasks[i]);
+                }
+                return operations;
+            }
+        });
+        benchmarks.add(new Benchmark("TaskQueue.updateTaskPriority", "ns/op") {
+            private final Task.TaskPriority[] priorities = Task.TaskPriority.values();
+            private Task[] tasks;
+            private TaskQueue queue;
+
+            @Override
+            void setUp(int size) {
+                Random random = new Random(42);
+                tasks = createTasks(size, random);
+                queue = createQueue(TaskOrderingPolicy.priorityFifo(), tasks);
+                shuffle(tasks, random);
+            }
+
+            @Override
+            long run(int size) {
+                int operations = Math.min(size, QUEUE_OPERATIONS);
+                for (int i = 0; i < operations; i++) {
+                    Task task = tasks[i];
+                    queue.updateTaskPriority(task, priorities[(task.getPriority().ordinal() + 1 + i % 2) % priorities.length]);
+                }
+                return operations;
+            }
+        });
+    }
+
+    private static void addSchedulerBenchmarks(List<Benchmark> benchmarks) {
+        benchmarks.add(new Benchmark("TaskScheduler.scheduleTask", "ns/op") {
+            private Task[] tasks;
+            private TaskScheduler scheduler;
+
+            @Override
+            void setUp(int size) {
+                tasks = createTasks(size, new Random(42));
+                scheduler = new TaskScheduler(task -> { });
+            }
+
+            @Override
+            long run(int size) {
+                for (Task task : tasks) {
+                    scheduler.scheduleTask(task);
+                }
+                return size;
+            }
+
+            @Override
+            void tearDown() {
+                scheduler.shutdown();
+            }
+        });
+        benchmarks.add(new Benchmark("TaskScheduler.cancelTask", "ns/op") {
+            private Task[] tasks;
+            private TaskScheduler scheduler;
+
+            @Override
+            void setUp(int size) {
+                Random random = new Random(42);
+                tasks = createTasks(size, random);
+                scheduler = createScheduler(tasks);
+                shuffle(tasks, random);
+            }
+
+            @Override
+            long run(int size) {
+                int operations = Math.min(size, QUEUE_OPERATIONS);
+                for (int i = 0; i < operations; i++) {
+                    scheduler.cancelTask(tasks[i]);
+                }
+                return operations;
+            }
+
+            @Override
+            void tearDown() {
+                scheduler.shutdown();
+            }
+        });
+        benchmarks.add(new Benchmark("TaskScheduler.rescheduleTask", "ns/op") {
+            private Task[] tasks;
+            private LocalDateTime[] reminderTimes;
+            private TaskScheduler scheduler;
+
+            @Override
+            void setUp(int size) {
+                Random random = new Random(42);
+                tasks = createTasks(size, random);
+                scheduler = createScheduler(tasks);
+                reminderTimes = new LocalDateTime[size];
+                for (int i = 0; i < size; i++) {
+                    reminderTimes[i] = NOW.plusMinutes(60 + random.nextInt(60));
+                }
+            }
+
+            @Override
+            long run(int size) {
+                for (int i = 0; i < size; i++) {
+                    scheduler.rescheduleTask(tasks[i], reminderTimes[i]);
+                }
+                return size;
+            }
+
+            @Override
+            void tearDown() {
+                scheduler.shutdown();
+            }
+        });
+        // 在已有 size 个未到期提醒的调度器中，测量一批即将到期的提醒从提醒时间到处理器被调用的延迟
+        benchmarks.add(new Benchmark("TaskScheduler.fireLatency", "us/op") {
+            private static final int FIRED = 1_000;
+
+            @Override
+            double measure(int size) throws InterruptedException {
+                AtomicLong latencyMicros = new AtomicLong();
+                CountDownLatch fired = new CountDownLatch(FIRED);
+                TaskScheduler scheduler = new TaskScheduler(task -> {
+                    latencyMicros.addAndGet(ChronoUnit.MICROS.between(task.getReminderTime(), LocalDateTime.now()));
+                    fired.countDown();
+                });
+                for (Task task : createTasks(size, new Random(42))) {
+                    scheduler.scheduleTask(task);
+                }
+                LocalDateTime start = LocalDateTime.now().plusNanos(100_000_000);
+                for (int i = 0; i < FIRED; i++) {
+                    // 提醒均匀分布在 100 毫秒内
+                    scheduler.scheduleTask(new Task("Due " + i, "", start.plusHours(1),
+                            start.plusNanos(i * 100_000L), Task.TaskPriority.MEDIUM));
+                }
+                if (!fired.await(60, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Reminders did not fire within a minute");
+                }
+                scheduler.shutdown();
+                // 提醒在调度器线程上送达，本线程的分配量没有意义
+                bytesPerOp = Double.NaN;
+                return (double) latencyMicros.get() / FIRED;
+            }
+
+            @Override
+            long run(int size) {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    private static void addReminderEngineBenchmarks(List<Benchmark> benchmarks, String name,
+                                                    Supplier<ReminderEngine> factory) {
+        Runnable noop = () -> { };
+        benchmarks.add(new Benchmark(name + ".schedule", "ns/op") {
+            private long[] delays;
+            private ReminderEngine engine;
+
+            @Override
+            void setUpTrial(int size) {
+                delays = reminderDelays(size, new Random(42));
+            }
+
+            @Override
+            void setUp(int size) {
+                engine = factory.get();
+            }
+
+            @Override
+            long run(int size) {
+                for (long delay : delays) {
+                    engine.schedule(noop, delay, TimeUnit.MILLISECONDS);
+                }
+                return size;
+            }
+
+            @Override
+            void tearDown() {
+                engine.shutdown();
+            }
+        });
+        benchmarks.add(new Benchmark(name + ".cancel", "ns/op") {
+            private long[] delays;
+            private ReminderEngine engine;
+            private ReminderEngine.Handle[] handles;
+
+            @Override
+            void setUpTrial(int size) {
+                delays = reminderDelays(size, new Random(42));
+            }
+
+            @Override
+            void setUp(int size) {
+                engine = factory.get();
+                handles = new ReminderEngine.Handle[size];
+                for (int i = 0; i < size; i++) {
+                    handles[i] = engine.schedule(noop, delays[i], TimeUnit.MILLISECONDS);
+                }
+            }
+
+            @Override
+            long run(int size) {
+                for (ReminderEngine.Handle handle : handles) {
+                    handle.cancel();
+                }
+                return size;
+            }
+
+            @Override
+            void tearDown() {
+                engine.shutdown();
+            }
+        });
+        // 每个未到期提醒在堆上保留的字节数
+        benchmarks.add(new Benchmark(name + ".retained", "B/op") {
+            @Override
+            double measure(int size) throws InterruptedException {
+                long[] delays = reminderDelays(size, new Random(42));
+                ReminderEngine.Handle[] handles = new ReminderEngine.Handle[size];
+                ReminderEngine engine = factory.get();
+                long baseline = usedHeap();
+                for (int i = 0; i < size; i++) {
+                    handles[i] = engine.schedule(noop, delays[i], TimeUnit.MILLISECONDS);
+                }
+                long retained = usedHeap() - baseline;
+                sink = handles;
+                engine.shutdown();
+                bytesPerOp = Double.NaN;
+                return (double) retained / size;
+            }
+
+            @Override
+            long run(int size) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        // 同时到期的一批提醒从安排到全部触发，按每个提醒的平均耗时衡量触发吞吐量
+        benchmarks.add(new Benchmark(name + ".fire", "ns/op") {
+            @Override
+            double measure(int size) throws InterruptedException {
+                AtomicLong fired = new AtomicLong();
+                Runnable counter = fired::incrementAndGet;
+                ReminderEngine engine = factory.get();
+                long start = System.nanoTime();
+                for (int i = 0; i < size; i++) {
+                    engine.schedule(counter, 0, TimeUnit.MILLISECONDS);
+                }
+                while (fired.get() < size) {
+                    Thread.sleep(1);
+                }
+                long nanos = System.nanoTime() - start;
+                engine.shutdown();
+                // 提醒在计时线程上触发，本线程的分配量没有意义
+                bytesPerOp = Double.NaN;
+                return (double) nanos / size;
+            }
+
+            @Override
+            long run(int size) {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    private static void addRecurrenceBenchmarks(List<Benchmark> benchmarks) {
+        String[] ruleTexts = {
+                "FREQ=DAILY",
+                "FREQ=WEEKLY;BYDAY=MO,WE,FR",
+                "FREQ=WEEKLY;INTERVAL=2;BYDAY=TU,TH",
+                "FREQ=MONTHLY",
+                "FREQ=HOURLY;INTERVAL=6",
+        };
+        Instant start = Instant.parse("2024-01-31T00:00:00Z");
+        benchmarks.add(new Benchmark("RecurrenceRule.parse", "ns/op") {
+            private String[] stored;
+
+            @Override
+            void setUpTrial(int size) {
+                Random random = new Random(42);
+                stored = new String[size];
+                for (int i = 0; i < size; i++) {
+                    stored[i] = ruleTexts[random.nextInt(ruleTexts.length)];
+                }
+            }
+
+            @Override
+            long run(int size) {
+                for (String text : stored) {
+                    sink = RecurrenceRule.parse(text);
+                }
+                return size;
+            }
+        });
+        // 提醒刚送达时，以及程序停止一个月和一年后计算下一次发生时间；停机期间错过的发生一步跳过
+        for (Duration downtime : new Duration[] {Duration.ZERO, Duration.ofDays(30), Duration.ofDays(365)}) {
+            String suffix = downtime.isZero() ? "" : "[" + downtime.toDays() + "d]";
+            benchmarks.add(new Benchmark("RecurrenceRule.next" + suffix, "ns/op") {
+                private RecurrenceRule[] rules;
+                private LocalDateTime[] occurrences;
+                private LocalDateTime[] after;
+
+                @Override
+                void setUpTrial(int size) {
+                    Random random = new Random(42);
+                    LocalDateTime first = LocalDateTime.ofInstant(start, ZoneOffset.UTC);
+                    rules = new RecurrenceRule[size];
+                    occurrences = new LocalDateTime[size];
+                    after = new LocalDateTime[size];
+                    for (int i = 0; i < size; i++) {
+                        rules[i] = RecurrenceRule.parse(ruleTexts[random.nextInt(ruleTexts.length)]);
+                        occurrences[i] = first.plusMinutes(1 + random.nextInt(24 * 60));
+                        after[i] = occurrences[i].plus(downtime);
+                    }
+                }
+
+                @Override
+                long run(int size) {
+                    for (int i = 0; i < size; i++) {
+                        sink = rules[i].next(occurrences[i], after[i]);
+                    }
+                    return size;
+                }
+            });
+        }
+        // 在虚拟时间中运行一周，每次提醒后把重复任务移到下一次发生时间并重新安排
+        benchmarks.add(new Benchmark("TaskScheduler.recurringWeek", "ns/op") {
+            private VirtualTimeReminderEngine engine;
+            private TaskScheduler scheduler;
+            private long[] delivered;
+
+            @Override
+            void setUp(int size) {
+                Random random = new Random(42);
+                engine = new VirtualTimeReminderEngine(start, ZoneOffset.UTC);
+                delivered = new long[1];
+                scheduler = new TaskScheduler(task -> delivered[0]++, engine, ReminderDispatcher.inline());
+                LocalDateTime first = LocalDateTime.ofInstant(start, ZoneOffset.UTC);
+                for (int i = 0; i < size; i++) {
+                    LocalDateTime occurrence = first.plusMinutes(1 + random.nextInt(24 * 60));
+                    Task task = new Task("Task " + i, "", occurrence.plusHours(1), occurrence,
+                            Task.TaskPriority.MEDIUM, engine.clock());
+                    task.setRecurrence(RecurrenceRule.parse(ruleTexts[random.nextInt(ruleTexts.length)]));
+                    scheduler.scheduleTask(task);
+                }
+            }
+
+            @Override
+            long run(int size) {
+                engine.advance(Duration.ofDays(7));
+                return delivered[0];
+            }
+
+            @Override
+            void tearDown() {
+                scheduler.shutdown();
+            }
+        });
+    }
+
+    private static void addTableBenchmarks(List<Benchmark> benchmarks) {
+        benchmarks.add(new Benchmark("TaskTableModel.putTasks", "ns/op") {
+            private List<Task> tasks;
+            private TaskTableModel model;
+
+            @Override
+            void setUpTrial(int size) {
+                tasks = Arrays.asList(createTasks(size, new Random(42)));
+            }
+
+            @Override
+            void setUp(int size) {
+                model = new TaskTableModel(COLUMN_NAMES);
+            }
+
+            @Override
+            long run(int size) {
+                model.putTasks(tasks);
+                return size;
+            }
+        });
+        // 每次从未排序开始依次按各列排序，测量的是首次排序
+        benchmarks.add(new TableBenchmark("TaskRowSorter.sort") {
+            @Override
+            void setUp(int size) {
+                table.sorter.setSortKeys(null);
+            }
+
+            @Override
+            long run(int size) {
+                for (int column : TableFixture.SORTABLE) {
+                    table.sorter.setSortKeys(List.of(new RowSorter.SortKey(column, SortOrder.ASCENDING)));
+                }
+                return TableFixture.SORTABLE.length;
+            }
+        });
+        benchmarks.add(new TableBenchmark("TaskRowSorter.toggle") {
+            @Override
+            void setUp(int size) {
+                table.sortByDueTime();
+            }
+
+            @Override
+            long run(int size) {
+                for (int i = 0; i < 10; i++) {
+                    SortOrder order = i % 2 == 0 ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+                    table.sorter.setSortKeys(List.of(new RowSorter.SortKey(TaskTableModel.COLUMN_DUE_TIME, order)));
+                }
+                return 10;
+            }
+        });
+        benchmarks.add(new TableBenchmark("TaskTableModel.putTask.sorted") {
+            private Task[] inserted;
+
+            @Override
+            void setUp(int size) {
+                table.sortByDueTime();
+                inserted = createTasks(100, new Random(7));
+            }
+
+            @Override
+            long run(int size) {
+                for (Task task : inserted) {
+                    table.model.putTask(task);
+                }
+                return inserted.length;
+            }
+
+            @Override
+            void tearDown() {
+                for (Task task : inserted) {
+                    table.model.removeTask(task.getId());
+                }
+            }
+        });
+        benchmarks.add(new TableBenchmark("TaskTableModel.putTask.edited") {
+            private final Random random = new Random(7);
+            private Task[] edited;
+
+            @Override
+            void setUp(int size) {
+                table.sortByDueTime();
+                edited = new Task[100];
+                for (int i = 0; i < edited.length; i++) {
+                    edited[i] = tasks[random.nextInt(size)];
+                    edited[i].setDueDateTime(NOW.plusHours(random.nextInt(365 * 24)));
+                }
+            }
+
+            @Override
+            long run(int size) {
+                for (Task task : edited) {
+                    table.model.putTask(task);
+                }
+                return edited.length;
+            }
+        });
+        // 渲染分布在整张表格中的一屏行，相当于滚动时的工作量
+        benchmarks.add(new TableBenchmark("JTable.renderScreen") {
+            @Override
+            void setUp(int size) {
+                table.sortByDueTime();
+            }
+
+            @Override
+            long run(int size) {
+                for (int screen = 0; screen < 100; screen++) {
+                    sink = table.renderScreen((int) ((long) screen * Math.max(0, table.view.getRowCount() - TableFixture.SCREEN_ROWS) / 100));
+                }
+                return 100;
+            }
+        });
+        // 逐字输入搜索文本，每次击键从过滤行到渲染第一屏匹配结果
+        benchmarks.add(new TableBenchmark("TaskRowSorter.setSearchText") {
+            private final String[] queries = {"Task 4242", "Description 12345", "xyz"};
+
+            @Override
+            long run(int size) {
+                long keystrokes = 0;
+                for (String query : queries) {
+                    for (int length = 1; length <= query.length(); length++) {
+                        table.sorter.setSearchText(query.substring(0, length));
+                        sink = table.renderScreen(0);
+                        keystrokes++;
+                    }
+                    table.sorter.setSearchText("");
+                }
+                return keystrokes;
+            }
+        });
+    }
+
+    private static Benchmark taskAllocation() {
+        return new Benchmark("Task.new", "ns/op") {
+            @Override
+            long run(int size) {
+                for (int i = 0; i < size; i++) {
+                    sink = new Task("Task", "Description", NOW.plusHours(2), NOW.plusHours(1), Task.TaskPriority.MEDIUM);
+                }
+                return size;
+            }
+        };
+    }
+
+    private static void addFootprintBenchmarks(List<Benchmark> benchmarks) {
+        // 全量垃圾回收后的堆占用，比较 Task 对象与 TaskTable 中的一行
+        benchmarks.add(new Benchmark("Task.footprint", "B/op") {
+            @Override
+            double measure(int size) throws InterruptedException {
+                long baseline = usedHeap();
+                Task[] tasks = createTasks(size, new Random(42));
+                long retained = usedHeap() - baseline;
+                sink = tasks;
+                bytesPerOp = Double.NaN;
+                return (double) retained / size;
+            }
+
+            @Override
+            long run(int size) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        benchmarks.add(new Benchmark("TaskTable.footprint", "B/op") {
+            @Override
+            double measure(int size) throws InterruptedException {
+                Task[] tasks = createTasks(size, new Random(42));
+                long baseline = usedHeap();
+                TaskTable table = new TaskTable(size);
+                for (Task task : tasks) {
+                    table.put(task);
+                }
+                long retained = usedHeap() - baseline;
+                sink = table;
+                bytesPerOp = Double.NaN;
+                return (double) retained / size;
+            }
+
+            @Override
+            long run(int size) {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    private static void addMetricsBenchmarks(List<Benchmark> benchmarks) {
+        TaskMetrics metrics = new TaskMetrics();
+        TaskMetrics.Counter counter = metrics.counter("benchmark_operations_total", "Benchmark operations.");
+        TaskMetrics.Family<TaskMetrics.Histogram> latency =
+                metrics.histogramFamily("benchmark_latency_seconds", "Benchmark latency.", "method");
+        benchmarks.add(new Benchmark("TaskMetrics.Counter.increment", "ns/op") {
+            @Override
+            long run(int size) {
+                for (int i = 0; i < size; i++) {
+                    counter.increment();
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("TaskMetrics.Histogram.record", "ns/op") {
+            @Override
+            long run(int size) {
+                // 与 TaskDAO 相同按方法名查找序列；不计读取时钟的开销
+                for (int i = 0; i < size; i++) {
+                    latency.labels("getTaskById").record(i * 1_000L);
+                }
+                return size;
+            }
+        });
+    }
+
+    private static void addLoggingBenchmarks(List<Benchmark> benchmarks) throws IOException {
+        // 与 System.out 相同的配置：128 字节缓冲、println 时刷新；输出到 /dev/null，不含终端本身的开销
+        PrintStream console = new PrintStream(
+                new BufferedOutputStream(new FileOutputStream("/dev/null"), 128), true);
+        TaskLog.RingAppender appender = new TaskLog.RingAppender(8192, console);
+
+        // 批量加载表格：每行一条日志，比较同步打印与异步、按级别关闭的日志
+        benchmarks.add(new Benchmark("TaskTableModel.putTask+println", "ns/op") {
+            private Task[] tasks;
+            private TaskTableModel model;
+
+            @Override
+            void setUpTrial(int size) {
+                tasks = createTasks(size, new Random(42));
+            }
+
+            @Override
+            void setUp(int size) {
+                model = new TaskTableModel(COLUMN_NAMES);
+            }
+
+            @Override
+            long run(int size) {
+                for (Task task : tasks) {
+                    model.putTask(task);
+                    console.println("Task added to table with ID: " + task.getId());
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("TaskTableModel.putTask+TaskLog.debug", "ns/op") {
+            private Task[] tasks;
+            private TaskTableModel model;
+
+            @Override
+            void setUpTrial(int size) {
+                tasks = createTasks(size, new Random(42));
+            }
+
+            @Override
+            void setUp(int size) {
+                model = new TaskTableModel(COLUMN_NAMES);
+            }
+
+            @Override
+            long run(int size) {
+                for (Task task : tasks) {
+                    model.putTask(task);
+                    TaskLog.debug("Task added to table with ID: %s", task.getId());
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("Logging.println", "ns/op") {
+            @Override
+            long run(int size) {
+                for (int i = 0; i < size; i++) {
+                    console.println("No task found with ID: " + i);
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("TaskLog.debug.disabled", "ns/op") {
+            @Override
+            long run(int size) {
+                for (int i = 0; i < size; i++) {
+                    TaskLog.debug("No task found with ID: %s", NOW);
+                }
+                return size;
+            }
+        });
+        benchmarks.add(new Benchmark("TaskLog.RingAppender.append", "ns/op") {
+            @Override
+            void setUp(int size) {
+                // 每次只写入半个缓冲区并等待写线程清空，测量的是入队而不是丢弃消息的开销
+                appender.flush(TimeUnit.SECONDS.toNanos(10));
+            }
+
+            @Override
+            long run(int size) {
+                int burst = Math.min(size, 4096);
+                for (int i = 0; i < burst; i++) {
+                    appender.append(TaskLog.Level.INFO, "No task found with ID: %s", NOW, null, 1, null);
+                }
+                return burst;
+            }
+
+            @Override
+            void tearDownTrial() {
+                if (appender.droppedCount() > 0) {
+                    throw new IllegalStateException(appender.droppedCount() + " log messages dropped");
+                }
+            }
+        });
+    }
+
+    private static void addDaoBenchmarks(List<Benchmark> benchmarks) {
+        TaskDAO dao = new TaskDAO();
+        benchmarks.add(new DaoBenchmark("TaskDAO.saveTask", dao) {
+            private static final int WRITES = 200;
+            private Task[] written;
+
+            @Override
+            void setUp(int size) {
+                written = createTasks(WRITES, new Random(7));
+            }
+
+            @Override
+            long run(int size) {
+                for (Task task : written) {
+                    dao.saveTask(task);
+                }
+                return WRITES;
+            }
+
+            @Override
+            void tearDown() {
+                dao.deleteTasks(ids(written));
+            }
+        });
+        benchmarks.add(new DaoBenchmark("TaskDAO.saveTasks", dao) {
+            private Task[] written;
+
+            @Override
+            void setUp(int size) {
+                written = createTasks(Math.min(size, 10_000), new Random(7));
+            }
+
+            @Override
+            long run(int size) {
+                dao.saveTasks(Arrays.asList(written));
+                return written.length;
+            }
+
+            @Override
+            void tearDown() {
+                dao.deleteTasks(ids(written));
+            }
+        });
+        benchmarks.add(new DaoBenchmark("TaskDAO.getTaskById", dao) {
+            private static final int READS = 1_000;
+
+            @Override
+            long run(int size) {
+                Random random = new Random(42);
+                for (int i = 0; i < READS; i++) {
+                    sink = dao.getTaskById(stored[random.nextInt(stored.length)].getId());
+                }
+                return READS;
+            }
+        });
+        benchmarks.add(new DaoBenchmark("TaskDAO.getAllTasks", dao) {
+            @Override
+            long run(int size) {
+                sink = dao.getAllTasks();
+                return size;
+            }
+        });
+    }
+
+    /**
+     * Measures one benchmark at one size: warm-up iterations, then measured iterations.
+     */
+    private static Result run(Benchmark benchmark, int size) throws Exception {
+        benchmark.setUpTrial(size);
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                benchmark.measure(size);
+            }
+            double[] scores = new double[MEASUREMENT_ITERATIONS];
+            double bytes = 0;
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                scores[i] = benchmark.measure(size);
+                bytes += benchmark.bytesPerOp;
+            }
+            return new Result(benchmark.name, benchmark.unit, size, scores, bytes / MEASUREMENT_ITERATIONS);
+        } finally {
+            benchmark.tearDownTrial();
+        }
+    }
+
+    /**
+     * A benchmark whose setup and tear-down run outside the timed section of each iteration.
+     */
+    private abstract static class Benchmark {
+        private static final com.sun.management.ThreadMXBean THREADS =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        final String name;
+        final String unit;
+
+        /** The bytes allocated per operation by the benchmark thread in the last iteration. */
+        double bytesPerOp;
+
+        Benchmark(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        /** Prepares the data shared by every iteration at one size. */
+        void setUpTrial(int size) throws Exception {
+        }
+
+        void tearDownTrial() throws Exception {
+        }
+
+        void setUp(int size) throws Exception {
+        }
+
+        /**
+         * Runs the timed part of one iteration.
+         *
+         * @return the number of operations performed
+         */
+        abstract long run(int size) throws Exception;
+
+        void tearDown() throws Exception {
+        }
+
+        /**
+         * Runs one iteration and returns its score, by default the mean time per operation.
+         * The timed part is repeated, each time after a fresh setup, until the iteration has
+         * run for {@link #MIN_ITERATION_NANOS}.
+         */
+        double measure(int size) throws Exception {
+            long operations = 0;
+            long nanos = 0;
+            long allocated = 0;
+            while (nanos < MIN_ITERATION_NANOS) {
+                setUp(size);
+                long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                operations += run(size);
+                nanos += System.nanoTime() - start;
+                allocated += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                tearDown();
+            }
+            bytesPerOp = (double) allocated / operations;
+            return (double) nanos / operations;
+        }
+    }
+
+    /**
+     * A benchmark on a {@link JTable} showing {@code size} tasks through a {@link TaskRowSorter}.
+     */
+    private abstract static class TableBenchmark extends Benchmark {
+        Task[] tasks;
+        TableFixture table;
+
+        TableBenchmark(String name) {
+            super(name, "ns/op");
+        }
+
+        @Override
+        void setUpTrial(int size) {
+            tasks = createTasks(size, new Random(42));
+            table = new TableFixture(tasks);
+        }
+    }
+
+    /**
+     * A table model loaded with tasks, shown in a JTable with a TaskRowSorter as in the GUI.
+     */
+    private static final class TableFixture {
+        static final int[] SORTABLE = {
+                TaskTableModel.COLUMN_TITLE, TaskTableModel.COLUMN_DESCRIPTION, TaskTableModel.COLUMN_PRIORITY,
+                TaskTableModel.COLUMN_STATUS, TaskTableModel.COLUMN_DUE_TIME, TaskTableModel.COLUMN_REMINDER_TIME
+        };
+
+        static final int SCREEN_ROWS = 40;
+
+        final TaskTableModel model = new TaskTableModel(COLUMN_NAMES);
+        final JTable view = new JTable(model);
+        final TaskRowSorter sorter = new TaskRowSorter(model);
+
+        TableFixture(Task[] tasks) {
+            view.setDefaultRenderer(LocalDateTime.class,
+                    new TaskTableModel.DateTimeRenderer(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+            view.setRowSorter(sorter);
+            model.putTasks(Arrays.asList(tasks));
+        }
+
+        void sortByDueTime() {
+            sorter.setSortKeys(List.of(new RowSorter.SortKey(TaskTableModel.COLUMN_DUE_TIME, SortOrder.ASCENDING)));
+        }
+
+        /**
+         * Prepares the cells of one screen of rows starting at the given view row, as painting does.
+         */
+        long renderScreen(int top) {
+            long width = 0;
+            for (int row = top; row < Math.min(top + SCREEN_ROWS, view.getRowCount()); row++) {
+                for (int column = 0; column < view.getColumnCount(); column++) {
+                    TableCellRenderer renderer = view.getCellRenderer(row, column);
+                    width += view.prepareRenderer(renderer, row, column).getPreferredSize().width;
+                }
+            }
+            return width;
+        }
+    }
+
+    /**
+     * A TaskDAO benchmark on a table holding {@code size} tasks.
+     */
+    private abstract static class DaoBenchmark extends Benchmark {
+        final TaskDAO dao;
+        Task[] stored;
+
+        DaoBenchmark(String name, TaskDAO dao) {
+            super(name, "ns/op");
+            this.dao = dao;
+        }
+
+        @Override
+        void setUpTrial(int size) {
+            stored = createTasks(size, new Random(42));
+            dao.saveTasks(Arrays.asList(stored));
+        }
+
+        @Override
+        void tearDownTrial() {
+            dao.deleteTasks(ids(stored));
+        }
+    }
+
+    private record Result(String benchmark, String unit, int size, double[] scores, double bytesPerOp) {
+        double score() {
+            return Arrays.stream(scores).average().orElse(Double.NaN);
+        }
+
+        /** The half-width of the 99.9% confidence interval of the score. */
+        double error() {
+            int n = scores.length;
+            if (n < 2) {
+                return Double.NaN;
+            }
+            double mean = score();
+            double variance = Arrays.stream(scores).map(s -> (s - mean) * (s - mean)).sum() / (n - 1);
+            double t = n - 1 < T_999.length ? T_999[n - 1] : 3.291;
+            return t * Math.sqrt(variance / n);
+        }
+    }
+
+    private static String toJson(List<Result> results) {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            json.append("    {\n")
+                    .append("        \"benchmark\" : \"").append(result.benchmark).append("\",\n")
+                    .append("        \"mode\" : \"avgt\",\n")
+                    .append("        \"threads\" : 1,\n")
+                    .append("        \"forks\" : 0,\n")
+                    .append("        \"jvm\" : \"").append(escape(System.getProperty("java.home"))).append("\",\n")
+                    .append("        \"jdkVersion\" : \"").append(System.getProperty("java.version")).append("\",\n")
+                    .append("        \"warmupIterations\" : ").append(WARMUP_ITERATIONS).append(",\n")
+                    .append("        \"measurementIterations\" : ").append(MEASUREMENT_ITERATIONS).append(",\n")
+                    .append("        \"params\" : {\n")
+                    .append("            \"size\" : \"").append(result.size).append("\"\n")
+                    .append("        },\n")
+                    .append("        \"primaryMetric\" : {\n")
+                    .append("            \"score\" : ").append(number(result.score())).append(",\n")
+                    .append("            \"scoreError\" : ").append(number(result.error())).append(",\n")
+                    .append("            \"scoreUnit\" : \"").append(result.unit).append("\",\n")
+                    .append("            \"rawData\" : [\n")
+                    .append("                [");
+            for (int j = 0; j < result.scores.length; j++) {
+                json.append(j > 0 ? ", " : "").append(number(result.scores[j]));
+            }
+            json.append("]\n")
+                    .append("            ]\n")
+                    .append("        },\n")
+                    .append("        \"secondaryMetrics\" : {\n")
+                    .append("            \"gc.alloc.rate.norm\" : {\n")
+                    .append("                \"score\" : ").append(number(result.bytesPerOp)).append(",\n")
+                    .append("                \"scoreUnit\" : \"B/op\"\n")
+                    .append("            }\n")
+                    .append("        }\n")
+                    .append(i < results.size() - 1 ? "    },\n" : "    }\n");
+        }
+        return json.append("]\n").toString();
+    }
+
+    private static String number(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "\"NaN\"";
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Creates tasks with random priorities, due within the next day and reminded an hour or
+     * more ahead, so that no reminder fires during a benchmark.
+     */
+    private static Task[] createTasks(int count, Random random) {
+        Task.TaskPriority[] priorities = Task.TaskPriority.values();
+        Task[] tasks = new Task[count];
+        for (int i = 0; i < count; i++) {
+            LocalDateTime reminder = NOW.plusMinutes(60 + random.nextInt(60));
+            tasks[i] = new Task("Task " + i, "Description " + i, reminder.plusHours(random.nextInt(24)), reminder,
+                    priorities[random.nextInt(priorities.length)]);
+        }
+        return tasks;
+    }
+
+    private static TaskQueue createQueue(TaskOrderingPolicy policy, Task[] tasks) {
+        TaskQueue queue = new TaskQueue(policy);
+        for (Task task : tasks) {
+            queue.addTask(task);
+        }
+        return queue;
+    }
+
+    private static TaskScheduler createScheduler(Task[] tasks) {
+        TaskScheduler scheduler = new TaskScheduler(task -> { });
+        for (Task task : tasks) {
+            scheduler.scheduleTask(task);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Creates reminder delays spread over the hour after the next minute.
+     */
+    private static long[] reminderDelays(int count, Random random) {
+        long[] delays = new long[count];
+        for (int i = 0; i < count; i++) {
+            delays[i] = 60_000 + random.nextInt(3_600_000);
+        }
+        return delays;
+    }
+
+    /**
+     * Gets the used heap after a full garbage collection.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void shuffle(Task[] tasks, Random random) {
+        for (int i = tasks.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Task swap = tasks[i];
+            tasks[i] = tasks[j];
+            tasks[j] = swap;
+        }
+    }
+
+    private static List<String> ids(Task[] tasks) {
+        List<String> ids = new ArrayList<>(tasks.length);
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    private static boolean isSqliteAvailable() {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import org.junit.jupiter.api.*;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+class TaskDaemonTest {
+    private Path directory;
+    private Path socketPath;
+    private MemoryRepository repository;
+    private TaskScheduler scheduler;
+    private TaskDaemon daemon;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    // 内存中的任务存储，代替数据库；分页与 TaskDAO 的 WHERE id > ? 相同，null 不匹配任何任务
+    private static class MemoryRepository implements TaskDaemon.TaskRepository {
+        private final Map<String, Task> tasks = new TreeMap<>();
+
+        @Override
+        public synchronized void saveTasks(Collection<Task> saved) {
+            for (Task task : saved) {
+                tasks.put(task.getId(), task);
+            }
+        }
+
+        @Override
+        public synchronized void completeTasks(Collection<String> taskIds, LocalDateTime now) {
+            for (String taskId : taskIds) {
+                Task task = tasks.get(taskId);
+                if (task != null) {
+                    task.setStatus(Task.TaskStatus.COMPLETED);
+                }
+            }
+        }
+
+        @Override
+        public synchronized int countTasks() {
+            return tasks.size();
+        }
+
+        @Override
+        public synchronized List<Task> getTasksAfter(String afterId, int limit) {
+            List<Task> page = new ArrayList<>();
+            for (Task task : tasks.values()) {
+                if (afterId != null && task.getId().compareTo(afterId) > 0 && page.size() < limit) {
+                    page.add(task);
+                }
+            }
+            return page;
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("task-daemon");
+        socketPath = directory.resolve("tasks.sock");
+        repository = new MemoryRepository();
+        scheduler = new TaskScheduler(task -> { });
+        daemon = new TaskDaemon(repository, scheduler, socketPath);
+        daemon.start();
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        daemon.close();
+        Files.deleteIfExists(socketPath);
+        Files.delete(directory);
+    }
+
+    @Test
+    void testAddListAndComplete() throws IOException {
+        LocalDateTime due = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+        String dueText = TaskDaemon.TIME_FORMAT.format(due);
+        String reminderText = TaskDaemon.TIME_FORMAT.format(due.minusHours(1));
+
+        Assertions.assertEquals(0, send(null, "add", "写报告", dueText, reminderText, "high", "季度总结"));
+        String taskId = output().trim();
+        Task saved = repository.tasks.get(taskId);
+        Assertions.assertNotNull(saved);
+        Assertions.assertEquals(Task.TaskPriority.HIGH, saved.getPriority());
+        Assertions.assertEquals(due, saved.getDueDateTime());
+        // 新任务的提醒已由调度器安排
+        Assertions.assertEquals(saved, scheduler.findTask(taskId));
+
+        Assertions.assertEquals(0, send(null, "list"));
+        Assertions.assertEquals(
+                taskId + "\t写报告\tNOT_STARTED\tHIGH\t" + dueText + "\t" + reminderText + "\n1 tasks\n", output());
+
+        Assertions.assertEquals(0, send(null, "complete", taskId));
+        Assertions.assertEquals(Task.TaskStatus.COMPLETED, saved.getStatus());
+        Assertions.assertEquals(0, scheduler.getPendingReminderCount());
+    }
+
+    @Test
+    void testImportSavesEveryTaskOrNone() throws IOException {
+        String tasks = "Task 1\tFirst\t2030-01-01 09:00\t2030-01-01 08:00\tLOW\n"
+                + "\n"
+                + "Task 2\tSecond\t2030-01-02 09:00\t2030-01-02 08:00\tMEDIUM\n";
+        Assertions.assertEquals(0, send(tasks, "import"));
+        Assertions.assertEquals("2 tasks imported\n", output());
+        Assertions.assertEquals(2, repository.countTasks());
+
+        String malformed = "Task 3\tThird\t2030-01-03 09:00\t2030-01-03 08:00\tLOW\n"
+                + "Task 4\tFourth\tnext week\t2030-01-04 08:00\tLOW\n";
+        Assertions.assertEquals(1, send(malformed, "import"));
+        Assertions.assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("Line 2: Invalid time"));
+        Assertions.assertEquals(2, repository.countTasks());
+    }
+
+    @Test
+    void testListPagesThroughEveryTask() throws IOException {
+        StringBuilder tasks = new StringBuilder();
+        for (int i = 0; i < TaskDaemon.LIST_PAGE_SIZE + 1; i++) {
+            tasks.append("Task ").append(i).append("\t\t2030-01-01 09:00\t2030-01-01 08:00\tLOW\n");
+        }
+        Assertions.assertEquals(0, send(tasks.toString(), "import"));
+
+        // 第一页从空字符串开始，之后从上一页最后一个 ID 继续
+        Assertions.assertEquals(0, send(null, "list"));
+        String[] lines = output().split("\n");
+        Assertions.assertEquals(TaskDaemon.LIST_PAGE_SIZE + 2, lines.length);
+        Assertions.assertEquals((TaskDaemon.LIST_PAGE_SIZE + 1) + " tasks", lines[lines.length - 1]);
+    }
+
+    @Test
+    void testUnknownCommandFailsAndDaemonKeepsServing() throws IOException {
+        Assertions.assertEquals(1, send(null, "remove", "42"));
+        Assertions.assertEquals("Unknown command: remove\n", err.toString(StandardCharsets.UTF_8));
+
+        Assertions.assertEquals(0, send(null, "list"));
+        Assertions.assertEquals("0 tasks\n", output());
+    }
+
+    @Test
+    void testCloseStopsListeningAndRemovesSocket() throws IOException {
+        daemon.close();
+
+        Assertions.assertFalse(Files.exists(socketPath));
+        Assertions.assertThrows(IOException.class, () -> send(null, "list"));
+    }
+
+    private int send(String body, String... command) throws IOException {
+        out.reset();
+        err.reset();
+        BufferedReader reader = body == null ? null : new BufferedReader(new StringReader(body));
+        return TaskDaemon.send(socketPath, command, reader,
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String output() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
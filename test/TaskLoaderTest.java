@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.Test;
+import static com.google.common.truth.Truth.assertThat;
+import javax.swing.SwingUtilities;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TaskLoaderTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Test
+    public void testTasksAreLoadedPageByPageOffTheEventThread() throws Exception {
+        List<Task> stored = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            stored.add(new Task("Task " + i, "Description", START.plusHours(i), START, Task.TaskPriority.MEDIUM));
+        }
+        stored.sort(Comparator.comparing(Task::getId));
+        List<String> pageStarts = new ArrayList<>();
+        List<Boolean> onEventThread = new ArrayList<>();
+        TaskLoader.TaskPageSource source = new TaskLoader.TaskPageSource() {
+            @Override
+            public int countTasks() {
+                return stored.size();
+            }
+
+            @Override
+            public List<Task> getTasksAfter(String afterId, int limit) {
+                pageStarts.add(afterId);
+                onEventThread.add(SwingUtilities.isEventDispatchThread());
+                return stored.stream().filter(task -> task.getId().compareTo(afterId) > 0).limit(limit).toList();
+            }
+        };
+
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+        // 加载前已在表格中的任务保持不变
+        Task edited = stored.get(10);
+        Task shown = Task.restore(edited.getId(), "Edited", "", START, START, Task.TaskPriority.HIGH,
+                Task.TaskStatus.COMPLETED, START, START);
+        SwingUtilities.invokeAndWait(() -> model.putTask(shown));
+        Result result = load(source, model, 1000);
+
+        assertThat(result.error.get()).isNull();
+        assertThat(result.loaded.get()).isEqualTo(2500);
+        assertThat(result.progress).isNotEmpty();
+        assertThat(result.progress.get(result.progress.size() - 1)).isEqualTo("2500/2500");
+        // 按 ID 分页读取，每页从上一页最后一个 ID 之后开始
+        assertThat(pageStarts).containsExactly("", stored.get(999).getId(), stored.get(1999).getId()).inOrder();
+        assertThat(onEventThread).containsExactly(false, false, false);
+        assertThat(model.getRowCount()).isEqualTo(2500);
+        assertThat(model.getValueAt(model.rowOf(edited.getId()), TaskTableModel.COLUMN_TITLE)).isEqualTo("Edited");
+    }
+
+    @Test
+    public void testFailureEndsLoadingAndKeepsLoadedRows() throws Exception {
+        Task first = new Task("First", "", START, START, Task.TaskPriority.LOW);
+        TaskLoader.TaskPageSource source = new TaskLoader.TaskPageSource() {
+            @Override
+            public int countTasks() {
+                return 3;
+            }
+
+            @Override
+            public List<Task> getTasksAfter(String afterId, int limit) {
+                if (!afterId.isEmpty()) {
+                    throw new RuntimeException("Failed to fetch tasks");
+                }
+                return List.of(first);
+            }
+        };
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+
+        Result result = load(source, model, 1);
+
+        assertThat(result.error.get()).hasMessageThat().isEqualTo("Failed to fetch tasks");
+        assertThat(result.loaded.get()).isEqualTo(1);
+        assertThat(model.getRowCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTasksDeletedWhileLoadingAreNotAddedBack() throws Exception {
+        Task kept = new Task("Kept", "", START, START, Task.TaskPriority.LOW);
+        Task deleted = new Task("Deleted", "", START, START, Task.TaskPriority.LOW);
+        AtomicReference<TaskLoader> loader = new AtomicReference<>();
+        TaskLoader.TaskPageSource source = new TaskLoader.TaskPageSource() {
+            @Override
+            public int countTasks() {
+                return 2;
+            }
+
+            @Override
+            public List<Task> getTasksAfter(String afterId, int limit) {
+                // 页面已读取，任务在页面发布到表格之前被删除
+                loader.get().taskRemoved(deleted.getId());
+                return List.of(kept, deleted);
+            }
+        };
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+
+        Result result = load(source, model, 10, loader);
+
+        assertThat(result.error.get()).isNull();
+        assertThat(result.loaded.get()).isEqualTo(2);
+        assertThat(model.getRowCount()).isEqualTo(1);
+        assertThat(model.rowOf(deleted.getId())).isEqualTo(-1);
+        assertThat(model.rowOf(kept.getId())).isEqualTo(0);
+    }
+
+    private Result load(TaskLoader.TaskPageSource source, TaskTableModel model, int pageSize) throws InterruptedException {
+        return load(source, model, pageSize, new AtomicReference<>());
+    }
+
+    private Result load(TaskLoader.TaskPageSource source, TaskTableModel model, int pageSize,
+                        AtomicReference<TaskLoader> started) throws InterruptedException {
+        Result result = new Result();
+        CountDownLatch finished = new CountDownLatch(1);
+        started.set(new TaskLoader(source, model, pageSize, new TaskLoader.LoadListener() {
+            @Override
+            public void loaded(int loaded, int total) {
+                result.progress.add(loaded + "/" + total);
+            }
+
+            @Override
+            public void finished(int loaded, Throwable error) {
+                result.loaded.set(loaded);
+                result.error.set(error);
+                finished.countDown();
+            }
+        }));
+        started.get().execute();
+        assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+        return result;
+    }
+
+    private static class Result {
+        final List<String> progress = new ArrayList<>();
+        final AtomicReference<Integer> loaded = new AtomicReference<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+    }
+}
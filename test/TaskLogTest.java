@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+import static com.google.common.truth.Truth.assertThat;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TaskLogTest {
+
+    @Test
+    public void testDebugIsDisabledByDefault() {
+        // 默认级别为 INFO，调试消息的构造函数不会被调用
+        assertThat(TaskLog.isDebugEnabled()).isFalse();
+        TaskLog.debug(() -> {
+            throw new AssertionError("Debug message built while disabled");
+        });
+        TaskLog.flush();
+    }
+
+    @Test
+    public void testMessagesArePrintedInOrderByWriterThread() throws InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TaskLog.RingAppender appender = new TaskLog.RingAppender(16, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        List<String> threads = new ArrayList<>();
+
+        appender.append(TaskLog.Level.INFO, "Task %s saved", "42", null, 1, null);
+        appender.append(TaskLog.Level.DEBUG, null, (java.util.function.Supplier<String>) () -> {
+            threads.add(Thread.currentThread().getName());
+            return "built lazily";
+        }, null, 0, null);
+        appender.append(TaskLog.Level.WARN, "%s of %s", 1, 2, 2, new IllegalStateException("boom"));
+        assertThat(appender.flush(TimeUnit.SECONDS.toNanos(5))).isTrue();
+
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertThat(lines[0]).contains("INFO  [" + Thread.currentThread().getName() + "] Task 42 saved");
+        assertThat(lines[1]).contains("DEBUG [" + Thread.currentThread().getName() + "] built lazily");
+        assertThat(lines[2]).contains("WARN  [" + Thread.currentThread().getName() + "] 1 of 2");
+        assertThat(lines[3]).isEqualTo("java.lang.IllegalStateException: boom");
+        // 消息在写线程上构造，调用线程不做格式化
+        assertThat(threads).containsExactly("task-log-writer");
+    }
+
+    @Test
+    public void testFullBufferDropsMessagesWithoutBlocking() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // 写线程在第一次输出时阻塞，之后的消息只能留在缓冲区中
+        OutputStream blocking = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                bytes.write(b, off, len);
+            }
+        };
+        TaskLog.RingAppender appender = new TaskLog.RingAppender(4, new PrintStream(blocking, true, StandardCharsets.UTF_8));
+
+        assertThat(appender.append(TaskLog.Level.INFO, "first", null, null, 0, null)).isTrue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (appender.append(TaskLog.Level.INFO, "message", null, null, 0, null)) {
+                accepted++;
+            }
+        }
+        assertThat(System.nanoTime()).isLessThan(deadline);
+        assertThat(accepted).isAtMost(4);
+        assertThat(appender.droppedCount()).isEqualTo(100L - accepted);
+
+        release.countDown();
+        assertThat(appender.flush(TimeUnit.SECONDS.toNanos(5))).isTrue();
+        assertThat(bytes.toString(StandardCharsets.UTF_8)).contains(" log messages dropped because the buffer was full");
+    }
+
+    @Test
+    public void testCapacityMustBePowerOfTwo() {
+        try {
+            new TaskLog.RingAppender(100, System.out);
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageThat().isEqualTo("Capacity must be a power of two");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import org.junit.jupiter.api.Test;
+import static com.google.common.truth.Truth.assertThat;
+import com.sun.net.httpserver.HttpServer;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class TaskMetricsTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1_000, 999_999, 1L << 40, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = TaskMetrics.Histogram.bucketOf(value);
+            // 每个值都落在所在桶的下界与下一个桶的下界之间
+            assertThat(TaskMetrics.Histogram.lowestValueOf(bucket)).isAtMost(value);
+            if (value != Long.MAX_VALUE) {
+                assertThat(TaskMetrics.Histogram.lowestValueOf(bucket + 1)).isGreaterThan(value);
+            }
+        }
+    }
+
+    @Test
+    public void testHistogramQuantilesWithinBucketPrecision() {
+        TaskMetrics.Histogram histogram = new TaskMetrics.Histogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        assertThat(histogram.count()).isEqualTo(10_000L);
+        assertThat(histogram.maxNanos()).isEqualTo(10_000_000L);
+        assertThat(histogram.totalNanos()).isEqualTo(10_000L * 10_001 / 2 * 1_000);
+        // 分位数向上取到桶的上界，误差不超过 1/32
+        long median = histogram.quantileNanos(0.5);
+        assertThat(median).isAtLeast(5_000_000L);
+        assertThat(median).isAtMost(5_000_000L + 5_000_000L / 32);
+        long p99 = histogram.quantileNanos(0.99);
+        assertThat(p99).isAtLeast(9_900_000L);
+        assertThat(p99).isAtMost(9_900_000L + 9_900_000L / 32);
+        assertThat(histogram.quantileNanos(1.0)).isEqualTo(10_000_000L);
+    }
+
+    @Test
+    public void testEmptyHistogramAndNegativeDurations() {
+        TaskMetrics.Histogram histogram = new TaskMetrics.Histogram();
+        assertThat(histogram.quantileNanos(0.99)).isEqualTo(0L);
+
+        histogram.record(-5);
+        assertThat(histogram.count()).isEqualTo(1L);
+        assertThat(histogram.maxNanos()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testScrapeRendersPrometheusText() {
+        TaskMetrics metrics = new TaskMetrics();
+        TaskMetrics.Family<TaskMetrics.Counter> errors = metrics.counterFamily("dao_errors_total", "DAO errors.", "method");
+        errors.labels("saveTask").increment();
+        errors.labels("saveTask").increment();
+        errors.labels("getTaskById").increment();
+        metrics.gauge("queue_size", "Queue size.", () -> 42);
+        metrics.histogram("fire_lag_seconds", "Fire lag.").record(2_000_000_000L);
+
+        String text = metrics.scrape();
+
+        assertThat(text).contains("# HELP dao_errors_total DAO errors.\n# TYPE dao_errors_total counter\n"
+                + "dao_errors_total{method=\"saveTask\"} 2\ndao_errors_total{method=\"getTaskById\"} 1\n");
+        assertThat(text).contains("# TYPE queue_size gauge\nqueue_size 42\n");
+        assertThat(text).contains("# TYPE fire_lag_seconds summary\n");
+        assertThat(text).contains("fire_lag_seconds{quantile=\"0.5\"} 2\n");
+        assertThat(text).contains("fire_lag_seconds_sum 2\nfire_lag_seconds_count 1\n");
+    }
+
+    @Test
+    public void testSameNameReturnsSameMetric() {
+        TaskMetrics metrics = new TaskMetrics();
+        TaskMetrics.Counter counter = metrics.counter("calls_total", "Calls.");
+
+        assertThat(metrics.counter("calls_total", "Calls.")).isSameInstanceAs(counter);
+        try {
+            metrics.histogram("calls_total", "Calls.");
+            throw new AssertionError("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageThat().isEqualTo("Metric calls_total is already registered as a counter");
+        }
+    }
+
+    @Test
+    public void testQueueCountsOperations() {
+        TaskMetrics metrics = new TaskMetrics();
+        TaskQueue queue = new TaskQueue();
+        queue.setMetrics(metrics);
+        Task task1 = new Task("Task1", "Description1", LocalDateTime.now().plusDays(1), LocalDateTime.now(), Task.TaskPriority.LOW);
+        Task task2 = new Task("Task2", "Description2", LocalDateTime.now().plusDays(2), LocalDateTime.now(), Task.TaskPriority.HIGH);
+
+        queue.addTask(task1);
+        queue.addTask(task2);
+        queue.updateTaskPriority(task1, Task.TaskPriority.MEDIUM);
+        queue.poll();
+        queue.removeTask(task1);
+        queue.removeTask(task1);
+
+        // 优先级更新计为一次移除和一次添加；未找到任务的移除不计数
+        TaskMetrics.Family<TaskMetrics.Counter> operations =
+                metrics.counterFamily("task_queue_operations_total", "", "op");
+        assertThat(operations.labels("add").get()).isEqualTo(3L);
+        assertThat(operations.labels("poll").get()).isEqualTo(1L);
+        assertThat(operations.labels("remove").get()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testMBeansExposeFamilies() throws Exception {
+        TaskMetrics metrics = new TaskMetrics();
+        metrics.counterFamily("mbean_test_total", "Test counter.", "op").labels("add").increment();
+        metrics.registerMBeans();
+        // 注册之后创建的指标同样导出
+        metrics.histogram("mbean_test_seconds", "Test latency.").record(3_000_000);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertThat(server.getAttribute(new ObjectName("TaskManager:type=Metrics,name=mbean_test_total"), "add"))
+                .isEqualTo(1L);
+        ObjectName latency = new ObjectName("TaskManager:type=Metrics,name=mbean_test_seconds");
+        assertThat(server.getAttribute(latency, "Count")).isEqualTo(1L);
+        assertThat(server.getAttribute(latency, "Max")).isEqualTo(3.0);
+    }
+
+    @Test
+    public void testHttpServerServesMetricsOnLocalhost() throws Exception {
+        TaskMetrics metrics = new TaskMetrics();
+        metrics.counter("http_test_total", "Test counter.").increment();
+        HttpServer server = metrics.startHttpServer(0);
+        try {
+            assertThat(server.getAddress().getAddress().isLoopbackAddress()).isTrue();
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/metrics");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            try (InputStream in = connection.getInputStream()) {
+                assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains("http_test_total 1\n");
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -1,7 +1,16 @@
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 public class TaskQueueTest {
 
@@ -105,4 +114,122 @@ public class TaskQueueTest {
             assertThat(e).hasMessageThat().isEqualTo("Task queue is empty");
         }
     }
+
+    @Test
+    public void testEarliestDeadlineFirstPolicy() {
+        TaskQueue taskQueue = new TaskQueue(TaskOrderingPolicy.earliestDeadlineFirst());
+
+        Task task1 = new Task("Task1", "Description1", LocalDateTime.now().plusDays(2), LocalDateTime.now(), Task.TaskPriority.HIGH);
+        Task task2 = new Task("Task2", "Description2", LocalDateTime.now().plusMinutes(5), LocalDateTime.now(), Task.TaskPriority.LOW);
+
+        taskQueue.addTask(task1);
+        taskQueue.addTask(task2);
+
+        // 即将到期的低优先级任务应排在前面
+        assertThat(taskQueue.poll()).isEqualTo(task2);
+        assertThat(taskQueue.poll()).isEqualTo(task1);
+    }
+
+    @Test
+    public void testAgingPolicyPromotesWaitingTask() throws InterruptedException {
+        TaskQueue taskQueue = new TaskQueue(TaskOrderingPolicy.priorityWithAging(Duration.ofMillis(1)));
+
+        Task task1 = new Task("Task1", "Description1", LocalDateTime.now().plusDays(1), LocalDateTime.now(), Task.TaskPriority.LOW);
+        Thread.sleep(20);
+        Task task2 = new Task("Task2", "Description2", LocalDateTime.now().plusDays(1), LocalDateTime.now(), Task.TaskPriority.HIGH);
+
+        taskQueue.addTask(task2);
+        taskQueue.addTask(task1);
+
+        // 等待时间超过两个老化步长的低优先级任务应排在前面
+        assertThat(taskQueue.peek()).isEqualTo(task1);
+    }
+
+    @Test
+    public void testAgingPolicyRejectsNonPositiveStep() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TaskOrderingPolicy.priorityWithAging(Duration.ZERO));
+        assertThat(e).hasMessageThat().isEqualTo("Aging step must be positive");
+
+        e = assertThrows(IllegalArgumentException.class,
+                () -> TaskOrderingPolicy.priorityWithAging(Duration.ofMinutes(-1)));
+        assertThat(e).hasMessageThat().isEqualTo("Aging step must be positive");
+    }
+
+    @Test
+    public void testSpillBeyondMemoryBudgetKeepsOrder(@TempDir Path spillDirectory) {
+        TaskQueue taskQueue = new TaskQueue(TaskOrderingPolicy.earliestDeadlineFirst(), 4, spillDirectory);
+        TaskQueue reference = new TaskQueue(TaskOrderingPolicy.earliestDeadlineFirst());
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 50; i++) {
+            Task task = new Task("Task" + i, "Description" + i, now.plusMinutes((i * 37) % 50), now, Task.TaskPriority.MEDIUM);
+            taskQueue.addTask(task);
+            reference.addTask(task);
+        }
+
+        // 超出内存预算的任务应被写入磁盘
+        assertThat(taskQueue.spilledSize()).isGreaterThan(0);
+        assertThat(taskQueue.size()).isEqualTo(50);
+
+        // 删除截止时间最晚的任务，它必定已溢出到磁盘
+        Task removed = reference.getAllTasks()[0];
+        for (Task task : reference.getAllTasks()) {
+            if (task.getDueDateTime().isAfter(removed.getDueDateTime())) {
+                removed = task;
+            }
+        }
+        int spilled = taskQueue.spilledSize();
+        assertThat(taskQueue.removeTask(removed)).isTrue();
+        assertThat(taskQueue.spilledSize()).isEqualTo(spilled - 1);
+        assertThat(taskQueue.removeTask(removed)).isFalse();
+        reference.removeTask(removed);
+
+        // 出队顺序应与无内存限制的队列完全一致
+        while (!reference.isEmpty()) {
+            assertThat(taskQueue.poll()).isEqualTo(reference.poll());
+        }
+        assertThat(taskQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testSpilledRunsAreMergedByLevel(@TempDir Path spillDirectory) throws IOException {
+        TaskQueue taskQueue = new TaskQueue(TaskOrderingPolicy.earliestDeadlineFirst(), 8, spillDirectory);
+        TaskQueue reference = new TaskQueue(TaskOrderingPolicy.earliestDeadlineFirst());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Task task = new Task("Task" + i, "Description" + i, now.plusMinutes((i * 7919L) % 2000), now, Task.TaskPriority.MEDIUM);
+            tasks.add(task);
+            taskQueue.addTask(task);
+            reference.addTask(task);
+        }
+
+        // 每一层最多留下 MERGE_FANOUT - 1 个有序段
+        assertThat(taskQueue.spillRunCount()).isLessThan(7 * 4);
+        assertThat(taskQueue.size()).isEqualTo(2000);
+
+        // 删除并重新加入已溢出的任务，旧记录在读取时跳过
+        for (int i = 0; i < tasks.size(); i += 10) {
+            Task task = tasks.get(i);
+            assertThat(taskQueue.removeTask(task)).isTrue();
+            reference.removeTask(task);
+            if (i % 20 == 0) {
+                taskQueue.addTask(task);
+                reference.addTask(task);
+            }
+        }
+        assertThat(taskQueue.size()).isEqualTo(reference.size());
+
+        while (!reference.isEmpty()) {
+            assertThat(taskQueue.poll()).isEqualTo(reference.poll());
+        }
+        assertThat(taskQueue.isEmpty()).isTrue();
+
+        // 读完的段文件随关闭一并删除
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertThat(files.count()).isEqualTo(0L);
+        }
+    }
 }
@@ -1,6 +1,19 @@
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -58,22 +71,28 @@ class TaskSchedulerTest {
     }
 
     @Test
-    void testTaskReminder() throws InterruptedException {
-        // 创建一个5秒后提醒的任务
+    void testTaskReminder() {
+        // 虚拟时间下运行，无需等待真实时间
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        TaskScheduler virtualScheduler = new TaskScheduler(reminderHandler, engine, ReminderDispatcher.inline());
+        LocalDateTime now = LocalDateTime.now(engine.clock());
         Task task = new Task(
                 "Quick Reminder",
                 "Test Description",
-                LocalDateTime.now().plusMinutes(10),
-                LocalDateTime.now().plusSeconds(2),
-                Task.TaskPriority.HIGH
+                now.plusMinutes(10),
+                now.plusSeconds(2).plusNanos(500_000),
+                Task.TaskPriority.HIGH,
+                engine.clock()
         );
 
-        scheduler.scheduleTask(task);
+        virtualScheduler.scheduleTask(task);
 
-        // 等待提醒触发
-        boolean reminded = reminderHandler.waitForReminder(5, TimeUnit.SECONDS);
-        Assertions.assertTrue(reminded);
+        // 提醒不会早于设定时间触发，并以毫秒精度按时触发
+        engine.advance(Duration.ofMillis(2000));
+        Assertions.assertNull(reminderHandler.getLastRemindedTask());
+        engine.advance(Duration.ofMillis(1));
         Assertions.assertEquals(task, reminderHandler.getLastRemindedTask());
+        virtualScheduler.shutdown();
     }
 
     @Test
@@ -97,29 +116,450 @@ class TaskSchedulerTest {
     }
 
     @Test
-    void testRescheduleTask() throws InterruptedException {
-        LocalDateTime originalReminder = LocalDateTime.now().plusSeconds(2);
-        LocalDateTime newReminder = LocalDateTime.now().plusSeconds(4);
+    void testRescheduleTask() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        TaskScheduler virtualScheduler = new TaskScheduler(reminderHandler, engine, ReminderDispatcher.inline());
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        LocalDateTime originalReminder = now.plusSeconds(2);
+        LocalDateTime newReminder = now.plusSeconds(4);
 
         Task task = new Task(
                 "Reschedule Test",
                 "Test Description",
-                LocalDateTime.now().plusMinutes(10),
+                now.plusMinutes(10),
                 originalReminder,
-                Task.TaskPriority.HIGH
+                Task.TaskPriority.HIGH,
+                engine.clock()
         );
 
-        scheduler.scheduleTask(task);
-        scheduler.rescheduleTask(task, newReminder);
+        virtualScheduler.scheduleTask(task);
+        virtualScheduler.rescheduleTask(task, newReminder);
 
-        // 等待原始提醒时间
-        Thread.sleep(2500);
+        // 越过原始提醒时间
+        engine.advance(Duration.ofMillis(2500));
         Assertions.assertNull(reminderHandler.getLastRemindedTask());
 
-        // 等待新的提醒时间
-        boolean reminded = reminderHandler.waitForReminder(3, TimeUnit.SECONDS);
-        Assertions.assertTrue(reminded);
+        // 到达新的提醒时间
+        engine.advance(Duration.ofMillis(1500));
         Assertions.assertEquals(task, reminderHandler.getLastRemindedTask());
+        Assertions.assertEquals(newReminder, LocalDateTime.now(engine.clock()));
+        virtualScheduler.shutdown();
+    }
+
+    @Test
+    void testOverdueSweepMarksTasksInBulk() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        TaskScheduler virtualScheduler = new TaskScheduler(reminderHandler, engine, ReminderDispatcher.inline());
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        List<List<String>> events = new ArrayList<>();
+        List<LocalDateTime> storeSweeps = new ArrayList<>();
+        List<String> storedOverdue = new ArrayList<>();
+        virtualScheduler.setOverdueListener(events::add);
+        virtualScheduler.setOverdueStore(sweepTime -> {
+            storeSweeps.add(sweepTime);
+            // 数据库同时标记内存中的任务和只在数据库中的任务
+            return sweepTime.equals(now.plusDays(1).plusNanos(1_000_000))
+                    ? List.copyOf(storedOverdue) : List.of();
+        }, Duration.ofHours(6));
+
+        // 提醒早于截止时间，逾期不再依赖提醒触发
+        Task first = new Task("Due First", "Test Description", now.plusDays(1), now.plusHours(1),
+                Task.TaskPriority.HIGH, engine.clock());
+        Task second = new Task("Due First Too", "Test Description", now.plusDays(1), now.plusHours(2),
+                Task.TaskPriority.LOW, engine.clock());
+        Task later = new Task("Due Later", "Test Description", now.plusDays(3), now.plusHours(3),
+                Task.TaskPriority.MEDIUM, engine.clock());
+        Task completed = new Task("Completed", "Test Description", now.plusDays(1), now.plusHours(4),
+                Task.TaskPriority.MEDIUM, engine.clock());
+        storedOverdue.addAll(List.of(first.getId(), "stored-only"));
+        virtualScheduler.scheduleTask(first);
+        virtualScheduler.scheduleTask(second);
+        virtualScheduler.scheduleTask(later);
+        virtualScheduler.scheduleTask(completed);
+        virtualScheduler.completeTask(completed);
+
+        engine.advance(Duration.ofDays(2));
+        Assertions.assertEquals(Task.TaskStatus.OVERDUE, first.getStatus());
+        Assertions.assertEquals(Task.TaskStatus.OVERDUE, second.getStatus());
+        Assertions.assertEquals(Task.TaskStatus.NOT_STARTED, later.getStatus());
+        Assertions.assertEquals(Task.TaskStatus.COMPLETED, completed.getStatus());
+        // 同一时刻到期的任务在一次扫描中标记，并与数据库返回的任务合并为一个事件，每个 ID 只报告一次
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(3, events.get(0).size());
+        Assertions.assertEquals(Set.of(first.getId(), second.getId(), "stored-only"), Set.copyOf(events.get(0)));
+        Assertions.assertEquals(now.plusDays(1).plusNanos(1_000_000), first.getLastModifiedTime());
+        Assertions.assertTrue(storeSweeps.contains(now.plusDays(1).plusNanos(1_000_000)));
+
+        // 推迟截止时间后按新的截止时间逾期
+        later.setDueDateTime(now.plusDays(5));
+        virtualScheduler.updateTask(later, Task.FIELD_DUE_DATE_TIME);
+        engine.advance(Duration.ofDays(2));
+        Assertions.assertEquals(Task.TaskStatus.NOT_STARTED, later.getStatus());
+        engine.advance(Duration.ofDays(2));
+        Assertions.assertEquals(Task.TaskStatus.OVERDUE, later.getStatus());
+        Assertions.assertEquals(2, events.size());
+        virtualScheduler.shutdown();
+    }
+
+    @Test
+    void testRecurringTaskIsRearmedAtNextOccurrence() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        List<LocalDateTime> reminded = new ArrayList<>();
+        TaskScheduler virtualScheduler = new TaskScheduler(task -> reminded.add(task.getReminderTime()),
+                engine, ReminderDispatcher.inline());
+        List<Integer> storedFields = new ArrayList<>();
+        virtualScheduler.setTaskStore((task, fields) -> storedFields.add(fields));
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+
+        Task task = new Task("Daily Standup", "Test Description", now.plusHours(2), now.plusHours(1),
+                Task.TaskPriority.HIGH, engine.clock());
+        task.setRecurrence(RecurrenceRule.daily());
+        virtualScheduler.scheduleTask(task);
+
+        // 每次提醒后只安排下一次发生时间，截止时间保持相同的间隔
+        engine.advance(Duration.ofHours(1));
+        Assertions.assertEquals(List.of(now.plusHours(1)), reminded);
+        Assertions.assertEquals(now.plusDays(1).plusHours(1), task.getReminderTime());
+        Assertions.assertEquals(now.plusDays(1).plusHours(2), task.getDueDateTime());
+        Assertions.assertEquals(1, virtualScheduler.getPendingReminderCount());
+        Assertions.assertEquals(List.of(Task.FIELD_REMINDER_TIME | Task.FIELD_DUE_DATE_TIME), storedFields);
+
+        // 逾期后的下一次发生重新开始
+        engine.advance(Duration.ofDays(3));
+        Assertions.assertEquals(List.of(now.plusHours(1), now.plusDays(1).plusHours(1),
+                now.plusDays(2).plusHours(1), now.plusDays(3).plusHours(1)), reminded);
+        Assertions.assertEquals(Task.TaskStatus.NOT_STARTED, task.getStatus());
+        Assertions.assertEquals(now.plusDays(4).plusHours(1), task.getReminderTime());
+
+        // 完成任务后不再重复
+        virtualScheduler.completeTask(task);
+        engine.advance(Duration.ofDays(2));
+        Assertions.assertEquals(4, reminded.size());
+        Assertions.assertEquals(0, virtualScheduler.getPendingReminderCount());
+        virtualScheduler.shutdown();
+    }
+
+    @Test
+    void testTaskScheduledTwiceIsRemindedOnceAndReleasedAfterDelivery() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        List<String> reminded = new ArrayList<>();
+        TaskScheduler virtualScheduler = new TaskScheduler(task -> reminded.add(task.getId()),
+                engine, ReminderDispatcher.inline());
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+
+        Task task = new Task("One-off", "Test Description", now.plusHours(2), now.plusHours(1),
+                Task.TaskPriority.HIGH, engine.clock());
+        virtualScheduler.scheduleTask(task);
+        // 后台刷新加载的副本与已安排的实例同时到达
+        Task copy = virtualScheduler.scheduleTask(task.snapshot());
+
+        // 只保留最新实例的提醒
+        Assertions.assertEquals(1, virtualScheduler.getPendingReminderCount());
+        Assertions.assertSame(copy, virtualScheduler.findTask(task.getId()));
+        engine.advance(Duration.ofHours(1));
+        Assertions.assertEquals(List.of(task.getId()), reminded);
+
+        // 一次性任务提醒后不再留在内存中
+        Assertions.assertNull(virtualScheduler.findTask(task.getId()));
+        Assertions.assertThrows(NoSuchElementException.class, virtualScheduler::getNextPendingTask);
+        Assertions.assertEquals(0, virtualScheduler.getPendingReminderCount());
+        virtualScheduler.shutdown();
+    }
+
+    @Test
+    void testFailedReminderLogDoesNotStopSettlement() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        List<String> reminded = new ArrayList<>();
+        TaskScheduler virtualScheduler = new TaskScheduler(task -> reminded.add(task.getTitle()),
+                engine, ReminderDispatcher.inline());
+        virtualScheduler.setReminderLog(task -> {
+            throw new RuntimeException("Failed to mark reminder fired");
+        });
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        Task daily = new Task("Daily", "Test Description", now.plusHours(2), now.plusHours(1),
+                Task.TaskPriority.MEDIUM, engine.clock());
+        daily.setRecurrence(RecurrenceRule.daily());
+        Task oneOff = new Task("One-off", "Test Description", now.plusHours(2), now.plusHours(1),
+                Task.TaskPriority.MEDIUM, engine.clock());
+        virtualScheduler.scheduleTask(daily);
+        virtualScheduler.scheduleTask(oneOff);
+
+        // 提醒记录写入失败时，重复任务仍移到下一次发生时间，一次性任务仍被释放
+        engine.advance(Duration.ofHours(1));
+        Assertions.assertEquals(now.plusDays(1).plusHours(1), daily.getReminderTime());
+        Assertions.assertSame(daily, virtualScheduler.findTask(daily.getId()));
+        Assertions.assertNull(virtualScheduler.findTask(oneOff.getId()));
+        engine.advance(Duration.ofDays(1));
+        Assertions.assertEquals(List.of("Daily", "One-off", "Daily"), reminded);
+        virtualScheduler.shutdown();
+    }
+
+    @Test
+    void testEditOfDeliveredTaskDoesNotRequeueIt() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        List<String> reminded = new ArrayList<>();
+        TaskScheduler virtualScheduler = new TaskScheduler(task -> reminded.add(task.getTitle()),
+                engine, ReminderDispatcher.inline());
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        Task task = new Task("One-off", "Test Description", now.plusHours(2), now.plusHours(1),
+                Task.TaskPriority.LOW, engine.clock());
+        virtualScheduler.scheduleTask(task);
+        engine.advance(Duration.ofHours(1));
+        Assertions.assertNull(virtualScheduler.findTask(task.getId()));
+
+        // 编辑对话框打开期间提醒已送达，修改优先级不会把任务放回调度
+        virtualScheduler.updateTask(task, task.edit(editor -> editor.setPriority(Task.TaskPriority.HIGH)));
+        Assertions.assertNull(virtualScheduler.findTask(task.getId()));
+        Assertions.assertThrows(NoSuchElementException.class, virtualScheduler::getNextPendingTask);
+
+        // 提醒时间改到未来时重新安排
+        virtualScheduler.updateTask(task, task.edit(editor -> editor.setReminderTime(now.plusHours(3))));
+        Assertions.assertSame(task, virtualScheduler.findTask(task.getId()));
+        engine.advance(Duration.ofHours(2));
+        Assertions.assertEquals(List.of("One-off", "One-off"), reminded);
+        Assertions.assertNull(virtualScheduler.findTask(task.getId()));
+        virtualScheduler.shutdown();
+    }
+
+    @Test
+    void testRecurringTaskCanceledDuringDeliveryIsNotRescheduled() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        List<TaskScheduler> holder = new ArrayList<>();
+        TaskScheduler virtualScheduler = new TaskScheduler(task -> holder.get(0).cancelTask(task),
+                engine, ReminderDispatcher.inline());
+        holder.add(virtualScheduler);
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        Task task = new Task("Daily", "Test Description", now.plusHours(2), now.plusHours(1),
+                Task.TaskPriority.MEDIUM, engine.clock());
+        task.setRecurrence(RecurrenceRule.daily());
+        virtualScheduler.scheduleTask(task);
+
+        // 送达期间任务被取消，移到下一次发生时间后也不再放回调度
+        engine.advance(Duration.ofHours(1));
+        Assertions.assertEquals(now.plusDays(1).plusHours(1), task.getReminderTime());
+        Assertions.assertNull(virtualScheduler.findTask(task.getId()));
+        Assertions.assertEquals(0, virtualScheduler.getPendingReminderCount());
+        virtualScheduler.shutdown();
+    }
+
+    @Test
+    void testShardsAreSplitAndTakenOverAfterLeaseExpiry(@TempDir Path dir) throws InterruptedException {
+        Instant start = Instant.parse("2024-01-01T09:00:00Z");
+        VirtualTimeReminderEngine engineA = new VirtualTimeReminderEngine(start, ZoneOffset.UTC);
+        VirtualTimeReminderEngine engineB = new VirtualTimeReminderEngine(start, ZoneOffset.UTC);
+        List<String> firedByA = new ArrayList<>();
+        List<String> firedByB = new ArrayList<>();
+        TaskScheduler schedulerA = new TaskScheduler(task -> firedByA.add(task.getId()), engineA, ReminderDispatcher.inline());
+        TaskScheduler schedulerB = new TaskScheduler(task -> firedByB.add(task.getId()), engineB, ReminderDispatcher.inline());
+        // 两个进程共享同一个 SQLite 数据库中的任务、租约和提醒记录
+        TaskDAO taskDAO = new TaskDAO(dir.resolve("tasks.db"));
+        schedulerA.setReminderLog(taskDAO::markReminderFired);
+        schedulerB.setReminderLog(taskDAO::markReminderFired);
+
+        LocalDateTime now = LocalDateTime.now(engineA.clock());
+        List<Task> stored = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            Task task = new Task("Task " + i, "Test Description", now.plusDays(1), now.plusMinutes(10L * i),
+                    Task.TaskPriority.MEDIUM, engineA.clock());
+            taskDAO.saveTask(task);
+            stored.add(task);
+        }
+        CountDownLatch refilledA = new CountDownLatch(1);
+        CountDownLatch refilledB = new CountDownLatch(1);
+
+        try {
+            // 先启用分片的进程获得全部分片；B 自己创建过这些任务，内存中持有全部副本
+            schedulerA.enableSharding(taskDAO, 4, Duration.ofHours(1));
+            schedulerA.enableReminderHorizon(signalling(taskDAO, refilledA), Duration.ofDays(1), Duration.ofHours(12));
+            for (Task task : stored) {
+                schedulerB.scheduleTask(Task.fromSnapshot(task.snapshot(), engineB.clock()));
+            }
+            schedulerB.enableSharding(taskDAO, 4, Duration.ofHours(1));
+            schedulerB.enableReminderHorizon(signalling(taskDAO, refilledB), Duration.ofDays(1), Duration.ofHours(12));
+            schedulerB.startCatchUp(taskDAO::getMissedReminders, Duration.ZERO, 1000, 1000);
+            Assertions.assertTrue(refilledA.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(refilledB.await(5, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (schedulerA.getPendingReminderCount() < 40 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Assertions.assertEquals(Set.of(0, 1, 2, 3), schedulerA.getOwnedShards());
+            Assertions.assertEquals(Set.of(), schedulerB.getOwnedShards());
+            Assertions.assertEquals(40, schedulerA.getPendingReminderCount());
+            Assertions.assertEquals(0, schedulerB.getPendingReminderCount());
+
+            // 续约后两个进程各持有一半分片，每个提醒只安排一次
+            schedulerA.renewShardLeases();
+            schedulerB.renewShardLeases();
+            Assertions.assertEquals(Set.of(0, 1), schedulerA.getOwnedShards());
+            Assertions.assertEquals(Set.of(2, 3), schedulerB.getOwnedShards());
+            Assertions.assertEquals(40, schedulerA.getPendingReminderCount() + schedulerB.getPendingReminderCount());
+
+            engineA.advance(Duration.ofMinutes(30));
+            engineB.advance(Duration.ofMinutes(30));
+            schedulerA.renewShardLeases();
+            schedulerB.renewShardLeases();
+            Assertions.assertEquals(3, firedByA.size() + firedByB.size());
+
+            // A 在停止前完成一个任务并推迟另一个任务的提醒，B 内存中的副本随之过期
+            List<Task> ownedByA = stored.stream()
+                    .filter(task -> task.getReminderTime().isAfter(now.plusMinutes(40)))
+                    .filter(task -> schedulerA.getOwnedShards().contains(ReminderShards.shardOf(task.getId(), 4)))
+                    .toList();
+            Task completed = schedulerA.findTask(ownedByA.get(0).getId());
+            taskDAO.completeTasks(List.of(completed.getId()), LocalDateTime.now(engineA.clock()));
+            schedulerA.completeTask(completed);
+            Task postponed = schedulerA.findTask(ownedByA.get(1).getId());
+            LocalDateTime postponedTo = now.plusMinutes(10L * 40 + 5);
+            postponed.setReminderTime(postponedTo);
+            taskDAO.updateTask(postponed, Task.FIELD_REMINDER_TIME);
+            schedulerA.updateTask(postponed, Task.FIELD_REMINDER_TIME);
+
+            // A 停止续约；租约过期后 B 接管其分片，从数据库重新加载任务并补发期间错过的提醒
+            for (int step = 0; step < 4; step++) {
+                engineB.advance(Duration.ofMinutes(20));
+                schedulerB.renewShardLeases();
+            }
+            Assertions.assertEquals(Set.of(0, 1, 2, 3), schedulerB.getOwnedShards());
+            Assertions.assertEquals(postponedTo, schedulerB.findTask(postponed.getId()).getReminderTime());
+            for (int step = 0; step < 18; step++) {
+                engineB.advance(Duration.ofMinutes(20));
+                schedulerB.renewShardLeases();
+            }
+
+            List<String> all = new ArrayList<>(firedByA);
+            all.addAll(firedByB);
+            Assertions.assertEquals(39, all.size());
+            Assertions.assertEquals(39, Set.copyOf(all).size());
+            Assertions.assertFalse(all.contains(completed.getId()));
+            Assertions.assertTrue(firedByB.contains(postponed.getId()));
+        } finally {
+            schedulerA.shutdown();
+            schedulerB.shutdown();
+        }
+    }
+
+    @Test
+    void testFailedAsyncRemindersAreRetriedWithBackoffAndDeadLettered() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        Map<String, List<LocalDateTime>> attempts = new ConcurrentHashMap<>();
+        TaskScheduler.AsyncTaskReminderHandler handler = task -> {
+            List<LocalDateTime> times = attempts.computeIfAbsent(task.getTitle(), title -> new CopyOnWriteArrayList<>());
+            times.add(LocalDateTime.now(engine.clock()));
+            if (task.getTitle().equals("Broken")) {
+                throw new IllegalStateException("Notification service unavailable");
+            }
+            // 前两次失败，第三次成功
+            return times.size() < 3
+                    ? CompletableFuture.failedFuture(new IllegalStateException("Try again"))
+                    : CompletableFuture.completedFuture(null);
+        };
+        TaskScheduler asyncScheduler = new TaskScheduler(handler, 2,
+                new TaskScheduler.RetryPolicy(3, Duration.ofSeconds(1), Duration.ofSeconds(4), Duration.ofSeconds(10)),
+                engine, ReminderDispatcher.inline());
+        List<String> deadLetters = new ArrayList<>();
+        List<String> fired = new ArrayList<>();
+        asyncScheduler.setDeadLetterStore((task, count, error, failedTime) ->
+                deadLetters.add(task.getTitle() + " " + count + " " + error.getMessage() + " " + failedTime));
+        asyncScheduler.setReminderLog(task -> fired.add(task.getTitle()));
+
+        Task flaky = new Task("Flaky", "Test Description", now.plusDays(1), now.plusMinutes(1), Task.TaskPriority.HIGH, engine.clock());
+        Task broken = new Task("Broken", "Test Description", now.plusDays(1), now.plusMinutes(1), Task.TaskPriority.LOW, engine.clock());
+        asyncScheduler.scheduleTask(flaky);
+        asyncScheduler.scheduleTask(broken);
+        engine.advance(Duration.ofMinutes(2));
+
+        // 重试间隔按 1 秒、2 秒指数增长
+        LocalDateTime due = now.plusMinutes(1);
+        Assertions.assertEquals(List.of(due, due.plusSeconds(1), due.plusSeconds(3)), attempts.get("Flaky"));
+        Assertions.assertEquals(List.of(due, due.plusSeconds(1), due.plusSeconds(3)), attempts.get("Broken"));
+        Assertions.assertEquals(List.of("Broken 3 Notification service unavailable " + due.plusSeconds(3)), deadLetters);
+        Assertions.assertEquals(Set.of("Flaky", "Broken"), Set.copyOf(fired));
+        Assertions.assertEquals(new TaskScheduler.DeliveryStats(1, 4, 1, 0, 0), asyncScheduler.getDeliveryStats());
+        Assertions.assertEquals(0, asyncScheduler.getPendingReminderCount());
+        asyncScheduler.shutdown();
+    }
+
+    @Test
+    void testAsyncDeliveriesAreBoundedAndTimedOut() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        Map<String, List<CompletableFuture<Void>>> calls = new ConcurrentHashMap<>();
+        TaskScheduler asyncScheduler = new TaskScheduler(task -> {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            calls.computeIfAbsent(task.getTitle(), title -> new CopyOnWriteArrayList<>()).add(result);
+            return result;
+        }, 2, new TaskScheduler.RetryPolicy(2, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(10)),
+                engine, ReminderDispatcher.inline());
+        List<String> deadLetters = new ArrayList<>();
+        asyncScheduler.setDeadLetterStore((task, count, error, failedTime) -> deadLetters.add(task.getTitle()));
+        for (int i = 1; i <= 3; i++) {
+            asyncScheduler.scheduleTask(new Task("Task " + i, "Test Description", now.plusDays(1), now.plusMinutes(1),
+                    Task.TaskPriority.MEDIUM, engine.clock()));
+        }
+
+        // 同时最多两个送达，第三个提醒排队等待
+        engine.advance(Duration.ofMinutes(1));
+        Assertions.assertEquals(Set.of("Task 1", "Task 2"), calls.keySet());
+        Assertions.assertEquals(new TaskScheduler.DeliveryStats(0, 0, 0, 2, 1), asyncScheduler.getDeliveryStats());
+
+        calls.get("Task 1").get(0).complete(null);
+        Assertions.assertEquals(Set.of("Task 1", "Task 2", "Task 3"), calls.keySet());
+        Assertions.assertEquals(new TaskScheduler.DeliveryStats(1, 0, 0, 2, 0), asyncScheduler.getDeliveryStats());
+
+        // 超时的送达立即安排重试，但处理器未结束前仍占用槽位，重试只能等待
+        engine.advance(Duration.ofSeconds(30));
+        Assertions.assertEquals(new TaskScheduler.DeliveryStats(1, 2, 0, 2, 2), asyncScheduler.getDeliveryStats());
+        Assertions.assertEquals(1, calls.get("Task 2").size());
+        Assertions.assertEquals(1, calls.get("Task 3").size());
+
+        // 迟到的结果只释放槽位，不计为送达或再次重试
+        calls.get("Task 2").get(0).complete(null);
+        calls.get("Task 3").get(0).completeExceptionally(new IllegalStateException("Too late"));
+        Assertions.assertEquals(new TaskScheduler.DeliveryStats(1, 2, 0, 2, 0), asyncScheduler.getDeliveryStats());
+        Assertions.assertEquals(2, calls.get("Task 2").size());
+        Assertions.assertEquals(2, calls.get("Task 3").size());
+
+        // 重试仍超时后计为失败，槽位同样等处理器结束才释放
+        engine.advance(Duration.ofSeconds(30));
+        Assertions.assertEquals(new TaskScheduler.DeliveryStats(1, 2, 2, 2, 0), asyncScheduler.getDeliveryStats());
+        Assertions.assertEquals(Set.of("Task 2", "Task 3"), Set.copyOf(deadLetters));
+        calls.get("Task 2").get(1).complete(null);
+        calls.get("Task 3").get(1).complete(null);
+        Assertions.assertEquals(new TaskScheduler.DeliveryStats(1, 2, 2, 0, 0), asyncScheduler.getDeliveryStats());
+        Assertions.assertEquals(0, asyncScheduler.getPendingReminderCount());
+        asyncScheduler.shutdown();
+    }
+
+    @Test
+    void testAsyncDeliveriesAreSettledOnDispatcher() throws InterruptedException {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CountDownLatch called = new CountDownLatch(1);
+        TaskScheduler asyncScheduler = new TaskScheduler(task -> {
+            called.countDown();
+            return result;
+        }, 1, new TaskScheduler.RetryPolicy(1, Duration.ofSeconds(1), Duration.ofSeconds(1), null),
+                engine, ReminderDispatcher.platformPool(1, 10));
+        CountDownLatch logged = new CountDownLatch(1);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        asyncScheduler.setReminderLog(task -> {
+            threads.add(Thread.currentThread().getName());
+            logged.countDown();
+        });
+        asyncScheduler.scheduleTask(new Task("Test Task", "Test Description", now.plusDays(1), now.plusMinutes(1),
+                Task.TaskPriority.MEDIUM, engine.clock()));
+        engine.advance(Duration.ofMinutes(1));
+        Assertions.assertTrue(called.await(5, TimeUnit.SECONDS));
+
+        // 由测试线程完成 future，记录提醒仍在分发线程上进行
+        result.complete(null);
+        Assertions.assertTrue(logged.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, threads.size());
+        Assertions.assertTrue(threads.get(0).startsWith("reminder-dispatch-"), threads.get(0));
+        asyncScheduler.shutdown();
     }
 
     @Test
@@ -136,6 +576,183 @@ class TaskSchedulerTest {
         Assertions.assertEquals(Task.TaskStatus.OVERDUE, task.getStatus());
     }
 
+    @Test
+    void testSlowHandlerDoesNotDelayOtherReminders() throws InterruptedException {
+        CountDownLatch fastReminder = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        TaskScheduler dispatchingScheduler = new TaskScheduler(task -> {
+            if (task.getTitle().equals("Slow")) {
+                try {
+                    releaseSlow.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                fastReminder.countDown();
+            }
+        }, new ExecutorReminderEngine(), ReminderDispatcher.virtualThreads(8));
+
+        LocalDateTime reminderTime = LocalDateTime.now().plusSeconds(2);
+        dispatchingScheduler.scheduleTask(new Task("Slow", "Test Description",
+                LocalDateTime.now().plusMinutes(10), reminderTime, Task.TaskPriority.HIGH));
+        dispatchingScheduler.scheduleTask(new Task("Fast", "Test Description",
+                LocalDateTime.now().plusMinutes(10), reminderTime, Task.TaskPriority.HIGH));
+
+        try {
+            // 慢处理器阻塞时，另一个提醒仍应按时送达
+            Assertions.assertTrue(fastReminder.await(4, TimeUnit.SECONDS));
+        } finally {
+            releaseSlow.countDown();
+            dispatchingScheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testRemindersDueTogetherAreDeliveredAsOneBatch() throws InterruptedException {
+        List<List<Task>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        TaskScheduler batchingScheduler = new TaskScheduler(tasks -> {
+            batches.add(tasks);
+            delivered.countDown();
+        }, Duration.ofMillis(200), 100, Duration.ofSeconds(1),
+                new ExecutorReminderEngine(), ReminderDispatcher.platformPool(2, 100));
+
+        LocalDateTime reminderTime = LocalDateTime.now().plusSeconds(2);
+        Task completed = new Task("Completed", "Test Description",
+                LocalDateTime.now().plusMinutes(10), reminderTime, Task.TaskPriority.LOW);
+        for (int i = 0; i < 3; i++) {
+            batchingScheduler.scheduleTask(new Task("Batch " + i, "Test Description",
+                    LocalDateTime.now().plusMinutes(10), reminderTime, Task.TaskPriority.HIGH));
+        }
+        batchingScheduler.scheduleTask(completed);
+        completed.setStatus(Task.TaskStatus.COMPLETED);
+
+        try {
+            // 同时到期的提醒应合并为一次回调，已完成的任务不应出现在批次中
+            Assertions.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            Thread.sleep(500);
+            Assertions.assertEquals(1, batches.size());
+            Assertions.assertEquals(3, batches.get(0).size());
+            Assertions.assertFalse(batches.get(0).contains(completed));
+        } finally {
+            batchingScheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testBatchFlushTimersAreNotCountedAsReminders() {
+        VirtualTimeReminderEngine engine = new VirtualTimeReminderEngine(Instant.parse("2024-01-01T09:00:00Z"), ZoneOffset.UTC);
+        List<List<Task>> batches = new ArrayList<>();
+        TaskScheduler batchingScheduler = new TaskScheduler(batches::add, Duration.ofMinutes(1), 2,
+                Duration.ofMinutes(5), engine, ReminderDispatcher.inline());
+        LocalDateTime now = LocalDateTime.now(engine.clock());
+        for (int i = 0; i < 3; i++) {
+            batchingScheduler.scheduleTask(new Task("Batch " + i, "Test Description", now.plusDays(1),
+                    now.plusHours(1 + i / 2), Task.TaskPriority.HIGH, engine.clock()));
+        }
+        Assertions.assertEquals(3, batchingScheduler.getPendingReminderCount());
+
+        // 批次已满立即送达，其刷新定时器仍在引擎中但不是提醒
+        engine.advance(Duration.ofHours(1));
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(1, batchingScheduler.getPendingReminderCount());
+
+        engine.advance(Duration.ofHours(2));
+        Assertions.assertEquals(2, batches.size());
+        Assertions.assertEquals(0, batchingScheduler.getPendingReminderCount());
+        batchingScheduler.shutdown();
+    }
+
+    @Test
+    void testOnlyRemindersWithinHorizonAreKeptInMemory() throws InterruptedException {
+        // 模拟数据库：按提醒时间和 ID 排序的任务
+        List<Task> stored = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            stored.add(new Task("Stored " + i, "Test Description", LocalDateTime.now().plusDays(30),
+                    LocalDateTime.now().plusSeconds(30 + 60L * i), Task.TaskPriority.MEDIUM));
+        }
+        stored.sort(Comparator.comparing(Task::getReminderTime).thenComparing(Task::getId));
+        TaskScheduler.ReminderSource source = (after, afterId, until, limit) -> stored.stream()
+                .filter(task -> task.getReminderTime().isAfter(after)
+                        || (task.getReminderTime().equals(after) && task.getId().compareTo(afterId) > 0))
+                .filter(task -> !task.getReminderTime().isAfter(until))
+                .limit(limit)
+                .toList();
+
+        scheduler.enableReminderHorizon(source, Duration.ofHours(10), Duration.ofHours(1));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getPendingReminderCount() < 600 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // 跨越多页加载窗口内的提醒，窗口外的任务不进入内存
+        Assertions.assertEquals(600, scheduler.getPendingReminderCount());
+        Assertions.assertNotNull(scheduler.findTask(stored.get(599).getId()));
+        Assertions.assertNull(scheduler.findTask(stored.get(600).getId()));
+
+        Task farTask = createTestTask("Far Task", Task.TaskPriority.HIGH);
+        farTask.setReminderTime(LocalDateTime.now().plusDays(1));
+        scheduler.scheduleTask(farTask);
+        Assertions.assertNull(scheduler.findTask(farTask.getId()));
+
+        // 提醒被推迟到窗口之外时，任务从内存中移除
+        Task nearTask = scheduler.findTask(stored.get(0).getId());
+        nearTask.setReminderTime(LocalDateTime.now().plusDays(2));
+        scheduler.updateTask(nearTask, Task.FIELD_REMINDER_TIME);
+        Assertions.assertNull(scheduler.findTask(nearTask.getId()));
+        Assertions.assertEquals(599, scheduler.getPendingReminderCount());
+    }
+
+    @Test
+    void testMissedRemindersAreReplayedInOrderAtLimitedRate() throws InterruptedException {
+        List<Task> delivered = new CopyOnWriteArrayList<>();
+        TaskScheduler catchUpScheduler = new TaskScheduler(delivered::add,
+                new ExecutorReminderEngine(), ReminderDispatcher.inline());
+
+        // 模拟离线期间错过的提醒，其中一个已经送达过
+        List<Task> stored = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            stored.add(new Task("Missed " + i, "Test Description", LocalDateTime.now().plusDays(1),
+                    LocalDateTime.now().minusMinutes(30 - i), Task.TaskPriority.MEDIUM));
+        }
+        Set<String> fired = ConcurrentHashMap.newKeySet();
+        fired.add(stored.get(0).getId());
+        TaskScheduler.ReminderSource missed = (after, afterId, until, limit) -> stored.stream()
+                .filter(task -> task.getReminderTime().isAfter(after))
+                .filter(task -> !task.getReminderTime().isAfter(until))
+                .filter(task -> !fired.contains(task.getId()))
+                .limit(limit)
+                .toList();
+        catchUpScheduler.setReminderLog(task -> fired.add(task.getId()));
+
+        try {
+            ReminderCatchUp catchUp = catchUpScheduler.startCatchUp(missed, Duration.ofHours(1), 100, 10);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!catchUp.isFinished() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            Assertions.assertTrue(catchUp.isFinished());
+            Assertions.assertEquals(29, catchUp.getReplayedCount());
+            Assertions.assertEquals(Duration.ZERO, catchUp.getLag());
+            Assertions.assertEquals(stored.subList(1, 30), delivered);
+            Assertions.assertEquals(30, fired.size());
+            // 突发 10 条之后按每秒 100 条补发
+            Assertions.assertTrue(catchUp.getElapsed().toMillis() >= 150);
+        } finally {
+            catchUpScheduler.shutdown();
+        }
+    }
+
+    // 在返回第一页后发出信号，此时时间窗口的边界已经公开
+    private static TaskScheduler.ReminderSource signalling(TaskDAO taskDAO, CountDownLatch refilled) {
+        return (after, afterId, until, limit) -> {
+            List<Task> page = taskDAO.getTasksByReminderTime(after, afterId, until, limit);
+            refilled.countDown();
+            return page;
+        };
+    }
+
     private Task createTestTask(String title, Task.TaskPriority priority) {
         return new Task(
                 title,
@@ -0,0 +1,292 @@
+import org.junit.jupiter.api.Test;
+import static com.google.common.truth.Truth.assertThat;
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.event.TableModelEvent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TaskTableModelTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Test
+    public void testChangesFireEventsForTouchedRowsOnly() {
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+        List<String> events = new ArrayList<>();
+        model.addTableModelListener(e -> events.add(e.getType() + " " + e.getFirstRow() + "-" + e.getLastRow() + " " + e.getColumn()));
+        Task first = createTask("First", 1);
+        Task second = createTask("Second", 2);
+
+        model.putTasks(List.of(first, second));
+        first.setTitle("First updated");
+        model.putTask(first);
+        model.setStatus(second.getId(), Task.TaskStatus.OVERDUE);
+
+        // 单元格按类型返回，时间由渲染器格式化
+        assertThat(model.getValueAt(0, TaskTableModel.COLUMN_TITLE)).isEqualTo("First updated");
+        assertThat(model.getValueAt(1, TaskTableModel.COLUMN_STATUS)).isEqualTo(Task.TaskStatus.OVERDUE);
+        assertThat(model.getValueAt(1, TaskTableModel.COLUMN_DUE_TIME)).isEqualTo(START.plusHours(2));
+        assertThat(events).containsExactly(
+                TableModelEvent.INSERT + " 0-1 " + TableModelEvent.ALL_COLUMNS,
+                TableModelEvent.UPDATE + " 0-0 " + TableModelEvent.ALL_COLUMNS,
+                TableModelEvent.UPDATE + " 1-1 " + TaskTableModel.COLUMN_STATUS);
+
+        // 删除时最后一行移到被删除的位置
+        events.clear();
+        assertThat(model.removeTask(first.getId())).isTrue();
+        assertThat(model.getRowCount()).isEqualTo(1);
+        assertThat(model.getTaskId(0)).isEqualTo(second.getId());
+        assertThat(events).containsExactly(
+                TableModelEvent.DELETE + " 1-1 " + TableModelEvent.ALL_COLUMNS,
+                TableModelEvent.UPDATE + " 0-0 " + TableModelEvent.ALL_COLUMNS);
+    }
+
+    @Test
+    public void testSortedViewFollowsInsertsUpdatesAndRemovals() {
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+        JTable table = new JTable(model);
+        TaskRowSorter sorter = new TaskRowSorter(model);
+        table.setRowSorter(sorter);
+        Random random = new Random(42);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(createTask("Task " + i, random.nextInt(50)));
+        }
+        model.putTasks(tasks);
+
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(TaskTableModel.COLUMN_DUE_TIME, SortOrder.ASCENDING)));
+        assertSortedByDue(table, false);
+        sorter.toggleSortOrder(TaskTableModel.COLUMN_DUE_TIME);
+        assertThat(sorter.getSortKeys().get(0).getSortOrder()).isEqualTo(SortOrder.DESCENDING);
+        assertSortedByDue(table, true);
+
+        // 少量变化按二分插入维护索引
+        for (int i = 0; i < 20; i++) {
+            model.putTask(createTask("New " + i, random.nextInt(50)));
+            Task changed = tasks.get(random.nextInt(tasks.size()));
+            changed.setDueDateTime(START.plusHours(random.nextInt(50)));
+            model.putTask(changed);
+            model.removeTask(tasks.remove(random.nextInt(tasks.size())).getId());
+        }
+        assertThat(table.getRowCount()).isEqualTo(200);
+        assertSortedByDue(table, true);
+
+        // 不影响排序列的修改不会打乱顺序
+        model.setStatus(tasks.get(0).getId(), Task.TaskStatus.COMPLETED);
+        assertSortedByDue(table, true);
+        int view = table.convertRowIndexToView(model.rowOf(tasks.get(0).getId()));
+        assertThat(table.getValueAt(view, TaskTableModel.COLUMN_STATUS)).isEqualTo(Task.TaskStatus.COMPLETED);
+
+        // ID 列不可排序
+        sorter.toggleSortOrder(TaskTableModel.COLUMN_ID);
+        assertThat(sorter.getSortKeys().get(0).getColumn()).isEqualTo(TaskTableModel.COLUMN_DUE_TIME);
+    }
+
+    @Test
+    public void testBatchUpdatesThatCrossEachOtherKeepOrder() {
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+        JTable table = new JTable(model);
+        TaskRowSorter sorter = new TaskRowSorter(model);
+        table.setRowSorter(sorter);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(createTask("Task " + i, i));
+        }
+        model.putTasks(tasks);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(TaskTableModel.COLUMN_DUE_TIME, SortOrder.ASCENDING)));
+
+        // 同一批更新中，两行各自越过对方原来的位置
+        tasks.get(1).setDueDateTime(START.plusMinutes(450));
+        tasks.get(5).setDueDateTime(START.plusHours(100));
+        model.putTasks(List.of(tasks.get(1), tasks.get(5)));
+
+        assertSortedByDue(table, false);
+        List<String> titles = new ArrayList<>();
+        for (int view = 0; view < table.getRowCount(); view++) {
+            titles.add((String) table.getValueAt(view, TaskTableModel.COLUMN_TITLE));
+        }
+        assertThat(titles).containsExactly("Task 0", "Task 2", "Task 3", "Task 4", "Task 6", "Task 7",
+                "Task 1", "Task 8", "Task 9", "Task 5");
+    }
+
+    @Test
+    public void testStatusBatchReordersRowsSortedByStatus() {
+        Task.TaskStatus[] values = Task.TaskStatus.values();
+        for (int seed = 0; seed < 50; seed++) {
+            Random random = new Random(seed);
+            TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+            JTable table = new JTable(model);
+            TaskRowSorter sorter = new TaskRowSorter(model);
+            table.setRowSorter(sorter);
+            List<Task> tasks = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                tasks.add(createTask("Task " + i, 0));
+            }
+            model.putTasks(tasks);
+            for (Task task : tasks) {
+                model.setStatus(task.getId(), values[random.nextInt(values.length)]);
+            }
+            sorter.setSortKeys(List.of(new RowSorter.SortKey(TaskTableModel.COLUMN_STATUS, SortOrder.ASCENDING)));
+
+            // 一个事件覆盖相邻的十行，其中多行的新状态互相越过
+            Map<String, Task.TaskStatus> statuses = new LinkedHashMap<>();
+            int first = random.nextInt(90);
+            for (int i = 0; i < 6; i++) {
+                statuses.put(tasks.get(first + random.nextInt(10)).getId(), values[random.nextInt(values.length)]);
+            }
+            model.setStatuses(statuses);
+
+            for (int view = 1; view < table.getRowCount(); view++) {
+                Task.TaskStatus previous = (Task.TaskStatus) table.getValueAt(view - 1, TaskTableModel.COLUMN_STATUS);
+                Task.TaskStatus current = (Task.TaskStatus) table.getValueAt(view, TaskTableModel.COLUMN_STATUS);
+                assertThat(previous.compareTo(current)).isAtMost(0);
+                assertThat(table.convertRowIndexToView(table.convertRowIndexToModel(view))).isEqualTo(view);
+            }
+        }
+    }
+
+    @Test
+    public void testSearchMatchesTitlesAndDescriptionsAsEdited() {
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+        Random random = new Random(7);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            tasks.add(new Task(randomText(random), randomText(random), START.plusHours(i), START, Task.TaskPriority.LOW));
+        }
+        model.putTasks(tasks);
+        String[] queries = {"a", "B", "ab", "Ca", "abc", "bca", "abca", "cab c", "aBcAb", "中文", "文b", "x"};
+        assertSearchMatches(model, queries);
+
+        // 编辑和删除后索引随之更新
+        for (int i = 0; i < 100; i++) {
+            Task task = tasks.get(random.nextInt(tasks.size()));
+            task.setTitle(randomText(random));
+            model.putTask(task);
+            model.removeTask(tasks.remove(random.nextInt(tasks.size())).getId());
+        }
+        assertSearchMatches(model, queries);
+        assertThat(model.search("").cardinality()).isEqualTo(model.getRowCount());
+    }
+
+    @Test
+    public void testSearchSpansDenseAndSparseRows() {
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 70_000; i++) {
+            // 三元组 "xyz" 在前 65536 行中足够密集，以位图保存
+            String title = i % 7 == 0 ? "Txyz" : i % 1000 == 1 ? "Tqrs" : "T";
+            tasks.add(new Task(title, "", START, START, Task.TaskPriority.LOW));
+        }
+        model.putTasks(tasks);
+        String[] queries = {"xyz", "Txy", "qrs", "T", "tq", "xyzq"};
+        assertSearchMatches(model, queries);
+
+        // 删除大部分行后位图转回有序数组
+        for (int i = 0; i < 60_000; i++) {
+            model.removeTask(tasks.get(i).getId());
+        }
+        assertSearchMatches(model, queries);
+    }
+
+    @Test
+    public void testSearchFiltersSortedViewAndFollowsChanges() {
+        TaskTableModel model = new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+        JTable table = new JTable(model);
+        TaskRowSorter sorter = new TaskRowSorter(model);
+        table.setRowSorter(sorter);
+        Random random = new Random(11);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(new Task(randomText(random), "", START.plusHours(random.nextInt(50)), START, Task.TaskPriority.LOW));
+        }
+        model.putTasks(tasks);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(TaskTableModel.COLUMN_DUE_TIME, SortOrder.DESCENDING)));
+
+        // 逐字输入时在上一次的结果中继续筛选
+        sorter.setSearchText("a");
+        sorter.setSearchText("ab");
+        assertFilteredView(table, "ab");
+
+        for (int i = 0; i < 30; i++) {
+            model.putTask(new Task(randomText(random), "", START.plusHours(random.nextInt(50)), START, Task.TaskPriority.LOW));
+            Task changed = tasks.get(random.nextInt(tasks.size()));
+            changed.setTitle(randomText(random));
+            changed.setDueDateTime(START.plusHours(random.nextInt(50)));
+            model.putTask(changed);
+            model.setStatus(tasks.get(random.nextInt(tasks.size())).getId(), Task.TaskStatus.COMPLETED);
+            model.removeTask(tasks.remove(random.nextInt(tasks.size())).getId());
+            assertFilteredView(table, "ab");
+        }
+
+        sorter.setSearchText("");
+        assertThat(table.getRowCount()).isEqualTo(model.getRowCount());
+        assertSortedByDue(table, true);
+    }
+
+    private void assertSearchMatches(TaskTableModel model, String[] queries) {
+        for (String query : queries) {
+            BitSet expected = new BitSet();
+            for (int row = 0; row < model.getRowCount(); row++) {
+                String title = ((String) model.getValueAt(row, TaskTableModel.COLUMN_TITLE)).toLowerCase();
+                String description = ((String) model.getValueAt(row, TaskTableModel.COLUMN_DESCRIPTION)).toLowerCase();
+                if (title.contains(query.toLowerCase()) || description.contains(query.toLowerCase())) {
+                    expected.set(row);
+                }
+            }
+            assertThat(model.search(query)).isEqualTo(expected);
+        }
+    }
+
+    private void assertFilteredView(JTable table, String query) {
+        TaskTableModel model = (TaskTableModel) table.getModel();
+        int expected = 0;
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (((String) model.getValueAt(row, TaskTableModel.COLUMN_TITLE)).toLowerCase().contains(query)) {
+                expected++;
+                int view = table.convertRowIndexToView(row);
+                assertThat(view).isAtLeast(0);
+                assertThat(table.convertRowIndexToModel(view)).isEqualTo(row);
+            } else {
+                assertThat(table.convertRowIndexToView(row)).isEqualTo(-1);
+            }
+        }
+        assertThat(table.getRowCount()).isEqualTo(expected);
+        assertSortedByDue(table, true);
+    }
+
+    /**
+     * Builds a short text from a small alphabet, with mixed case and non-ASCII characters, so that trigrams repeat often.
+     */
+    private String randomText(Random random) {
+        String alphabet = "abcABC 中文";
+        StringBuilder text = new StringBuilder();
+        for (int i = random.nextInt(12); i > 0; i--) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    private void assertSortedByDue(JTable table, boolean descending) {
+        TaskTableModel model = (TaskTableModel) table.getModel();
+        for (int view = 1; view < table.getRowCount(); view++) {
+            LocalDateTime previous = (LocalDateTime) model.getValueAt(table.convertRowIndexToModel(view - 1), TaskTableModel.COLUMN_DUE_TIME);
+            LocalDateTime current = (LocalDateTime) model.getValueAt(table.convertRowIndexToModel(view), TaskTableModel.COLUMN_DUE_TIME);
+            if (descending) {
+                assertThat(previous).isAtLeast(current);
+            } else {
+                assertThat(previous).isAtMost(current);
+            }
+            assertThat(table.convertRowIndexToView(table.convertRowIndexToModel(view))).isEqualTo(view);
+        }
+    }
+
+    private Task createTask(String title, int dueHours) {
+        return new Task(title, "Description", START.plusHours(dueHours), START, Task.TaskPriority.MEDIUM);
+    }
+}
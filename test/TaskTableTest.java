@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.Test;
+import static com.google.common.truth.Truth.assertThat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TaskTableTest {
+
+    @Test
+    public void testPutAndView() {
+        TaskTable table = new TaskTable();
+        Task task = new Task(
+                "Complete Project",
+                "完成期末项目",
+                LocalDateTime.of(2024, 12, 31, 23, 59),
+                LocalDateTime.of(2024, 12, 30, 12, 0),
+                Task.TaskPriority.HIGH
+        );
+
+        table.put(task);
+
+        // 视图应返回与原任务相同的字段
+        TaskTable.TaskView view = table.get(task.getId());
+        assertThat(view).isNotNull();
+        assertThat(view.getId()).isEqualTo(task.getId());
+        assertThat(view.getTitle()).isEqualTo("Complete Project");
+        assertThat(view.getDescription()).isEqualTo("完成期末项目");
+        assertThat(view.getDueDateTime()).isEqualTo(LocalDateTime.of(2024, 12, 31, 23, 59));
+        assertThat(view.getReminderTime()).isEqualTo(LocalDateTime.of(2024, 12, 30, 12, 0));
+        assertThat(view.getPriority()).isEqualTo(Task.TaskPriority.HIGH);
+        assertThat(view.getStatus()).isEqualTo(Task.TaskStatus.NOT_STARTED);
+        assertThat(view.toTask()).isEqualTo(task);
+    }
+
+    @Test
+    public void testPutReplacesExistingRow() {
+        TaskTable table = new TaskTable();
+        Task task = new Task("Task1", "Description1", LocalDateTime.now().plusDays(1), LocalDateTime.now(), Task.TaskPriority.LOW);
+
+        int row = table.put(task);
+        task.setTitle("Task1 updated");
+        task.setStatus(Task.TaskStatus.IN_PROGRESS);
+
+        assertThat(table.put(task)).isEqualTo(row);
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.view(row).getTitle()).isEqualTo("Task1 updated");
+        assertThat(table.view(row).getStatus()).isEqualTo(Task.TaskStatus.IN_PROGRESS);
+    }
+
+    @Test
+    public void testRemoveKeepsOtherRowsReachable() {
+        TaskTable table = new TaskTable(16);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Task task = new Task("Task" + i, "Description" + i, LocalDateTime.now().plusDays(1), LocalDateTime.now(), Task.TaskPriority.MEDIUM);
+            tasks.add(task);
+            table.put(task);
+        }
+
+        // 删除一半任务
+        for (int i = 0; i < 1000; i += 2) {
+            assertThat(table.remove(tasks.get(i).getId())).isTrue();
+        }
+
+        assertThat(table.size()).isEqualTo(500);
+        for (int i = 0; i < 1000; i++) {
+            TaskTable.TaskView view = table.get(tasks.get(i).getId());
+            if (i % 2 == 0) {
+                assertThat(view).isNull();
+            } else {
+                assertThat(view.getTitle()).isEqualTo("Task" + i);
+            }
+        }
+        assertThat(table.remove(tasks.get(0).getId())).isFalse();
+    }
+
+    @Test
+    public void testSortedRowsOrderStablyByColumn() {
+        TaskTable table = new TaskTable(16);
+        Random random = new Random(42);
+        String[] prefixes = {"Task", "Task ", "Task number ", "任务", ""};
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 2000; i++) {
+            String title = prefixes[random.nextInt(prefixes.length)] + random.nextInt(50);
+            table.put(new Task(title, "", start.plusHours(random.nextInt(100)), start, Task.TaskPriority.MEDIUM));
+        }
+
+        // 先按完整文本（码点顺序）再按行号排序
+        int[] byTitle = table.sortedRows(TaskTable.Column.TITLE);
+        int[] byDue = table.sortedRows(TaskTable.Column.DUE_DATE_TIME);
+        assertThat(byTitle.length).isEqualTo(2000);
+        for (int i = 1; i < byTitle.length; i++) {
+            String previous = table.view(byTitle[i - 1]).getTitle();
+            String current = table.view(byTitle[i]).getTitle();
+            int comparison = compareCodePoints(previous, current);
+            assertThat(comparison <= 0).isTrue();
+            if (comparison == 0) {
+                assertThat(byTitle[i - 1]).isLessThan(byTitle[i]);
+            }
+            int dueComparison = table.view(byDue[i - 1]).getDueDateTime().compareTo(table.view(byDue[i]).getDueDateTime());
+            assertThat(dueComparison <= 0).isTrue();
+            if (dueComparison == 0) {
+                assertThat(byDue[i - 1]).isLessThan(byDue[i]);
+            }
+        }
+    }
+
+    private static int compareCodePoints(String a, String b) {
+        return Arrays.compare(a.codePoints().toArray(), b.codePoints().toArray());
+    }
+}
@@ -66,4 +66,98 @@ public class TaskTest {
         // Verify status
         assertThat(task.getStatus()).isEqualTo(Task.TaskStatus.COMPLETED);
     }
+
+    @Test
+    public void testEditRecordsOnlyChangedFields() {
+        Task task = new Task(
+                "Complete Project",
+                "Finish the final project for CS class.",
+                LocalDateTime.of(2024, 12, 31, 23, 59),
+                LocalDateTime.of(2024, 12, 30, 12, 0),
+                Task.TaskPriority.HIGH
+        );
+
+        // 标题和优先级不变，只修改描述和提醒时间
+        int changed = task.edit(editor -> editor
+                .setTitle("Complete Project")
+                .setDescription("Finish the final project for Computer Science class.")
+                .setReminderTime(LocalDateTime.of(2024, 12, 29, 9, 0))
+                .setPriority(Task.TaskPriority.HIGH));
+
+        assertThat(changed).isEqualTo(Task.FIELD_DESCRIPTION | Task.FIELD_REMINDER_TIME);
+        assertThat(task.getDescription()).isEqualTo("Finish the final project for Computer Science class.");
+        assertThat(task.getReminderTime()).isEqualTo(LocalDateTime.of(2024, 12, 29, 9, 0));
+
+        assertThat(task.edit(editor -> editor.setTitle("Complete Project"))).isEqualTo(0);
+    }
+
+    @Test
+    public void testSnapshotIsImmutableAndVersioned() {
+        Task task = new Task(
+                "Complete Project",
+                "Finish the final project for CS class.",
+                LocalDateTime.of(2024, 12, 31, 23, 59),
+                LocalDateTime.of(2024, 12, 30, 12, 0),
+                Task.TaskPriority.HIGH
+        );
+
+        TaskSnapshot before = task.snapshot();
+        task.setStatus(Task.TaskStatus.IN_PROGRESS);
+        TaskSnapshot after = task.snapshot();
+
+        // 旧快照不受后续修改影响
+        assertThat(before.status()).isEqualTo(Task.TaskStatus.NOT_STARTED);
+        assertThat(after.status()).isEqualTo(Task.TaskStatus.IN_PROGRESS);
+        assertThat(after.version()).isEqualTo(before.version() + 1);
+
+        // 从快照恢复的任务与原任务相同
+        Task restored = Task.fromSnapshot(before.withTitle("Complete CS Project"));
+        assertThat(restored).isEqualTo(task);
+        assertThat(restored.getTitle()).isEqualTo("Complete CS Project");
+    }
+
+    @Test
+    public void testConcurrentChangesAreNotLost() throws InterruptedException {
+        Task task = new Task(
+                "Complete Project",
+                "Finish the final project for CS class.",
+                LocalDateTime.of(2024, 12, 31, 23, 59),
+                LocalDateTime.of(2024, 12, 30, 12, 0),
+                Task.TaskPriority.HIGH
+        );
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    task.setDescription("Description " + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 每次修改都发布了一个新版本
+        assertThat(task.getVersion()).isEqualTo(4000);
+    }
+
+    @Test
+    public void testCompareAndSetStatus() {
+        Task task = new Task(
+                "Complete Project",
+                "Finish the final project for CS class.",
+                LocalDateTime.of(2024, 12, 31, 23, 59),
+                LocalDateTime.of(2024, 12, 30, 12, 0),
+                Task.TaskPriority.HIGH
+        );
+
+        task.setStatus(Task.TaskStatus.COMPLETED);
+
+        assertThat(task.compareAndSetStatus(Task.TaskStatus.NOT_STARTED, Task.TaskStatus.OVERDUE)).isFalse();
+        assertThat(task.getStatus()).isEqualTo(Task.TaskStatus.COMPLETED);
+        assertThat(task.compareAndSetStatus(Task.TaskStatus.COMPLETED, Task.TaskStatus.IN_PROGRESS)).isTrue();
+        assertThat(task.getStatus()).isEqualTo(Task.TaskStatus.IN_PROGRESS);
+    }
 }
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import static com.google.common.truth.Truth.assertThat;
+import javax.swing.SwingUtilities;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class TaskUpdateBusTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Test
+    public void testBurstOfRemindersIsDeliveredInOneFrame() throws Exception {
+        TaskTableModel model = createModel();
+        List<Integer> eventRows = new ArrayList<>();
+        model.addTableModelListener(e -> eventRows.add(e.getLastRow() - e.getFirstRow() + 1));
+        List<List<Task>> notifications = new ArrayList<>();
+        // 较长的帧保证其他线程发布的事件落在同一帧内
+        TaskUpdateBus bus = new TaskUpdateBus(model, 500, tasks -> notifications.add(new ArrayList<>(tasks)));
+
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+        Thread poster = new Thread(() -> {
+            for (int i = 0; i < 3000; i++) {
+                Task task = createTask("Task " + i);
+                bus.taskChanged(task);
+                deliveries.add(bus.reminderDue(task));
+            }
+        });
+        poster.start();
+        poster.join();
+        CompletableFuture.allOf(deliveries.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        SwingUtilities.invokeAndWait(() -> { });
+
+        assertThat(notifications).hasSize(1);
+        assertThat(notifications.get(0)).hasSize(3000);
+        assertThat(model.getRowCount()).isEqualTo(3000);
+        // 一帧内新增的任务只触发一个插入事件
+        assertThat(eventRows).containsExactly(3000);
+        assertThat(bus.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testChangesOfOneTaskWithinAFrameCollapseIntoTheLatest() throws Exception {
+        TaskTableModel model = createModel();
+        TaskUpdateBus bus = new TaskUpdateBus(model, 500, tasks -> { });
+        Task kept = createTask("Kept");
+        Task removed = createTask("Removed");
+        Task overdue = createTask("Overdue");
+        SwingUtilities.invokeAndWait(() -> model.putTasks(List.of(kept, removed, overdue)));
+
+        bus.statusChanged(kept.getId(), Task.TaskStatus.OVERDUE);
+        kept.setTitle("Kept updated");
+        bus.taskChanged(kept);
+        bus.statusChanged(removed.getId(), Task.TaskStatus.OVERDUE);
+        bus.taskRemoved(removed.getId());
+        bus.statusChanged(overdue.getId(), Task.TaskStatus.OVERDUE);
+        assertThat(bus.getPendingCount()).isEqualTo(3);
+        SwingUtilities.invokeAndWait(bus::flush);
+
+        assertThat(model.getRowCount()).isEqualTo(2);
+        assertThat(model.rowOf(removed.getId())).isEqualTo(-1);
+        int keptRow = model.rowOf(kept.getId());
+        assertThat(model.getValueAt(keptRow, TaskTableModel.COLUMN_TITLE)).isEqualTo("Kept updated");
+        // 后到的整行更新覆盖之前的状态变化
+        assertThat(model.getValueAt(keptRow, TaskTableModel.COLUMN_STATUS)).isEqualTo(Task.TaskStatus.NOT_STARTED);
+        assertThat(model.getValueAt(model.rowOf(overdue.getId()), TaskTableModel.COLUMN_STATUS)).isEqualTo(Task.TaskStatus.OVERDUE);
+    }
+
+    @Test
+    public void testFailedNotificationFailsTheDeliveries() throws Exception {
+        TaskUpdateBus bus = new TaskUpdateBus(createModel(), 0, tasks -> {
+            throw new IllegalStateException("No display");
+        });
+
+        CompletableFuture<Void> delivery = bus.reminderDue(createTask("Task"));
+        SwingUtilities.invokeAndWait(bus::flush);
+
+        assertThat(delivery.isCompletedExceptionally()).isTrue();
+    }
+
+    private TaskTableModel createModel() {
+        return new TaskTableModel("ID", "Title", "Description", "Priority", "Status", "Due", "Reminder");
+    }
+
+    private Task createTask(String title) {
+        return new Task(title, "Description", START.plusHours(1), START, Task.TaskPriority.MEDIUM);
+    }
+}
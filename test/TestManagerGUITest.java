@@ -2,8 +2,6 @@ import org.junit.jupiter.api.*;
 import javax.swing.*;
 import java.awt.*;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import javax.swing.table.DefaultTableModel;
 
 class TaskManagerGUITest {
     private TaskManagerGUI gui;
@@ -59,15 +57,15 @@ class TaskManagerGUITest {
             JTable taskTable = findTaskTable(gui);
             Assertions.assertNotNull(taskTable);
 
-            // 验证表格列
-            DefaultTableModel model = (DefaultTableModel) taskTable.getModel();
-            Assertions.assertEquals(6, model.getColumnCount());
-            Assertions.assertEquals("标题", model.getColumnName(0));
-            Assertions.assertEquals("描述", model.getColumnName(1));
-            Assertions.assertEquals("优先级", model.getColumnName(2));
-            Assertions.assertEquals("状态", model.getColumnName(3));
-            Assertions.assertEquals("截止时间", model.getColumnName(4));
-            Assertions.assertEquals("提醒时间", model.getColumnName(5));
+            // 验证表格列（ID 列已隐藏）
+            Assertions.assertTrue(taskTable.getModel() instanceof TaskTableModel);
+            Assertions.assertEquals(6, taskTable.getColumnCount());
+            Assertions.assertEquals("标题", taskTable.getColumnName(0));
+            Assertions.assertEquals("描述", taskTable.getColumnName(1));
+            Assertions.assertEquals("优先级", taskTable.getColumnName(2));
+            Assertions.assertEquals("状态", taskTable.getColumnName(3));
+            Assertions.assertEquals("截止时间", taskTable.getColumnName(4));
+            Assertions.assertEquals("提醒时间", taskTable.getColumnName(5));
         });
     }
 
@@ -92,7 +90,6 @@ class TaskManagerGUITest {
 
             // 验证表格内容
             JTable taskTable = findTaskTable(gui);
-            DefaultTableModel model = (DefaultTableModel) taskTable.getModel();
 
             // 注意：由于添加任务是通过对话框完成的，这里只能验证表格的存在
             Assertions.assertNotNull(taskTable);
@@ -100,20 +97,21 @@ class TaskManagerGUITest {
     }
 
     @Test
-    void testDeleteTask() {
-        SwingUtilities.invokeLater(() -> {
+    void testDeleteTask() throws Exception {
+        TaskTableModel[] model = new TaskTableModel[1];
+        SwingUtilities.invokeAndWait(() -> {
             JTable taskTable = findTaskTable(gui);
-            DefaultTableModel model = (DefaultTableModel) taskTable.getModel();
+            model[0] = (TaskTableModel) taskTable.getModel();
 
             // 手动添加一行数据到表格
-            model.addRow(new Object[]{
+            model[0].clear();
+            model[0].putTask(new Task(
                     "要删除的任务",
                     "测试描述",
-                    Task.TaskPriority.HIGH.toString(),
-                    Task.TaskStatus.NOT_STARTED.toString(),
-                    LocalDateTime.now().plusHours(1).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")),
-                    LocalDateTime.now().plusMinutes(30).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))
-            });
+                    LocalDateTime.now().plusHours(1),
+                    LocalDateTime.now().plusMinutes(30),
+                    Task.TaskPriority.HIGH
+            ));
 
             // 选择第一行
             taskTable.setRowSelectionInterval(0, 0);
@@ -122,13 +120,18 @@ class TaskManagerGUITest {
             JButton deleteButton = findButtonByText(gui, "删除任务");
             Assertions.assertNotNull(deleteButton);
             deleteButton.doClick();
+        });
 
-            // 等待操作完成
-            robot.waitForIdle();
+        // 删除在后台线程写入数据库，之后在下一帧从表格中移除
+        int[] rowCount = new int[1];
+        long deadline = System.currentTimeMillis() + 5000;
+        do {
+            Thread.sleep(20);
+            SwingUtilities.invokeAndWait(() -> rowCount[0] = model[0].getRowCount());
+        } while (rowCount[0] > 0 && System.currentTimeMillis() < deadline);
 
-            // 验证任务是否被删除
-            Assertions.assertEquals(0, model.getRowCount());
-        });
+        // 验证任务是否被删除
+        Assertions.assertEquals(0, rowCount[0]);
     }
 
     // 工具方法：查找指定文本的按钮
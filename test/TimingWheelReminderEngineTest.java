@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.*;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class TimingWheelReminderEngineTest {
+    private TimingWheelReminderEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        // 小时间轮，便于覆盖跨层级的降级
+        engine = new TimingWheelReminderEngine(5, 8, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testRemindersFireInDeadlineOrder() throws InterruptedException {
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+
+        engine.schedule(() -> { fired.add(3); latch.countDown(); }, 900, TimeUnit.MILLISECONDS);
+        engine.schedule(() -> { fired.add(1); latch.countDown(); }, 20, TimeUnit.MILLISECONDS);
+        engine.schedule(() -> { fired.add(2); latch.countDown(); }, 300, TimeUnit.MILLISECONDS);
+
+        Assertions.assertTrue(latch.await(3, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of(1, 2, 3), fired);
+        Assertions.assertEquals(0, engine.pendingCount());
+    }
+
+    @Test
+    void testReminderDoesNotFireEarly() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] firedAfter = new long[1];
+
+        engine.schedule(() -> {
+            firedAfter[0] = System.nanoTime() - start;
+            latch.countDown();
+        }, 200, TimeUnit.MILLISECONDS);
+
+        Assertions.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assertions.assertTrue(firedAfter[0] >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void testCancelledReminderDoesNotFire() throws InterruptedException {
+        AtomicBoolean fired = new AtomicBoolean();
+        ReminderEngine.Handle handle = engine.schedule(() -> fired.set(true), 100, TimeUnit.MILLISECONDS);
+
+        Assertions.assertTrue(handle.cancel());
+        Assertions.assertFalse(handle.cancel());
+        Assertions.assertEquals(0, engine.pendingCount());
+
+        Thread.sleep(300);
+        Assertions.assertFalse(fired.get());
+    }
+
+    @Test
+    void testSchedulerUsesTimingWheel() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        TaskScheduler scheduler = new TaskScheduler(task -> latch.countDown(), engine);
+
+        Task task = new Task(
+                "Wheel Reminder",
+                "Test Description",
+                LocalDateTime.now().plusMinutes(10),
+                LocalDateTime.now().plusSeconds(1),
+                Task.TaskPriority.HIGH
+        );
+        scheduler.scheduleTask(task);
+
+        Assertions.assertTrue(latch.await(3, TimeUnit.SECONDS));
+    }
+}
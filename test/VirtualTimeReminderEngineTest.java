@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class VirtualTimeReminderEngineTest {
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private VirtualTimeReminderEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new VirtualTimeReminderEngine(START, ZoneOffset.UTC);
+    }
+
+    @Test
+    void testRemindersFireInDeadlineOrderAtTheirDeadline() {
+        List<String> fired = new ArrayList<>();
+
+        engine.schedule(() -> fired.add("c@" + engine.clock().instant()), 3, TimeUnit.HOURS);
+        engine.schedule(() -> fired.add("a@" + engine.clock().instant()), 1500, TimeUnit.MILLISECONDS);
+        engine.schedule(() -> fired.add("b@" + engine.clock().instant()), 1500, TimeUnit.MILLISECONDS);
+
+        // 时间只在 advance 时前进，同一时刻的提醒按安排顺序触发
+        Assertions.assertEquals(START, engine.clock().instant());
+        Assertions.assertEquals(2, engine.advance(Duration.ofHours(1)));
+        Assertions.assertEquals(List.of("a@2024-01-01T00:00:01.500Z", "b@2024-01-01T00:00:01.500Z"), fired);
+        Assertions.assertEquals(START.plus(Duration.ofHours(1)), engine.clock().instant());
+
+        Assertions.assertEquals(1, engine.advanceTo(START.plus(Duration.ofDays(1))));
+        Assertions.assertEquals("c@2024-01-01T03:00:00Z", fired.get(2));
+        Assertions.assertEquals(0, engine.pendingCount());
+        Assertions.assertEquals(3, engine.getFiredCount());
+    }
+
+    @Test
+    void testRemindersScheduledWhileRunningFireInTheSameAdvance() {
+        List<Instant> fired = new ArrayList<>();
+        engine.schedule(() -> engine.schedule(() -> fired.add(engine.clock().instant()), 10, TimeUnit.MINUTES),
+                10, TimeUnit.MINUTES);
+
+        engine.advance(Duration.ofHours(1));
+
+        Assertions.assertEquals(List.of(START.plus(Duration.ofMinutes(20))), fired);
+    }
+
+    @Test
+    void testCancelledReminderDoesNotFire() {
+        ReminderEngine.Handle handle = engine.schedule(() -> Assertions.fail("Cancelled reminder fired"), 1, TimeUnit.SECONDS);
+
+        Assertions.assertTrue(handle.cancel());
+        Assertions.assertFalse(handle.cancel());
+        Assertions.assertEquals(0, engine.pendingCount());
+        Assertions.assertEquals(0, engine.advance(Duration.ofSeconds(2)));
+    }
+
+    @Test
+    void testTimeCannotMoveBackwards() {
+        engine.advance(Duration.ofMinutes(1));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> engine.advanceTo(START));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> engine.advance(Duration.ofSeconds(-1)));
+    }
+}